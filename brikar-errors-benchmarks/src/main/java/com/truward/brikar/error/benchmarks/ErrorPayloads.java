@@ -0,0 +1,130 @@
+package com.truward.brikar.error.benchmarks;
+
+import com.truward.brikar.error.RestErrors;
+import com.truward.brikar.error.model.ErrorV1;
+import com.truward.brikar.protobuf.http.ProtobufHttpConstants;
+import com.truward.brikar.protobuf.http.json.ProtobufJsonHttpMessageConverter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Error payloads of various shapes, shared by benchmarks.
+ */
+final class ErrorPayloads {
+  private ErrorPayloads() {}
+
+  static final String SOURCE = "Benchmark";
+
+  static final String PROTOBUF_CONTENT_TYPE = ProtobufHttpConstants.PROTOBUF_MEDIA_TYPE.toString();
+
+  static final String JSON_CONTENT_TYPE = MediaType.APPLICATION_JSON_VALUE;
+
+  enum Shape {
+    /**
+     * Error with code, message, source and target only.
+     */
+    SMALL,
+
+    /**
+     * Error with many parameters of all the value kinds.
+     */
+    LARGE,
+
+    /**
+     * Error with deeply nested chain of inner errors.
+     */
+    DEEP
+  }
+
+  static ErrorV1.Error error(Shape shape) {
+    switch (shape) {
+      case SMALL:
+        return smallError(SOURCE).build();
+
+      case LARGE:
+        final ErrorV1.Error.Builder builder = smallError(SOURCE);
+        for (int i = 0; i < 64; ++i) {
+          builder.addParameters(RestErrors.stringParameter("str" + i, "Parameter value #" + i));
+          builder.addParameters(ErrorV1.ErrorParameter.newBuilder()
+              .setKey("long" + i)
+              .setValue(ErrorV1.ErrorValue.newBuilder().setLongValue(1000000000000L + i)));
+          builder.addParameters(ErrorV1.ErrorParameter.newBuilder()
+              .setKey("bool" + i)
+              .setValue(ErrorV1.ErrorValue.newBuilder().setBoolValue(i % 2 == 0)));
+        }
+        return builder.build();
+
+      case DEEP:
+        ErrorV1.Error error = smallError(SOURCE + 0).build();
+        for (int i = 1; i < 32; ++i) {
+          error = smallError(SOURCE + i).setInnerError(error).build();
+        }
+        return error;
+
+      default:
+        throw new IllegalArgumentException("Unknown shape=" + shape);
+    }
+  }
+
+  /**
+   * @return Error response in length-delimited protobuf form, as written by protobuf converter
+   */
+  static byte[] protobuf(ErrorV1.Error error) {
+    final ByteArrayOutputStream os = new ByteArrayOutputStream();
+    try {
+      RestErrors.errorResponse(error).writeDelimitedTo(os);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return os.toByteArray();
+  }
+
+  /**
+   * @return Error response in JSON form, as written by JSON converter
+   */
+  static byte[] json(ErrorV1.Error error) {
+    final BufferedOutputMessage outputMessage = new BufferedOutputMessage();
+    try {
+      new ProtobufJsonHttpMessageConverter().write(
+          RestErrors.errorResponse(error),
+          MediaType.APPLICATION_JSON,
+          outputMessage);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return outputMessage.body.toByteArray();
+  }
+
+  //
+  // Private
+  //
+
+  private static ErrorV1.Error.Builder smallError(String source) {
+    return ErrorV1.Error.newBuilder()
+        .setCode("InvalidArgument")
+        .setMessage("Invalid argument")
+        .setSource(source)
+        .setTarget("username");
+  }
+
+  private static final class BufferedOutputMessage implements HttpOutputMessage {
+    final HttpHeaders headers = new HttpHeaders();
+    final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+    @Override
+    public OutputStream getBody() {
+      return body;
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+      return headers;
+    }
+  }
+}
@@ -0,0 +1,105 @@
+package com.truward.brikar.error.benchmarks;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.truward.brikar.error.HttpRestErrorException;
+import com.truward.brikar.error.grpc.GrpcErrorConverter;
+import com.truward.brikar.error.model.ErrorV1;
+import io.grpc.Metadata;
+import io.grpc.Status;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for conversion of REST errors into gRPC statuses and trailers and back, compares
+ * {@link GrpcErrorConverter} against naive per-call conversion, that creates metadata key on each call.
+ * Note, that converter also truncates large errors to fit into gRPC metadata.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GrpcErrorConverterBenchmark {
+  private static final String ERROR_KEY_NAME = "brikar-error-bin";
+
+  @Param({"SMALL", "LARGE"})
+  public ErrorPayloads.Shape shape;
+
+  private final GrpcErrorConverter converter = new GrpcErrorConverter(ErrorPayloads.SOURCE);
+
+  private HttpRestErrorException exception;
+  private Status status;
+  private Metadata trailers;
+
+  @Setup
+  public void setup() {
+    exception = new HttpRestErrorException(400, ErrorPayloads.error(shape), false);
+    status = converter.toStatus(exception);
+    trailers = converter.toTrailers(exception.getError());
+  }
+
+  @Benchmark
+  public void encodeNaive(Blackhole blackhole) {
+    final Metadata.Key<byte[]> key = Metadata.Key.of(ERROR_KEY_NAME, Metadata.BINARY_BYTE_MARSHALLER);
+    final Metadata metadata = new Metadata();
+    metadata.put(key, exception.getError().toByteArray());
+    blackhole.consume(Status.fromCode(toCode(exception.getStatusCode()))
+        .withDescription(exception.getError().getMessage()));
+    blackhole.consume(metadata);
+  }
+
+  @Benchmark
+  public void encodeWithConverter(Blackhole blackhole) {
+    blackhole.consume(converter.toStatus(exception));
+    blackhole.consume(converter.toTrailers(exception.getError()));
+  }
+
+  @Benchmark
+  public HttpRestErrorException decodeNaive() throws InvalidProtocolBufferException {
+    final Metadata.Key<byte[]> key = Metadata.Key.of(ERROR_KEY_NAME, Metadata.BINARY_BYTE_MARSHALLER);
+    final ErrorV1.Error error = ErrorV1.Error.parseFrom(trailers.get(key));
+    return new HttpRestErrorException(toHttpStatus(status.getCode()), error, false);
+  }
+
+  @Benchmark
+  public HttpRestErrorException decodeWithConverter() {
+    return converter.toRestErrorException(status, trailers);
+  }
+
+  //
+  // Private
+  //
+
+  private static Status.Code toCode(int httpStatus) {
+    for (final Status.Code code : Status.Code.values()) {
+      if (toHttpStatus(code) == httpStatus) {
+        return code;
+      }
+    }
+    return Status.Code.UNKNOWN;
+  }
+
+  private static int toHttpStatus(Status.Code code) {
+    switch (code) {
+      case INVALID_ARGUMENT:
+        return 400;
+      case NOT_FOUND:
+        return 404;
+      default:
+        return 500;
+    }
+  }
+}
@@ -0,0 +1,38 @@
+package com.truward.brikar.error.benchmarks;
+
+import com.truward.brikar.error.HttpRestErrorException;
+import com.truward.brikar.error.model.ErrorV1;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link HttpRestErrorException} construction.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HttpRestErrorExceptionBenchmark {
+  private final ErrorV1.Error error = ErrorPayloads.error(ErrorPayloads.Shape.SMALL);
+
+  @Benchmark
+  public HttpRestErrorException withStackTrace() {
+    return new HttpRestErrorException(400, error);
+  }
+
+  @Benchmark
+  public HttpRestErrorException withoutStackTrace() {
+    return new HttpRestErrorException(400, error, false);
+  }
+}
@@ -0,0 +1,105 @@
+package com.truward.brikar.error.benchmarks;
+
+import com.truward.brikar.error.jetty.RestErrorBodyCache;
+import com.truward.brikar.error.jetty.RestErrorNegotiationCache;
+import com.truward.brikar.error.jetty.StandardJettyRestErrorHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import javax.annotation.Nullable;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for negotiation and writing of container errors in Jetty error handler.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JettyRestErrorHandlerBenchmark {
+
+  @Param({"json", "protobuf", "html"})
+  public String accept;
+
+  @Param({"true", "false"})
+  public boolean cached;
+
+  private BenchmarkErrorHandler handler;
+  private HttpServletRequest request;
+  private HttpServletResponse response;
+
+  @Setup
+  public void setUp() {
+    final String acceptHeader;
+    switch (accept) {
+      case "json":
+        acceptHeader = MediaType.APPLICATION_JSON_VALUE;
+        break;
+      case "protobuf":
+        acceptHeader = ErrorPayloads.PROTOBUF_CONTENT_TYPE;
+        break;
+      case "html":
+        acceptHeader = "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8";
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown accept=" + accept);
+    }
+
+    handler = new BenchmarkErrorHandler(cached);
+    request = ServletMocks.request(Collections.singletonMap(HttpHeaders.ACCEPT, acceptHeader));
+    response = ServletMocks.response();
+  }
+
+  @Benchmark
+  public boolean notFound() throws IOException {
+    return handler.write(request, response, 404, null);
+  }
+
+  @Benchmark
+  public boolean serviceUnavailableWithReason() throws IOException {
+    return handler.write(request, response, 503, "Server is shutting down");
+  }
+
+  private static final class BenchmarkErrorHandler extends StandardJettyRestErrorHandler {
+    private final boolean cached;
+
+    BenchmarkErrorHandler(boolean cached) {
+      super(ErrorPayloads.SOURCE);
+      this.cached = cached;
+    }
+
+    boolean write(HttpServletRequest request, HttpServletResponse response, int statusCode, @Nullable String reason)
+        throws IOException {
+      return writeRestError(request, response, statusCode, reason);
+    }
+
+    @Nullable
+    @Override
+    protected RestErrorBodyCache getRestErrorBodyCache() {
+      return cached ? super.getRestErrorBodyCache() : null;
+    }
+
+    @Nullable
+    @Override
+    protected RestErrorNegotiationCache getRestErrorNegotiationCache() {
+      return cached ? super.getRestErrorNegotiationCache() : null;
+    }
+  }
+}
@@ -0,0 +1,114 @@
+package com.truward.brikar.error.benchmarks;
+
+import com.truward.brikar.error.jetty.LoadSheddingHandler;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for rejection of requests by saturated {@link LoadSheddingHandler}.
+ * <p>
+ * Handler is saturated by requests, that are held by the wrapped handler, so that every measured request
+ * is rejected. Run with several thread counts, e.g. {@code -t 1 -t 4 -t 16}, to check that rejection throughput
+ * stays flat as the offered load grows.
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoadSheddingHandlerBenchmark {
+  private static final int MAX_CONCURRENT_REQUESTS = 2;
+
+  @Param({"json", "protobuf"})
+  public String accept;
+
+  private final CountDownLatch release = new CountDownLatch(1);
+  private final List<Thread> heldRequests = new ArrayList<>();
+  private LoadSheddingHandler handler;
+  private HttpServletRequest request;
+  private HttpServletResponse response;
+
+  @Setup
+  public void setUp() throws InterruptedException {
+    handler = new LoadSheddingHandler(ErrorPayloads.SOURCE, MAX_CONCURRENT_REQUESTS, 0L);
+    handler.setHandler(new AbstractHandler() {
+      @Override
+      public void handle(
+          String target,
+          Request baseRequest,
+          HttpServletRequest request,
+          HttpServletResponse response) {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+
+    request = ServletMocks.request(Collections.singletonMap(HttpHeaders.ACCEPT,
+        accept.equals("json") ? MediaType.APPLICATION_JSON_VALUE : ErrorPayloads.PROTOBUF_CONTENT_TYPE));
+    response = ServletMocks.response();
+
+    for (int i = 0; i < MAX_CONCURRENT_REQUESTS; ++i) {
+      final Thread thread = new Thread(() -> {
+        try {
+          handler.handle("/", new Request(), request, response);
+        } catch (Exception e) {
+          throw new IllegalStateException(e);
+        }
+      }, "held-request-" + i);
+      thread.start();
+      heldRequests.add(thread);
+    }
+    while (handler.getActiveRequests() < MAX_CONCURRENT_REQUESTS) {
+      Thread.sleep(1L);
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws InterruptedException {
+    release.countDown();
+    for (final Thread thread : heldRequests) {
+      thread.join();
+    }
+  }
+
+  @Benchmark
+  public boolean reject(BaseRequest baseRequest) throws Exception {
+    handler.handle("/", baseRequest.request, request, response);
+    return baseRequest.request.isHandled();
+  }
+
+  /**
+   * Jetty request, that is marked as handled on rejection, is not thread safe, so each thread gets its own one.
+   */
+  @State(Scope.Thread)
+  public static class BaseRequest {
+    final Request request = new Request();
+  }
+}
@@ -0,0 +1,90 @@
+package com.truward.brikar.error.benchmarks;
+
+import com.truward.brikar.error.RestErrorCodeRegistry;
+import com.truward.brikar.error.model.ErrorV1;
+import com.truward.brikar.error.parser.RestErrorParser;
+import com.truward.brikar.error.parser.RestErrorPeek;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for parsing error responses on the client side.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RestErrorParserBenchmark {
+
+  @Param({"SMALL", "LARGE", "DEEP"})
+  public ErrorPayloads.Shape shape;
+
+  @Param({"protobuf", "json"})
+  public String format;
+
+  private final RestErrorParser parser = new RestErrorParser();
+  private final RestErrorCodeRegistry registry = RestErrorCodeRegistry.standard();
+
+  private String contentType;
+  private byte[] body;
+  private HttpClientErrorException exception;
+
+  @Setup
+  public void setUp() {
+    final ErrorV1.Error error = ErrorPayloads.error(shape);
+    switch (format) {
+      case "protobuf":
+        contentType = ErrorPayloads.PROTOBUF_CONTENT_TYPE;
+        body = ErrorPayloads.protobuf(error);
+        break;
+      case "json":
+        contentType = ErrorPayloads.JSON_CONTENT_TYPE;
+        body = ErrorPayloads.json(error);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown format=" + format);
+    }
+
+    final HttpHeaders headers = new HttpHeaders();
+    headers.set(HttpHeaders.CONTENT_TYPE, contentType);
+    exception = new HttpClientErrorException(
+        HttpStatus.BAD_REQUEST,
+        HttpStatus.BAD_REQUEST.getReasonPhrase(),
+        headers,
+        body,
+        StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public ErrorV1.Error parseError() throws IOException {
+    return RestErrorParser.parseError(exception);
+  }
+
+  @Benchmark
+  public ErrorV1.Error readError() throws IOException {
+    return parser.readError(contentType, body, 0, body.length);
+  }
+
+  @Benchmark
+  public RestErrorPeek peekError() throws IOException {
+    return parser.peekError(contentType, body, 0, body.length, registry, false);
+  }
+}
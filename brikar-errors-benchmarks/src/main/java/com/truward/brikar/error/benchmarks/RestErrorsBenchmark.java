@@ -0,0 +1,72 @@
+package com.truward.brikar.error.benchmarks;
+
+import com.truward.brikar.error.HttpRestErrorException;
+import com.truward.brikar.error.RestErrors;
+import com.truward.brikar.error.StandardRestErrorCodes;
+import com.truward.brikar.error.model.ErrorV1;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link RestErrors} error builder and convenience factories.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RestErrorsBenchmark {
+  private final RestErrors restErrors = new RestErrors() {
+    @Override
+    protected String getSource() {
+      return ErrorPayloads.SOURCE;
+    }
+  };
+
+  private String argumentName = "username";
+  private String message = "Unexpected condition";
+
+  @Benchmark
+  public ErrorV1.Error errorBuilder() {
+    return restErrors.errorBuilder(StandardRestErrorCodes.INVALID_ARGUMENT).setTarget(argumentName).build();
+  }
+
+  @Benchmark
+  public ErrorV1.Error errorBuilderWithParameters() {
+    return restErrors.errorBuilder(StandardRestErrorCodes.INVALID_ARGUMENT)
+        .setTarget(argumentName)
+        .addParameters(RestErrors.stringParameter("value", message))
+        .addParameters(RestErrors.stringParameter("expected", "non-empty string"))
+        .build();
+  }
+
+  @Benchmark
+  public HttpRestErrorException invalidArgument() {
+    return restErrors.invalidArgument(argumentName);
+  }
+
+  @Benchmark
+  public HttpRestErrorException forbidden() {
+    return restErrors.forbidden();
+  }
+
+  @Benchmark
+  public HttpRestErrorException unsupported() {
+    return restErrors.unsupported();
+  }
+
+  @Benchmark
+  public HttpRestErrorException internalServerError() {
+    return restErrors.internalServerError(message);
+  }
+}
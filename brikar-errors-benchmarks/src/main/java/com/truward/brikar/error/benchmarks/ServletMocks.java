@@ -0,0 +1,80 @@
+package com.truward.brikar.error.benchmarks;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+
+/**
+ * Lightweight mock servlet objects, that do not record invocations.
+ */
+final class ServletMocks {
+  private ServletMocks() {}
+
+  /**
+   * @param headers Request headers
+   * @return Request, that returns given headers and default values for everything else
+   */
+  static HttpServletRequest request(Map<String, String> headers) {
+    return (HttpServletRequest) Proxy.newProxyInstance(
+        ServletMocks.class.getClassLoader(),
+        new Class<?>[] { HttpServletRequest.class },
+        (proxy, method, args) -> {
+          if (method.getName().equals("getHeader")) {
+            return headers.get((String) args[0]);
+          }
+          return defaultValue(method.getReturnType());
+        });
+  }
+
+  /**
+   * @return Response, that discards written body and ignores headers and status
+   */
+  static HttpServletResponse response() {
+    final ServletOutputStream outputStream = new NullServletOutputStream();
+    return (HttpServletResponse) Proxy.newProxyInstance(
+        ServletMocks.class.getClassLoader(),
+        new Class<?>[] { HttpServletResponse.class },
+        (proxy, method, args) -> {
+          if (method.getName().equals("getOutputStream")) {
+            return outputStream;
+          }
+          return defaultValue(method.getReturnType());
+        });
+  }
+
+  //
+  // Private
+  //
+
+  private static Object defaultValue(Class<?> type) {
+    if (!type.isPrimitive() || type == void.class) {
+      return null;
+    }
+    if (type == boolean.class) {
+      return false;
+    }
+    if (type == long.class) {
+      return 0L;
+    }
+    if (type == char.class) {
+      return '\0';
+    }
+    return 0;
+  }
+
+  private static final class NullServletOutputStream extends ServletOutputStream {
+    long written;
+
+    @Override
+    public void write(int b) {
+      ++written;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      written += len;
+    }
+  }
+}
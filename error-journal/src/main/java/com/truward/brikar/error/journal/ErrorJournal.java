@@ -0,0 +1,83 @@
+package com.truward.brikar.error.journal;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Layout of the error journal on disk.
+ * <p>
+ * Journal is a directory of segment files, named by increasing sequence number, so that lexicographical order of
+ * the names is the order of writing. Each segment starts with {@link #MAGIC} followed by records, each record is
+ * big-endian timestamp in milliseconds followed by length-delimited {@code ErrorV1.Error}, i.e. the same framing
+ * as used for protobuf-encoded error responses. Records are never split between segments, and the last record of
+ * the segment might be incomplete if the writer has been stopped abnormally.
+ * </p>
+ */
+@ParametersAreNonnullByDefault
+public final class ErrorJournal {
+  /**
+   * First four bytes of each segment: "BEJ" and format version.
+   */
+  public static final int MAGIC = 0x42454A01;
+
+  public static final int HEADER_SIZE = 4;
+
+  /**
+   * Size of the timestamp, that precedes length of each record.
+   */
+  public static final int TIMESTAMP_SIZE = 8;
+
+  private static final String SEGMENT_PREFIX = "errors-";
+  private static final String SEGMENT_SUFFIX = ".journal";
+  private static final Pattern SEGMENT_NAME = Pattern.compile(SEGMENT_PREFIX + "(\\d{16})" +
+      Pattern.quote(SEGMENT_SUFFIX));
+
+  private ErrorJournal() {
+  }
+
+  /**
+   * @param directory Journal directory
+   * @return Segments of the journal in the order of writing, or empty list if directory does not exist
+   * @throws IOException On I/O error
+   */
+  public static List<Path> listSegments(Path directory) throws IOException {
+    if (!Files.isDirectory(directory)) {
+      return Collections.emptyList();
+    }
+
+    final List<Path> result = new ArrayList<>();
+    try (final DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+      for (final Path path : stream) {
+        if (SEGMENT_NAME.matcher(path.getFileName().toString()).matches()) {
+          result.add(path);
+        }
+      }
+    }
+    result.sort((left, right) -> left.getFileName().toString().compareTo(right.getFileName().toString()));
+    return result;
+  }
+
+  //
+  // Private
+  //
+
+  static Path getSegment(Path directory, long sequence) {
+    return directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX));
+  }
+
+  static long getSequence(Path segment) {
+    final Matcher matcher = SEGMENT_NAME.matcher(segment.getFileName().toString());
+    if (!matcher.matches()) {
+      throw new IllegalArgumentException("Not a journal segment: " + segment);
+    }
+    return Long.parseLong(matcher.group(1));
+  }
+}
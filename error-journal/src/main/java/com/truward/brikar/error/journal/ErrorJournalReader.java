@@ -0,0 +1,585 @@
+package com.truward.brikar.error.journal;
+
+import com.google.protobuf.CodedInputStream;
+import com.truward.brikar.error.model.ErrorV1;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Reader of the error journal, see {@link ErrorJournal} for the format.
+ * <p>
+ * Segments are memory-mapped, so that scanning does not copy them into the heap. Aggregation runs in parallel,
+ * one fork/join task per segment, and does not parse errors: it reads timestamp of each record, skips records
+ * outside of the time range and extracts code and source fields directly from the mapped bytes. Each task counts
+ * groups in its own hash table, keyed by raw field bytes, so that strings are decoded once per distinct group
+ * rather than once per record. Incomplete record at the end of the segment is ignored and segment, deleted by
+ * the writer after it has been listed, is read as empty, so that journal can be read while it is being written.
+ * </p>
+ * <p>
+ * Instances of this class are immutable and thread safe.
+ * </p>
+ */
+@ParametersAreNonnullByDefault
+public final class ErrorJournalReader {
+  private static final int CODE_FIELD = 1;
+  private static final int SOURCE_FIELD = 3;
+
+  private final List<Path> segments;
+
+  /**
+   * @param directory Journal directory
+   * @throws IOException If directory can not be listed
+   */
+  public ErrorJournalReader(Path directory) throws IOException {
+    this(ErrorJournal.listSegments(directory));
+  }
+
+  /**
+   * @param segments Segment files in the order of writing
+   */
+  public ErrorJournalReader(List<Path> segments) {
+    this.segments = Collections.unmodifiableList(new ArrayList<>(Objects.requireNonNull(segments, "segments")));
+  }
+
+  public List<Path> getSegments() {
+    return segments;
+  }
+
+  public static Query.Builder newQuery() {
+    return new Query.Builder();
+  }
+
+  /**
+   * Receives journal records.
+   */
+  public interface Visitor {
+
+    /**
+     * @param timestampMillis Time of the error in milliseconds
+     * @param error Error
+     * @throws IOException On I/O error
+     */
+    void visit(long timestampMillis, ErrorV1.Error error) throws IOException;
+  }
+
+  /**
+   * Parses all the records sequentially, in the order of writing.
+   *
+   * @param visitor Visitor of the parsed records
+   * @return Number of records
+   * @throws IOException On I/O error or malformed segment
+   */
+  public long read(Visitor visitor) throws IOException {
+    Objects.requireNonNull(visitor, "visitor");
+    final byte[][] bytes = {new byte[256]};
+    long count = 0;
+    for (final Path segment : segments) {
+      count += scan(segment, (buffer, timestampMillis, offset, length) -> {
+        if (bytes[0].length < length) {
+          bytes[0] = new byte[Math.max(length, bytes[0].length * 2)];
+        }
+        final ByteBuffer record = buffer.duplicate();
+        record.position(offset);
+        record.get(bytes[0], 0, length);
+        visitor.visit(timestampMillis, ErrorV1.Error.parseFrom(CodedInputStream.newInstance(bytes[0], 0, length)));
+      });
+    }
+    return count;
+  }
+
+  /**
+   * Counts errors in parallel in the common fork/join pool.
+   *
+   * @param query Aggregation query
+   * @return Number of errors by group
+   * @throws IOException On I/O error or malformed segment
+   */
+  public Map<Group, Long> aggregate(Query query) throws IOException {
+    return aggregate(query, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Counts errors in parallel in the given pool.
+   *
+   * @param query Aggregation query
+   * @param pool Pool, that runs aggregation tasks
+   * @return Number of errors by group
+   * @throws IOException On I/O error or malformed segment
+   */
+  public Map<Group, Long> aggregate(Query query, ForkJoinPool pool) throws IOException {
+    Objects.requireNonNull(query, "query");
+    if (segments.isEmpty()) {
+      return Collections.emptyMap();
+    }
+
+    try {
+      return pool.invoke(new AggregateTask(query, 0, segments.size()));
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Aggregation query: optional time range and grouping dimensions. Errors, that match the query, are counted
+   * in a single group if no grouping dimension is set.
+   */
+  public static final class Query {
+    private final boolean byCode;
+    private final boolean bySource;
+    private final long bucketMillis;
+    private final long fromMillis;
+    private final long toMillis;
+
+    private Query(Builder builder) {
+      this.byCode = builder.byCode;
+      this.bySource = builder.bySource;
+      this.bucketMillis = builder.bucketMillis;
+      this.fromMillis = builder.fromMillis;
+      this.toMillis = builder.toMillis;
+    }
+
+    /**
+     * Builder of {@link Query}.
+     */
+    public static final class Builder {
+      private boolean byCode;
+      private boolean bySource;
+      private long bucketMillis;
+      private long fromMillis = Long.MIN_VALUE;
+      private long toMillis = Long.MAX_VALUE;
+
+      private Builder() {
+      }
+
+      public Builder groupByCode() {
+        this.byCode = true;
+        return this;
+      }
+
+      public Builder groupBySource() {
+        this.bySource = true;
+        return this;
+      }
+
+      /**
+       * @param bucketMillis Length of the time bucket in milliseconds
+       * @return This builder
+       */
+      public Builder groupByTimeBucket(long bucketMillis) {
+        if (bucketMillis <= 0) {
+          throw new IllegalArgumentException("bucketMillis should be positive");
+        }
+        this.bucketMillis = bucketMillis;
+        return this;
+      }
+
+      /**
+       * @param fromMillis Start of the time range, inclusive
+       * @param toMillis End of the time range, exclusive
+       * @return This builder
+       */
+      public Builder setTimeRange(long fromMillis, long toMillis) {
+        if (fromMillis > toMillis) {
+          throw new IllegalArgumentException("fromMillis should not be greater than toMillis");
+        }
+        this.fromMillis = fromMillis;
+        this.toMillis = toMillis;
+        return this;
+      }
+
+      public Query build() {
+        return new Query(this);
+      }
+    }
+  }
+
+  /**
+   * Aggregation group. Dimensions, that are not grouped by, are null or 0.
+   */
+  public static final class Group {
+    private final String code;
+    private final String source;
+    private final long bucketStartMillis;
+
+    public Group(@Nullable String code, @Nullable String source, long bucketStartMillis) {
+      this.code = code;
+      this.source = source;
+      this.bucketStartMillis = bucketStartMillis;
+    }
+
+    @Nullable
+    public String getCode() {
+      return code;
+    }
+
+    @Nullable
+    public String getSource() {
+      return source;
+    }
+
+    /**
+     * @return Start of the time bucket in milliseconds
+     */
+    public long getBucketStartMillis() {
+      return bucketStartMillis;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Group)) {
+        return false;
+      }
+
+      final Group other = (Group) o;
+      return bucketStartMillis == other.bucketStartMillis &&
+          Objects.equals(code, other.code) &&
+          Objects.equals(source, other.source);
+    }
+
+    @Override
+    public int hashCode() {
+      int h = Long.hashCode(bucketStartMillis);
+      h = 31 * h + (code != null ? code.hashCode() : 0);
+      h = 31 * h + (source != null ? source.hashCode() : 0);
+      return h;
+    }
+
+    @Override
+    public String toString() {
+      return "Group{code=" + code + ", source=" + source + ", bucketStartMillis=" + bucketStartMillis + '}';
+    }
+  }
+
+  //
+  // Private
+  //
+
+  private interface RecordHandler {
+    void handle(ByteBuffer buffer, long timestampMillis, int offset, int length) throws IOException;
+  }
+
+  /**
+   * Maps segment and passes each complete record to the given handler.
+   *
+   * @return Number of records
+   */
+  private static long scan(Path segment, RecordHandler handler) throws IOException {
+    final MappedByteBuffer buffer;
+    try (final FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+      final long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("Segment is too big to be mapped: " + segment);
+      }
+      if (size < ErrorJournal.HEADER_SIZE) {
+        // segment has just been created
+        return 0L;
+      }
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    } catch (NoSuchFileException e) {
+      // segment has been deleted by the writer, that limits segment count, after it has been listed
+      return 0L;
+    }
+
+    if (buffer.getInt(0) != ErrorJournal.MAGIC) {
+      throw new IOException("Not a journal segment: " + segment);
+    }
+
+    final int limit = buffer.limit();
+    int pos = ErrorJournal.HEADER_SIZE;
+    long count = 0;
+    while (pos + ErrorJournal.TIMESTAMP_SIZE < limit) {
+      final long timestampMillis = buffer.getLong(pos);
+      pos += ErrorJournal.TIMESTAMP_SIZE;
+
+      int length = 0;
+      int shift = 0;
+      byte b;
+      do {
+        if (pos >= limit) {
+          return count;
+        }
+        b = buffer.get(pos++);
+        length |= (b & 0x7F) << shift;
+        shift += 7;
+      } while (b < 0 && shift < 35);
+      if (b < 0 || length < 0) {
+        throw new IOException("Malformed record length at offset=" + pos + " in " + segment);
+      }
+      if (length > limit - pos) {
+        // incomplete record, that is being written
+        return count;
+      }
+
+      handler.handle(buffer, timestampMillis, pos, length);
+      pos += length;
+      ++count;
+    }
+    return count;
+  }
+
+  private final class AggregateTask extends RecursiveTask<Map<Group, Long>> {
+    private final Query query;
+    private final int from;
+    private final int to;
+
+    AggregateTask(Query query, int from, int to) {
+      this.query = query;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected Map<Group, Long> compute() {
+      if (to - from == 1) {
+        final GroupTable table = new GroupTable(query);
+        try {
+          scan(segments.get(from), table::add);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        return table.toMap();
+      }
+
+      final int middle = (from + to) >>> 1;
+      final AggregateTask right = new AggregateTask(query, middle, to);
+      right.fork();
+      final Map<Group, Long> result = new AggregateTask(query, from, middle).compute();
+      for (final Map.Entry<Group, Long> entry : right.join().entrySet()) {
+        result.merge(entry.getKey(), entry.getValue(), Long::sum);
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Open addressing hash table of group counts, keyed by raw bytes of code and source. Not thread safe.
+   */
+  private static final class GroupTable {
+    private final Query query;
+
+    private int size;
+    private long[] hashes = new long[64];
+    private byte[][] codes = new byte[64][];
+    private byte[][] sources = new byte[64][];
+    private long[] buckets = new long[64];
+    private long[] counts = new long[64];
+
+    // fields of the current record, set by parse
+    private int codeOffset;
+    private int codeLength;
+    private int sourceOffset;
+    private int sourceLength;
+    // end of the last read varint, avoids returning a pair from readVarint
+    private int varintEnd;
+
+    GroupTable(Query query) {
+      this.query = query;
+    }
+
+    void add(ByteBuffer buffer, long timestampMillis, int offset, int length) throws IOException {
+      if (timestampMillis < query.fromMillis || timestampMillis >= query.toMillis) {
+        return;
+      }
+
+      if (query.byCode || query.bySource) {
+        parse(buffer, offset, length);
+      }
+      final long bucket = query.bucketMillis > 0 ?
+          Math.floorDiv(timestampMillis, query.bucketMillis) * query.bucketMillis : 0L;
+
+      long hash = bucket * 0x9E3779B97F4A7C15L;
+      if (query.byCode) {
+        hash = hash(hash, buffer, codeOffset, codeLength);
+      }
+      if (query.bySource) {
+        hash = hash(hash, buffer, sourceOffset, sourceLength);
+      }
+
+      final int mask = hashes.length - 1;
+      for (int i = (int) (hash ^ (hash >>> 32)) & mask;; i = (i + 1) & mask) {
+        if (counts[i] == 0) {
+          insert(i, hash, buffer, bucket);
+          return;
+        }
+        if (hashes[i] == hash && buckets[i] == bucket &&
+            (!query.byCode || equal(codes[i], buffer, codeOffset, codeLength)) &&
+            (!query.bySource || equal(sources[i], buffer, sourceOffset, sourceLength))) {
+          ++counts[i];
+          return;
+        }
+      }
+    }
+
+    Map<Group, Long> toMap() {
+      final Map<Group, Long> result = new HashMap<>(size * 2);
+      for (int i = 0; i < counts.length; ++i) {
+        if (counts[i] > 0) {
+          result.put(new Group(
+              codes[i] != null ? new String(codes[i], StandardCharsets.UTF_8) : null,
+              sources[i] != null ? new String(sources[i], StandardCharsets.UTF_8) : null,
+              buckets[i]), counts[i]);
+        }
+      }
+      return result;
+    }
+
+    /**
+     * Finds code and source fields of the encoded error. Fields are written in the order of their numbers,
+     * so that scanning stops right after source field.
+     */
+    private void parse(ByteBuffer buffer, int offset, int length) throws IOException {
+      codeOffset = offset;
+      codeLength = 0;
+      sourceOffset = offset;
+      sourceLength = 0;
+
+      final int end = offset + length;
+      int pos = offset;
+      while (pos < end) {
+        final long tag = readVarint(buffer, pos, end);
+        pos = varintEnd;
+        final int field = (int) (tag >>> 3);
+        if (field > SOURCE_FIELD) {
+          return;
+        }
+
+        switch ((int) tag & 7) {
+          case 0:
+            readVarint(buffer, pos, end);
+            pos = varintEnd;
+            break;
+          case 1:
+            pos += 8;
+            break;
+          case 2:
+            final int fieldLength = (int) readVarint(buffer, pos, end);
+            pos = varintEnd;
+            if (fieldLength < 0 || fieldLength > end - pos) {
+              throw new IOException("Malformed error record");
+            }
+            if (field == CODE_FIELD) {
+              codeOffset = pos;
+              codeLength = fieldLength;
+            } else if (field == SOURCE_FIELD) {
+              sourceOffset = pos;
+              sourceLength = fieldLength;
+              return;
+            }
+            pos += fieldLength;
+            break;
+          case 5:
+            pos += 4;
+            break;
+          default:
+            throw new IOException("Unsupported wire type in error record");
+        }
+      }
+    }
+
+    private long readVarint(ByteBuffer buffer, int pos, int end) throws IOException {
+      long result = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+        if (pos >= end) {
+          throw new IOException("Truncated varint in error record");
+        }
+        final byte b = buffer.get(pos++);
+        result |= (long) (b & 0x7F) << shift;
+        if (b >= 0) {
+          varintEnd = pos;
+          return result;
+        }
+      }
+      throw new IOException("Malformed varint in error record");
+    }
+
+    private void insert(int index, long hash, ByteBuffer buffer, long bucket) {
+      hashes[index] = hash;
+      codes[index] = query.byCode ? copy(buffer, codeOffset, codeLength) : null;
+      sources[index] = query.bySource ? copy(buffer, sourceOffset, sourceLength) : null;
+      buckets[index] = bucket;
+      counts[index] = 1;
+      if (++size * 2 > counts.length) {
+        resize();
+      }
+    }
+
+    private void resize() {
+      final long[] oldHashes = hashes;
+      final byte[][] oldCodes = codes;
+      final byte[][] oldSources = sources;
+      final long[] oldBuckets = buckets;
+      final long[] oldCounts = counts;
+
+      final int capacity = oldCounts.length * 2;
+      hashes = new long[capacity];
+      codes = new byte[capacity][];
+      sources = new byte[capacity][];
+      buckets = new long[capacity];
+      counts = new long[capacity];
+      for (int j = 0; j < oldCounts.length; ++j) {
+        if (oldCounts[j] == 0) {
+          continue;
+        }
+        int i = (int) (oldHashes[j] ^ (oldHashes[j] >>> 32)) & (capacity - 1);
+        while (counts[i] != 0) {
+          i = (i + 1) & (capacity - 1);
+        }
+        hashes[i] = oldHashes[j];
+        codes[i] = oldCodes[j];
+        sources[i] = oldSources[j];
+        buckets[i] = oldBuckets[j];
+        counts[i] = oldCounts[j];
+      }
+    }
+
+    private static long hash(long h, ByteBuffer buffer, int offset, int length) {
+      for (int i = 0; i < length; ++i) {
+        h = (h ^ (buffer.get(offset + i) & 0xFF)) * 0x100000001b3L;
+      }
+      // field separator, so that moving bytes between fields changes the hash
+      h = (h ^ 0x1FF) * 0x100000001b3L;
+      return h ^ (h >>> 29);
+    }
+
+    private static boolean equal(byte[] key, ByteBuffer buffer, int offset, int length) {
+      if (key.length != length) {
+        return false;
+      }
+      for (int i = 0; i < length; ++i) {
+        if (key[i] != buffer.get(offset + i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private static byte[] copy(ByteBuffer buffer, int offset, int length) {
+      final byte[] result = new byte[length];
+      for (int i = 0; i < length; ++i) {
+        result[i] = buffer.get(offset + i);
+      }
+      return result;
+    }
+  }
+}
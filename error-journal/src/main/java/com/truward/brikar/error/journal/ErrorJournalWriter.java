@@ -0,0 +1,366 @@
+package com.truward.brikar.error.journal;
+
+import com.google.protobuf.CodedOutputStream;
+import com.truward.brikar.error.model.ErrorV1;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Asynchronous writer of the error journal, see {@link ErrorJournal} for the format.
+ * <p>
+ * Appending an error only puts it into a bounded queue along with the current time, so that it never blocks the
+ * calling thread: errors are dropped when the queue is full. Background thread takes errors from the queue in
+ * batches, encodes each batch into a single buffer and writes it with one system call, starting new segment when
+ * the current one would exceed the size limit. Writer always starts a new segment, so that segments, written
+ * by previous writers, are never modified. When segment count is limited, the oldest segments are deleted as new
+ * ones are started, {@link ErrorJournalReader} reads segments, deleted after they have been listed, as empty.
+ * </p>
+ * <p>
+ * Instances of this class are thread safe. Journal directory should not be shared by several writers.
+ * </p>
+ */
+@ParametersAreNonnullByDefault
+public final class ErrorJournalWriter implements Closeable {
+  public static final long DEFAULT_MAX_SEGMENT_BYTES = 64L * 1024 * 1024;
+  public static final int DEFAULT_QUEUE_CAPACITY = 64 * 1024;
+  public static final int DEFAULT_MAX_BATCH_SIZE = 1024;
+  public static final int UNLIMITED_SEGMENT_COUNT = 0;
+
+  private static final long POLL_MILLIS = 100L;
+
+  private final Path directory;
+  private final long maxSegmentBytes;
+  private final int maxSegmentCount;
+  private final int maxBatchSize;
+  private final LongSupplier clock;
+  private final BlockingQueue<Entry> queue;
+  private final Thread thread;
+
+  private final AtomicLong appendedCount = new AtomicLong();
+  // number of appends, that have checked that writer is open and are putting errors into the queue
+  private final AtomicInteger pendingAppends = new AtomicInteger();
+  private final LongAdder droppedCount = new LongAdder();
+  private final Object progress = new Object();
+  private volatile long writtenCount;
+  private volatile boolean closed;
+  private volatile IOException failure;
+
+  // accessed by the writer thread only
+  private final Deque<Path> segments;
+  private long nextSequence;
+  private FileChannel segment;
+  private long segmentSize;
+  private ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+
+  /**
+   * @param directory Journal directory, created if it does not exist
+   * @param maxSegmentBytes Maximum size of the segment, should not exceed 2GB, so that segment can be mapped
+   * @param maxSegmentCount Maximum number of segments in the directory, including the ones, written by previous
+   *                        writers, or {@link #UNLIMITED_SEGMENT_COUNT} if segments should never be deleted
+   * @param queueCapacity Maximum number of errors, waiting to be written
+   * @param maxBatchSize Maximum number of errors, written at once
+   * @param clock Source of the current time in milliseconds
+   * @throws IOException If journal directory can not be created or listed
+   */
+  public ErrorJournalWriter(
+      Path directory,
+      long maxSegmentBytes,
+      int maxSegmentCount,
+      int queueCapacity,
+      int maxBatchSize,
+      LongSupplier clock) throws IOException {
+    if (maxSegmentBytes <= ErrorJournal.HEADER_SIZE || maxSegmentBytes > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("maxSegmentBytes should be greater than header size and less than 2GB");
+    }
+    if (maxSegmentCount < 0) {
+      throw new IllegalArgumentException("maxSegmentCount should not be negative");
+    }
+    if (queueCapacity <= 0 || maxBatchSize <= 0) {
+      throw new IllegalArgumentException("queueCapacity and maxBatchSize should be positive");
+    }
+
+    this.directory = Objects.requireNonNull(directory, "directory");
+    this.maxSegmentBytes = maxSegmentBytes;
+    this.maxSegmentCount = maxSegmentCount;
+    this.maxBatchSize = maxBatchSize;
+    this.clock = Objects.requireNonNull(clock, "clock");
+    this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+    Files.createDirectories(directory);
+    final List<Path> segments = ErrorJournal.listSegments(directory);
+    this.segments = new ArrayDeque<>(segments);
+    this.nextSequence = segments.isEmpty() ? 0L : ErrorJournal.getSequence(segments.get(segments.size() - 1)) + 1;
+
+    this.thread = new Thread(this::run, "error-journal-writer");
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  public ErrorJournalWriter(
+      Path directory,
+      long maxSegmentBytes,
+      int queueCapacity,
+      int maxBatchSize,
+      LongSupplier clock) throws IOException {
+    this(directory, maxSegmentBytes, UNLIMITED_SEGMENT_COUNT, queueCapacity, maxBatchSize, clock);
+  }
+
+  public ErrorJournalWriter(Path directory) throws IOException {
+    this(directory, DEFAULT_MAX_SEGMENT_BYTES, DEFAULT_QUEUE_CAPACITY, DEFAULT_MAX_BATCH_SIZE,
+        System::currentTimeMillis);
+  }
+
+  /**
+   * Appends error, that has been emitted or received at the current time.
+   *
+   * @param error Error to append
+   * @return True, if error has been queued, false if it has been dropped
+   */
+  public boolean append(ErrorV1.Error error) {
+    return append(clock.getAsLong(), error);
+  }
+
+  /**
+   * @param timestampMillis Time of the error in milliseconds
+   * @param error Error to append
+   * @return True, if error has been queued, false if it has been dropped
+   */
+  public boolean append(long timestampMillis, ErrorV1.Error error) {
+    Objects.requireNonNull(error, "error");
+    // writer thread waits for pending appends after close, so that errors, accepted here, are not left in the queue
+    pendingAppends.incrementAndGet();
+    try {
+      if (closed || failure != null || !queue.offer(new Entry(timestampMillis, error))) {
+        droppedCount.increment();
+        return false;
+      }
+      appendedCount.incrementAndGet();
+      return true;
+    } finally {
+      pendingAppends.decrementAndGet();
+    }
+  }
+
+  /**
+   * Waits until errors, appended before this call, are written to the segment.
+   *
+   * @param timeoutMillis Maximum time to wait
+   * @return True, if errors have been written, false if timeout has elapsed
+   * @throws IOException If writer has failed
+   * @throws InterruptedException If current thread has been interrupted
+   */
+  public boolean flush(long timeoutMillis) throws IOException, InterruptedException {
+    final long target = appendedCount.get();
+    final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    synchronized (progress) {
+      while (writtenCount < target) {
+        checkFailure();
+        final long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        if (remaining <= 0 || !thread.isAlive()) {
+          return false;
+        }
+        progress.wait(remaining);
+      }
+    }
+    checkFailure();
+    return true;
+  }
+
+  /**
+   * @return Number of errors, that have been written to the segments
+   */
+  public long getWrittenCount() {
+    return writtenCount;
+  }
+
+  /**
+   * @return Number of errors, that have been dropped due to full queue, failure or closed writer
+   */
+  public long getDroppedCount() {
+    return droppedCount.sum();
+  }
+
+  /**
+   * Stops accepting errors, writes queued errors and closes current segment.
+   *
+   * @throws IOException If writer has failed
+   */
+  @Override
+  public void close() throws IOException {
+    closed = true;
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while closing journal writer", e);
+    }
+    checkFailure();
+  }
+
+  //
+  // Private
+  //
+
+  private void run() {
+    final List<Entry> batch = new ArrayList<>(maxBatchSize);
+    try {
+      while (true) {
+        final Entry first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          if (closed) {
+            break;
+          }
+          continue;
+        }
+
+        batch.add(first);
+        queue.drainTo(batch, maxBatchSize - 1);
+        writeBatch(batch);
+      }
+
+      // appends, that have seen open writer, might have not put their errors into the queue yet, the ones, that
+      // start after this wait, see closed writer
+      while (pendingAppends.get() > 0) {
+        Thread.yield();
+      }
+      while (queue.drainTo(batch, maxBatchSize) > 0) {
+        writeBatch(batch);
+      }
+    } catch (IOException e) {
+      failure = e;
+    } catch (InterruptedException e) {
+      failure = new IOException("Journal writer has been interrupted", e);
+    } finally {
+      try {
+        closeSegment();
+      } catch (IOException e) {
+        if (failure == null) {
+          failure = e;
+        }
+      }
+      synchronized (progress) {
+        progress.notifyAll();
+      }
+    }
+  }
+
+  private void writeBatch(List<Entry> batch) throws IOException {
+    write(batch);
+    synchronized (progress) {
+      writtenCount += batch.size();
+      progress.notifyAll();
+    }
+    batch.clear();
+  }
+
+  private void write(List<Entry> batch) throws IOException {
+    buffer.clear();
+    for (final Entry entry : batch) {
+      final int length = entry.error.getSerializedSize();
+      final int size = ErrorJournal.TIMESTAMP_SIZE + CodedOutputStream.computeUInt32SizeNoTag(length) + length;
+      if (segment == null ||
+          (segmentSize > ErrorJournal.HEADER_SIZE && segmentSize + buffer.position() + size > maxSegmentBytes)) {
+        writeBuffer();
+        openSegment();
+      }
+
+      ensureCapacity(size);
+      buffer.putLong(entry.timestampMillis);
+      final CodedOutputStream out = CodedOutputStream.newInstance(buffer.array(), buffer.position(),
+          size - ErrorJournal.TIMESTAMP_SIZE);
+      out.writeUInt32NoTag(length);
+      entry.error.writeTo(out);
+      out.checkNoSpaceLeft();
+      buffer.position(buffer.position() + size - ErrorJournal.TIMESTAMP_SIZE);
+    }
+    writeBuffer();
+  }
+
+  private void writeBuffer() throws IOException {
+    if (buffer.position() == 0) {
+      return;
+    }
+
+    buffer.flip();
+    segmentSize += buffer.remaining();
+    while (buffer.hasRemaining()) {
+      segment.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  private void ensureCapacity(int size) {
+    if (buffer.remaining() < size) {
+      final ByteBuffer newBuffer = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + size));
+      buffer.flip();
+      newBuffer.put(buffer);
+      buffer = newBuffer;
+    }
+  }
+
+  private void openSegment() throws IOException {
+    closeSegment();
+    final Path path = ErrorJournal.getSegment(directory, nextSequence++);
+    segment = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    segments.addLast(path);
+    if (maxSegmentCount != UNLIMITED_SEGMENT_COUNT) {
+      while (segments.size() > maxSegmentCount) {
+        Files.deleteIfExists(segments.removeFirst());
+      }
+    }
+
+    final ByteBuffer header = ByteBuffer.allocate(ErrorJournal.HEADER_SIZE);
+    header.putInt(ErrorJournal.MAGIC).flip();
+    while (header.hasRemaining()) {
+      segment.write(header);
+    }
+    segmentSize = ErrorJournal.HEADER_SIZE;
+  }
+
+  private void closeSegment() throws IOException {
+    if (segment != null) {
+      try {
+        segment.force(false);
+      } finally {
+        segment.close();
+        segment = null;
+      }
+    }
+  }
+
+  private void checkFailure() throws IOException {
+    final IOException e = failure;
+    if (e != null) {
+      throw new IOException("Journal writer has failed", e);
+    }
+  }
+
+  private static final class Entry {
+    final long timestampMillis;
+    final ErrorV1.Error error;
+
+    Entry(long timestampMillis, ErrorV1.Error error) {
+      this.timestampMillis = timestampMillis;
+      this.error = error;
+    }
+  }
+}
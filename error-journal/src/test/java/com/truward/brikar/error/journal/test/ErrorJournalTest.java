@@ -0,0 +1,300 @@
+package com.truward.brikar.error.journal.test;
+
+import com.truward.brikar.error.RestErrors;
+import com.truward.brikar.error.StandardRestErrorCodes;
+import com.truward.brikar.error.journal.ErrorJournal;
+import com.truward.brikar.error.journal.ErrorJournalReader;
+import com.truward.brikar.error.journal.ErrorJournalWriter;
+import com.truward.brikar.error.model.ErrorV1;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link ErrorJournalWriter} and {@link ErrorJournalReader}.
+ */
+public final class ErrorJournalTest {
+  private static final String[] CODES = {
+      StandardRestErrorCodes.NOT_FOUND.getCodeName(),
+      StandardRestErrorCodes.INVALID_ARGUMENT.getCodeName(),
+      StandardRestErrorCodes.INTERNAL.getCodeName()
+  };
+  private static final String[] SOURCES = {"OrderService", "UserService"};
+
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  private final AtomicLong clock = new AtomicLong(1_000L);
+
+  @Test
+  public void shouldWriteAndReadErrors() throws Exception {
+    // Given:
+    final Path directory = folder.getRoot().toPath();
+    final List<ErrorV1.Error> errors = new ArrayList<>();
+    try (final ErrorJournalWriter writer = newWriter(directory, ErrorJournalWriter.DEFAULT_MAX_SEGMENT_BYTES)) {
+      for (int i = 0; i < 3; ++i) {
+        final ErrorV1.Error error = newError(i);
+        errors.add(error);
+        clock.set(1_000L + i);
+        assertTrue(writer.append(error));
+      }
+
+      // When:
+      assertTrue(writer.flush(10_000L));
+      assertEquals(3, writer.getWrittenCount());
+    }
+    final List<Long> timestamps = new ArrayList<>();
+    final List<ErrorV1.Error> result = new ArrayList<>();
+    final long count = new ErrorJournalReader(directory).read((timestampMillis, error) -> {
+      timestamps.add(timestampMillis);
+      result.add(error);
+    });
+
+    // Then:
+    assertEquals(3, count);
+    assertEquals(errors, result);
+    assertEquals(Arrays.asList(1_000L, 1_001L, 1_002L), timestamps);
+  }
+
+  @Test
+  public void shouldRollSegmentsWithoutSplittingRecords() throws Exception {
+    // Given:
+    final Path directory = folder.getRoot().toPath();
+    final int errorCount = 1_000;
+
+    // When:
+    writeErrors(directory, errorCount, 1024L);
+
+    // Then:
+    final ErrorJournalReader reader = new ErrorJournalReader(directory);
+    assertTrue(reader.getSegments().size() > 10);
+    for (final Path segment : reader.getSegments()) {
+      assertTrue(segment.toString(), Files.size(segment) <= 1024L);
+    }
+    final AtomicLong expectedTimestamp = new AtomicLong();
+    assertEquals(errorCount, reader.read((timestampMillis, error) -> {
+      final int i = (int) expectedTimestamp.getAndIncrement();
+      assertEquals(i, timestampMillis);
+      assertEquals(newError(i), error);
+    }));
+  }
+
+  @Test
+  public void shouldAggregateInParallel() throws Exception {
+    // Given:
+    final Path directory = folder.getRoot().toPath();
+    final int errorCount = 30_000;
+    writeErrors(directory, errorCount, 64 * 1024L);
+    final ErrorJournalReader reader = new ErrorJournalReader(directory);
+    final ForkJoinPool pool = new ForkJoinPool(4);
+
+    try {
+      // When:
+      final Map<ErrorJournalReader.Group, Long> byCodeAndSource = reader.aggregate(ErrorJournalReader.newQuery()
+          .groupByCode()
+          .groupBySource()
+          .build(), pool);
+      final Map<ErrorJournalReader.Group, Long> byTime = reader.aggregate(ErrorJournalReader.newQuery()
+          .groupByTimeBucket(10_000L)
+          .setTimeRange(5_000L, 25_000L)
+          .build(), pool);
+      final Map<ErrorJournalReader.Group, Long> total = reader.aggregate(ErrorJournalReader.newQuery().build(), pool);
+
+      // Then:
+      final Map<ErrorJournalReader.Group, Long> expected = new HashMap<>();
+      for (int i = 0; i < errorCount; ++i) {
+        expected.merge(new ErrorJournalReader.Group(CODES[i % CODES.length], SOURCES[i % SOURCES.length], 0L),
+            1L, Long::sum);
+      }
+      assertTrue(reader.getSegments().size() > 4);
+      assertEquals(expected, byCodeAndSource);
+
+      assertEquals(3, byTime.size());
+      assertEquals(Long.valueOf(5_000L), byTime.get(new ErrorJournalReader.Group(null, null, 0L)));
+      assertEquals(Long.valueOf(10_000L), byTime.get(new ErrorJournalReader.Group(null, null, 10_000L)));
+      assertEquals(Long.valueOf(5_000L), byTime.get(new ErrorJournalReader.Group(null, null, 20_000L)));
+
+      assertEquals(Long.valueOf(errorCount), total.get(new ErrorJournalReader.Group(null, null, 0L)));
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void shouldIgnoreIncompleteRecord() throws Exception {
+    // Given:
+    final Path directory = folder.getRoot().toPath();
+    writeErrors(directory, 10, ErrorJournalWriter.DEFAULT_MAX_SEGMENT_BYTES);
+    final List<Path> segments = ErrorJournal.listSegments(directory);
+    assertEquals(1, segments.size());
+
+    // When:
+    // timestamp and length of the record, that is being written
+    Files.write(segments.get(0), new byte[] {0, 0, 0, 0, 0, 0, 0, 1, 100, 10, 3}, StandardOpenOption.APPEND);
+
+    // Then:
+    assertEquals(10, new ErrorJournalReader(directory).read((timestampMillis, error) -> {}));
+    assertEquals(Long.valueOf(10L), new ErrorJournalReader(directory)
+        .aggregate(ErrorJournalReader.newQuery().build())
+        .get(new ErrorJournalReader.Group(null, null, 0L)));
+  }
+
+  @Test
+  public void shouldStartNewSegmentOnRestart() throws Exception {
+    // Given:
+    final Path directory = folder.getRoot().toPath();
+    writeErrors(directory, 10, ErrorJournalWriter.DEFAULT_MAX_SEGMENT_BYTES);
+
+    // When:
+    final ErrorJournalWriter writer = newWriter(directory, ErrorJournalWriter.DEFAULT_MAX_SEGMENT_BYTES);
+    assertTrue(writer.append(newError(0)));
+    writer.close();
+
+    // Then:
+    assertFalse("Closed writer should drop errors", writer.append(newError(1)));
+    assertEquals(1, writer.getDroppedCount());
+    assertEquals(2, ErrorJournal.listSegments(directory).size());
+    assertEquals(11, new ErrorJournalReader(directory).read((timestampMillis, error) -> {}));
+  }
+
+  @Test
+  public void shouldDeleteOldestSegments() throws Exception {
+    // Given:
+    final Path directory = folder.getRoot().toPath();
+    writeErrors(directory, 10, ErrorJournalWriter.DEFAULT_MAX_SEGMENT_BYTES);
+    final Path firstSegment = ErrorJournal.listSegments(directory).get(0);
+    final int errorCount = 1_000;
+
+    // When:
+    try (final ErrorJournalWriter writer = new ErrorJournalWriter(directory, 1024L, 3, 1024, 64, clock::get)) {
+      for (int i = 0; i < errorCount; ++i) {
+        while (!writer.append(i, newError(i))) {
+          assertTrue(writer.flush(10_000L));
+        }
+      }
+    }
+
+    // Then:
+    final ErrorJournalReader reader = new ErrorJournalReader(directory);
+    assertEquals(3, reader.getSegments().size());
+    assertFalse(Files.exists(firstSegment));
+    final List<Long> timestamps = new ArrayList<>();
+    reader.read((timestampMillis, error) -> timestamps.add(timestampMillis));
+    assertFalse(timestamps.isEmpty());
+    // the most recent errors are kept
+    for (int i = 0; i < timestamps.size(); ++i) {
+      assertEquals(errorCount - timestamps.size() + i, timestamps.get(i).longValue());
+    }
+  }
+
+  @Test
+  public void shouldReadDeletedSegmentAsEmpty() throws Exception {
+    // Given:
+    final Path directory = folder.getRoot().toPath();
+    writeErrors(directory, 10, ErrorJournalWriter.DEFAULT_MAX_SEGMENT_BYTES);
+    writeErrors(directory, 5, ErrorJournalWriter.DEFAULT_MAX_SEGMENT_BYTES);
+    final ErrorJournalReader reader = new ErrorJournalReader(directory);
+    assertEquals(2, reader.getSegments().size());
+
+    // When:
+    // writer, that limits segment count, deletes the oldest segment after reader has listed it
+    Files.delete(reader.getSegments().get(0));
+
+    // Then:
+    assertEquals(5, reader.read((timestampMillis, error) -> {}));
+    assertEquals(Long.valueOf(5L), reader.aggregate(ErrorJournalReader.newQuery().build())
+        .get(new ErrorJournalReader.Group(null, null, 0L)));
+  }
+
+  @Test
+  public void shouldWriteErrorsAppendedWhileClosing() throws Exception {
+    // Given:
+    final Path directory = folder.getRoot().toPath();
+    final ErrorJournalWriter writer = newWriter(directory, ErrorJournalWriter.DEFAULT_MAX_SEGMENT_BYTES);
+    final int threadCount = 4;
+    final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    final CountDownLatch started = new CountDownLatch(threadCount);
+    final AtomicBoolean stopped = new AtomicBoolean();
+    final List<Future<Long>> appenders = new ArrayList<>();
+
+    try {
+      for (int i = 0; i < threadCount; ++i) {
+        appenders.add(executor.submit(() -> {
+          long appended = 0;
+          started.countDown();
+          while (!stopped.get()) {
+            if (writer.append(newError((int) appended))) {
+              ++appended;
+            }
+          }
+          return appended;
+        }));
+      }
+      assertTrue(started.await(10, TimeUnit.SECONDS));
+
+      // When:
+      writer.close();
+      stopped.set(true);
+
+      // Then:
+      long appended = 0;
+      for (final Future<Long> appender : appenders) {
+        appended += appender.get(10, TimeUnit.SECONDS);
+      }
+      assertTrue(appended > 0);
+      assertEquals(appended, writer.getWrittenCount());
+      assertEquals(appended, new ErrorJournalReader(directory).read((timestampMillis, error) -> {}));
+    } finally {
+      stopped.set(true);
+      executor.shutdownNow();
+    }
+  }
+
+  //
+  // Private
+  //
+
+  private ErrorJournalWriter newWriter(Path directory, long maxSegmentBytes) throws Exception {
+    return new ErrorJournalWriter(directory, maxSegmentBytes, 1024, 64, clock::get);
+  }
+
+  private void writeErrors(Path directory, int errorCount, long maxSegmentBytes) throws Exception {
+    try (final ErrorJournalWriter writer = newWriter(directory, maxSegmentBytes)) {
+      for (int i = 0; i < errorCount; ++i) {
+        while (!writer.append(i, newError(i))) {
+          // queue is full - let writer catch up
+          assertTrue(writer.flush(10_000L));
+        }
+      }
+    }
+  }
+
+  private static ErrorV1.Error newError(int i) {
+    return ErrorV1.Error.newBuilder()
+        .setCode(CODES[i % CODES.length])
+        .setMessage("Error #" + i)
+        .setSource(SOURCES[i % SOURCES.length])
+        .setTarget("/items/" + i)
+        .addParameters(RestErrors.stringParameter("id", Integer.toString(i)))
+        .build();
+  }
+}
@@ -0,0 +1,46 @@
+package com.truward.brikar.error.grpc;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.truward.brikar.error.model.ErrorV1;
+import io.grpc.Metadata;
+
+/**
+ * Metadata keys, that carry protobuf-encoded errors in gRPC trailers.
+ * <p>
+ * Keys and their marshallers are created once and should be reused, as key creation validates and
+ * converts key name on each call.
+ * </p>
+ */
+public final class ErrorMetadata {
+  private ErrorMetadata() {}
+
+  /**
+   * Name of the binary trailer, that carries protobuf-encoded {@link ErrorV1.Error}.
+   */
+  public static final String ERROR_KEY_NAME = "brikar-error" + Metadata.BINARY_HEADER_SUFFIX;
+
+  public static final Metadata.BinaryMarshaller<ErrorV1.Error> ERROR_MARSHALLER = new ErrorMarshaller();
+
+  public static final Metadata.Key<ErrorV1.Error> ERROR_KEY = Metadata.Key.of(ERROR_KEY_NAME, ERROR_MARSHALLER);
+
+  //
+  // Private
+  //
+
+  private static final class ErrorMarshaller implements Metadata.BinaryMarshaller<ErrorV1.Error> {
+
+    @Override
+    public byte[] toBytes(ErrorV1.Error value) {
+      return value.toByteArray();
+    }
+
+    @Override
+    public ErrorV1.Error parseBytes(byte[] serialized) {
+      try {
+        return ErrorV1.Error.parseFrom(serialized);
+      } catch (InvalidProtocolBufferException e) {
+        throw new IllegalArgumentException("Malformed error trailer", e);
+      }
+    }
+  }
+}
@@ -0,0 +1,160 @@
+package com.truward.brikar.error.grpc;
+
+import com.truward.brikar.error.ErrorBudget;
+import com.truward.brikar.error.HttpRestErrorException;
+import com.truward.brikar.error.model.ErrorV1;
+import io.grpc.Metadata;
+import io.grpc.Status;
+import io.grpc.StatusException;
+import io.grpc.StatusRuntimeException;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Objects;
+
+/**
+ * Converts {@link HttpRestErrorException}s into gRPC statuses with errors in trailers and back.
+ * <p>
+ * Errors, that are written to trailers, are truncated to {@link #DEFAULT_ERROR_BUDGET} by default and status
+ * descriptions are limited to {@link #MAX_DESCRIPTION_LENGTH}, as gRPC limits total size of the received metadata
+ * to 8K by default and binary trailers are base64-encoded.
+ * Instances of this class are thread safe.
+ * </p>
+ */
+@ParametersAreNonnullByDefault
+public final class GrpcErrorConverter {
+  /**
+   * Budget, that keeps base64-encoded error well within default limit of gRPC metadata size.
+   */
+  public static final ErrorBudget DEFAULT_ERROR_BUDGET = new ErrorBudget(16, 4 * 1024, 32);
+
+  /**
+   * Maximum length of the status description, full message is available in the error trailer.
+   */
+  public static final int MAX_DESCRIPTION_LENGTH = 512;
+
+  private final String source;
+  private final GrpcStatusMapping mapping;
+  private final ErrorBudget errorBudget;
+
+  /**
+   * @param source Source of the errors, that are created for statuses without error trailer
+   * @param mapping Mapping of HTTP statuses to gRPC statuses
+   * @param errorBudget Limits, that errors are truncated to before being written to trailers
+   */
+  public GrpcErrorConverter(String source, GrpcStatusMapping mapping, ErrorBudget errorBudget) {
+    this.source = Objects.requireNonNull(source, "source");
+    this.mapping = Objects.requireNonNull(mapping, "mapping");
+    this.errorBudget = Objects.requireNonNull(errorBudget, "errorBudget");
+  }
+
+  public GrpcErrorConverter(String source) {
+    this(source, GrpcStatusMapping.standard(), DEFAULT_ERROR_BUDGET);
+  }
+
+  public GrpcStatusMapping getMapping() {
+    return mapping;
+  }
+
+  /**
+   * @param e REST error exception
+   * @return gRPC status, that corresponds to the status code of the given exception, with error message as
+   * description
+   */
+  public Status toStatus(HttpRestErrorException e) {
+    final Status status = mapping.getStatus(e.getStatusCode());
+    final String message = e.getError().getMessage();
+    return message.isEmpty() ? status : status.withDescription(getDescription(message));
+  }
+
+  /**
+   * @param error Error to be sent
+   * @return Trailers, that carry the given error, truncated to the error budget
+   */
+  public Metadata toTrailers(ErrorV1.Error error) {
+    final Metadata trailers = new Metadata();
+    trailers.put(ErrorMetadata.ERROR_KEY, errorBudget.apply(error));
+    return trailers;
+  }
+
+  public StatusRuntimeException toStatusException(HttpRestErrorException e) {
+    return new StatusRuntimeException(toStatus(e), toTrailers(e.getError()));
+  }
+
+  /**
+   * Converts gRPC status into REST error exception. Error is taken from trailers, if present, otherwise it is
+   * built from the status code and description. Resulting exception has no stack trace.
+   *
+   * @param status Non-OK gRPC status
+   * @param trailers Trailers, received along with status
+   * @return REST error exception
+   */
+  public HttpRestErrorException toRestErrorException(Status status, @Nullable Metadata trailers) {
+    ErrorV1.Error error = null;
+    if (trailers != null) {
+      try {
+        error = trailers.get(ErrorMetadata.ERROR_KEY);
+      } catch (IllegalArgumentException ignored) {
+        // malformed trailer - resort to status
+      }
+    }
+
+    if (error == null) {
+      final String description = status.getDescription();
+      error = ErrorV1.Error.newBuilder()
+          .setCode(mapping.getCodeName(status.getCode()))
+          .setMessage(description != null ? description : "")
+          .setSource(source)
+          .build();
+    }
+
+    return new HttpRestErrorException(mapping.getHttpStatus(status.getCode()), error, false);
+  }
+
+  /**
+   * Finds REST error exception, that corresponds to the given exception. Conversion is done only once for
+   * exceptions, received by the client, that uses {@link RestErrorClientInterceptor}.
+   *
+   * @param e Exception to be examined
+   * @return REST error exception or null, if given exception does not represent gRPC status
+   */
+  @Nullable
+  public HttpRestErrorException findRestErrorException(Throwable e) {
+    if (e instanceof HttpRestErrorException) {
+      return (HttpRestErrorException) e;
+    }
+
+    final Status status;
+    final Metadata trailers;
+    if (e instanceof StatusRuntimeException) {
+      status = ((StatusRuntimeException) e).getStatus();
+      trailers = ((StatusRuntimeException) e).getTrailers();
+    } else if (e instanceof StatusException) {
+      status = ((StatusException) e).getStatus();
+      trailers = ((StatusException) e).getTrailers();
+    } else {
+      return null;
+    }
+
+    if (status.getCause() instanceof HttpRestErrorException) {
+      return (HttpRestErrorException) status.getCause();
+    }
+    return toRestErrorException(status, trailers);
+  }
+
+  //
+  // Private
+  //
+
+  private static String getDescription(String message) {
+    if (message.length() <= MAX_DESCRIPTION_LENGTH) {
+      return message;
+    }
+
+    int length = MAX_DESCRIPTION_LENGTH;
+    if (Character.isHighSurrogate(message.charAt(length - 1))) {
+      --length;
+    }
+    return message.substring(0, length);
+  }
+}
@@ -0,0 +1,179 @@
+package com.truward.brikar.error.grpc;
+
+import com.truward.brikar.error.RestErrorCode;
+import com.truward.brikar.error.RestErrorCodeRegistry;
+import io.grpc.Status;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Objects;
+
+/**
+ * Mapping between HTTP statuses of REST errors and gRPC status codes, precomputed once for the given registry,
+ * so that conversion of an error takes a couple of array lookups.
+ * <p>
+ * HTTP statuses are mapped to gRPC codes as recommended by {@code google.rpc.Code}. Instances of this class are
+ * immutable and thread safe.
+ * </p>
+ */
+@ParametersAreNonnullByDefault
+public final class GrpcStatusMapping {
+  private static final GrpcStatusMapping STANDARD = new GrpcStatusMapping(RestErrorCodeRegistry.standard());
+
+  private static final int STATUS_COUNT =
+      RestErrorCodeRegistry.MAX_HTTP_STATUS - RestErrorCodeRegistry.MIN_HTTP_STATUS + 1;
+
+  private final RestErrorCodeRegistry registry;
+  private final Status[] statusesByHttpStatus = new Status[STATUS_COUNT];
+  private final Status[] statusesByOrdinal;
+  private final int[] httpStatusesByCode = new int[Status.Code.values().length];
+  private final String[] codeNamesByCode = new String[Status.Code.values().length];
+
+  public GrpcStatusMapping(RestErrorCodeRegistry registry) {
+    this.registry = Objects.requireNonNull(registry, "registry");
+
+    for (int i = 0; i < STATUS_COUNT; ++i) {
+      statusesByHttpStatus[i] = toCode(i + RestErrorCodeRegistry.MIN_HTTP_STATUS).toStatus();
+    }
+
+    statusesByOrdinal = new Status[registry.size()];
+    for (int i = 0; i < statusesByOrdinal.length; ++i) {
+      statusesByOrdinal[i] = getStatus(registry.get(i).getHttpStatus());
+    }
+
+    for (final Status.Code code : Status.Code.values()) {
+      final int httpStatus = toHttpStatus(code);
+      httpStatusesByCode[code.ordinal()] = httpStatus;
+      final RestErrorCode errorCode = registry.findByHttpStatus(httpStatus);
+      codeNamesByCode[code.ordinal()] = errorCode != null ? errorCode.getCodeName() : code.name();
+    }
+  }
+
+  /**
+   * @return Mapping, that uses registry of standard error codes
+   */
+  public static GrpcStatusMapping standard() {
+    return STANDARD;
+  }
+
+  public RestErrorCodeRegistry getRegistry() {
+    return registry;
+  }
+
+  /**
+   * @param httpStatus HTTP status code
+   * @return gRPC status without description, {@link Status#UNKNOWN} for statuses, that are not errors
+   */
+  public Status getStatus(int httpStatus) {
+    if (httpStatus < RestErrorCodeRegistry.MIN_HTTP_STATUS || httpStatus > RestErrorCodeRegistry.MAX_HTTP_STATUS) {
+      return Status.UNKNOWN;
+    }
+    return statusesByHttpStatus[httpStatus - RestErrorCodeRegistry.MIN_HTTP_STATUS];
+  }
+
+  /**
+   * @param codeName Name of the error code
+   * @return gRPC status of the registered error code or null, if code is not registered
+   */
+  @Nullable
+  public Status findStatusByCodeName(String codeName) {
+    final int ordinal = registry.getOrdinal(codeName);
+    return ordinal >= 0 ? statusesByOrdinal[ordinal] : null;
+  }
+
+  /**
+   * @param code gRPC status code
+   * @return HTTP status, that corresponds to the given code
+   */
+  public int getHttpStatus(Status.Code code) {
+    return httpStatusesByCode[code.ordinal()];
+  }
+
+  /**
+   * @param code gRPC status code
+   * @return Name of the registered error code for HTTP status of the given gRPC code, name of gRPC code otherwise
+   */
+  public String getCodeName(Status.Code code) {
+    return codeNamesByCode[code.ordinal()];
+  }
+
+  @Override
+  public String toString() {
+    return "GrpcStatusMapping{registry=" + registry + '}';
+  }
+
+  //
+  // Private
+  //
+
+  private static Status.Code toCode(int httpStatus) {
+    switch (httpStatus) {
+      case 400:
+        return Status.Code.INVALID_ARGUMENT;
+      case 401:
+        return Status.Code.UNAUTHENTICATED;
+      case 403:
+        return Status.Code.PERMISSION_DENIED;
+      case 404:
+        return Status.Code.NOT_FOUND;
+      case 408:
+        return Status.Code.DEADLINE_EXCEEDED;
+      case 409:
+        return Status.Code.ABORTED;
+      case 412:
+        return Status.Code.FAILED_PRECONDITION;
+      case 416:
+        return Status.Code.OUT_OF_RANGE;
+      case 429:
+        return Status.Code.RESOURCE_EXHAUSTED;
+      case 499:
+        return Status.Code.CANCELLED;
+      case 501:
+        return Status.Code.UNIMPLEMENTED;
+      case 503:
+        return Status.Code.UNAVAILABLE;
+      case 504:
+        return Status.Code.DEADLINE_EXCEEDED;
+      default:
+        if (httpStatus >= 400 && httpStatus < 500) {
+          return Status.Code.FAILED_PRECONDITION;
+        } else if (httpStatus >= 500) {
+          return Status.Code.INTERNAL;
+        }
+        return Status.Code.UNKNOWN;
+    }
+  }
+
+  private static int toHttpStatus(Status.Code code) {
+    switch (code) {
+      case OK:
+        return 200;
+      case CANCELLED:
+        return 499;
+      case INVALID_ARGUMENT:
+      case FAILED_PRECONDITION:
+      case OUT_OF_RANGE:
+        return 400;
+      case DEADLINE_EXCEEDED:
+        return 504;
+      case NOT_FOUND:
+        return 404;
+      case ALREADY_EXISTS:
+      case ABORTED:
+        return 409;
+      case PERMISSION_DENIED:
+        return 403;
+      case UNAUTHENTICATED:
+        return 401;
+      case RESOURCE_EXHAUSTED:
+        return 429;
+      case UNIMPLEMENTED:
+        return 501;
+      case UNAVAILABLE:
+        return 503;
+      default:
+        // UNKNOWN, INTERNAL, DATA_LOSS
+        return 500;
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package com.truward.brikar.error.grpc;
+
+import com.truward.brikar.error.HttpRestErrorException;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Objects;
+
+/**
+ * Client interceptor, that converts failed statuses into {@link HttpRestErrorException}s and attaches them as
+ * causes of the statuses, so that stubs throw {@code StatusRuntimeException} with REST error exception as a cause.
+ * <p>
+ * Statuses, that already have a cause, e.g. ones, that result from local cancellation, are left intact.
+ * </p>
+ *
+ * @see GrpcErrorConverter#findRestErrorException(Throwable)
+ */
+@ParametersAreNonnullByDefault
+public final class RestErrorClientInterceptor implements ClientInterceptor {
+  private final GrpcErrorConverter converter;
+
+  public RestErrorClientInterceptor(GrpcErrorConverter converter) {
+    this.converter = Objects.requireNonNull(converter, "converter");
+  }
+
+  @Override
+  public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(
+      MethodDescriptor<ReqT, RespT> method,
+      CallOptions callOptions,
+      Channel next) {
+    return new ForwardingClientCall.SimpleForwardingClientCall<ReqT, RespT>(next.newCall(method, callOptions)) {
+      @Override
+      public void start(Listener<RespT> responseListener, Metadata headers) {
+        super.start(new RestErrorListener<>(responseListener, converter), headers);
+      }
+    };
+  }
+
+  //
+  // Private
+  //
+
+  private static final class RestErrorListener<RespT>
+      extends ForwardingClientCallListener.SimpleForwardingClientCallListener<RespT> {
+    private final GrpcErrorConverter converter;
+
+    RestErrorListener(ClientCall.Listener<RespT> delegate, GrpcErrorConverter converter) {
+      super(delegate);
+      this.converter = converter;
+    }
+
+    @Override
+    public void onClose(Status status, Metadata trailers) {
+      if (!status.isOk() && status.getCause() == null) {
+        super.onClose(status.withCause(converter.toRestErrorException(status, trailers)), trailers);
+        return;
+      }
+
+      super.onClose(status, trailers);
+    }
+  }
+}
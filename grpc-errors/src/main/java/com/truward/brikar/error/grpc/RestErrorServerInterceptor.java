@@ -0,0 +1,111 @@
+package com.truward.brikar.error.grpc;
+
+import com.truward.brikar.error.HttpRestErrorException;
+import io.grpc.ForwardingServerCall;
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Objects;
+
+/**
+ * Server interceptor, that closes calls failed with {@link HttpRestErrorException} with the corresponding gRPC
+ * status and the error in trailers.
+ * <p>
+ * Exceptions are handled both when they are thrown by the service method and when they are passed to
+ * {@code StreamObserver.onError}.
+ * </p>
+ */
+@ParametersAreNonnullByDefault
+public final class RestErrorServerInterceptor implements ServerInterceptor {
+  private final GrpcErrorConverter converter;
+
+  public RestErrorServerInterceptor(GrpcErrorConverter converter) {
+    this.converter = Objects.requireNonNull(converter, "converter");
+  }
+
+  @Override
+  public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+      ServerCall<ReqT, RespT> call,
+      Metadata headers,
+      ServerCallHandler<ReqT, RespT> next) {
+    final RestErrorServerCall<ReqT, RespT> restErrorCall = new RestErrorServerCall<>(call, converter);
+    try {
+      return new RestErrorListener<>(next.startCall(restErrorCall, headers), restErrorCall);
+    } catch (HttpRestErrorException e) {
+      restErrorCall.close(e);
+      return new ServerCall.Listener<ReqT>() {};
+    }
+  }
+
+  //
+  // Private
+  //
+
+  private static final class RestErrorServerCall<ReqT, RespT>
+      extends ForwardingServerCall.SimpleForwardingServerCall<ReqT, RespT> {
+    private final GrpcErrorConverter converter;
+
+    RestErrorServerCall(ServerCall<ReqT, RespT> delegate, GrpcErrorConverter converter) {
+      super(delegate);
+      this.converter = converter;
+    }
+
+    @Override
+    public void close(Status status, Metadata trailers) {
+      if (status.getCause() instanceof HttpRestErrorException) {
+        final HttpRestErrorException e = (HttpRestErrorException) status.getCause();
+        trailers.merge(converter.toTrailers(e.getError()));
+        super.close(converter.toStatus(e), trailers);
+        return;
+      }
+
+      super.close(status, trailers);
+    }
+
+    void close(HttpRestErrorException e) {
+      super.close(converter.toStatus(e), converter.toTrailers(e.getError()));
+    }
+  }
+
+  private static final class RestErrorListener<ReqT, RespT>
+      extends ForwardingServerCallListener.SimpleForwardingServerCallListener<ReqT> {
+    private final RestErrorServerCall<ReqT, RespT> call;
+
+    RestErrorListener(ServerCall.Listener<ReqT> delegate, RestErrorServerCall<ReqT, RespT> call) {
+      super(delegate);
+      this.call = call;
+    }
+
+    @Override
+    public void onMessage(ReqT message) {
+      try {
+        super.onMessage(message);
+      } catch (HttpRestErrorException e) {
+        call.close(e);
+      }
+    }
+
+    @Override
+    public void onHalfClose() {
+      try {
+        super.onHalfClose();
+      } catch (HttpRestErrorException e) {
+        call.close(e);
+      }
+    }
+
+    @Override
+    public void onReady() {
+      try {
+        super.onReady();
+      } catch (HttpRestErrorException e) {
+        call.close(e);
+      }
+    }
+  }
+}
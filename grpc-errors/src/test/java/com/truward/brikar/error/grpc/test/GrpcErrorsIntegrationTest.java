@@ -0,0 +1,211 @@
+package com.truward.brikar.error.grpc.test;
+
+import com.truward.brikar.error.ErrorBudget;
+import com.truward.brikar.error.HttpRestErrorException;
+import com.truward.brikar.error.RestErrors;
+import com.truward.brikar.error.StandardRestErrorCodes;
+import com.truward.brikar.error.grpc.ErrorMetadata;
+import com.truward.brikar.error.grpc.GrpcErrorConverter;
+import com.truward.brikar.error.grpc.RestErrorClientInterceptor;
+import com.truward.brikar.error.grpc.RestErrorServerInterceptor;
+import com.truward.brikar.error.model.ErrorV1;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientInterceptors;
+import io.grpc.ManagedChannel;
+import io.grpc.MethodDescriptor;
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ClientCalls;
+import io.grpc.stub.ServerCalls;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * Integration test for gRPC interceptors, that runs over in-process transport.
+ */
+public final class GrpcErrorsIntegrationTest {
+  private static final String SERVER_NAME = "GrpcErrorsIntegrationTest";
+
+  private static final String THROW = "throw";
+  private static final String ON_ERROR = "onError";
+  private static final String LARGE = "large";
+  private static final String CRASH = "crash";
+
+  private static final RestErrors REST_ERRORS = new RestErrors() {
+    @Override
+    protected String getSource() {
+      return "TestService";
+    }
+  };
+
+  private static final MethodDescriptor<String, String> ECHO_METHOD = MethodDescriptor.<String, String>newBuilder()
+      .setType(MethodDescriptor.MethodType.UNARY)
+      .setFullMethodName(MethodDescriptor.generateFullMethodName("test.Echo", "Echo"))
+      .setRequestMarshaller(new StringMarshaller())
+      .setResponseMarshaller(new StringMarshaller())
+      .build();
+
+  private static final GrpcErrorConverter CONVERTER = new GrpcErrorConverter("Client");
+
+  private static Server server;
+  private static ManagedChannel managedChannel;
+  private static Channel channel;
+
+  @BeforeClass
+  public static void startServer() throws IOException {
+    final ServerServiceDefinition service = ServerServiceDefinition.builder("test.Echo")
+        .addMethod(ECHO_METHOD, ServerCalls.asyncUnaryCall((request, responseObserver) -> {
+          switch (request) {
+            case THROW:
+              throw REST_ERRORS.invalidArgument("id");
+            case ON_ERROR:
+              responseObserver.onError(REST_ERRORS.forbidden());
+              return;
+            case LARGE:
+              throw REST_ERRORS.internalServerError(new String(new char[10000]).replace('\0', 'x'));
+            case CRASH:
+              throw new IllegalStateException("Sensitive details");
+            default:
+              responseObserver.onNext(request);
+              responseObserver.onCompleted();
+          }
+        }))
+        .build();
+
+    server = InProcessServerBuilder.forName(SERVER_NAME)
+        .directExecutor()
+        .addService(ServerInterceptors.intercept(service, new RestErrorServerInterceptor(
+            new GrpcErrorConverter("Server"))))
+        .build()
+        .start();
+    managedChannel = InProcessChannelBuilder.forName(SERVER_NAME).directExecutor().build();
+    channel = ClientInterceptors.intercept(managedChannel, new RestErrorClientInterceptor(CONVERTER));
+  }
+
+  @AfterClass
+  public static void stopServer() {
+    if (managedChannel != null) {
+      managedChannel.shutdownNow();
+    }
+    if (server != null) {
+      server.shutdownNow();
+    }
+  }
+
+  @Test
+  public void shouldRespondNormally() {
+    assertEquals("hello", call("hello"));
+  }
+
+  @Test
+  public void shouldConvertThrownErrors() {
+    final HttpRestErrorException expected = REST_ERRORS.invalidArgument("id");
+
+    final StatusRuntimeException e = callWithError(THROW);
+
+    assertEquals(Status.Code.INVALID_ARGUMENT, e.getStatus().getCode());
+    assertEquals(expected.getError().getMessage(), e.getStatus().getDescription());
+    assertEquals(expected.getError(), e.getTrailers().get(ErrorMetadata.ERROR_KEY));
+
+    final HttpRestErrorException restError = CONVERTER.findRestErrorException(e);
+    assertNotNull(restError);
+    assertSame(e.getCause(), restError);
+    assertEquals(expected.getStatusCode(), restError.getStatusCode());
+    assertEquals(expected.getError(), restError.getError());
+  }
+
+  @Test
+  public void shouldConvertErrorsPassedToObserver() {
+    final HttpRestErrorException expected = REST_ERRORS.forbidden();
+
+    final StatusRuntimeException e = callWithError(ON_ERROR);
+
+    assertEquals(Status.Code.PERMISSION_DENIED, e.getStatus().getCode());
+    final HttpRestErrorException restError = CONVERTER.findRestErrorException(e);
+    assertNotNull(restError);
+    assertEquals(expected.getStatusCode(), restError.getStatusCode());
+    assertEquals(expected.getError(), restError.getError());
+  }
+
+  @Test
+  public void shouldTruncateLargeErrors() {
+    final StatusRuntimeException e = callWithError(LARGE);
+
+    assertEquals(Status.Code.INTERNAL, e.getStatus().getCode());
+    final HttpRestErrorException restError = CONVERTER.findRestErrorException(e);
+    assertNotNull(restError);
+    assertEquals(500, restError.getStatusCode());
+    assertTrue(restError.getError().getSerializedSize() <=
+        GrpcErrorConverter.DEFAULT_ERROR_BUDGET.getMaxEncodedBytes());
+    assertEquals(ErrorBudget.TRUNCATED_PARAMETER, restError.getError().getParameters(0).getKey());
+  }
+
+  @Test
+  public void shouldBuildErrorFromStatusIfThereIsNoErrorTrailer() {
+    final StatusRuntimeException e = callWithError(CRASH);
+
+    assertEquals(Status.Code.UNKNOWN, e.getStatus().getCode());
+    assertNull(e.getTrailers().get(ErrorMetadata.ERROR_KEY));
+
+    final HttpRestErrorException restError = CONVERTER.findRestErrorException(e);
+    assertNotNull(restError);
+    assertEquals(500, restError.getStatusCode());
+    assertEquals(StandardRestErrorCodes.INTERNAL.getCodeName(), restError.getError().getCode());
+    assertEquals("Client", restError.getError().getSource());
+    assertFalse(restError.getError().getMessage().contains("Sensitive"));
+  }
+
+  //
+  // Private
+  //
+
+  private static String call(String request) {
+    return ClientCalls.blockingUnaryCall(channel, ECHO_METHOD, CallOptions.DEFAULT, request);
+  }
+
+  private static StatusRuntimeException callWithError(String request) {
+    try {
+      call(request);
+    } catch (StatusRuntimeException e) {
+      return e;
+    }
+    throw new AssertionError("Call is expected to fail");
+  }
+
+  private static final class StringMarshaller implements MethodDescriptor.Marshaller<String> {
+
+    @Override
+    public InputStream stream(String value) {
+      return new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public String parse(InputStream stream) {
+      try {
+        final StringBuilder builder = new StringBuilder();
+        final byte[] buffer = new byte[256];
+        for (int read; (read = stream.read(buffer)) >= 0;) {
+          builder.append(new String(buffer, 0, read, StandardCharsets.UTF_8));
+        }
+        return builder.toString();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package com.truward.brikar.error.grpc.test;
+
+import com.truward.brikar.error.StandardRestErrorCodes;
+import com.truward.brikar.error.grpc.GrpcStatusMapping;
+import io.grpc.Status;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link GrpcStatusMapping}.
+ */
+public final class GrpcStatusMappingTest {
+  private final GrpcStatusMapping mapping = GrpcStatusMapping.standard();
+
+  @Test
+  public void shouldMapStandardCodes() {
+    assertEquals(Status.Code.INVALID_ARGUMENT, mapping.getStatus(400).getCode());
+    assertEquals(Status.Code.UNAUTHENTICATED, mapping.getStatus(401).getCode());
+    assertEquals(Status.Code.PERMISSION_DENIED, mapping.getStatus(403).getCode());
+    assertEquals(Status.Code.NOT_FOUND, mapping.getStatus(404).getCode());
+    assertEquals(Status.Code.RESOURCE_EXHAUSTED, mapping.getStatus(429).getCode());
+    assertEquals(Status.Code.INTERNAL, mapping.getStatus(500).getCode());
+    assertEquals(Status.Code.UNIMPLEMENTED, mapping.getStatus(501).getCode());
+    assertEquals(Status.Code.UNAVAILABLE, mapping.getStatus(503).getCode());
+  }
+
+  @Test
+  public void shouldMapUnlistedStatusesByClass() {
+    assertEquals(Status.Code.FAILED_PRECONDITION, mapping.getStatus(422).getCode());
+    assertEquals(Status.Code.INTERNAL, mapping.getStatus(507).getCode());
+    assertEquals(Status.Code.UNKNOWN, mapping.getStatus(302).getCode());
+    assertEquals(Status.Code.UNKNOWN, mapping.getStatus(-1).getCode());
+    assertEquals(Status.Code.UNKNOWN, mapping.getStatus(1000).getCode());
+  }
+
+  @Test
+  public void shouldFindStatusByCodeName() {
+    for (final StandardRestErrorCodes code : StandardRestErrorCodes.values()) {
+      final Status status = mapping.findStatusByCodeName(code.getCodeName());
+      assertNotNull(status);
+      assertSame(mapping.getStatus(code.getHttpStatus()), status);
+    }
+
+    assertNull(mapping.findStatusByCodeName("UnknownCode"));
+  }
+
+  @Test
+  public void shouldRoundTripStandardCodes() {
+    for (final StandardRestErrorCodes code : StandardRestErrorCodes.values()) {
+      final Status.Code grpcCode = mapping.getStatus(code.getHttpStatus()).getCode();
+      assertEquals(code.getHttpStatus(), mapping.getHttpStatus(grpcCode));
+    }
+  }
+
+  @Test
+  public void shouldUseRegisteredCodeNames() {
+    assertEquals(StandardRestErrorCodes.NOT_FOUND.getCodeName(), mapping.getCodeName(Status.Code.NOT_FOUND));
+    assertEquals(StandardRestErrorCodes.INTERNAL.getCodeName(), mapping.getCodeName(Status.Code.DATA_LOSS));
+    assertEquals(Status.Code.ALREADY_EXISTS.name(), mapping.getCodeName(Status.Code.ALREADY_EXISTS));
+  }
+}
@@ -0,0 +1,93 @@
+package com.truward.brikar.error.httpclient;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Input stream over the list of buffers, that reads buffers in place without joining them. Mark is supported by
+ * remembering buffer positions, so that the same buffers can be read again.
+ */
+@ParametersAreNonnullByDefault
+final class ByteBuffersInputStream extends InputStream {
+  private final List<ByteBuffer> buffers;
+  private int index;
+  private int markIndex;
+  private int[] markPositions;
+
+  ByteBuffersInputStream(List<ByteBuffer> buffers) {
+    this.buffers = buffers;
+  }
+
+  @Override
+  public int read() {
+    final ByteBuffer buffer = current();
+    return buffer != null ? buffer.get() & 0xFF : -1;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) {
+    if (len == 0) {
+      return 0;
+    }
+
+    final ByteBuffer buffer = current();
+    if (buffer == null) {
+      return -1;
+    }
+
+    final int count = Math.min(len, buffer.remaining());
+    buffer.get(b, off, count);
+    return count;
+  }
+
+  @Override
+  public int available() {
+    final ByteBuffer buffer = current();
+    return buffer != null ? buffer.remaining() : 0;
+  }
+
+  @Override
+  public boolean markSupported() {
+    return true;
+  }
+
+  @Override
+  public void mark(int readLimit) {
+    markIndex = index;
+    markPositions = new int[buffers.size() - index];
+    for (int i = 0; i < markPositions.length; ++i) {
+      markPositions[i] = buffers.get(markIndex + i).position();
+    }
+  }
+
+  @Override
+  public void reset() throws IOException {
+    if (markPositions == null) {
+      throw new IOException("Stream has not been marked");
+    }
+
+    for (int i = 0; i < markPositions.length; ++i) {
+      buffers.get(markIndex + i).position(markPositions[i]);
+    }
+    index = markIndex;
+  }
+
+  //
+  // Private
+  //
+
+  @Nullable
+  private ByteBuffer current() {
+    for (; index < buffers.size(); ++index) {
+      final ByteBuffer buffer = buffers.get(index);
+      if (buffer.hasRemaining()) {
+        return buffer;
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,125 @@
+package com.truward.brikar.error.httpclient;
+
+import com.truward.brikar.error.RestErrorCodeRegistry;
+import com.truward.brikar.error.model.ErrorV1;
+import com.truward.brikar.error.parser.RestErrorParser;
+import com.truward.brikar.error.parser.RestErrorResponseException;
+import org.springframework.http.HttpHeaders;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Subscriber of the error response body, that completes body future exceptionally with
+ * {@link RestErrorResponseException}. Calls of the subscriber methods are serialized by the HTTP client.
+ *
+ * @param <T> Type of the successful response body
+ */
+@ParametersAreNonnullByDefault
+final class ErrorBodySubscriber<T> implements HttpResponse.BodySubscriber<T> {
+  private final int statusCode;
+  private final HttpHeaders headers;
+  private final String contentType;
+  private final RestErrorParser parser;
+  private final RestErrorCodeRegistry registry;
+  private final CompletableFuture<T> result = new CompletableFuture<>();
+  private final boolean readable;
+  private final List<ByteBuffer> chunks = new ArrayList<>();
+  private long size;
+  private Flow.Subscription subscription;
+
+  ErrorBodySubscriber(HttpResponse.ResponseInfo responseInfo, RestErrorParser parser, RestErrorCodeRegistry registry) {
+    this.statusCode = responseInfo.statusCode();
+    this.headers = new HttpHeaders();
+    this.headers.putAll(responseInfo.headers().map());
+    this.contentType = this.headers.getFirst(HttpHeaders.CONTENT_TYPE);
+    this.parser = parser;
+    this.registry = registry;
+    this.readable = parser.canReadError(contentType);
+  }
+
+  @Override
+  public CompletionStage<T> getBody() {
+    return result;
+  }
+
+  @Override
+  public void onSubscribe(Flow.Subscription subscription) {
+    this.subscription = subscription;
+    subscription.request(1);
+  }
+
+  @Override
+  public void onNext(List<ByteBuffer> item) {
+    if (result.isDone()) {
+      return;
+    }
+
+    for (final ByteBuffer buffer : item) {
+      size += buffer.remaining();
+    }
+
+    if (size > parser.getMaxBodySize()) {
+      // stop receiving oversized body, that might be e.g. a huge HTML page
+      chunks.clear();
+      subscription.cancel();
+      fail(null, readable ? new IOException("Error body exceeds maxBodySize=" + parser.getMaxBodySize()) : null);
+      return;
+    }
+
+    if (readable) {
+      chunks.addAll(item);
+    }
+
+    subscription.request(1);
+  }
+
+  @Override
+  public void onError(Throwable throwable) {
+    chunks.clear();
+    result.completeExceptionally(throwable);
+  }
+
+  @Override
+  public void onComplete() {
+    if (result.isDone()) {
+      return;
+    }
+
+    if (!readable) {
+      fail(null, null);
+      return;
+    }
+
+    ErrorV1.Error error = null;
+    IOException cause = null;
+    try {
+      error = parser.readError(contentType, new ByteBuffersInputStream(chunks), (int) size);
+    } catch (IOException e) {
+      cause = e;
+    } finally {
+      chunks.clear();
+    }
+
+    fail(error, cause);
+  }
+
+  //
+  // Private
+  //
+
+  private void fail(@Nullable ErrorV1.Error error, @Nullable IOException cause) {
+    result.completeExceptionally(new RestErrorResponseException(statusCode, headers, error,
+        error != null ? RestErrorParser.resolveErrorCode(error, statusCode, registry) :
+            registry.findByHttpStatus(statusCode),
+        cause));
+  }
+}
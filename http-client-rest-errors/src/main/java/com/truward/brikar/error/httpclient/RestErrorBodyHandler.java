@@ -0,0 +1,67 @@
+package com.truward.brikar.error.httpclient;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.truward.brikar.error.RestErrorCodeRegistry;
+import com.truward.brikar.error.parser.ErrorResponseJsonReader;
+import com.truward.brikar.error.parser.RestErrorParser;
+import com.truward.brikar.error.parser.RestErrorResponseErrorHandler;
+import com.truward.brikar.error.parser.RestErrorResponseException;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.net.http.HttpResponse;
+import java.util.Objects;
+
+/**
+ * Body handler for {@link java.net.http.HttpClient}, that passes successful responses to the given handler and
+ * decodes error responses into {@link RestErrorResponseException}, that fails the body future.
+ * <p>
+ * Error body chunks are kept as they arrive and decoded in place once the body is complete, so that decoding
+ * neither blocks a thread nor joins the chunks into a single buffer. Bodies of unknown content types are
+ * discarded and bodies, that exceed maximum body size of the given parser, are cancelled as soon as
+ * the limit is hit.
+ * </p>
+ * <pre>
+ * client.sendAsync(request, RestErrorBodyHandler.of(HttpResponse.BodyHandlers.ofString()))
+ *     .exceptionally(e -&gt; ...); // e.getCause() is RestErrorResponseException for error responses
+ * </pre>
+ *
+ * @param <T> Type of the successful response body
+ */
+@ParametersAreNonnullByDefault
+public final class RestErrorBodyHandler<T> implements HttpResponse.BodyHandler<T> {
+  private static final RestErrorParser DEFAULT_PARSER = new RestErrorParser(new JsonFactory(),
+      RestErrorResponseErrorHandler.DEFAULT_MAX_BODY_SIZE, new ErrorResponseJsonReader());
+
+  private final HttpResponse.BodyHandler<T> successHandler;
+  private final RestErrorParser parser;
+  private final RestErrorCodeRegistry registry;
+
+  public RestErrorBodyHandler(
+      HttpResponse.BodyHandler<T> successHandler,
+      RestErrorParser parser,
+      RestErrorCodeRegistry registry) {
+    this.successHandler = Objects.requireNonNull(successHandler, "successHandler");
+    this.parser = Objects.requireNonNull(parser, "parser");
+    this.registry = Objects.requireNonNull(registry, "registry");
+  }
+
+  /**
+   * @param successHandler Handler of the successful responses
+   * @param <T> Type of the successful response body
+   * @return Body handler, that uses standard error codes and reads at most
+   * {@link RestErrorResponseErrorHandler#DEFAULT_MAX_BODY_SIZE} bytes of error body
+   */
+  public static <T> RestErrorBodyHandler<T> of(HttpResponse.BodyHandler<T> successHandler) {
+    return new RestErrorBodyHandler<>(successHandler, DEFAULT_PARSER, RestErrorCodeRegistry.standard());
+  }
+
+  @Override
+  public HttpResponse.BodySubscriber<T> apply(HttpResponse.ResponseInfo responseInfo) {
+    final int statusCode = responseInfo.statusCode();
+    if (statusCode < 400 || statusCode >= 600) {
+      return successHandler.apply(responseInfo);
+    }
+
+    return new ErrorBodySubscriber<>(responseInfo, parser, registry);
+  }
+}
@@ -0,0 +1,154 @@
+package com.truward.brikar.error.httpclient.test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.truward.brikar.error.ErrorJsonWriter;
+import com.truward.brikar.error.ErrorV2Converter;
+import com.truward.brikar.error.RestErrors;
+import com.truward.brikar.error.StandardRestErrorCodes;
+import com.truward.brikar.error.httpclient.RestErrorBodyHandler;
+import com.truward.brikar.error.model.ErrorV1;
+import com.truward.brikar.error.parser.RestErrorResponseErrorHandler;
+import com.truward.brikar.error.parser.RestErrorResponseException;
+import com.truward.brikar.protobuf.http.ProtobufHttpConstants;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link RestErrorBodyHandler}, that run against local HTTP server.
+ */
+public final class RestErrorBodyHandlerTest {
+  private static final ErrorV1.Error ERROR = ErrorV1.Error.newBuilder()
+      .setCode(StandardRestErrorCodes.NOT_FOUND.getCodeName())
+      .setMessage("Item not found")
+      .setSource("TestService")
+      .addParameters(RestErrors.stringParameter("id", "1"))
+      .build();
+
+  private static final int CHUNK_SIZE = 7;
+
+  private static HttpServer server;
+  private static HttpClient client;
+
+  @BeforeClass
+  public static void startServer() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/ok", exchange -> respond(exchange, 200, "text/plain",
+        "OK".getBytes(StandardCharsets.UTF_8)));
+    server.createContext("/json", exchange -> respond(exchange, 404, "application/json",
+        ErrorJsonWriter.toByteArray(RestErrors.errorResponse(ERROR))));
+    server.createContext("/protobuf", exchange -> {
+      final ByteArrayOutputStream os = new ByteArrayOutputStream();
+      RestErrors.errorResponse(ERROR).writeDelimitedTo(os);
+      respond(exchange, 404, ProtobufHttpConstants.PROTOBUF_MEDIA_TYPE.toString(), os.toByteArray());
+    });
+    server.createContext("/protobuf-v2", exchange -> respond(exchange, 404, ErrorV2Converter.PROTOBUF_CONTENT_TYPE,
+        ErrorV2Converter.standard().toV2(RestErrors.errorResponse(ERROR)).toByteArray()));
+    server.createContext("/html", exchange -> respond(exchange, 502, "text/html",
+        "<html><body>Bad Gateway</body></html>".getBytes(StandardCharsets.UTF_8)));
+    server.createContext("/huge", exchange -> respond(exchange, 500, "application/json",
+        new byte[RestErrorResponseErrorHandler.DEFAULT_MAX_BODY_SIZE * 4]));
+    server.start();
+
+    client = HttpClient.newHttpClient();
+  }
+
+  @AfterClass
+  public static void stopServer() {
+    if (server != null) {
+      server.stop(0);
+    }
+  }
+
+  @Test
+  public void shouldPassSuccessfulResponse() throws Exception {
+    final HttpResponse<String> response = send("/ok").get(10, TimeUnit.SECONDS);
+
+    assertEquals(200, response.statusCode());
+    assertEquals("OK", response.body());
+  }
+
+  @Test
+  public void shouldDecodeErrorsInAllFormats() {
+    for (final String path : new String[] {"/json", "/protobuf", "/protobuf-v2"}) {
+      final RestErrorResponseException e = getError(path);
+
+      assertEquals(path, 404, e.getStatusCode());
+      assertEquals(path, ERROR, e.getError());
+      assertEquals(path, StandardRestErrorCodes.NOT_FOUND, e.getErrorCode());
+      assertNull(path, e.getCause());
+    }
+  }
+
+  @Test
+  public void shouldDiscardBodyOfUnknownContentType() {
+    final RestErrorResponseException e = getError("/html");
+
+    assertEquals(502, e.getStatusCode());
+    assertFalse(e.hasError());
+    assertNull(e.getCause());
+  }
+
+  @Test
+  public void shouldCancelOversizedBody() {
+    final RestErrorResponseException e = getError("/huge");
+
+    assertEquals(500, e.getStatusCode());
+    assertFalse(e.hasError());
+    assertEquals(StandardRestErrorCodes.INTERNAL, e.getErrorCode());
+    assertTrue(e.getCause() instanceof IOException);
+  }
+
+  //
+  // Private
+  //
+
+  private static CompletableFuture<HttpResponse<String>> send(String path) {
+    final HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" +
+        server.getAddress().getPort() + path)).build();
+    return client.sendAsync(request, RestErrorBodyHandler.of(HttpResponse.BodyHandlers.ofString()));
+  }
+
+  private static RestErrorResponseException getError(String path) {
+    try {
+      send(path).join();
+    } catch (CompletionException e) {
+      assertTrue("Unexpected exception=" + e.getCause(), e.getCause() instanceof RestErrorResponseException);
+      return (RestErrorResponseException) e.getCause();
+    }
+    throw new AssertionError("Request is expected to fail, path=" + path);
+  }
+
+  private static void respond(HttpExchange exchange, int statusCode, String contentType, byte[] body)
+      throws IOException {
+    exchange.getResponseHeaders().set("Content-Type", contentType);
+    // chunked encoding, body is flushed in small pieces, so that client receives it in several chunks
+    exchange.sendResponseHeaders(statusCode, 0);
+    try (final OutputStream os = exchange.getResponseBody()) {
+      for (int offset = 0; offset < body.length; offset += CHUNK_SIZE) {
+        os.write(body, offset, Math.min(CHUNK_SIZE, body.length - offset));
+        if (offset < 1024) {
+          os.flush();
+        }
+      }
+    } catch (IOException ignored) {
+      // client might stop receiving oversized body
+    }
+  }
+}
@@ -1,22 +1,29 @@
 package com.truward.brikar.error.jetty;
 
+import com.truward.brikar.error.ErrorBudget;
+import com.truward.brikar.error.ErrorFingerprintTracker;
+import com.truward.brikar.error.ErrorMetrics;
 import com.truward.brikar.error.RestErrorCode;
+import com.truward.brikar.error.RestErrorCodeRegistry;
 import com.truward.brikar.error.model.ErrorV1;
 import org.eclipse.jetty.server.AbstractHttpConnection;
 import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Response;
 import org.eclipse.jetty.servlet.ErrorPageErrorHandler;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
 import org.springframework.http.InvalidMediaTypeException;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.HttpMessageConverter;
-import org.springframework.http.server.ServletServerHttpResponse;
 import org.springframework.util.StringUtils;
 
 import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Writer;
 import java.util.List;
 
@@ -28,6 +35,11 @@ public abstract class BaseJettyRestErrorHandler extends ErrorPageErrorHandler {
 
   private static final String GENERIC_ERROR_CODE = "GenericError";
 
+  private final RestErrorBodyCache restErrorBodyCache = new RestErrorBodyCache();
+  private final RestErrorNegotiationCache restErrorNegotiationCache = new RestErrorNegotiationCache();
+  private volatile RestErrorCodeRegistry restErrorCodeRegistry;
+  private volatile ErrorMetrics.Recorder errorMetricsRecorder;
+
   @Override
   public void handle(
       String target,
@@ -75,7 +87,10 @@ public abstract class BaseJettyRestErrorHandler extends ErrorPageErrorHandler {
   protected abstract String getRestErrorSource();
 
   /**
-   * @param headers HTTP headers on the request
+   * Decides whether rest error conversion should be attempted.
+   * The decision is cached along with negotiation result, so it should depend on the given headers only.
+   *
+   * @param headers HTTP headers on the request, only Accept and Content-Type headers are set
    * @return False, if rest error conversion should not be attempted
    */
   protected abstract boolean canTryWriteRestError(HttpHeaders headers);
@@ -90,101 +105,256 @@ public abstract class BaseJettyRestErrorHandler extends ErrorPageErrorHandler {
    */
   protected abstract List<RestErrorCode> getRestErrorCodes();
 
+  /**
+   * @return Registry of generic REST error codes, by default built once from {@link #getRestErrorCodes()}
+   */
+  protected RestErrorCodeRegistry getRestErrorCodeRegistry() {
+    RestErrorCodeRegistry registry = this.restErrorCodeRegistry;
+    if (registry == null) {
+      registry = RestErrorCodeRegistry.newBuilder().addAll(getRestErrorCodes()).build();
+      this.restErrorCodeRegistry = registry;
+    }
+    return registry;
+  }
+
+  /**
+   * @return Limits, that container errors are truncated to before being written, {@link ErrorBudget#DEFAULT}
+   *         by default
+   */
+  protected ErrorBudget getErrorBudget() {
+    return ErrorBudget.DEFAULT;
+  }
+
+  /**
+   * @return Metrics, that receive an event for each container error, no-op by default
+   */
+  protected ErrorMetrics getErrorMetrics() {
+    return ErrorMetrics.NOOP;
+  }
+
+  /**
+   * @return Tracker of the most frequent container errors, that are tracked by request URI, or null if errors
+   *         should not be tracked, null by default
+   */
+  @Nullable
+  protected ErrorFingerprintTracker getErrorFingerprintTracker() {
+    return null;
+  }
+
+  /**
+   * @return Cache of encoded error bodies or null, if error bodies should be encoded on each request
+   */
+  @Nullable
+  protected RestErrorBodyCache getRestErrorBodyCache() {
+    return this.restErrorBodyCache;
+  }
+
+  /**
+   * @return Cache of content negotiation results or null, if negotiation should be performed on each request
+   */
+  @Nullable
+  protected RestErrorNegotiationCache getRestErrorNegotiationCache() {
+    return this.restErrorNegotiationCache;
+  }
+
+  /**
+   * Writes REST error using negotiated converter and content type.
+   *
+   * @param request Servlet request
+   * @param response Servlet response
+   * @param statusCode HTTP status code
+   * @param reason Error reason, as set by the container
+   * @return True, if error has been written, false if default error page should be used instead
+   * @throws IOException On I/O error
+   */
+  protected final boolean writeRestError(
+      HttpServletRequest request,
+      HttpServletResponse response,
+      int statusCode,
+      @Nullable String reason) throws IOException {
+    final RestErrorNegotiationCache.Result negotiation = negotiate(
+        request.getHeader(HttpHeaders.ACCEPT),
+        request.getHeader(HttpHeaders.CONTENT_TYPE));
+    if (negotiation.isFallback()) {
+      return false;
+    }
+
+    final RestErrorBodyCache.Body body = getErrorBody(
+        negotiation.getConverter(),
+        negotiation.getContentType(),
+        statusCode,
+        reason);
+
+    // set response status and write pre-encoded body
+    response.setStatus(statusCode);
+    response.setContentType(body.getContentType());
+    response.setContentLength(body.getContent().length);
+    response.getOutputStream().write(body.getContent());
+
+    return true;
+  }
+
   //
   // Private
   //
 
   private boolean tryWriteRestError(HttpServletRequest request, HttpServletResponse response) throws IOException {
-    // transform headers in the request object to easy-to-access HttpHeaders object
-    final HttpHeaders headers = getRequestHeaders(request);
+    final AbstractHttpConnection connection = AbstractHttpConnection.getCurrentConnection();
+    final Response connectionResponse = connection.getResponse();
+    recordError(connectionResponse.getStatus(), request.getRequestURI());
 
+    if (writeRestError(request, response, connectionResponse.getStatus(), connectionResponse.getReason())) {
+      // error has been written, mark request as handled and skip default error processing
+      connection.getRequest().setHandled(true);
+      return true;
+    }
+
+    return false;
+  }
+
+  private void recordError(int statusCode, @Nullable String requestUri) {
+    ErrorMetrics.Recorder recorder = this.errorMetricsRecorder;
+    if (recorder == null) {
+      recorder = getErrorMetrics().getRecorder(getRestErrorSource(), getRestErrorCodeRegistry());
+      this.errorMetricsRecorder = recorder;
+    }
+
+    final RestErrorCodeRegistry registry = getRestErrorCodeRegistry();
+    final int ordinal = registry.getOrdinalByHttpStatus(statusCode);
+    recorder.record(ordinal, statusCode);
+
+    final ErrorFingerprintTracker fingerprintTracker = getErrorFingerprintTracker();
+    if (fingerprintTracker != null) {
+      fingerprintTracker.record(ordinal >= 0 ? registry.get(ordinal).getCodeName() : GENERIC_ERROR_CODE,
+          getRestErrorSource(), requestUri);
+    }
+  }
+
+  private RestErrorNegotiationCache.Result negotiate(@Nullable String accept, @Nullable String contentType) {
+    final RestErrorNegotiationCache cache = getRestErrorNegotiationCache();
+    if (cache != null) {
+      final RestErrorNegotiationCache.Result cached = cache.get(accept, contentType);
+      if (cached != null) {
+        return cached;
+      }
+    }
+
+    RestErrorNegotiationCache.Result result;
+    try {
+      result = negotiate(getRequestHeaders(accept, contentType));
+    } catch (InvalidMediaTypeException ignored) {
+      // broken headers - resort to default error page
+      result = RestErrorNegotiationCache.Result.fallback();
+    }
+
+    if (cache != null) {
+      cache.put(accept, contentType, result);
+    }
+
+    return result;
+  }
+
+  private RestErrorNegotiationCache.Result negotiate(HttpHeaders headers) {
     if (canTryWriteRestError(headers)) {
-      // try to write error using rest-friendly error converters
+      final List<MediaType> acceptMediaTypes = headers.getAccept();
+      // try to find rest-friendly error converter, converters take priority over accepted media types
       for (final HttpMessageConverter<Object> converter : getRestErrorConverters()) {
-        for (final MediaType acceptMediaType : headers.getAccept()) {
-          AbstractHttpConnection connection = AbstractHttpConnection.getCurrentConnection();
-          if (writeRestError(
-              converter,
-              acceptMediaType,
-              response,
-              connection.getResponse().getStatus(),
-              connection.getResponse().getReason())) {
-            // error has been written, mark request as handled and skip default error processing
-            connection.getRequest().setHandled(true);
-            return true;
+        for (final MediaType acceptMediaType : acceptMediaTypes) {
+          for (final MediaType candidate : converter.getSupportedMediaTypes()) {
+            if (candidate.isCompatibleWith(acceptMediaType) &&
+                converter.canWrite(ErrorV1.ErrorResponse.class, candidate)) {
+              return RestErrorNegotiationCache.Result.of(converter, candidate);
+            }
           }
         }
       }
     }
 
-    return false;
+    return RestErrorNegotiationCache.Result.fallback();
   }
 
-  private boolean writeRestError(
+  private RestErrorBodyCache.Body getErrorBody(
       HttpMessageConverter<Object> messageConverter,
-      MediaType acceptType,
-      HttpServletResponse response,
+      MediaType errorContentType,
       int statusCode,
-      String reason) throws IOException {
-    // get target content type
-    MediaType errorContentType = null;
-    for (MediaType candidate : messageConverter.getSupportedMediaTypes()) {
-      if (candidate.isCompatibleWith(acceptType) &&
-          messageConverter.canWrite(ErrorV1.ErrorResponse.class, candidate)) {
-        errorContentType = candidate;
-        break;
+      @Nullable String reason) throws IOException {
+    final String source = getRestErrorSource();
+    final RestErrorBodyCache cache = getRestErrorBodyCache();
+    if (cache != null) {
+      final RestErrorBodyCache.Body cached = cache.get(statusCode, reason, errorContentType, source);
+      if (cached != null) {
+        return cached;
       }
     }
 
-    if (errorContentType == null) {
-      return false;
-    }
+    final BufferedHttpOutputMessage outputMessage = new BufferedHttpOutputMessage();
+    messageConverter.write(getErrorResponse(statusCode, reason), errorContentType, outputMessage);
 
-    // set response status
-    response.setStatus(statusCode);
-    messageConverter.write(
-        getErrorResponse(statusCode, reason),
-        errorContentType,
-        new ServletServerHttpResponse(response));
+    final MediaType contentType = outputMessage.getHeaders().getContentType();
+    final RestErrorBodyCache.Body body = new RestErrorBodyCache.Body(
+        outputMessage.toByteArray(),
+        (contentType != null ? contentType : errorContentType).toString());
+    if (cache != null) {
+      cache.put(statusCode, reason, errorContentType, source, body);
+    }
 
-    return true;
+    return body;
   }
 
   private ErrorV1.ErrorResponse getErrorResponse(int statusCode, @Nullable String reason) {
     String code = GENERIC_ERROR_CODE;
     String message = reason != null ? reason : "";
-    for (final RestErrorCode errorCode : getRestErrorCodes()) {
-      if (errorCode.getHttpStatus() == statusCode) {
-        code = errorCode.getCodeName();
-        if (StringUtils.isEmpty(message)) {
-          message = errorCode.getDescription();
-        }
-        break;
+    final RestErrorCode errorCode = getRestErrorCodeRegistry().findByHttpStatus(statusCode);
+    if (errorCode != null) {
+      code = errorCode.getCodeName();
+      if (StringUtils.isEmpty(message)) {
+        message = errorCode.getDescription();
       }
     }
 
     return ErrorV1.ErrorResponse.newBuilder()
-        .setError(ErrorV1.Error.newBuilder()
+        .setError(getErrorBudget().apply(ErrorV1.Error.newBuilder()
             .setSource(getRestErrorSource())
             .setCode(code)
             .setMessage(message)
-            .build())
+            .build()))
         .build();
   }
 
-  private HttpHeaders getRequestHeaders(HttpServletRequest request) throws IOException {
-    HttpHeaders headers = new HttpHeaders();
-    setHeaderValue(HttpHeaders.ACCEPT, headers, request);
-    setHeaderValue(HttpHeaders.CONTENT_TYPE, headers, request);
+  private static HttpHeaders getRequestHeaders(@Nullable String accept, @Nullable String contentType) {
+    final HttpHeaders headers = new HttpHeaders();
+    setHeaderValue(HttpHeaders.ACCEPT, headers, accept);
+    setHeaderValue(HttpHeaders.CONTENT_TYPE, headers, contentType);
     return headers;
   }
 
-  private static void setHeaderValue(String headerName, HttpHeaders target, HttpServletRequest request) {
-    final String headerValue = request.getHeader(headerName);
+  private static void setHeaderValue(String headerName, HttpHeaders target, @Nullable String headerValue) {
     if (StringUtils.isEmpty(headerValue)) {
       return;
     }
 
     target.set(headerName, headerValue);
   }
+
+  /**
+   * Output message that collects converter output in memory.
+   */
+  private static final class BufferedHttpOutputMessage implements HttpOutputMessage {
+    private final HttpHeaders headers = new HttpHeaders();
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream(256);
+
+    @Override
+    public OutputStream getBody() {
+      return body;
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+      return headers;
+    }
+
+    byte[] toByteArray() {
+      return body.toByteArray();
+    }
+  }
 }
@@ -0,0 +1,45 @@
+package com.truward.brikar.error.jetty;
+
+import com.truward.brikar.error.ErrorJsonWriter;
+import com.truward.brikar.error.model.ErrorV1;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Write-only message converter, that writes {@link ErrorV1.ErrorResponse} as JSON using {@link ErrorJsonWriter}.
+ */
+@ParametersAreNonnullByDefault
+public final class ErrorJsonHttpMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+  public ErrorJsonHttpMessageConverter() {
+    super(new MediaType(MediaType.APPLICATION_JSON.getType(), MediaType.APPLICATION_JSON.getSubtype(),
+        StandardCharsets.UTF_8));
+  }
+
+  @Override
+  protected boolean supports(Class<?> clazz) {
+    return ErrorV1.ErrorResponse.class.isAssignableFrom(clazz);
+  }
+
+  @Override
+  public boolean canRead(Class<?> clazz, MediaType mediaType) {
+    return false;
+  }
+
+  @Override
+  protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+    throw new HttpMessageNotReadableException("Reading is not supported by " + getClass().getSimpleName());
+  }
+
+  @Override
+  protected void writeInternal(Object o, HttpOutputMessage outputMessage) throws IOException {
+    ErrorJsonWriter.writeErrorResponse((ErrorV1.ErrorResponse) o, outputMessage.getBody());
+  }
+}
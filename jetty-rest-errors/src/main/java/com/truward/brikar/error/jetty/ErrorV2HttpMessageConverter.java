@@ -0,0 +1,54 @@
+package com.truward.brikar.error.jetty;
+
+import com.truward.brikar.error.ErrorV2Converter;
+import com.truward.brikar.error.model.ErrorV1;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Write-only message converter, that writes {@link ErrorV1.ErrorResponse} in the second version of
+ * the error model. This converter is selected only when client explicitly accepts
+ * {@link ErrorV2Converter#PROTOBUF_CONTENT_TYPE}. Error response is written without length prefix.
+ */
+@ParametersAreNonnullByDefault
+public final class ErrorV2HttpMessageConverter extends AbstractHttpMessageConverter<Object> {
+  public static final MediaType PROTOBUF_MEDIA_TYPE = MediaType.parseMediaType(ErrorV2Converter.PROTOBUF_CONTENT_TYPE);
+
+  private final ErrorV2Converter converter;
+
+  public ErrorV2HttpMessageConverter(ErrorV2Converter converter) {
+    super(PROTOBUF_MEDIA_TYPE);
+    this.converter = Objects.requireNonNull(converter, "converter");
+  }
+
+  public ErrorV2HttpMessageConverter() {
+    this(ErrorV2Converter.standard());
+  }
+
+  @Override
+  protected boolean supports(Class<?> clazz) {
+    return ErrorV1.ErrorResponse.class.isAssignableFrom(clazz);
+  }
+
+  @Override
+  public boolean canRead(Class<?> clazz, MediaType mediaType) {
+    return false;
+  }
+
+  @Override
+  protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+    throw new HttpMessageNotReadableException("Reading is not supported by " + getClass().getSimpleName());
+  }
+
+  @Override
+  protected void writeInternal(Object o, HttpOutputMessage outputMessage) throws IOException {
+    converter.toV2((ErrorV1.ErrorResponse) o).writeTo(outputMessage.getBody());
+  }
+}
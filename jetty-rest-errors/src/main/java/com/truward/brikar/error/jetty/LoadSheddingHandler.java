@@ -0,0 +1,247 @@
+package com.truward.brikar.error.jetty;
+
+import com.truward.brikar.error.ErrorJsonWriter;
+import com.truward.brikar.error.RestErrorCode;
+import com.truward.brikar.error.RestErrors;
+import com.truward.brikar.error.StandardRestErrorCodes;
+import com.truward.brikar.error.model.ErrorV1;
+import com.truward.brikar.protobuf.http.ProtobufHttpConstants;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Jetty handler, that sheds load in front of the wrapped handler, usually servlet context handler.
+ * <p>
+ * Requests are rejected when the number of requests, being processed by the wrapped handler, reaches the limit
+ * ({@link StandardRestErrorCodes#TOO_MANY_REQUESTS}) or when the request has spent too much time in the queue
+ * before reaching this handler ({@link StandardRestErrorCodes#SERVICE_UNAVAILABLE}), as the client is likely
+ * to give up on it anyway.
+ * </p>
+ * <p>
+ * Rejection is meant to cost far less than serving a request: limits are enforced by lock-free counters, and
+ * rejected requests bypass servlet dispatch and error handler and get error bodies, encoded in advance in JSON
+ * and protobuf format, that is chosen by matching media ranges of Accept header without parsing it. Errors tell
+ * clients when to retry, both with {@link RestErrors#retryAfterParameter(long)} and with {@code Retry-After} header.
+ * </p>
+ */
+@ParametersAreNonnullByDefault
+public class LoadSheddingHandler extends HandlerWrapper {
+  public static final long DEFAULT_RETRY_AFTER_MILLIS = 1000L;
+
+  private static final String RETRY_AFTER_HEADER = "Retry-After";
+  private static final String PROTOBUF_MEDIA_TYPE = ProtobufHttpConstants.PROTOBUF_MEDIA_TYPE.getType() + '/' +
+      ProtobufHttpConstants.PROTOBUF_MEDIA_TYPE.getSubtype();
+
+  private final int maxConcurrentRequests;
+  private final long maxQueueMillis;
+  private final String retryAfterSeconds;
+  private final Rejection concurrencyRejection;
+  private final Rejection queueRejection;
+
+  private final AtomicInteger activeRequests = new AtomicInteger();
+  private final LongAdder acceptedCount = new LongAdder();
+
+  /**
+   * @param source Source of the rejection errors
+   * @param maxConcurrentRequests Maximum number of requests, processed by the wrapped handler at the same time
+   * @param maxQueueMillis Maximum time in milliseconds between receiving request headers and handling request,
+   *                       or 0 if queue time should not be limited
+   * @param retryAfterMillis Number of milliseconds, after which clients can retry rejected requests
+   */
+  public LoadSheddingHandler(String source, int maxConcurrentRequests, long maxQueueMillis, long retryAfterMillis) {
+    Objects.requireNonNull(source, "source");
+    if (maxConcurrentRequests <= 0) {
+      throw new IllegalArgumentException("maxConcurrentRequests should be positive");
+    }
+    if (maxQueueMillis < 0 || retryAfterMillis < 0) {
+      throw new IllegalArgumentException("maxQueueMillis and retryAfterMillis should not be negative");
+    }
+
+    this.maxConcurrentRequests = maxConcurrentRequests;
+    this.maxQueueMillis = maxQueueMillis;
+    // Retry-After header holds whole seconds, so that it is rounded up to not let clients retry too early
+    this.retryAfterSeconds = Long.toString((retryAfterMillis + 999L) / 1000L);
+    this.concurrencyRejection = new Rejection(StandardRestErrorCodes.TOO_MANY_REQUESTS, source, retryAfterMillis);
+    this.queueRejection = new Rejection(StandardRestErrorCodes.SERVICE_UNAVAILABLE, source, retryAfterMillis);
+  }
+
+  public LoadSheddingHandler(String source, int maxConcurrentRequests, long maxQueueMillis) {
+    this(source, maxConcurrentRequests, maxQueueMillis, DEFAULT_RETRY_AFTER_MILLIS);
+  }
+
+  @Override
+  public void handle(
+      String target,
+      Request baseRequest,
+      HttpServletRequest request,
+      HttpServletResponse response) throws IOException, ServletException {
+    if (maxQueueMillis > 0) {
+      final long receivedAt = baseRequest.getTimeStamp();
+      if (receivedAt > 0 && currentTimeMillis() - receivedAt > maxQueueMillis) {
+        reject(queueRejection, baseRequest, request, response);
+        return;
+      }
+    }
+
+    // optimistic increment is cheaper than compare-and-set loop and is undone right away if limit is exceeded
+    if (activeRequests.incrementAndGet() > maxConcurrentRequests) {
+      activeRequests.decrementAndGet();
+      reject(concurrencyRejection, baseRequest, request, response);
+      return;
+    }
+
+    acceptedCount.increment();
+    try {
+      super.handle(target, baseRequest, request, response);
+    } finally {
+      activeRequests.decrementAndGet();
+    }
+  }
+
+  /**
+   * @return Number of requests, that are being processed by the wrapped handler
+   */
+  public int getActiveRequests() {
+    return activeRequests.get();
+  }
+
+  /**
+   * @return Number of requests, that have been passed to the wrapped handler
+   */
+  public long getAcceptedCount() {
+    return acceptedCount.sum();
+  }
+
+  /**
+   * @return Number of requests, rejected due to concurrency limit
+   */
+  public long getConcurrencyRejectedCount() {
+    return concurrencyRejection.count.sum();
+  }
+
+  /**
+   * @return Number of requests, rejected due to queue time limit
+   */
+  public long getQueueRejectedCount() {
+    return queueRejection.count.sum();
+  }
+
+  //
+  // Protected
+  //
+
+  /**
+   * @return Current time in milliseconds, comparable with the request time stamp
+   */
+  protected long currentTimeMillis() {
+    return System.currentTimeMillis();
+  }
+
+  //
+  // Private
+  //
+
+  private void reject(
+      Rejection rejection,
+      Request baseRequest,
+      HttpServletRequest request,
+      HttpServletResponse response) throws IOException {
+    rejection.count.increment();
+
+    final boolean protobuf = isProtobufAccepted(request.getHeader(HttpHeaders.ACCEPT));
+    final byte[] body = protobuf ? rejection.protobufBody : rejection.jsonBody;
+    response.setStatus(rejection.statusCode);
+    response.setContentType(protobuf ? rejection.protobufContentType : rejection.jsonContentType);
+    response.setContentLength(body.length);
+    response.setHeader(RETRY_AFTER_HEADER, retryAfterSeconds);
+    response.getOutputStream().write(body);
+    baseRequest.setHandled(true);
+  }
+
+  private static boolean isProtobufAccepted(@Nullable String accept) {
+    if (accept == null) {
+      return false;
+    }
+
+    // JSON comes first, as it does in the error handler, protobuf is used only when explicitly accepted,
+    // other protobuf media types, e.g. compact error representation, are not served by pre-encoded bodies
+    boolean protobuf = false;
+    for (int start = 0; start < accept.length();) {
+      int end = accept.indexOf(',', start);
+      if (end < 0) {
+        end = accept.length();
+      }
+      // media range without parameters and surrounding whitespace
+      int to = accept.indexOf(';', start);
+      if (to < 0 || to > end) {
+        to = end;
+      }
+      int from = start;
+      while (from < to && accept.charAt(from) <= ' ') {
+        ++from;
+      }
+      while (to > from && accept.charAt(to - 1) <= ' ') {
+        --to;
+      }
+
+      if (isMediaType(accept, from, to, MediaType.APPLICATION_JSON_VALUE)) {
+        return false;
+      }
+      protobuf |= isMediaType(accept, from, to, PROTOBUF_MEDIA_TYPE);
+      start = end + 1;
+    }
+    return protobuf;
+  }
+
+  private static boolean isMediaType(String accept, int from, int to, String mediaType) {
+    return to - from == mediaType.length() && accept.regionMatches(true, from, mediaType, 0, mediaType.length());
+  }
+
+  /**
+   * Pre-encoded rejection error along with the number of rejected requests.
+   */
+  private static final class Rejection {
+    final int statusCode;
+    final byte[] jsonBody;
+    final String jsonContentType;
+    final byte[] protobufBody;
+    final String protobufContentType;
+    final LongAdder count = new LongAdder();
+
+    Rejection(RestErrorCode errorCode, String source, long retryAfterMillis) {
+      final ErrorV1.ErrorResponse response = RestErrors.errorResponse(ErrorV1.Error.newBuilder()
+          .setCode(errorCode.getCodeName())
+          .setMessage(errorCode.getDescription())
+          .setSource(source)
+          .addParameters(RestErrors.retryAfterParameter(retryAfterMillis))
+          .build());
+
+      this.statusCode = errorCode.getHttpStatus();
+      this.jsonBody = ErrorJsonWriter.toByteArray(response);
+      this.jsonContentType = MediaType.APPLICATION_JSON_UTF8_VALUE;
+
+      final ByteArrayOutputStream os = new ByteArrayOutputStream(response.getSerializedSize() + 5);
+      try {
+        response.writeDelimitedTo(os);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      this.protobufBody = os.toByteArray();
+      this.protobufContentType = ProtobufHttpConstants.PROTOBUF_MEDIA_TYPE.toString();
+    }
+  }
+}
@@ -0,0 +1,226 @@
+package com.truward.brikar.error.jetty;
+
+import org.springframework.http.MediaType;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded cache of fully encoded REST error bodies.
+ * <p>
+ * Container-level errors are mostly identical for the given status, reason, negotiated media type and source,
+ * so encoded bodies can be reused instead of building and serializing error response on each request.
+ * The number of distinct reasons is capped to prevent arbitrary reason strings from washing out the cache.
+ * </p>
+ * <p>
+ * Lookups do not lock, both limits are enforced by {@link #put}, that evicts the oldest entries once the cache is
+ * full. Limits are approximate under concurrent puts: the cache might briefly hold a few more entries than the limit
+ * or reject a reason, that would fit after another put completes.
+ * </p>
+ */
+@ParametersAreNonnullByDefault
+public final class RestErrorBodyCache {
+  public static final int DEFAULT_MAX_ENTRIES = 256;
+  public static final int DEFAULT_MAX_DISTINCT_REASONS = 64;
+  public static final int DEFAULT_MAX_REASON_LENGTH = 256;
+
+  private final int maxEntries;
+  private final int maxDistinctReasons;
+  private final int maxReasonLength;
+  private final ConcurrentHashMap<Key, Body> entries = new ConcurrentHashMap<>();
+  // keys in the order of insertion, that is the order of eviction
+  private final Queue<Key> insertionOrder = new ConcurrentLinkedQueue<>();
+  // number of cached entries per reason
+  private final ConcurrentHashMap<String, Integer> reasonUsages = new ConcurrentHashMap<>();
+  private final AtomicInteger distinctReasons = new AtomicInteger();
+
+  public RestErrorBodyCache(int maxEntries, int maxDistinctReasons, int maxReasonLength) {
+    if (maxEntries <= 0) {
+      throw new IllegalArgumentException("maxEntries should be positive");
+    }
+    if (maxDistinctReasons < 0 || maxReasonLength < 0) {
+      throw new IllegalArgumentException("maxDistinctReasons and maxReasonLength should not be negative");
+    }
+
+    this.maxEntries = maxEntries;
+    this.maxDistinctReasons = maxDistinctReasons;
+    this.maxReasonLength = maxReasonLength;
+  }
+
+  public RestErrorBodyCache() {
+    this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_DISTINCT_REASONS, DEFAULT_MAX_REASON_LENGTH);
+  }
+
+  /**
+   * Looks up encoded error body.
+   *
+   * @param statusCode HTTP status code
+   * @param reason Error reason, as set by the container
+   * @param mediaType Negotiated media type
+   * @param source Error source
+   * @return Cached body or null if there is no such entry
+   */
+  @Nullable
+  public Body get(int statusCode, @Nullable String reason, MediaType mediaType, String source) {
+    return entries.get(new Key(statusCode, reason, mediaType, source));
+  }
+
+  /**
+   * Puts encoded error body into the cache unless given reason can not be cached.
+   *
+   * @param statusCode HTTP status code
+   * @param reason Error reason, as set by the container
+   * @param mediaType Negotiated media type
+   * @param source Error source
+   * @param body Encoded error body
+   * @return True, if body has been cached
+   */
+  public boolean put(int statusCode, @Nullable String reason, MediaType mediaType, String source, Body body) {
+    Objects.requireNonNull(body, "body");
+    if (reason != null && reason.length() > maxReasonLength) {
+      return false;
+    }
+
+    final Key key = new Key(statusCode, reason, mediaType, source);
+    if (entries.containsKey(key)) {
+      return true;
+    }
+    if (!acquireReason(reason)) {
+      return false;
+    }
+    if (entries.putIfAbsent(key, body) != null) {
+      // cached by another thread
+      releaseReason(reason);
+      return true;
+    }
+
+    insertionOrder.add(key);
+    while (entries.size() > maxEntries) {
+      final Key eldest = insertionOrder.poll();
+      if (eldest == null) {
+        break;
+      }
+      if (entries.remove(eldest) != null) {
+        releaseReason(eldest.reason);
+      }
+    }
+    return true;
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public void clear() {
+    entries.clear();
+    insertionOrder.clear();
+    reasonUsages.clear();
+    distinctReasons.set(0);
+  }
+
+  /**
+   * Encoded error body along with its content type.
+   */
+  public static final class Body {
+    private final byte[] content;
+    private final String contentType;
+
+    public Body(byte[] content, String contentType) {
+      this.content = Objects.requireNonNull(content, "content");
+      this.contentType = Objects.requireNonNull(contentType, "contentType");
+    }
+
+    /**
+     * @return Encoded body, callers must not modify returned array
+     */
+    public byte[] getContent() {
+      return content;
+    }
+
+    public String getContentType() {
+      return contentType;
+    }
+  }
+
+  //
+  // Private
+  //
+
+  /**
+   * @return True, if reason is already used by another entry or there is room for one more distinct reason
+   */
+  private boolean acquireReason(@Nullable String reason) {
+    return reasonUsages.compute(reasonKey(reason), (reasonKey, usages) -> {
+      if (usages != null) {
+        return usages + 1;
+      }
+      if (distinctReasons.incrementAndGet() > maxDistinctReasons) {
+        distinctReasons.decrementAndGet();
+        return null;
+      }
+      return 1;
+    }) != null;
+  }
+
+  private void releaseReason(@Nullable String reason) {
+    reasonUsages.computeIfPresent(reasonKey(reason), (reasonKey, usages) -> {
+      if (usages > 1) {
+        return usages - 1;
+      }
+      distinctReasons.decrementAndGet();
+      return null;
+    });
+  }
+
+  private static String reasonKey(@Nullable String reason) {
+    return reason != null ? reason : "";
+  }
+
+  private static final class Key {
+    final int statusCode;
+    final String reason;
+    final MediaType mediaType;
+    final String source;
+    final int hashCode;
+
+    Key(int statusCode, @Nullable String reason, MediaType mediaType, String source) {
+      this.statusCode = statusCode;
+      this.reason = reason;
+      this.mediaType = Objects.requireNonNull(mediaType, "mediaType");
+      this.source = Objects.requireNonNull(source, "source");
+
+      int h = statusCode;
+      h = 31 * h + (reason != null ? reason.hashCode() : 0);
+      h = 31 * h + mediaType.hashCode();
+      h = 31 * h + source.hashCode();
+      this.hashCode = h;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+
+      final Key other = (Key) o;
+      return statusCode == other.statusCode &&
+          hashCode == other.hashCode &&
+          Objects.equals(reason, other.reason) &&
+          mediaType.equals(other.mediaType) &&
+          source.equals(other.source);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
@@ -0,0 +1,179 @@
+package com.truward.brikar.error.jetty;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Bounded cache of content negotiation results, keyed by raw Accept and Content-Type header values.
+ * <p>
+ * Clients send only a handful of distinct header values, so negotiation result is computed once per distinct
+ * header pair. Lookups do not lock, the size is bounded by {@link #put}, that evicts the oldest entries once
+ * the cache is full, so that cache keeps picking up the header values, that come into use. Under concurrent puts
+ * the cache might briefly hold a few more entries than the limit or evict a few more than necessary.
+ * </p>
+ */
+@ParametersAreNonnullByDefault
+public final class RestErrorNegotiationCache {
+  public static final int DEFAULT_MAX_ENTRIES = 256;
+  public static final int DEFAULT_MAX_HEADER_LENGTH = 512;
+
+  private final int maxEntries;
+  private final int maxHeaderLength;
+  private final ConcurrentHashMap<Key, Result> entries = new ConcurrentHashMap<>();
+  // keys in the order of insertion, that is the order of eviction
+  private final Queue<Key> insertionOrder = new ConcurrentLinkedQueue<>();
+
+  public RestErrorNegotiationCache(int maxEntries, int maxHeaderLength) {
+    if (maxEntries <= 0) {
+      throw new IllegalArgumentException("maxEntries should be positive");
+    }
+    if (maxHeaderLength < 0) {
+      throw new IllegalArgumentException("maxHeaderLength should not be negative");
+    }
+
+    this.maxEntries = maxEntries;
+    this.maxHeaderLength = maxHeaderLength;
+  }
+
+  public RestErrorNegotiationCache() {
+    this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_HEADER_LENGTH);
+  }
+
+  @Nullable
+  public Result get(@Nullable String accept, @Nullable String contentType) {
+    return entries.get(new Key(accept, contentType));
+  }
+
+  /**
+   * Caches negotiation result unless header values are too long, evicting the oldest entries if the cache is full.
+   *
+   * @param accept Raw Accept header value
+   * @param contentType Raw Content-Type header value
+   * @param result Negotiation result
+   * @return True, if result has been cached
+   */
+  public boolean put(@Nullable String accept, @Nullable String contentType, Result result) {
+    Objects.requireNonNull(result, "result");
+    if (length(accept) > maxHeaderLength || length(contentType) > maxHeaderLength) {
+      return false;
+    }
+
+    final Key key = new Key(accept, contentType);
+    if (entries.putIfAbsent(key, result) == null) {
+      insertionOrder.add(key);
+      while (entries.size() > maxEntries) {
+        final Key eldest = insertionOrder.poll();
+        if (eldest == null) {
+          break;
+        }
+        entries.remove(eldest);
+      }
+    }
+    return true;
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public void clear() {
+    entries.clear();
+    insertionOrder.clear();
+  }
+
+  /**
+   * Result of content negotiation: either chosen converter with the content type or fallback to
+   * the default HTML error page.
+   */
+  public static final class Result {
+    private static final Result FALLBACK = new Result(null, null);
+
+    private final HttpMessageConverter<Object> converter;
+    private final MediaType contentType;
+
+    private Result(@Nullable HttpMessageConverter<Object> converter, @Nullable MediaType contentType) {
+      this.converter = converter;
+      this.contentType = contentType;
+    }
+
+    public static Result of(HttpMessageConverter<Object> converter, MediaType contentType) {
+      return new Result(
+          Objects.requireNonNull(converter, "converter"),
+          Objects.requireNonNull(contentType, "contentType"));
+    }
+
+    /**
+     * @return Result, that indicates that error should be written by the default HTML error page handler
+     */
+    public static Result fallback() {
+      return FALLBACK;
+    }
+
+    public boolean isFallback() {
+      return converter == null;
+    }
+
+    /**
+     * @return Chosen converter, must not be called for fallback result
+     */
+    public HttpMessageConverter<Object> getConverter() {
+      if (converter == null) {
+        throw new IllegalStateException("No converter in fallback negotiation result");
+      }
+      return converter;
+    }
+
+    /**
+     * @return Chosen content type, must not be called for fallback result
+     */
+    public MediaType getContentType() {
+      if (contentType == null) {
+        throw new IllegalStateException("No content type in fallback negotiation result");
+      }
+      return contentType;
+    }
+  }
+
+  //
+  // Private
+  //
+
+  private static int length(@Nullable String value) {
+    return value != null ? value.length() : 0;
+  }
+
+  private static final class Key {
+    final String accept;
+    final String contentType;
+
+    Key(@Nullable String accept, @Nullable String contentType) {
+      this.accept = accept != null ? accept : "";
+      this.contentType = contentType != null ? contentType : "";
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+
+      final Key other = (Key) o;
+      return accept.equals(other.accept) && contentType.equals(other.contentType);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * accept.hashCode() + contentType.hashCode();
+    }
+  }
+}
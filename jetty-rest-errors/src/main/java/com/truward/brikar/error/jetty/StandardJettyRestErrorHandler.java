@@ -1,9 +1,9 @@
 package com.truward.brikar.error.jetty;
 
 import com.truward.brikar.error.RestErrorCode;
+import com.truward.brikar.error.RestErrorCodeRegistry;
 import com.truward.brikar.error.StandardRestErrorCodes;
 import com.truward.brikar.protobuf.http.ProtobufHttpMessageConverter;
-import com.truward.brikar.protobuf.http.json.ProtobufJsonHttpMessageConverter;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.HttpMessageConverter;
@@ -22,6 +22,7 @@ public class StandardJettyRestErrorHandler extends BaseJettyRestErrorHandler {
   private final String errorSource;
   private final List<HttpMessageConverter<Object>> restErrorConverters;
   private final List<RestErrorCode> restErrorCodes;
+  private final RestErrorCodeRegistry restErrorCodeRegistry;
 
   public StandardJettyRestErrorHandler(
       String errorSource,
@@ -31,6 +32,7 @@ public class StandardJettyRestErrorHandler extends BaseJettyRestErrorHandler {
     this.restErrorConverters = new ArrayList<>(
         Objects.requireNonNull(restErrorConverters, "restErrorConverters"));
     this.restErrorCodes = new ArrayList<>(Objects.requireNonNull(restErrorCodes, "restErrorCodes"));
+    this.restErrorCodeRegistry = RestErrorCodeRegistry.newBuilder().addAll(this.restErrorCodes).build();
   }
 
   public StandardJettyRestErrorHandler(String errorSource) {
@@ -39,7 +41,9 @@ public class StandardJettyRestErrorHandler extends BaseJettyRestErrorHandler {
         Arrays.asList(
             // Json should be the first one as it takes priority over binary error representation when error page
             // is opened in the browser
-            new ProtobufJsonHttpMessageConverter(),
+            new ErrorJsonHttpMessageConverter(),
+            // compact binary representation is used only when explicitly accepted by the client
+            new ErrorV2HttpMessageConverter(),
             new ProtobufHttpMessageConverter()),
         Arrays.asList(StandardRestErrorCodes.values()));
   }
@@ -70,4 +74,9 @@ public class StandardJettyRestErrorHandler extends BaseJettyRestErrorHandler {
   protected List<RestErrorCode> getRestErrorCodes() {
     return this.restErrorCodes;
   }
+
+  @Override
+  protected RestErrorCodeRegistry getRestErrorCodeRegistry() {
+    return this.restErrorCodeRegistry;
+  }
 }
@@ -0,0 +1,122 @@
+package com.truward.brikar.error.jetty.test;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.protobuf.ByteString;
+import com.truward.brikar.error.jetty.ErrorJsonHttpMessageConverter;
+import com.truward.brikar.error.model.ErrorV1;
+import com.truward.brikar.error.parser.RestErrorParser;
+import com.truward.brikar.protobuf.http.json.ProtobufJsonHttpMessageConverter;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Cross-checks {@link ErrorJsonHttpMessageConverter} against {@link ProtobufJsonHttpMessageConverter}.
+ */
+public final class ErrorJsonHttpMessageConverterTest {
+  private final HttpMessageConverter<Object> converter = new ErrorJsonHttpMessageConverter();
+  private final HttpMessageConverter<Object> referenceConverter = new ProtobufJsonHttpMessageConverter();
+  private final JsonFactory jsonFactory = new JsonFactory();
+
+  @Test
+  public void shouldSupportOnlyWritingErrorResponse() {
+    assertTrue(converter.canWrite(ErrorV1.ErrorResponse.class, MediaType.APPLICATION_JSON));
+    assertFalse(converter.canWrite(ErrorV1.Error.class, MediaType.APPLICATION_JSON));
+    assertFalse(converter.canWrite(ErrorV1.ErrorResponse.class, MediaType.APPLICATION_XML));
+    assertFalse(converter.canRead(ErrorV1.ErrorResponse.class, MediaType.APPLICATION_JSON));
+  }
+
+  @Test
+  public void shouldWriteSameJsonAsReferenceConverter() throws IOException {
+    for (final ErrorV1.ErrorResponse response : getSampleResponses()) {
+      // Given:
+      final byte[] reference = write(referenceConverter, response);
+
+      // When:
+      final byte[] actual = write(converter, response);
+
+      // Then:
+      assertEquals(tokens(reference), tokens(actual));
+      assertEquals(response.getError(), new RestErrorParser()
+          .readError(MediaType.APPLICATION_JSON_VALUE, actual, 0, actual.length));
+    }
+  }
+
+  //
+  // Private
+  //
+
+  private static List<ErrorV1.ErrorResponse> getSampleResponses() {
+    final ErrorV1.Error inner = ErrorV1.Error.newBuilder()
+        .setCode("Internal")
+        .setMessage("Nested \"quoted\" \\ message\twith\ncontrol\u0001characters")
+        .setSource("InnerService")
+        .build();
+
+    return Arrays.asList(
+        ErrorV1.ErrorResponse.getDefaultInstance(),
+        ErrorV1.ErrorResponse.newBuilder().setError(ErrorV1.Error.getDefaultInstance()).build(),
+        ErrorV1.ErrorResponse.newBuilder().setError(ErrorV1.Error.newBuilder()
+            .setCode("NotFound")
+            .setMessage("Resource not found")
+            .setSource("Test")
+            .setTarget("id"))
+            .build(),
+        ErrorV1.ErrorResponse.newBuilder().setError(ErrorV1.Error.newBuilder()
+            .setCode("InvalidArgument")
+            .setMessage("Unicode: й€😀 </script>")
+            .setInnerError(ErrorV1.Error.newBuilder(inner).setInnerError(inner))
+            .addParameters(parameter("bytes", ErrorV1.ErrorValue.newBuilder()
+                .setBytesValue(ByteString.copyFrom(new byte[] {0, 1, 2, -1}))))
+            .addParameters(parameter("str", ErrorV1.ErrorValue.newBuilder().setStrValue("value\r\n")))
+            .addParameters(parameter("int", ErrorV1.ErrorValue.newBuilder().setIntValue(Integer.MIN_VALUE)))
+            .addParameters(parameter("long", ErrorV1.ErrorValue.newBuilder().setLongValue(Long.MAX_VALUE)))
+            .addParameters(parameter("bool", ErrorV1.ErrorValue.newBuilder().setBoolValue(true)))
+            .addParameters(parameter("", ErrorV1.ErrorValue.getDefaultInstance())))
+            .build());
+  }
+
+  private static ErrorV1.ErrorParameter parameter(String key, ErrorV1.ErrorValue.Builder value) {
+    return ErrorV1.ErrorParameter.newBuilder().setKey(key).setValue(value).build();
+  }
+
+  private static byte[] write(HttpMessageConverter<Object> converter, Object value) throws IOException {
+    final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    final HttpHeaders headers = new HttpHeaders();
+    converter.write(value, MediaType.APPLICATION_JSON, new HttpOutputMessage() {
+      @Override
+      public OutputStream getBody() {
+        return outputStream;
+      }
+
+      @Override
+      public HttpHeaders getHeaders() {
+        return headers;
+      }
+    });
+    return outputStream.toByteArray();
+  }
+
+  private List<String> tokens(byte[] json) throws IOException {
+    final List<String> result = new ArrayList<>();
+    try (final JsonParser jp = jsonFactory.createParser(json)) {
+      for (JsonToken token = jp.nextToken(); token != null; token = jp.nextToken()) {
+        result.add(token + ":" + jp.getText());
+      }
+    }
+    return result;
+  }
+}
@@ -1,5 +1,6 @@
 package com.truward.brikar.error.jetty.test;
 
+import com.truward.brikar.error.ErrorV2Converter;
 import com.truward.brikar.error.StandardRestErrorCodes;
 import com.truward.brikar.error.jetty.StandardJettyRestErrorHandler;
 import com.truward.brikar.error.jetty.test.support.JettyIntegrationTestBase;
@@ -107,6 +108,21 @@ public final class JettyRestErrorsIntegrationTest extends JettyIntegrationTestBa
     assertEquals(StandardRestErrorCodes.UNAUTHORIZED.getCodeName(), error.getCode());
   }
 
+  @Test
+  public void shouldSendCompactErrorIfAccepted() throws Exception {
+    final ErrorV1.Error error = doGet(
+        EMIT_ERROR_PATH + "/503?reason=Maintenance",
+        c -> {
+          c.setRequestProperty(HttpHeaders.ACCEPT, ErrorV2Converter.PROTOBUF_CONTENT_TYPE);
+          assertEquals(ErrorV2Converter.PROTOBUF_CONTENT_TYPE, c.getContentType());
+          return parseExpectedError(c);
+        });
+
+    assertEquals(SOURCE, error.getSource());
+    assertEquals(StandardRestErrorCodes.SERVICE_UNAVAILABLE.getCodeName(), error.getCode());
+    assertEquals("Maintenance", error.getMessage());
+  }
+
   @Test
   public void shouldResortToDefaultErrorPageIfHeadersAreBroken() throws Exception {
     final List<Consumer<HttpURLConnection>> testCases = Arrays.asList(
@@ -0,0 +1,238 @@
+package com.truward.brikar.error.jetty.test;
+
+import com.truward.brikar.error.ErrorV2Converter;
+import com.truward.brikar.error.RestErrors;
+import com.truward.brikar.error.StandardRestErrorCodes;
+import com.truward.brikar.error.jetty.LoadSheddingHandler;
+import com.truward.brikar.error.jetty.test.support.JettyIntegrationTestBase;
+import com.truward.brikar.error.model.ErrorV1;
+import com.truward.brikar.error.parser.RestErrorParser;
+import com.truward.brikar.protobuf.http.ProtobufHttpConstants;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.util.StreamUtils;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Integration test for {@link LoadSheddingHandler}, see {@code LoadSheddingHandlerBenchmark} for rejection throughput.
+ */
+public final class LoadSheddingHandlerTest extends JettyIntegrationTestBase {
+  private static final String HEALTH_PATH = "/health";
+  private static final String SLOW_PATH = "/slow";
+  private static final String OK = "OK";
+  private static final String SOURCE = "LoadSheddingTests";
+
+  private static final int MAX_CONCURRENT_REQUESTS = 2;
+  private static final long RETRY_AFTER_MILLIS = 1500L;
+
+  private static final AtomicInteger SERVLET_REQUESTS = new AtomicInteger();
+  private static final AtomicLong CLOCK_OFFSET = new AtomicLong();
+  private static volatile CountDownLatch release = new CountDownLatch(0);
+
+  private static final LoadSheddingHandler HANDLER = new LoadSheddingHandler(SOURCE, MAX_CONCURRENT_REQUESTS,
+      5_000L, RETRY_AFTER_MILLIS) {
+    @Override
+    protected long currentTimeMillis() {
+      return super.currentTimeMillis() + CLOCK_OFFSET.get();
+    }
+  };
+
+  public static final class TestServlet extends HttpServlet {
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+      SERVLET_REQUESTS.incrementAndGet();
+      if (req.getRequestURI().equals(SLOW_PATH)) {
+        try {
+          release.await(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      resp.getOutputStream().write(OK.getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  @BeforeClass
+  public static void startJetty() {
+    startJetty(contextHandler -> contextHandler.addServlet(TestServlet.class, "/*"), contextHandler -> {
+      HANDLER.setHandler(contextHandler);
+      return HANDLER;
+    });
+
+    waitUntilServerStarted(() -> OK.equals(doGet(HEALTH_PATH,
+        c -> StreamUtils.copyToString(c.getInputStream(), StandardCharsets.UTF_8))));
+  }
+
+  @After
+  public void resetState() {
+    CLOCK_OFFSET.set(0L);
+    release.countDown();
+  }
+
+  @Test
+  public void shouldPassRequestsWithinLimits() throws Exception {
+    assertEquals(OK, doGet(HEALTH_PATH, c -> StreamUtils.copyToString(c.getInputStream(), StandardCharsets.UTF_8)));
+  }
+
+  @Test
+  public void shouldRejectRequestsOverConcurrencyLimit() throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool(MAX_CONCURRENT_REQUESTS);
+    try {
+      // Given:
+      final List<Future<Integer>> slowRequests = saturate(executor);
+      final int servletRequests = SERVLET_REQUESTS.get();
+      final long rejectedCount = HANDLER.getConcurrencyRejectedCount();
+
+      // When:
+      final Rejected json = doGet(HEALTH_PATH, LoadSheddingHandlerTest::readRejected);
+      final Rejected protobuf = doGet(HEALTH_PATH, c -> {
+        c.setRequestProperty(HttpHeaders.ACCEPT, ProtobufHttpConstants.PROTOBUF_MEDIA_TYPE.toString() + ";q=0.9");
+        return readRejected(c);
+      });
+      final Rejected compactProtobuf = doGet(HEALTH_PATH, c -> {
+        c.setRequestProperty(HttpHeaders.ACCEPT, ErrorV2Converter.PROTOBUF_CONTENT_TYPE);
+        return readRejected(c);
+      });
+
+      // Then:
+      for (final Rejected rejected : new Rejected[] {json, protobuf, compactProtobuf}) {
+        assertEquals(StandardRestErrorCodes.TOO_MANY_REQUESTS.getHttpStatus(), rejected.statusCode);
+        assertEquals("2", rejected.retryAfter);
+        assertEquals(StandardRestErrorCodes.TOO_MANY_REQUESTS.getCodeName(), rejected.error.getCode());
+        assertEquals(SOURCE, rejected.error.getSource());
+        assertEquals(RestErrors.retryAfterParameter(RETRY_AFTER_MILLIS), rejected.error.getParameters(0));
+      }
+      assertTrue(json.contentType, json.contentType.startsWith(MediaType.APPLICATION_JSON_VALUE));
+      assertEquals(ProtobufHttpConstants.PROTOBUF_MEDIA_TYPE.toString(), protobuf.contentType);
+      // pre-encoded bodies are in the first version of protobuf error format only
+      assertTrue(compactProtobuf.contentType,
+          compactProtobuf.contentType.startsWith(MediaType.APPLICATION_JSON_VALUE));
+      assertEquals("Rejected requests should not reach servlet", servletRequests, SERVLET_REQUESTS.get());
+      assertEquals(rejectedCount + 3, HANDLER.getConcurrencyRejectedCount());
+      release.countDown();
+      for (final Future<Integer> slowRequest : slowRequests) {
+        assertEquals(200, slowRequest.get(10, TimeUnit.SECONDS).intValue());
+      }
+    } finally {
+      release.countDown();
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void shouldRejectRequestsThatWaitedTooLong() throws Exception {
+    // Given:
+    CLOCK_OFFSET.set(60_000L);
+    final long rejectedCount = HANDLER.getQueueRejectedCount();
+
+    // When:
+    final Rejected rejected = doGet(HEALTH_PATH, LoadSheddingHandlerTest::readRejected);
+
+    // Then:
+    assertEquals(StandardRestErrorCodes.SERVICE_UNAVAILABLE.getHttpStatus(), rejected.statusCode);
+    assertEquals(StandardRestErrorCodes.SERVICE_UNAVAILABLE.getCodeName(), rejected.error.getCode());
+    assertEquals(rejectedCount + 1, HANDLER.getQueueRejectedCount());
+  }
+
+  @Test
+  public void shouldRejectConcurrentClientsUnderSaturation() throws Exception {
+    final int clientCount = 8;
+    final int requestsPerClient = 20;
+    final ExecutorService executor = Executors.newFixedThreadPool(MAX_CONCURRENT_REQUESTS + clientCount);
+    try {
+      // Given:
+      saturate(executor);
+      final int servletRequests = SERVLET_REQUESTS.get();
+      final long rejectedCount = HANDLER.getConcurrencyRejectedCount();
+
+      // When:
+      final List<Future<?>> clients = new ArrayList<>(clientCount);
+      for (int i = 0; i < clientCount; ++i) {
+        clients.add(executor.submit(() -> {
+          for (int j = 0; j < requestsPerClient; ++j) {
+            final Rejected rejected = doGet(HEALTH_PATH, LoadSheddingHandlerTest::readRejected);
+            assertEquals(StandardRestErrorCodes.TOO_MANY_REQUESTS.getHttpStatus(), rejected.statusCode);
+            assertEquals(StandardRestErrorCodes.TOO_MANY_REQUESTS.getCodeName(), rejected.error.getCode());
+          }
+          return null;
+        }));
+      }
+      for (final Future<?> client : clients) {
+        client.get(60, TimeUnit.SECONDS);
+      }
+
+      // Then:
+      assertEquals("Rejected requests should not reach servlet", servletRequests, SERVLET_REQUESTS.get());
+      assertEquals(rejectedCount + clientCount * requestsPerClient, HANDLER.getConcurrencyRejectedCount());
+      assertEquals(MAX_CONCURRENT_REQUESTS, HANDLER.getActiveRequests());
+    } finally {
+      release.countDown();
+      executor.shutdownNow();
+    }
+  }
+
+  //
+  // Private
+  //
+
+  private static List<Future<Integer>> saturate(ExecutorService executor) throws InterruptedException {
+    release = new CountDownLatch(1);
+    final List<Future<Integer>> result = new ArrayList<>();
+    for (int i = 0; i < MAX_CONCURRENT_REQUESTS; ++i) {
+      result.add(executor.submit(() -> doGet(SLOW_PATH, HttpURLConnection::getResponseCode)));
+    }
+
+    final long deadline = System.currentTimeMillis() + 10_000L;
+    while (HANDLER.getActiveRequests() < MAX_CONCURRENT_REQUESTS) {
+      if (System.currentTimeMillis() > deadline) {
+        throw new AssertionError("Slow requests have not reached the servlet");
+      }
+      Thread.sleep(10L);
+    }
+    return result;
+  }
+
+  private static Rejected readRejected(HttpURLConnection connection) throws IOException {
+    final int statusCode = connection.getResponseCode();
+    final String contentType = connection.getContentType();
+    try (final InputStream body = connection.getErrorStream()) {
+      return new Rejected(statusCode, contentType, connection.getHeaderField("Retry-After"),
+          RestErrorParser.getDefault().readError(contentType, body));
+    }
+  }
+
+  private static final class Rejected {
+    final int statusCode;
+    final String contentType;
+    final String retryAfter;
+    final ErrorV1.Error error;
+
+    Rejected(int statusCode, String contentType, String retryAfter, ErrorV1.Error error) {
+      this.statusCode = statusCode;
+      this.contentType = contentType;
+      this.retryAfter = retryAfter;
+      this.error = error;
+    }
+  }
+}
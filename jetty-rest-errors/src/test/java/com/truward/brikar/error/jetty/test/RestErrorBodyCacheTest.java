@@ -0,0 +1,89 @@
+package com.truward.brikar.error.jetty.test;
+
+import com.truward.brikar.error.jetty.RestErrorBodyCache;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link RestErrorBodyCache}.
+ */
+public final class RestErrorBodyCacheTest {
+  private static final String SOURCE = "CacheTest";
+
+  @Test
+  public void shouldCacheBody() {
+    // Given:
+    final RestErrorBodyCache cache = new RestErrorBodyCache();
+    final RestErrorBodyCache.Body body = body("{}");
+
+    // When:
+    assertTrue(cache.put(404, "Not Found", MediaType.APPLICATION_JSON, SOURCE, body));
+
+    // Then:
+    assertSame(body, cache.get(404, "Not Found", MediaType.APPLICATION_JSON, SOURCE));
+    assertNull(cache.get(404, null, MediaType.APPLICATION_JSON, SOURCE));
+    assertNull(cache.get(405, "Not Found", MediaType.APPLICATION_JSON, SOURCE));
+    assertNull(cache.get(404, "Not Found", MediaType.APPLICATION_OCTET_STREAM, SOURCE));
+    assertNull(cache.get(404, "Not Found", MediaType.APPLICATION_JSON, "OtherSource"));
+  }
+
+  @Test
+  public void shouldEvictOldestEntries() {
+    // Given:
+    final RestErrorBodyCache cache = new RestErrorBodyCache(2, 10, 100);
+    cache.put(400, null, MediaType.APPLICATION_JSON, SOURCE, body("400"));
+    cache.put(401, null, MediaType.APPLICATION_JSON, SOURCE, body("401"));
+
+    // When:
+    assertNotNull(cache.get(400, null, MediaType.APPLICATION_JSON, SOURCE));
+    cache.put(403, null, MediaType.APPLICATION_JSON, SOURCE, body("403"));
+
+    // Then:
+    assertEquals(2, cache.size());
+    assertNull(cache.get(400, null, MediaType.APPLICATION_JSON, SOURCE));
+    assertNotNull(cache.get(401, null, MediaType.APPLICATION_JSON, SOURCE));
+    assertNotNull(cache.get(403, null, MediaType.APPLICATION_JSON, SOURCE));
+  }
+
+  @Test
+  public void shouldCapDistinctReasons() {
+    // Given:
+    final RestErrorBodyCache cache = new RestErrorBodyCache(100, 2, 10);
+
+    // When:
+    assertTrue(cache.put(404, "a", MediaType.APPLICATION_JSON, SOURCE, body("a")));
+    assertTrue(cache.put(404, "b", MediaType.APPLICATION_JSON, SOURCE, body("b")));
+    assertTrue(cache.put(405, "b", MediaType.APPLICATION_JSON, SOURCE, body("b")));
+
+    // Then:
+    assertFalse(cache.put(404, "c", MediaType.APPLICATION_JSON, SOURCE, body("c")));
+    assertFalse(cache.put(404, "very long reason", MediaType.APPLICATION_JSON, SOURCE, body("d")));
+    assertEquals(3, cache.size());
+  }
+
+  @Test
+  public void shouldReleaseReasonsOnEviction() {
+    // Given:
+    final RestErrorBodyCache cache = new RestErrorBodyCache(1, 2, 10);
+    assertTrue(cache.put(404, "a", MediaType.APPLICATION_JSON, SOURCE, body("a")));
+
+    // When:
+    assertTrue(cache.put(404, "b", MediaType.APPLICATION_JSON, SOURCE, body("b")));
+
+    // Then:
+    assertTrue(cache.put(404, "c", MediaType.APPLICATION_JSON, SOURCE, body("c")));
+    assertEquals(1, cache.size());
+  }
+
+  //
+  // Private
+  //
+
+  private static RestErrorBodyCache.Body body(String content) {
+    return new RestErrorBodyCache.Body(content.getBytes(StandardCharsets.UTF_8), MediaType.APPLICATION_JSON_VALUE);
+  }
+}
@@ -0,0 +1,58 @@
+package com.truward.brikar.error.jetty.test;
+
+import com.truward.brikar.error.jetty.RestErrorNegotiationCache;
+import com.truward.brikar.protobuf.http.json.ProtobufJsonHttpMessageConverter;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link RestErrorNegotiationCache}.
+ */
+public final class RestErrorNegotiationCacheTest {
+
+  @Test
+  public void shouldCacheResults() {
+    // Given:
+    final RestErrorNegotiationCache cache = new RestErrorNegotiationCache();
+    final RestErrorNegotiationCache.Result result = RestErrorNegotiationCache.Result.of(
+        new ProtobufJsonHttpMessageConverter(), MediaType.APPLICATION_JSON);
+
+    // When:
+    cache.put(MediaType.APPLICATION_JSON_VALUE, null, result);
+    cache.put(MediaType.TEXT_HTML_VALUE, null, RestErrorNegotiationCache.Result.fallback());
+
+    // Then:
+    assertSame(result, cache.get(MediaType.APPLICATION_JSON_VALUE, null));
+    assertSame(result, cache.get(MediaType.APPLICATION_JSON_VALUE, ""));
+    assertTrue(cache.get(MediaType.TEXT_HTML_VALUE, null).isFallback());
+    assertNull(cache.get(MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE));
+  }
+
+  @Test
+  public void shouldEvictOldestEntry() {
+    // Given:
+    final RestErrorNegotiationCache cache = new RestErrorNegotiationCache(2, 100);
+    assertTrue(cache.put("a/a", null, RestErrorNegotiationCache.Result.fallback()));
+    assertTrue(cache.put("b/b", null, RestErrorNegotiationCache.Result.fallback()));
+    assertNotNull(cache.get("a/a", null));
+
+    // When:
+    assertTrue(cache.put("c/c", null, RestErrorNegotiationCache.Result.fallback()));
+
+    // Then:
+    assertEquals(2, cache.size());
+    assertNull(cache.get("a/a", null));
+    assertNotNull(cache.get("b/b", null));
+    assertNotNull(cache.get("c/c", null));
+  }
+
+  @Test
+  public void shouldNotCacheLongHeaders() {
+    final RestErrorNegotiationCache cache = new RestErrorNegotiationCache(10, 3);
+
+    assertFalse(cache.put("text/plain", null, RestErrorNegotiationCache.Result.fallback()));
+    assertEquals(0, cache.size());
+  }
+}
@@ -1,5 +1,6 @@
 package com.truward.brikar.error.jetty.test.support;
 
+import org.eclipse.jetty.server.Handler;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.handler.HandlerCollection;
 import org.eclipse.jetty.servlet.ServletContextHandler;
@@ -18,6 +19,7 @@ import java.net.URL;
 import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 
 /**
  * Base class for integration testing with Jetty.
@@ -30,12 +32,22 @@ public abstract class JettyIntegrationTestBase {
   private static Thread THREAD;
 
   protected static void startJetty(Consumer<ServletContextHandler> contextHandlerConsumer) {
+    startJetty(contextHandlerConsumer, UnaryOperator.identity());
+  }
+
+  /**
+   * @param contextHandlerConsumer Initializer of the servlet context handler
+   * @param contextHandlerWrapper Function, that wraps servlet context handler, e.g. into a load shedding handler
+   */
+  protected static void startJetty(
+      Consumer<ServletContextHandler> contextHandlerConsumer,
+      UnaryOperator<Handler> contextHandlerWrapper) {
     PORT = getAvailablePort();
 
     THREAD = new Thread(() -> {
       try {
         SERVER = new Server(PORT);
-        initJettyServer(SERVER, contextHandlerConsumer);
+        initJettyServer(SERVER, contextHandlerConsumer, contextHandlerWrapper);
         LOG.info("Server thread stopped");
       } catch (Exception e) {
         throw new RuntimeException(e);
@@ -121,7 +133,8 @@ public abstract class JettyIntegrationTestBase {
 
   private static void initJettyServer(
       Server server,
-      Consumer<ServletContextHandler> contextHandlerConsumer) throws Exception {
+      Consumer<ServletContextHandler> contextHandlerConsumer,
+      UnaryOperator<Handler> contextHandlerWrapper) throws Exception {
     server.setSendServerVersion(false);
 
     final ServletContextHandler contextHandler = new ServletContextHandler(0);
@@ -131,7 +144,7 @@ public abstract class JettyIntegrationTestBase {
     contextHandlerConsumer.accept(contextHandler);
 
     final HandlerCollection handlerList = new HandlerCollection();
-    handlerList.addHandler(contextHandler);
+    handlerList.addHandler(contextHandlerWrapper.apply(contextHandler));
     server.setHandler(handlerList);
 
     // define shutdown behavior
@@ -0,0 +1,306 @@
+package com.truward.brikar.error.reactive;
+
+import com.truward.brikar.error.ErrorBudget;
+import com.truward.brikar.error.ErrorMetrics;
+import com.truward.brikar.error.HttpRestErrorException;
+import com.truward.brikar.error.RestErrorCode;
+import com.truward.brikar.error.RestErrorCodeRegistry;
+import com.truward.brikar.error.RestErrorEncoder;
+import com.truward.brikar.error.model.ErrorV1;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebExceptionHandler;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Abstract class for REST-friendly error handler for reactive web applications.
+ * <p>
+ * {@link HttpRestErrorException}s are written as is, other exceptions are treated as container-level errors:
+ * status of {@link ResponseStatusException} is preserved, all the others result in internal server error.
+ * Error bodies are encoded in memory and written as a single pre-encoded buffer, so that event loop
+ * never waits on encoding. When negotiation fails, exception is passed on to the next exception handler.
+ * </p>
+ * <p>
+ * Client errors, including container ones, such as {@link ResponseStatusException} with 404 status, are logged
+ * without stack traces at debug level, server errors and unexpected exceptions are logged with stack traces.
+ * </p>
+ */
+@ParametersAreNonnullByDefault
+public abstract class BaseReactiveRestErrorHandler implements WebExceptionHandler, Ordered {
+  /**
+   * Default order of this handler, puts it ahead of the default error handlers of the web frameworks.
+   */
+  public static final int DEFAULT_ORDER = -2;
+
+  private static final String GENERIC_ERROR_CODE = "GenericError";
+
+  private static final int MAX_NEGOTIATION_CACHE_ENTRIES = 256;
+  private static final int MAX_CACHED_ACCEPT_LENGTH = 512;
+  private static final int STATUS_COUNT =
+      RestErrorCodeRegistry.MAX_HTTP_STATUS - RestErrorCodeRegistry.MIN_HTTP_STATUS + 1;
+
+  // marks negotiation result, that tells that error should be passed on to the next handler
+  private static final NegotiationResult FALLBACK = new NegotiationResult(null);
+
+  protected final Log logger = LogFactory.getLog(getClass());
+
+  private final ConcurrentMap<String, NegotiationResult> negotiationCache = new ConcurrentHashMap<>();
+  // pre-encoded bodies of container errors without reason, indexed by HTTP status
+  private final ConcurrentMap<RestErrorEncoder, AtomicReferenceArray<byte[]>> containerErrorBodies =
+      new ConcurrentHashMap<>();
+  private volatile RestErrorCodeRegistry restErrorCodeRegistry;
+  private volatile ErrorMetrics.Recorder errorMetricsRecorder;
+
+  @Override
+  public Mono<Void> handle(ServerWebExchange exchange, Throwable ex) {
+    final ServerHttpResponse response = exchange.getResponse();
+    if (response.isCommitted()) {
+      return Mono.error(ex);
+    }
+
+    final RestErrorEncoder encoder = negotiate(exchange.getRequest().getHeaders()).encoder;
+    if (encoder == null) {
+      return Mono.error(ex);
+    }
+
+    final int statusCode;
+    final byte[] body;
+    if (ex instanceof HttpRestErrorException) {
+      final HttpRestErrorException e = (HttpRestErrorException) ex;
+      statusCode = e.getStatusCode();
+      body = encoder.encode(ErrorV1.ErrorResponse.newBuilder()
+          .setError(getErrorBudget().apply(e.getError()))
+          .build());
+    } else {
+      String reason = null;
+      if (ex instanceof ResponseStatusException) {
+        final ResponseStatusException e = (ResponseStatusException) ex;
+        statusCode = e.getRawStatusCode();
+        reason = e.getReason();
+      } else {
+        statusCode = getInternalErrorStatus();
+      }
+
+      recordError(statusCode);
+      body = getContainerErrorBody(encoder, statusCode, reason);
+    }
+    logException(ex, statusCode, exchange.getRequest());
+
+    response.setRawStatusCode(statusCode);
+    final HttpHeaders headers = response.getHeaders();
+    headers.set(HttpHeaders.CONTENT_TYPE, encoder.getContentType());
+    headers.setContentLength(body.length);
+    return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+  }
+
+  @Override
+  public int getOrder() {
+    return DEFAULT_ORDER;
+  }
+
+  //
+  // Protected
+  //
+
+  /**
+   * Logs exception, that has been written as a REST error.
+   *
+   * @param ex Exception
+   * @param statusCode HTTP status of the written error
+   * @param request Request, that has caused an exception
+   */
+  protected void logException(Throwable ex, int statusCode, ServerHttpRequest request) {
+    if (statusCode < 500) {
+      // client errors are expected, so their stack traces carry no useful information
+      if (logger.isDebugEnabled()) {
+        logger.debug(buildLogMessage(ex, request));
+      }
+      return;
+    }
+
+    logger.warn(buildLogMessage(ex, request), ex);
+  }
+
+  /**
+   * @param ex Exception
+   * @param request Request, that has caused an exception
+   * @return Log message for the given exception
+   */
+  protected String buildLogMessage(Throwable ex, ServerHttpRequest request) {
+    return "Handled [" + ex + "] for " + request.getMethodValue() + " " + request.getPath();
+  }
+
+  /**
+   * @return Source of container errors
+   */
+  protected abstract String getRestErrorSource();
+
+  /**
+   * Checks whether REST error can be written for a request with the given headers.
+   * The decision is cached along with negotiation result, so it should depend on the Accept header only.
+   *
+   * @param headers HTTP headers on the request
+   * @return False, if rest error should not be written
+   */
+  protected abstract boolean canTryWriteRestError(HttpHeaders headers);
+
+  /**
+   * @return List of rest error encoders, human-friendly should come first
+   */
+  protected abstract List<RestErrorEncoder> getRestErrorEncoders();
+
+  /**
+   * @return List of generic REST error codes along with description.
+   */
+  protected abstract List<RestErrorCode> getRestErrorCodes();
+
+  /**
+   * @return Registry of generic REST error codes, by default built once from {@link #getRestErrorCodes()}
+   */
+  protected RestErrorCodeRegistry getRestErrorCodeRegistry() {
+    RestErrorCodeRegistry registry = this.restErrorCodeRegistry;
+    if (registry == null) {
+      registry = RestErrorCodeRegistry.newBuilder().addAll(getRestErrorCodes()).build();
+      this.restErrorCodeRegistry = registry;
+    }
+    return registry;
+  }
+
+  /**
+   * @return Limits, that errors are truncated to before being written, {@link ErrorBudget#DEFAULT} by default
+   */
+  protected ErrorBudget getErrorBudget() {
+    return ErrorBudget.DEFAULT;
+  }
+
+  /**
+   * @return Metrics, that receive an event for each container error, no-op by default
+   */
+  protected ErrorMetrics getErrorMetrics() {
+    return ErrorMetrics.NOOP;
+  }
+
+  /**
+   * @return Status of the container errors, caused by exceptions, that do not carry HTTP status
+   */
+  protected int getInternalErrorStatus() {
+    return 500;
+  }
+
+  //
+  // Private
+  //
+
+  private NegotiationResult negotiate(HttpHeaders headers) {
+    final List<String> acceptValues = headers.get(HttpHeaders.ACCEPT);
+    final String accept = acceptValues == null ? "" : (acceptValues.size() == 1 ? acceptValues.get(0) :
+        String.join(",", acceptValues));
+
+    NegotiationResult result = negotiationCache.get(accept);
+    if (result != null) {
+      return result;
+    }
+
+    try {
+      result = negotiate(headers.getAccept(), headers);
+    } catch (InvalidMediaTypeException ignored) {
+      // broken headers - resort to the next handler
+      result = FALLBACK;
+    }
+
+    // size check is not atomic, so cache might slightly exceed its bound under contention
+    if (accept.length() <= MAX_CACHED_ACCEPT_LENGTH && negotiationCache.size() < MAX_NEGOTIATION_CACHE_ENTRIES) {
+      negotiationCache.putIfAbsent(accept, result);
+    }
+
+    return result;
+  }
+
+  private NegotiationResult negotiate(List<MediaType> acceptMediaTypes, HttpHeaders headers) {
+    if (canTryWriteRestError(headers)) {
+      // encoders take priority over accepted media types
+      for (final RestErrorEncoder encoder : getRestErrorEncoders()) {
+        final MediaType mediaType = MediaType.parseMediaType(encoder.getContentType());
+        for (final MediaType acceptMediaType : acceptMediaTypes) {
+          if (mediaType.isCompatibleWith(acceptMediaType)) {
+            return new NegotiationResult(encoder);
+          }
+        }
+      }
+    }
+
+    return FALLBACK;
+  }
+
+  private byte[] getContainerErrorBody(RestErrorEncoder encoder, int statusCode, @Nullable String reason) {
+    final boolean cacheable = StringUtils.isEmpty(reason) &&
+        statusCode >= RestErrorCodeRegistry.MIN_HTTP_STATUS && statusCode <= RestErrorCodeRegistry.MAX_HTTP_STATUS;
+    if (!cacheable) {
+      return encoder.encode(getErrorResponse(statusCode, reason));
+    }
+
+    final AtomicReferenceArray<byte[]> bodies = containerErrorBodies.computeIfAbsent(encoder,
+        e -> new AtomicReferenceArray<>(STATUS_COUNT));
+    final int index = statusCode - RestErrorCodeRegistry.MIN_HTTP_STATUS;
+    byte[] body = bodies.get(index);
+    if (body == null) {
+      body = encoder.encode(getErrorResponse(statusCode, null));
+      bodies.set(index, body);
+    }
+    return body;
+  }
+
+  private ErrorV1.ErrorResponse getErrorResponse(int statusCode, @Nullable String reason) {
+    String code = GENERIC_ERROR_CODE;
+    String message = reason != null ? reason : "";
+    final RestErrorCode errorCode = getRestErrorCodeRegistry().findByHttpStatus(statusCode);
+    if (errorCode != null) {
+      code = errorCode.getCodeName();
+      if (StringUtils.isEmpty(message)) {
+        message = errorCode.getDescription();
+      }
+    }
+
+    return ErrorV1.ErrorResponse.newBuilder()
+        .setError(getErrorBudget().apply(ErrorV1.Error.newBuilder()
+            .setSource(getRestErrorSource())
+            .setCode(code)
+            .setMessage(message)
+            .build()))
+        .build();
+  }
+
+  private void recordError(int statusCode) {
+    ErrorMetrics.Recorder recorder = this.errorMetricsRecorder;
+    if (recorder == null) {
+      recorder = getErrorMetrics().getRecorder(getRestErrorSource(), getRestErrorCodeRegistry());
+      this.errorMetricsRecorder = recorder;
+    }
+
+    recorder.record(getRestErrorCodeRegistry().getOrdinalByHttpStatus(statusCode), statusCode);
+  }
+
+  private static final class NegotiationResult {
+    final RestErrorEncoder encoder;
+
+    NegotiationResult(@Nullable RestErrorEncoder encoder) {
+      this.encoder = encoder;
+    }
+  }
+}
@@ -0,0 +1,80 @@
+package com.truward.brikar.error.reactive;
+
+import com.truward.brikar.error.RestErrorCode;
+import com.truward.brikar.error.RestErrorCodeRegistry;
+import com.truward.brikar.error.RestErrorEncoder;
+import com.truward.brikar.error.RestErrorEncoders;
+import com.truward.brikar.error.StandardRestErrorCodes;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Standard reactive error handler, that follows the same negotiation rules as Jetty error handler.
+ */
+@ParametersAreNonnullByDefault
+public class StandardReactiveRestErrorHandler extends BaseReactiveRestErrorHandler {
+  private final String errorSource;
+  private final List<RestErrorEncoder> restErrorEncoders;
+  private final List<RestErrorCode> restErrorCodes;
+  private final RestErrorCodeRegistry restErrorCodeRegistry;
+
+  public StandardReactiveRestErrorHandler(
+      String errorSource,
+      List<RestErrorEncoder> restErrorEncoders,
+      List<RestErrorCode> restErrorCodes) {
+    this.errorSource = Objects.requireNonNull(errorSource, "errorSource");
+    this.restErrorEncoders = new ArrayList<>(Objects.requireNonNull(restErrorEncoders, "restErrorEncoders"));
+    this.restErrorCodes = new ArrayList<>(Objects.requireNonNull(restErrorCodes, "restErrorCodes"));
+    this.restErrorCodeRegistry = RestErrorCodeRegistry.newBuilder().addAll(this.restErrorCodes).build();
+  }
+
+  public StandardReactiveRestErrorHandler(String errorSource) {
+    this(
+        errorSource,
+        Arrays.asList(
+            // Json should be the first one as it takes priority over binary error representation
+            RestErrorEncoders.json(),
+            // compact binary representation is used only when explicitly accepted by the client
+            RestErrorEncoders.protobufV2(),
+            RestErrorEncoders.protobuf()),
+        Arrays.asList(StandardRestErrorCodes.values()));
+  }
+
+  @Override
+  protected String getRestErrorSource() {
+    return this.errorSource;
+  }
+
+  @Override
+  protected boolean canTryWriteRestError(HttpHeaders headers) {
+    for (final MediaType acceptMediaType : headers.getAccept()) {
+      if (MediaType.TEXT_HTML.isCompatibleWith(acceptMediaType)) {
+        // prefer text/html error description whenever possible
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  @Override
+  protected List<RestErrorEncoder> getRestErrorEncoders() {
+    return this.restErrorEncoders;
+  }
+
+  @Override
+  protected List<RestErrorCode> getRestErrorCodes() {
+    return this.restErrorCodes;
+  }
+
+  @Override
+  protected RestErrorCodeRegistry getRestErrorCodeRegistry() {
+    return this.restErrorCodeRegistry;
+  }
+}
@@ -0,0 +1,167 @@
+package com.truward.brikar.error.reactive.test;
+
+import com.truward.brikar.error.ErrorV2Converter;
+import com.truward.brikar.error.RestErrors;
+import com.truward.brikar.error.StandardRestErrorCodes;
+import com.truward.brikar.error.model.ErrorV1;
+import com.truward.brikar.error.parser.RestErrorParser;
+import com.truward.brikar.error.reactive.StandardReactiveRestErrorHandler;
+import com.truward.brikar.protobuf.http.ProtobufHttpConstants;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.adapter.WebHttpHandlerBuilder;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * Integration test for reactive REST errors, that runs against embedded Netty server.
+ */
+public final class ReactiveRestErrorsIntegrationTest {
+  private static final String SOURCE = "ReactiveIntegrationTests";
+
+  private static final String HEALTH_PATH = "/health";
+  private static final String STATUS_PATH = "/status/";
+  private static final String REST_ERROR_PATH = "/rest-error";
+  private static final String CRASH_PATH = "/crash";
+
+  private static final RestErrors REST_ERRORS = new RestErrors() {
+    @Override
+    protected String getSource() {
+      return "TestService";
+    }
+  };
+
+  private static DisposableServer server;
+
+  @BeforeClass
+  public static void startServer() {
+    final HttpHandler httpHandler = WebHttpHandlerBuilder
+        .webHandler(exchange -> {
+          final String path = exchange.getRequest().getURI().getPath();
+          if (path.equals(HEALTH_PATH)) {
+            return exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory()
+                .wrap("OK".getBytes(StandardCharsets.UTF_8))));
+          } else if (path.startsWith(STATUS_PATH)) {
+            return Mono.error(new ResponseStatusException(
+                HttpStatus.valueOf(Integer.parseInt(path.substring(STATUS_PATH.length())))));
+          } else if (path.equals(REST_ERROR_PATH)) {
+            return Mono.error(REST_ERRORS.invalidArgument("id"));
+          } else if (path.equals(CRASH_PATH)) {
+            return Mono.error(new IllegalStateException("Sensitive details"));
+          }
+          return Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND));
+        })
+        .exceptionHandler(new StandardReactiveRestErrorHandler(SOURCE))
+        .build();
+
+    server = HttpServer.create()
+        .host("127.0.0.1")
+        .port(0)
+        .handle(new ReactorHttpHandlerAdapter(httpHandler))
+        .bindNow();
+  }
+
+  @AfterClass
+  public static void stopServer() {
+    if (server != null) {
+      server.disposeNow();
+    }
+  }
+
+  @Test
+  public void shouldRespondNormally() throws IOException {
+    final HttpURLConnection connection = open(HEALTH_PATH, MediaType.APPLICATION_JSON_VALUE);
+    try {
+      assertEquals(200, connection.getResponseCode());
+      assertEquals("OK", StreamUtils.copyToString(connection.getInputStream(), StandardCharsets.UTF_8));
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+  @Test
+  public void shouldWriteContainerErrors() throws IOException {
+    for (final StandardRestErrorCodes code : new StandardRestErrorCodes[] {
+        StandardRestErrorCodes.NOT_FOUND,
+        StandardRestErrorCodes.UNAUTHORIZED,
+        StandardRestErrorCodes.SERVICE_UNAVAILABLE}) {
+      final ErrorV1.Error error = readError(STATUS_PATH + code.getHttpStatus(), MediaType.APPLICATION_JSON_VALUE,
+          code.getHttpStatus());
+
+      assertEquals(SOURCE, error.getSource());
+      assertEquals(code.getCodeName(), error.getCode());
+      assertEquals(code.getDescription(), error.getMessage());
+    }
+  }
+
+  @Test
+  public void shouldWriteRestErrorsInAllFormats() throws IOException {
+    final ErrorV1.Error expected = REST_ERRORS.invalidArgument("id").getError();
+
+    for (final String accept : new String[] {
+        MediaType.APPLICATION_JSON_VALUE,
+        ProtobufHttpConstants.PROTOBUF_MEDIA_TYPE.toString(),
+        ErrorV2Converter.PROTOBUF_CONTENT_TYPE}) {
+      assertEquals(expected, readError(REST_ERROR_PATH, accept, 400));
+    }
+  }
+
+  @Test
+  public void shouldHideDetailsOfUnexpectedErrors() throws IOException {
+    final ErrorV1.Error error = readError(CRASH_PATH, ProtobufHttpConstants.PROTOBUF_MEDIA_TYPE.toString(), 500);
+
+    assertEquals(SOURCE, error.getSource());
+    assertEquals(StandardRestErrorCodes.INTERNAL.getCodeName(), error.getCode());
+    assertFalse(error.getMessage().contains("Sensitive"));
+  }
+
+  @Test
+  public void shouldPassErrorOnIfHtmlIsAccepted() throws IOException {
+    final HttpURLConnection connection = open(STATUS_PATH + 404, MediaType.TEXT_HTML_VALUE);
+    try {
+      assertEquals(404, connection.getResponseCode());
+      final String contentType = connection.getContentType();
+      assertTrue(contentType == null || !MediaType.APPLICATION_JSON.isCompatibleWith(
+          MediaType.parseMediaType(contentType)));
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+  //
+  // Private
+  //
+
+  private static HttpURLConnection open(String path, String accept) throws IOException {
+    final URL url = new URL("http://127.0.0.1:" + server.port() + path);
+    final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    connection.setRequestProperty(HttpHeaders.ACCEPT, accept);
+    return connection;
+  }
+
+  private static ErrorV1.Error readError(String path, String accept, int expectedStatus) throws IOException {
+    final HttpURLConnection connection = open(path, accept);
+    try {
+      assertEquals(expectedStatus, connection.getResponseCode());
+      return RestErrorParser.getDefault().readError(connection.getContentType(), connection.getErrorStream());
+    } finally {
+      connection.disconnect();
+    }
+  }
+}
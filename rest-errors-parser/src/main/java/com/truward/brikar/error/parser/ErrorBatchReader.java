@@ -0,0 +1,108 @@
+package com.truward.brikar.error.parser;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.protobuf.CodedInputStream;
+import com.truward.brikar.error.model.ErrorV1;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Lazy reader of the streamed batch errors, written by {@link com.truward.brikar.error.ErrorBatchWriter}.
+ * Items are parsed one by one as they are requested. Instances of this class are not thread safe.
+ *
+ * @see RestErrorParser#readErrorBatch(String, InputStream)
+ */
+@ParametersAreNonnullByDefault
+public abstract class ErrorBatchReader implements Closeable {
+
+  ErrorBatchReader() {}
+
+  /**
+   * Reads next batch item.
+   *
+   * @return Next item or null if there are no more items in the stream
+   * @throws IOException On I/O error or malformed item
+   */
+  @Nullable
+  public abstract ErrorV1.ErrorBatchItem read() throws IOException;
+
+  //
+  // Private
+  //
+
+  static final class DelimitedReader extends ErrorBatchReader {
+    private final InputStream inputStream;
+    private final int maxItemSize;
+    private byte[] buffer = new byte[256];
+
+    DelimitedReader(InputStream inputStream, int maxItemSize) {
+      this.inputStream = inputStream;
+      this.maxItemSize = maxItemSize;
+    }
+
+    @Nullable
+    @Override
+    public ErrorV1.ErrorBatchItem read() throws IOException {
+      final int firstByte = inputStream.read();
+      if (firstByte < 0) {
+        return null;
+      }
+
+      final int size = CodedInputStream.readRawVarint32(firstByte, inputStream);
+      if (size < 0 || size > maxItemSize) {
+        throw new IOException("Batch item size=" + size + " exceeds maxBodySize=" + maxItemSize);
+      }
+
+      if (buffer.length < size) {
+        buffer = new byte[Math.max(size, buffer.length * 2)];
+      }
+      for (int pos = 0; pos < size;) {
+        final int read = inputStream.read(buffer, pos, size - pos);
+        if (read < 0) {
+          throw new IOException("Truncated batch item");
+        }
+        pos += read;
+      }
+
+      return ErrorV1.ErrorBatchItem.parseFrom(CodedInputStream.newInstance(buffer, 0, size));
+    }
+
+    @Override
+    public void close() throws IOException {
+      inputStream.close();
+    }
+  }
+
+  static final class NdjsonReader extends ErrorBatchReader {
+    private final JsonParser jp;
+    private final ErrorResponseJsonReader jsonReader;
+
+    NdjsonReader(JsonParser jp, ErrorResponseJsonReader jsonReader) {
+      this.jp = jp;
+      this.jsonReader = jsonReader;
+    }
+
+    @Nullable
+    @Override
+    public ErrorV1.ErrorBatchItem read() throws IOException {
+      final JsonToken token = jp.nextToken();
+      if (token == null) {
+        return null;
+      }
+      if (token != JsonToken.START_OBJECT) {
+        throw new IOException("Object expected in batch item, got token=" + token);
+      }
+      return jsonReader.readErrorBatchItem(jp);
+    }
+
+    @Override
+    public void close() throws IOException {
+      jp.close();
+    }
+  }
+}
@@ -0,0 +1,324 @@
+package com.truward.brikar.error.parser;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.protobuf.ByteString;
+import com.truward.brikar.error.RestErrorCode;
+import com.truward.brikar.error.RestErrorCodeRegistry;
+import com.truward.brikar.error.model.ErrorV1;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Pull parser for JSON error responses, that builds error model directly from JSON tokens.
+ * <p>
+ * Known code names are taken from the given registry and source names are interned in a small bounded cache,
+ * so that repeated errors from the same services do not allocate new strings for these fields.
+ * Unknown fields are skipped. Nesting of inner errors is limited by {@link #getMaxDepth()}.
+ * </p>
+ * <p>
+ * Instances of this class are thread safe.
+ * </p>
+ */
+@ParametersAreNonnullByDefault
+public final class ErrorResponseJsonReader {
+  public static final int DEFAULT_MAX_DEPTH = 32;
+
+  private static final int SOURCE_CACHE_SIZE = 64; // should be a power of two
+  private static final int MAX_CACHED_SOURCE_LENGTH = 128;
+
+  private final RestErrorCodeRegistry registry;
+  private final int maxDepth;
+  private final String[] sources = new String[SOURCE_CACHE_SIZE];
+
+  public ErrorResponseJsonReader(RestErrorCodeRegistry registry, int maxDepth) {
+    if (maxDepth <= 0) {
+      throw new IllegalArgumentException("maxDepth should be positive");
+    }
+
+    this.registry = Objects.requireNonNull(registry, "registry");
+    this.maxDepth = maxDepth;
+  }
+
+  public ErrorResponseJsonReader() {
+    this(RestErrorCodeRegistry.standard(), DEFAULT_MAX_DEPTH);
+  }
+
+  /**
+   * @return Maximum number of nested errors, including top-level one
+   */
+  public int getMaxDepth() {
+    return maxDepth;
+  }
+
+  /**
+   * Reads error response object. Parser should either be positioned at the start of the response object or
+   * be at the beginning of the input.
+   *
+   * @param jp JSON parser
+   * @return Parsed error response
+   * @throws IOException On malformed response
+   */
+  public ErrorV1.ErrorResponse readErrorResponse(JsonParser jp) throws IOException {
+    expectStartObject(jp);
+
+    final ErrorV1.ErrorResponse.Builder builder = ErrorV1.ErrorResponse.newBuilder();
+    while (nextField(jp)) {
+      final String fieldName = jp.getCurrentName();
+      final JsonToken token = jp.nextToken();
+      if (token == JsonToken.START_OBJECT && "error".equals(fieldName)) {
+        builder.setError(readError(jp, 1));
+      } else {
+        jp.skipChildren();
+      }
+    }
+    return builder.build();
+  }
+
+  /**
+   * Reads error object. Parser should either be positioned at the start of the error object or
+   * be at the beginning of the input.
+   *
+   * @param jp JSON parser
+   * @return Parsed error
+   * @throws IOException On malformed error
+   */
+  public ErrorV1.Error readError(JsonParser jp) throws IOException {
+    expectStartObject(jp);
+    return readError(jp, 1);
+  }
+
+  /**
+   * Reads batch item object. Parser should either be positioned at the start of the item object or
+   * be at the beginning of the input.
+   *
+   * @param jp JSON parser
+   * @return Parsed batch item
+   * @throws IOException On malformed item
+   */
+  public ErrorV1.ErrorBatchItem readErrorBatchItem(JsonParser jp) throws IOException {
+    expectStartObject(jp);
+
+    final ErrorV1.ErrorBatchItem.Builder builder = ErrorV1.ErrorBatchItem.newBuilder();
+    while (nextField(jp)) {
+      final String fieldName = jp.getCurrentName();
+      final JsonToken token = jp.nextToken();
+      if (token == JsonToken.VALUE_NULL) {
+        continue;
+      }
+
+      switch (fieldName) {
+        case "index":
+          builder.setIndex(token == JsonToken.VALUE_STRING ? (int) parseLong(jp, true) : jp.getIntValue());
+          break;
+        case "target":
+          builder.setTarget(readString(jp));
+          break;
+        case "error":
+          expectToken(jp, JsonToken.START_OBJECT);
+          builder.setError(readError(jp, 1));
+          break;
+        default:
+          jp.skipChildren();
+      }
+    }
+    return builder.build();
+  }
+
+  //
+  // Private
+  //
+
+  private ErrorV1.Error readError(JsonParser jp, int depth) throws IOException {
+    if (depth > maxDepth) {
+      throw new IOException("Error nesting exceeds maxDepth=" + maxDepth);
+    }
+
+    final ErrorV1.Error.Builder builder = ErrorV1.Error.newBuilder();
+    while (nextField(jp)) {
+      final String fieldName = jp.getCurrentName();
+      final JsonToken token = jp.nextToken();
+      if (token == JsonToken.VALUE_NULL) {
+        continue;
+      }
+
+      switch (fieldName) {
+        case "code":
+          builder.setCode(readCode(jp));
+          break;
+        case "message":
+          builder.setMessage(readString(jp));
+          break;
+        case "source":
+          builder.setSource(readSource(jp));
+          break;
+        case "target":
+          builder.setTarget(readString(jp));
+          break;
+        case "innerError":
+          expectToken(jp, JsonToken.START_OBJECT);
+          builder.setInnerError(readError(jp, depth + 1));
+          break;
+        case "parameters":
+          expectToken(jp, JsonToken.START_ARRAY);
+          while (jp.nextToken() != JsonToken.END_ARRAY) {
+            expectToken(jp, JsonToken.START_OBJECT);
+            builder.addParameters(readParameter(jp));
+          }
+          break;
+        default:
+          jp.skipChildren();
+      }
+    }
+    return builder.build();
+  }
+
+  private ErrorV1.ErrorParameter readParameter(JsonParser jp) throws IOException {
+    final ErrorV1.ErrorParameter.Builder builder = ErrorV1.ErrorParameter.newBuilder();
+    while (nextField(jp)) {
+      final String fieldName = jp.getCurrentName();
+      final JsonToken token = jp.nextToken();
+      if (token == JsonToken.VALUE_NULL) {
+        continue;
+      }
+
+      switch (fieldName) {
+        case "key":
+          builder.setKey(readString(jp));
+          break;
+        case "value":
+          expectToken(jp, JsonToken.START_OBJECT);
+          builder.setValue(readValue(jp));
+          break;
+        default:
+          jp.skipChildren();
+      }
+    }
+    return builder.build();
+  }
+
+  private static ErrorV1.ErrorValue readValue(JsonParser jp) throws IOException {
+    final ErrorV1.ErrorValue.Builder builder = ErrorV1.ErrorValue.newBuilder();
+    while (nextField(jp)) {
+      final String fieldName = jp.getCurrentName();
+      final JsonToken token = jp.nextToken();
+      if (token == JsonToken.VALUE_NULL) {
+        continue;
+      }
+
+      switch (fieldName) {
+        case "bytesValue":
+          expectToken(jp, JsonToken.VALUE_STRING);
+          builder.setBytesValue(ByteString.copyFrom(jp.getBinaryValue()));
+          break;
+        case "strValue":
+          builder.setStrValue(readString(jp));
+          break;
+        case "intValue":
+          builder.setIntValue(token == JsonToken.VALUE_STRING ? (int) parseLong(jp, true) : jp.getIntValue());
+          break;
+        case "longValue":
+          builder.setLongValue(token == JsonToken.VALUE_STRING ? parseLong(jp, false) : jp.getLongValue());
+          break;
+        case "boolValue":
+          builder.setBoolValue(jp.getBooleanValue());
+          break;
+        default:
+          jp.skipChildren();
+      }
+    }
+    return builder.build();
+  }
+
+  private String readCode(JsonParser jp) throws IOException {
+    expectToken(jp, JsonToken.VALUE_STRING);
+    final RestErrorCode errorCode = registry.findByCodeName(jp.getTextCharacters(), jp.getTextOffset(),
+        jp.getTextLength());
+    return errorCode != null ? errorCode.getCodeName() : jp.getText();
+  }
+
+  private String readSource(JsonParser jp) throws IOException {
+    expectToken(jp, JsonToken.VALUE_STRING);
+    final char[] chars = jp.getTextCharacters();
+    final int offset = jp.getTextOffset();
+    final int length = jp.getTextLength();
+    if (length > MAX_CACHED_SOURCE_LENGTH) {
+      return new String(chars, offset, length);
+    }
+
+    int hash = 0;
+    for (int i = 0; i < length; ++i) {
+      hash = 31 * hash + chars[offset + i];
+    }
+
+    // racy, but safe: strings are immutable and reference stores are atomic
+    final int slot = (hash ^ (hash >>> 16)) & (SOURCE_CACHE_SIZE - 1);
+    final String cached = sources[slot];
+    if (cached != null && equals(cached, chars, offset, length)) {
+      return cached;
+    }
+
+    final String source = new String(chars, offset, length);
+    sources[slot] = source;
+    return source;
+  }
+
+  private static String readString(JsonParser jp) throws IOException {
+    expectToken(jp, JsonToken.VALUE_STRING);
+    return jp.getText();
+  }
+
+  // numeric values might come as strings, e.g. canonical protobuf JSON encodes 64-bit integers this way
+  private static long parseLong(JsonParser jp, boolean intRange) throws IOException {
+    final long value;
+    try {
+      value = Long.parseLong(jp.getText());
+    } catch (NumberFormatException e) {
+      throw new IOException("Malformed number=" + jp.getText(), e);
+    }
+
+    if (intRange && (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)) {
+      throw new IOException("Number out of int range=" + value);
+    }
+    return value;
+  }
+
+  private static boolean equals(String str, char[] chars, int offset, int length) {
+    if (str.length() != length) {
+      return false;
+    }
+    for (int i = 0; i < length; ++i) {
+      if (str.charAt(i) != chars[offset + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean nextField(JsonParser jp) throws IOException {
+    final JsonToken token = jp.nextToken();
+    if (token == JsonToken.FIELD_NAME) {
+      return true;
+    }
+    if (token != JsonToken.END_OBJECT) {
+      throw new IOException("Field name expected, got token=" + token);
+    }
+    return false;
+  }
+
+  private static void expectStartObject(JsonParser jp) throws IOException {
+    if (jp.getCurrentToken() == null) {
+      jp.nextToken();
+    }
+    expectToken(jp, JsonToken.START_OBJECT);
+  }
+
+  private static void expectToken(JsonParser jp, JsonToken expected) throws IOException {
+    final JsonToken token = jp.getCurrentToken();
+    if (token != expected) {
+      throw new IOException("Expected token=" + expected + ", got token=" + token);
+    }
+  }
+}
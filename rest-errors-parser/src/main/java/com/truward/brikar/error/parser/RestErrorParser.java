@@ -2,42 +2,763 @@ package com.truward.brikar.error.parser;
 
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.truward.brikar.error.ErrorBatchWriter;
+import com.truward.brikar.error.ErrorV2Converter;
+import com.truward.brikar.error.RestErrorCode;
+import com.truward.brikar.error.RestErrorCodeRegistry;
 import com.truward.brikar.error.model.ErrorV1;
+import com.truward.brikar.error.model.ErrorV2;
 import com.truward.brikar.protobuf.http.ProtobufHttpConstants;
 import com.truward.protobuf.jackson.ProtobufJacksonUtil;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
 import org.springframework.http.MediaType;
 import org.springframework.web.client.HttpStatusCodeException;
 
-import java.io.ByteArrayInputStream;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Helper class for parsing brikar error from HTTP status code exception.
+ * <p>
+ * Instances of this class are thread safe and meant to be shared: JSON factory, parsed media types and
+ * read buffers are reused across calls. Protobuf bodies are accepted in both length-delimited and
+ * non-delimited forms.
+ * </p>
+ * <p>
+ * JSON bodies are read using generic protobuf JSON conversion, unless {@link ErrorResponseJsonReader} is given.
+ * Bodies of {@link ErrorV2Converter#PROTOBUF_CONTENT_TYPE} are converted to the first version of the error model
+ * using given {@link ErrorV2Converter}.
+ * </p>
  *
  * @author Alexander Shabanov
  */
+@ParametersAreNonnullByDefault
 public final class RestErrorParser {
-  private RestErrorParser() {}
+  public static final int DEFAULT_MAX_BODY_SIZE = 1024 * 1024;
+
+  private static final int INITIAL_BUFFER_SIZE = 4096;
+  private static final int MAX_POOLED_BUFFER_SIZE = 64 * 1024;
+  private static final int MAX_CACHED_MEDIA_TYPES = 64;
+  // maximum length of the varint prefix of the length-delimited message
+  private static final int MAX_PREFIX_LENGTH = 5;
+
+  private static final MediaType PROTOBUF_V2_MEDIA_TYPE = MediaType.parseMediaType(
+      ErrorV2Converter.PROTOBUF_CONTENT_TYPE);
+  private static final MediaType BATCH_PROTOBUF_MEDIA_TYPE = MediaType.parseMediaType(
+      ErrorBatchWriter.PROTOBUF_CONTENT_TYPE);
+  private static final MediaType BATCH_NDJSON_MEDIA_TYPE = MediaType.parseMediaType(
+      ErrorBatchWriter.NDJSON_CONTENT_TYPE);
+
+  // used for streamed batch errors, which can't be read by generic protobuf JSON conversion
+  private static final ErrorResponseJsonReader DEFAULT_JSON_READER = new ErrorResponseJsonReader();
+
+  private static final RestErrorParser DEFAULT = new RestErrorParser();
+
+  // protobuf tags of the error response fields, that are looked at when peeking into the error response
+  private static final int ERROR_RESPONSE_ERROR_TAG = (ErrorV1.ErrorResponse.ERROR_FIELD_NUMBER << 3) | 2;
+  private static final int ERROR_CODE_TAG = (ErrorV1.Error.CODE_FIELD_NUMBER << 3) | 2;
+  private static final int ERROR_SOURCE_TAG = (ErrorV1.Error.SOURCE_FIELD_NUMBER << 3) | 2;
+  private static final int ERROR_TARGET_TAG = (ErrorV1.Error.TARGET_FIELD_NUMBER << 3) | 2;
+
+  private final JsonFactory jsonFactory;
+  private final int maxBodySize;
+  private final ErrorResponseJsonReader jsonReader;
+  private final ErrorV2Converter errorV2Converter;
+  private final ConcurrentMap<String, MediaType> mediaTypes = new ConcurrentHashMap<>();
+  private final ThreadLocal<byte[]> buffers = new ThreadLocal<>();
+
+  /**
+   * @param jsonFactory JSON factory
+   * @param maxBodySize Maximum size of the error body, read from the stream
+   * @param jsonReader Reader of JSON error responses or null if generic protobuf JSON conversion should be used
+   * @param errorV2Converter Converter of the second version of the error responses
+   */
+  public RestErrorParser(
+      JsonFactory jsonFactory,
+      int maxBodySize,
+      @Nullable ErrorResponseJsonReader jsonReader,
+      ErrorV2Converter errorV2Converter) {
+    if (maxBodySize <= 0) {
+      throw new IllegalArgumentException("maxBodySize should be positive");
+    }
+
+    this.jsonFactory = Objects.requireNonNull(jsonFactory, "jsonFactory");
+    this.maxBodySize = maxBodySize;
+    this.jsonReader = jsonReader;
+    this.errorV2Converter = Objects.requireNonNull(errorV2Converter, "errorV2Converter");
+  }
+
+  public RestErrorParser(JsonFactory jsonFactory, int maxBodySize, @Nullable ErrorResponseJsonReader jsonReader) {
+    this(jsonFactory, maxBodySize, jsonReader, ErrorV2Converter.standard());
+  }
+
+  public RestErrorParser(JsonFactory jsonFactory, int maxBodySize) {
+    this(jsonFactory, maxBodySize, null);
+  }
+
+  public RestErrorParser() {
+    this(new JsonFactory(), DEFAULT_MAX_BODY_SIZE);
+  }
+
+  /**
+   * @return Shared parser instance with default settings
+   */
+  public static RestErrorParser getDefault() {
+    return DEFAULT;
+  }
+
+  /**
+   * @return Maximum size of the error body, read by this parser
+   */
+  public int getMaxBodySize() {
+    return maxBodySize;
+  }
 
   public static ErrorV1.Error parseError(HttpStatusCodeException exception) throws IOException {
-    final MediaType contentType = exception.getResponseHeaders().getContentType();
-    if (contentType == null) {
+    return DEFAULT.readError(exception);
+  }
+
+  /**
+   * Resolves error code of the parsed error using given registry.
+   *
+   * @param error Parsed error
+   * @param httpStatus HTTP status of the response, used when error code name is not registered
+   * @param registry Registry of known error codes
+   * @return Matching error code or null
+   */
+  @Nullable
+  public static RestErrorCode resolveErrorCode(ErrorV1.Error error, int httpStatus, RestErrorCodeRegistry registry) {
+    final RestErrorCode errorCode = registry.findByCodeName(error.getCode());
+    return errorCode != null ? errorCode : registry.findByHttpStatus(httpStatus);
+  }
+
+  @Nullable
+  public static RestErrorCode resolveErrorCode(HttpStatusCodeException exception, RestErrorCodeRegistry registry)
+      throws IOException {
+    return resolveErrorCode(parseError(exception), exception.getRawStatusCode(), registry);
+  }
+
+  //
+  // Instance methods
+  //
+
+  public ErrorV1.Error readError(HttpStatusCodeException exception) throws IOException {
+    final HttpHeaders headers = exception.getResponseHeaders();
+    final byte[] body = exception.getResponseBodyAsByteArray();
+    return readError(headers != null ? headers.getFirst(HttpHeaders.CONTENT_TYPE) : null, body, 0, body.length);
+  }
+
+  public ErrorV1.Error readError(@Nullable String contentType, InputStream inputStream) throws IOException {
+    final MediaType mediaType = getMediaType(contentType);
+
+    byte[] buffer = acquireBuffer(INITIAL_BUFFER_SIZE);
+    int length = 0;
+    for (;;) {
+      if (length == buffer.length) {
+        if (length > maxBodySize) {
+          throw new IOException("Error body exceeds maxBodySize=" + maxBodySize);
+        }
+        buffer = growBuffer(buffer, length, Math.min(buffer.length * 2, maxBodySize + 1));
+      }
+
+      final int read = inputStream.read(buffer, length, buffer.length - length);
+      if (read < 0) {
+        break;
+      }
+      length += read;
+    }
+
+    if (length > maxBodySize) {
+      throw new IOException("Error body exceeds maxBodySize=" + maxBodySize);
+    }
+
+    return readError(mediaType, buffer, 0, length);
+  }
+
+  /**
+   * Reads error from the stream of the known length without copying the body into an intermediate buffer,
+   * which suits bodies, that are held in several chunks. Body is read more than once to detect protobuf framing,
+   * so streams, that do not support {@link InputStream#mark(int)}, are copied into a buffer first.
+   *
+   * @param contentType Content type of the error response
+   * @param inputStream Stream, holding error response
+   * @param length Length of the error response in the stream
+   * @return Parsed error
+   * @throws IOException On malformed response or if length exceeds maximum body size
+   */
+  public ErrorV1.Error readError(@Nullable String contentType, InputStream inputStream, int length)
+      throws IOException {
+    final MediaType mediaType = getMediaType(contentType);
+    if (length > maxBodySize) {
+      throw new IOException("Error body exceeds maxBodySize=" + maxBodySize);
+    }
+
+    if (!inputStream.markSupported()) {
+      final byte[] buffer = acquireBuffer(length);
+      int read = 0;
+      while (read < length) {
+        final int count = inputStream.read(buffer, read, length - read);
+        if (count < 0) {
+          throw new IOException("Truncated error body");
+        }
+        read += count;
+      }
+      return readError(mediaType, buffer, 0, length);
+    }
+
+    return readError(mediaType, new StreamBody(inputStream, length));
+  }
+
+  public ErrorV1.Error readError(@Nullable String contentType, byte[] body, int offset, int length)
+      throws IOException {
+    return readError(getMediaType(contentType), body, offset, length);
+  }
+
+  public ErrorV1.Error readError(@Nullable String contentType, ByteBuffer body) throws IOException {
+    final MediaType mediaType = getMediaType(contentType);
+    final int length = body.remaining();
+    if (body.hasArray()) {
+      return readError(mediaType, body.array(), body.arrayOffset() + body.position(), length);
+    }
+
+    final byte[] buffer = acquireBuffer(length);
+    body.duplicate().get(buffer, 0, length);
+    return readError(mediaType, buffer, 0, length);
+  }
+
+  /**
+   * Checks whether error response of the given content type can be read by this parser, so that bodies of other
+   * content types, e.g. HTML pages of proxies, are not read at all.
+   *
+   * @param contentType Content type of the response
+   * @return True, if content type is one of the error response content types
+   */
+  public boolean canReadError(@Nullable String contentType) {
+    final MediaType mediaType;
+    try {
+      mediaType = getMediaType(contentType);
+    } catch (IOException ignored) {
+      return false;
+    }
+
+    return PROTOBUF_V2_MEDIA_TYPE.isCompatibleWith(mediaType) ||
+        ProtobufHttpConstants.PROTOBUF_MEDIA_TYPE.isCompatibleWith(mediaType) ||
+        MediaType.APPLICATION_JSON.isCompatibleWith(mediaType);
+  }
+
+  /**
+   * Creates lazy reader of the streamed batch errors. Each protobuf-encoded item should not exceed maximum
+   * body size of this parser. Returned reader owns the given stream and closes it when closed.
+   *
+   * @param contentType Content type of the stream, see {@link ErrorBatchWriter}
+   * @param inputStream Stream of batch errors
+   * @return Reader of batch items
+   * @throws IOException If content type is not recognized
+   */
+  public ErrorBatchReader readErrorBatch(@Nullable String contentType, InputStream inputStream) throws IOException {
+    final MediaType mediaType = getMediaType(contentType);
+    if (BATCH_PROTOBUF_MEDIA_TYPE.isCompatibleWith(mediaType)) {
+      return new ErrorBatchReader.DelimitedReader(inputStream, maxBodySize);
+    }
+
+    if (BATCH_NDJSON_MEDIA_TYPE.isCompatibleWith(mediaType)) {
+      return new ErrorBatchReader.NdjsonReader(jsonFactory.createParser(inputStream),
+          jsonReader != null ? jsonReader : DEFAULT_JSON_READER);
+    }
+
+    throw new IOException("Unrecognized contentType=" + mediaType);
+  }
+
+  /**
+   * Scans error response and extracts error code without parsing the whole response.
+   *
+   * @param exception HTTP status code exception, holding error response
+   * @param registry Registry of known codes
+   * @param withSourceAndTarget Whether source and target should be extracted
+   * @return Scan result
+   * @throws IOException On malformed response
+   */
+  public RestErrorPeek peekError(
+      HttpStatusCodeException exception,
+      RestErrorCodeRegistry registry,
+      boolean withSourceAndTarget) throws IOException {
+    final HttpHeaders headers = exception.getResponseHeaders();
+    final byte[] body = exception.getResponseBodyAsByteArray();
+    return peekError(headers != null ? headers.getFirst(HttpHeaders.CONTENT_TYPE) : null, body, 0, body.length,
+        registry, withSourceAndTarget);
+  }
+
+  /**
+   * Scans error response and extracts error code without parsing the whole response.
+   * Code names, known to the given registry, are resolved without allocating strings.
+   * Returned object refers to the given body, so body contents should not be changed while it is in use.
+   *
+   * @param contentType Content type of the error response
+   * @param body Buffer, holding error response
+   * @param offset Offset of the error response in the buffer
+   * @param length Length of the error response
+   * @param registry Registry of known codes
+   * @param withSourceAndTarget Whether source and target should be extracted
+   * @return Scan result
+   * @throws IOException On malformed response
+   */
+  public RestErrorPeek peekError(
+      @Nullable String contentType,
+      byte[] body,
+      int offset,
+      int length,
+      RestErrorCodeRegistry registry,
+      boolean withSourceAndTarget) throws IOException {
+    final MediaType mediaType = getMediaType(contentType);
+    if (PROTOBUF_V2_MEDIA_TYPE.isCompatibleWith(mediaType)) {
+      // second version of the model is compact enough to be decoded completely
+      final ErrorV1.Error error = readError(mediaType, body, offset, length);
+      final RestErrorCode errorCode = registry.findByCodeName(error.getCode());
+      return new RestErrorPeek(this, mediaType, body, offset, length, errorCode, error.getCode(),
+          withSourceAndTarget ? error.getSource() : null, withSourceAndTarget ? error.getTarget() : null);
+    }
+
+    if (ProtobufHttpConstants.PROTOBUF_MEDIA_TYPE.isCompatibleWith(mediaType)) {
+      return peekProtobuf(mediaType, body, offset, length, registry, withSourceAndTarget);
+    }
+
+    if (MediaType.APPLICATION_JSON.isCompatibleWith(mediaType)) {
+      return peekJson(mediaType, body, offset, length, registry, withSourceAndTarget);
+    }
+
+    throw new IOException("Unrecognized contentType=" + mediaType);
+  }
+
+  public RestErrorPeek peekError(
+      @Nullable String contentType,
+      ByteBuffer body,
+      RestErrorCodeRegistry registry,
+      boolean withSourceAndTarget) throws IOException {
+    if (body.hasArray()) {
+      return peekError(contentType, body.array(), body.arrayOffset() + body.position(), body.remaining(),
+          registry, withSourceAndTarget);
+    }
+
+    // peek result keeps reference to the body, so it can't be copied to the pooled buffer
+    final byte[] copy = new byte[body.remaining()];
+    body.duplicate().get(copy);
+    return peekError(contentType, copy, 0, copy.length, registry, withSourceAndTarget);
+  }
+
+  /**
+   * Parses content type, parsed media types are cached.
+   *
+   * @param contentType Content type header value
+   * @return Parsed media type
+   * @throws IOException If content type is missing or invalid
+   */
+  public MediaType getMediaType(@Nullable String contentType) throws IOException {
+    if (contentType == null || contentType.isEmpty()) {
       throw new IOException("Missing content type in the response headers");
     }
 
-    try (final ByteArrayInputStream inputStream = new ByteArrayInputStream(exception.getResponseBodyAsByteArray())) {
-      if (ProtobufHttpConstants.PROTOBUF_MEDIA_TYPE.isCompatibleWith(contentType)) {
-        return ErrorV1.ErrorResponse.parseDelimitedFrom(inputStream).getError();
+    MediaType mediaType = mediaTypes.get(contentType);
+    if (mediaType == null) {
+      try {
+        mediaType = MediaType.parseMediaType(contentType);
+      } catch (InvalidMediaTypeException e) {
+        throw new IOException("Invalid contentType=" + contentType, e);
+      }
+
+      // size check is not atomic, so cache might slightly exceed its bound under contention
+      if (mediaTypes.size() < MAX_CACHED_MEDIA_TYPES) {
+        mediaTypes.putIfAbsent(contentType, mediaType);
       }
+    }
 
-      if (MediaType.APPLICATION_JSON.isCompatibleWith(contentType)) {
-        final JsonFactory jsonFactory = new JsonFactory();
-        try (final JsonParser jp = jsonFactory.createParser(inputStream)) {
-          return ProtobufJacksonUtil.readJson(ErrorV1.ErrorResponse.class, jp).getError();
+    return mediaType;
+  }
+
+  //
+  // Private
+  //
+
+  ErrorV1.Error readError(MediaType contentType, byte[] body, int offset, int length) throws IOException {
+    return readError(contentType, new ArrayBody(body, offset, length));
+  }
+
+  private ErrorV1.Error readError(MediaType contentType, Body body) throws IOException {
+    if (PROTOBUF_V2_MEDIA_TYPE.isCompatibleWith(contentType)) {
+      // second version of the model is never length-delimited
+      final ErrorV2.ErrorResponse response = ErrorV2.ErrorResponse.parseFrom(body.newCodedInputStream(0));
+      try {
+        return errorV2Converter.toV1(response).getError();
+      } catch (IllegalArgumentException e) {
+        throw new IOException("Unable to convert error response", e);
+      }
+    }
+
+    if (ProtobufHttpConstants.PROTOBUF_MEDIA_TYPE.isCompatibleWith(contentType)) {
+      return readProtobufErrorResponse(body).getError();
+    }
+
+    if (MediaType.APPLICATION_JSON.isCompatibleWith(contentType)) {
+      try (final JsonParser jp = body.newJsonParser(jsonFactory)) {
+        if (jsonReader != null) {
+          return jsonReader.readErrorResponse(jp).getError();
         }
+        return ProtobufJacksonUtil.readJson(ErrorV1.ErrorResponse.class, jp).getError();
       }
+    }
 
-      throw new IOException("Unrecognized contentType=" + contentType);
+    throw new IOException("Unrecognized contentType=" + contentType);
+  }
+
+  private static ErrorV1.ErrorResponse readProtobufErrorResponse(Body body) throws IOException {
+    final int prefixLength = body.getDelimitedPrefixLength();
+    if (prefixLength > 0) {
+      try {
+        return ErrorV1.ErrorResponse.parseFrom(body.newCodedInputStream(prefixLength));
+      } catch (InvalidProtocolBufferException ignored) {
+        // non-delimited message, that happens to start with the bytes of the matching length prefix
+      }
+    }
+    return ErrorV1.ErrorResponse.parseFrom(body.newCodedInputStream(0));
+  }
+
+  /**
+   * Detects whether body is prefixed with varint length that covers the rest of the body. Non-delimited message
+   * might start with the same bytes, e.g. tag of the error field followed by a short error, so callers should
+   * fall back to reading the message without the prefix, if it can't be read after the prefix.
+   *
+   * @param bytes Array, holding first bytes of the body
+   * @param offset Offset of the body in the array
+   * @param available Number of the first bytes of the body in the array
+   * @param length Length of the body
+   * @return Length of the prefix or 0 if body is not length-delimited
+   */
+  private static int getDelimitedPrefixLength(byte[] bytes, int offset, int available, int length) {
+    long prefix = 0;
+    for (int i = 0; i < available && i < MAX_PREFIX_LENGTH; ++i) {
+      final byte b = bytes[offset + i];
+      prefix |= (long) (b & 0x7F) << (7 * i);
+      if (b >= 0) {
+        return i + 1 + prefix == length ? i + 1 : 0;
+      }
+    }
+
+    return 0;
+  }
+
+  private RestErrorPeek peekProtobuf(
+      MediaType contentType,
+      byte[] body,
+      int offset,
+      int length,
+      RestErrorCodeRegistry registry,
+      boolean withSourceAndTarget) throws IOException {
+    final int prefixLength = getDelimitedPrefixLength(body, offset, length, length);
+    ProtobufScanner errorScanner = null;
+    boolean scanned = false;
+    if (prefixLength > 0) {
+      try {
+        errorScanner = findProtobufError(body, offset + prefixLength, offset + length);
+        scanned = true;
+      } catch (IOException ignored) {
+        // non-delimited message, see getDelimitedPrefixLength
+      }
+    }
+    if (!scanned) {
+      errorScanner = findProtobufError(body, offset, offset + length);
+    }
+
+    RestErrorCode errorCode = null;
+    String codeName = null;
+    String source = withSourceAndTarget ? "" : null;
+    String target = withSourceAndTarget ? "" : null;
+    if (errorScanner != null) {
+      while (errorScanner.hasNext()) {
+        final int tag = errorScanner.readTag();
+        if (tag == ERROR_CODE_TAG) {
+          final int fieldLength = errorScanner.readLength();
+          errorCode = registry.findByCodeName(body, errorScanner.pos, fieldLength);
+          codeName = errorCode != null ? null : new String(body, errorScanner.pos, fieldLength, StandardCharsets.UTF_8);
+          errorScanner.pos += fieldLength;
+        } else if (withSourceAndTarget && (tag == ERROR_SOURCE_TAG || tag == ERROR_TARGET_TAG)) {
+          final int fieldLength = errorScanner.readLength();
+          final String value = new String(body, errorScanner.pos, fieldLength, StandardCharsets.UTF_8);
+          errorScanner.pos += fieldLength;
+          if (tag == ERROR_SOURCE_TAG) {
+            source = value;
+          } else {
+            target = value;
+          }
+        } else {
+          errorScanner.skipField(tag);
+        }
+      }
+    }
+
+    return new RestErrorPeek(this, contentType, body, offset, length, errorCode, codeName, source, target);
+  }
+
+  /**
+   * Scans error response for the error field.
+   *
+   * @return Scanner of the error or null if response has no error
+   */
+  @Nullable
+  private static ProtobufScanner findProtobufError(byte[] body, int start, int end) throws IOException {
+    final ProtobufScanner responseScanner = new ProtobufScanner(body, start, end);
+    ProtobufScanner result = null;
+    while (responseScanner.hasNext()) {
+      final int tag = responseScanner.readTag();
+      if (tag == ERROR_RESPONSE_ERROR_TAG) {
+        final int errorLength = responseScanner.readLength();
+        result = new ProtobufScanner(body, responseScanner.pos, responseScanner.pos + errorLength);
+        responseScanner.pos += errorLength;
+      } else {
+        responseScanner.skipField(tag);
+      }
+    }
+    return result;
+  }
+
+  private RestErrorPeek peekJson(
+      MediaType contentType,
+      byte[] body,
+      int offset,
+      int length,
+      RestErrorCodeRegistry registry,
+      boolean withSourceAndTarget) throws IOException {
+    RestErrorCode errorCode = null;
+    String codeName = null;
+    String source = withSourceAndTarget ? "" : null;
+    String target = withSourceAndTarget ? "" : null;
+
+    try (final JsonParser jp = jsonFactory.createParser(body, offset, length)) {
+      if (jp.nextToken() != JsonToken.START_OBJECT) {
+        throw new IOException("Object expected in error response");
+      }
+
+      while (jp.nextToken() == JsonToken.FIELD_NAME) {
+        final String responseFieldName = jp.getCurrentName();
+        if (jp.nextToken() != JsonToken.START_OBJECT || !"error".equals(responseFieldName)) {
+          jp.skipChildren();
+          continue;
+        }
+
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+          final String fieldName = jp.getCurrentName();
+          final JsonToken token = jp.nextToken();
+          if (token == JsonToken.VALUE_STRING && "code".equals(fieldName)) {
+            errorCode = registry.findByCodeName(jp.getTextCharacters(), jp.getTextOffset(), jp.getTextLength());
+            codeName = errorCode != null ? null : jp.getText();
+          } else if (withSourceAndTarget && token == JsonToken.VALUE_STRING && "source".equals(fieldName)) {
+            source = jp.getText();
+          } else if (withSourceAndTarget && token == JsonToken.VALUE_STRING && "target".equals(fieldName)) {
+            target = jp.getText();
+          } else {
+            jp.skipChildren();
+          }
+        }
+      }
+    }
+
+    return new RestErrorPeek(this, contentType, body, offset, length, errorCode, codeName, source, target);
+  }
+
+  private byte[] acquireBuffer(int minSize) {
+    final byte[] buffer = buffers.get();
+    if (buffer != null && buffer.length >= minSize) {
+      return buffer;
+    }
+
+    final byte[] result = new byte[Math.max(minSize, INITIAL_BUFFER_SIZE)];
+    if (result.length <= MAX_POOLED_BUFFER_SIZE) {
+      buffers.set(result);
+    }
+    return result;
+  }
+
+  private byte[] growBuffer(byte[] buffer, int length, int newSize) {
+    final byte[] result = new byte[newSize];
+    System.arraycopy(buffer, 0, result, 0, length);
+    if (newSize <= MAX_POOLED_BUFFER_SIZE) {
+      buffers.set(result);
+    }
+    return result;
+  }
+
+  /**
+   * Error body, that can be read more than once.
+   */
+  private abstract static class Body {
+    /**
+     * @return Length of the varint prefix, see {@link RestErrorParser#getDelimitedPrefixLength}
+     */
+    abstract int getDelimitedPrefixLength() throws IOException;
+
+    abstract CodedInputStream newCodedInputStream(int skip) throws IOException;
+
+    abstract JsonParser newJsonParser(JsonFactory jsonFactory) throws IOException;
+  }
+
+  private static final class ArrayBody extends Body {
+    final byte[] array;
+    final int offset;
+    final int length;
+
+    ArrayBody(byte[] array, int offset, int length) {
+      this.array = array;
+      this.offset = offset;
+      this.length = length;
+    }
+
+    @Override
+    int getDelimitedPrefixLength() {
+      return RestErrorParser.getDelimitedPrefixLength(array, offset, length, length);
+    }
+
+    @Override
+    CodedInputStream newCodedInputStream(int skip) {
+      return CodedInputStream.newInstance(array, offset + skip, length - skip);
+    }
+
+    @Override
+    JsonParser newJsonParser(JsonFactory jsonFactory) throws IOException {
+      return jsonFactory.createParser(array, offset, length);
+    }
+  }
+
+  /**
+   * Body, held in the stream, that supports mark, each read starts from the beginning of the body.
+   */
+  private static final class StreamBody extends Body {
+    final InputStream inputStream;
+    final int length;
+
+    StreamBody(InputStream inputStream, int length) {
+      this.inputStream = inputStream;
+      this.length = length;
+      inputStream.mark(length);
+    }
+
+    @Override
+    int getDelimitedPrefixLength() throws IOException {
+      final byte[] prefix = new byte[MAX_PREFIX_LENGTH];
+      final int available = read(prefix, Math.min(prefix.length, length));
+      return RestErrorParser.getDelimitedPrefixLength(prefix, 0, available, length);
+    }
+
+    @Override
+    CodedInputStream newCodedInputStream(int skip) throws IOException {
+      if (read(new byte[skip], skip) < skip) {
+        throw new IOException("Truncated protobuf message");
+      }
+      return CodedInputStream.newInstance(inputStream);
+    }
+
+    @Override
+    JsonParser newJsonParser(JsonFactory jsonFactory) throws IOException {
+      inputStream.reset();
+      return jsonFactory.createParser(inputStream);
+    }
+
+    // reads up to count bytes from the beginning of the body
+    private int read(byte[] buffer, int count) throws IOException {
+      inputStream.reset();
+      int result = 0;
+      while (result < count) {
+        final int read = inputStream.read(buffer, result, count - result);
+        if (read < 0) {
+          break;
+        }
+        result += read;
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Minimal protobuf wire format reader, that scans fields without materializing messages.
+   */
+  private static final class ProtobufScanner {
+    final byte[] buffer;
+    final int end;
+    int pos;
+
+    ProtobufScanner(byte[] buffer, int pos, int end) {
+      this.buffer = buffer;
+      this.pos = pos;
+      this.end = end;
+    }
+
+    boolean hasNext() {
+      return pos < end;
+    }
+
+    int readTag() throws IOException {
+      final long tag = readVarint();
+      if ((tag >>> 3) == 0 || tag > Integer.MAX_VALUE) {
+        throw new IOException("Invalid protobuf tag");
+      }
+      return (int) tag;
+    }
+
+    int readLength() throws IOException {
+      final long length = readVarint();
+      if (length < 0 || length > end - pos) {
+        throw new IOException("Truncated protobuf message");
+      }
+      return (int) length;
+    }
+
+    void skipField(int tag) throws IOException {
+      switch (tag & 7) {
+        case 0: // varint
+          readVarint();
+          return;
+        case 1: // fixed64
+          skip(8);
+          return;
+        case 2: // length-delimited
+          skip(readLength());
+          return;
+        case 5: // fixed32
+          skip(4);
+          return;
+        default:
+          throw new IOException("Unsupported protobuf wire type in tag=" + tag);
+      }
+    }
+
+    private void skip(int count) throws IOException {
+      if (count > end - pos) {
+        throw new IOException("Truncated protobuf message");
+      }
+      pos += count;
+    }
+
+    private long readVarint() throws IOException {
+      long result = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+        if (pos >= end) {
+          throw new IOException("Truncated protobuf message");
+        }
+        final byte b = buffer[pos++];
+        result |= (long) (b & 0x7F) << shift;
+        if (b >= 0) {
+          return result;
+        }
+      }
+      throw new IOException("Malformed protobuf varint");
     }
   }
 }
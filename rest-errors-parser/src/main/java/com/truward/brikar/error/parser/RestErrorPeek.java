@@ -0,0 +1,99 @@
+package com.truward.brikar.error.parser;
+
+import com.truward.brikar.error.RestErrorCode;
+import com.truward.brikar.error.model.ErrorV1;
+import org.springframework.http.MediaType;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.IOException;
+
+/**
+ * Result of a fast scan of the error response, that holds error code and, optionally, source and target.
+ * The rest of the error can be parsed on demand by calling {@link #readError()}.
+ *
+ * @see RestErrorParser#peekError(String, byte[], int, int, com.truward.brikar.error.RestErrorCodeRegistry, boolean)
+ */
+@ParametersAreNonnullByDefault
+public final class RestErrorPeek {
+  private final RestErrorParser parser;
+  private final MediaType contentType;
+  private final byte[] body;
+  private final int offset;
+  private final int length;
+
+  private final RestErrorCode errorCode;
+  private final String codeName;
+  private final String source;
+  private final String target;
+
+  RestErrorPeek(
+      RestErrorParser parser,
+      MediaType contentType,
+      byte[] body,
+      int offset,
+      int length,
+      @Nullable RestErrorCode errorCode,
+      @Nullable String codeName,
+      @Nullable String source,
+      @Nullable String target) {
+    this.parser = parser;
+    this.contentType = contentType;
+    this.body = body;
+    this.offset = offset;
+    this.length = length;
+    this.errorCode = errorCode;
+    this.codeName = codeName;
+    this.source = source;
+    this.target = target;
+  }
+
+  /**
+   * @return Registered error code, matching code name in the error response or null
+   */
+  @Nullable
+  public RestErrorCode getErrorCode() {
+    return errorCode;
+  }
+
+  /**
+   * @return Code name, as found in the error response, empty string if response has no code
+   */
+  public String getCodeName() {
+    if (errorCode != null) {
+      return errorCode.getCodeName();
+    }
+    return codeName != null ? codeName : "";
+  }
+
+  /**
+   * @return Error source or null if source has not been requested
+   */
+  @Nullable
+  public String getSource() {
+    return source;
+  }
+
+  /**
+   * @return Error target or null if target has not been requested
+   */
+  @Nullable
+  public String getTarget() {
+    return target;
+  }
+
+  /**
+   * Fully parses the error response this result has been produced from.
+   *
+   * @return Parsed error
+   * @throws IOException On parse error
+   */
+  public ErrorV1.Error readError() throws IOException {
+    return parser.readError(contentType, body, offset, length);
+  }
+
+  @Override
+  public String toString() {
+    return "RestErrorPeek{code=" + getCodeName() + ", source=" + source + ", target=" + target + '}';
+  }
+}
@@ -0,0 +1,85 @@
+package com.truward.brikar.error.parser;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.truward.brikar.error.RestErrorCodeRegistry;
+import com.truward.brikar.error.model.ErrorV1;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.ResponseErrorHandler;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Response error handler for {@code RestTemplate}, that decodes error directly from the response stream and
+ * throws {@link RestErrorResponseException}.
+ * <p>
+ * Bodies of unknown content types are not read at all and error bodies are read up to the maximum body size of
+ * the given parser, so that huge responses of misbehaving proxies can't exhaust memory. When error can't be
+ * parsed, thrown exception has no error and carries the cause of the failure.
+ * </p>
+ */
+@ParametersAreNonnullByDefault
+public class RestErrorResponseErrorHandler implements ResponseErrorHandler {
+  /**
+   * Maximum size of the error body, read by the default handler.
+   */
+  public static final int DEFAULT_MAX_BODY_SIZE = 64 * 1024;
+
+  private final RestErrorParser parser;
+  private final RestErrorCodeRegistry registry;
+
+  public RestErrorResponseErrorHandler(RestErrorParser parser, RestErrorCodeRegistry registry) {
+    this.parser = Objects.requireNonNull(parser, "parser");
+    this.registry = Objects.requireNonNull(registry, "registry");
+  }
+
+  public RestErrorResponseErrorHandler() {
+    this(new RestErrorParser(new JsonFactory(), DEFAULT_MAX_BODY_SIZE, new ErrorResponseJsonReader()),
+        RestErrorCodeRegistry.standard());
+  }
+
+  @Override
+  public boolean hasError(ClientHttpResponse response) throws IOException {
+    final int statusCode = response.getRawStatusCode();
+    return statusCode >= 400 && statusCode < 600;
+  }
+
+  @Override
+  public void handleError(ClientHttpResponse response) throws IOException {
+    throw readException(response);
+  }
+
+  //
+  // Protected
+  //
+
+  /**
+   * Reads error response into exception.
+   *
+   * @param response Error response
+   * @return Exception, that should be thrown for the given response
+   * @throws IOException If response can't be read
+   */
+  protected RestErrorResponseException readException(ClientHttpResponse response) throws IOException {
+    final int statusCode = response.getRawStatusCode();
+    final HttpHeaders headers = response.getHeaders();
+    final String contentType = headers.getFirst(HttpHeaders.CONTENT_TYPE);
+
+    ErrorV1.Error error = null;
+    IOException cause = null;
+    if (parser.canReadError(contentType)) {
+      try {
+        error = parser.readError(contentType, response.getBody());
+      } catch (IOException e) {
+        cause = e;
+      }
+    }
+
+    return new RestErrorResponseException(statusCode, headers, error,
+        error != null ? RestErrorParser.resolveErrorCode(error, statusCode, registry) :
+            registry.findByHttpStatus(statusCode),
+        cause);
+  }
+}
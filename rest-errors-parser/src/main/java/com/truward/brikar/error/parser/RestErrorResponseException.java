@@ -0,0 +1,83 @@
+package com.truward.brikar.error.parser;
+
+import com.truward.brikar.error.RestErrorCode;
+import com.truward.brikar.error.model.ErrorV1;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.client.RestClientException;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Objects;
+
+/**
+ * Exception, thrown by {@link RestErrorResponseErrorHandler} for error responses. Unlike Spring's
+ * {@code HttpStatusCodeException} it holds parsed error instead of the raw response body.
+ */
+@ParametersAreNonnullByDefault
+public final class RestErrorResponseException extends RestClientException {
+  private final int statusCode;
+  private final HttpHeaders responseHeaders;
+  private final ErrorV1.Error error;
+  private final RestErrorCode errorCode;
+
+  /**
+   * @param statusCode HTTP status code of the response
+   * @param responseHeaders Headers of the response
+   * @param error Parsed error or null if response body does not hold an error
+   * @param errorCode Error code, resolved from the parsed error or from the status code
+   * @param cause Cause of the failure to parse error or null
+   */
+  public RestErrorResponseException(
+      int statusCode,
+      HttpHeaders responseHeaders,
+      @Nullable ErrorV1.Error error,
+      @Nullable RestErrorCode errorCode,
+      @Nullable Throwable cause) {
+    super(getMessage(statusCode, error), cause);
+    this.statusCode = statusCode;
+    this.responseHeaders = Objects.requireNonNull(responseHeaders, "responseHeaders");
+    this.error = error;
+    this.errorCode = errorCode;
+  }
+
+  public int getStatusCode() {
+    return statusCode;
+  }
+
+  public HttpHeaders getResponseHeaders() {
+    return responseHeaders;
+  }
+
+  /**
+   * @return True, if error has been parsed from the response body
+   */
+  public boolean hasError() {
+    return error != null;
+  }
+
+  /**
+   * @return Parsed error or default instance, if response body does not hold an error
+   */
+  public ErrorV1.Error getError() {
+    return error != null ? error : ErrorV1.Error.getDefaultInstance();
+  }
+
+  /**
+   * @return Error code, resolved by the code name of the parsed error or by the status code, or null
+   */
+  @Nullable
+  public RestErrorCode getErrorCode() {
+    return errorCode;
+  }
+
+  //
+  // Private
+  //
+
+  private static String getMessage(int statusCode, @Nullable ErrorV1.Error error) {
+    if (error == null) {
+      return "HTTP " + statusCode;
+    }
+    return "HTTP " + statusCode + " code=" + error.getCode() + ", message=" + error.getMessage();
+  }
+}
@@ -0,0 +1,428 @@
+package com.truward.brikar.error.parser;
+
+import com.truward.brikar.error.RestErrorCode;
+import com.truward.brikar.error.RestErrorCodeRegistry;
+import com.truward.brikar.error.RestErrors;
+import com.truward.brikar.error.StandardRestErrorCodes;
+import com.truward.brikar.error.model.ErrorV1;
+import org.springframework.http.HttpHeaders;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+
+/**
+ * Client-side advisor, that decides whether and when failed request should be retried, based on the parsed error.
+ * <p>
+ * Errors are classified by {@link StandardRestErrorCodes} into overload errors ({@code TooManyRequests},
+ * {@code ServiceUnavailable}), transient errors (other server errors) and permanent errors (client errors), the
+ * latter are never retried. Retry delay honors the hint, set by the server with
+ * {@link RestErrors#retryAfterParameter(long)} or with {@code Retry-After} header, and requests are not retried
+ * at all if the hint exceeds maximum delay.
+ * </p>
+ * <p>
+ * Retries are limited per error source: each source has a token bucket, that is refilled at a fixed rate, and
+ * each retry takes a token from it, so that retries stop when the source fails for the most of the requests.
+ * Overload errors also double backoff of the source, that is halved back by {@link #onSuccess(String)}, and
+ * block requests to the source until the retry delay passes, see {@link #getBlockedMillis(String)}.
+ * </p>
+ */
+@ParametersAreNonnullByDefault
+public final class RetryAdvisor {
+  /**
+   * Maximum number of sources, that have their own retry state, other sources share the same state.
+   */
+  public static final int MAX_SOURCES = 1024;
+
+  private static final String RETRY_AFTER_HEADER = "Retry-After";
+
+  private final int maxAttempts;
+  private final long baseDelayMillis;
+  private final long maxDelayMillis;
+  private final double tokenBucketCapacity;
+  private final double tokensPerMilli;
+  private final boolean jitterEnabled;
+  private final RestErrorCodeRegistry registry;
+  private final LongSupplier clock;
+
+  private final ConcurrentMap<String, SourceState> states = new ConcurrentHashMap<>();
+  private final SourceState sharedState;
+
+  private RetryAdvisor(Builder builder) {
+    this.maxAttempts = builder.maxAttempts;
+    this.baseDelayMillis = builder.baseDelayMillis;
+    this.maxDelayMillis = builder.maxDelayMillis;
+    this.tokenBucketCapacity = builder.tokenBucketCapacity;
+    this.tokensPerMilli = builder.tokensPerSecond / 1000.0;
+    this.jitterEnabled = builder.jitterEnabled;
+    this.registry = builder.registry;
+    this.clock = builder.clock;
+    this.sharedState = new SourceState(tokenBucketCapacity, clock.getAsLong());
+  }
+
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  /**
+   * Kind of the error from the retry perspective.
+   */
+  public enum ErrorKind {
+    /**
+     * Server is overloaded or request is rate-limited, request can be retried after backoff.
+     */
+    OVERLOAD,
+
+    /**
+     * Server failed to process request, request can be retried.
+     */
+    TRANSIENT,
+
+    /**
+     * Request should not be retried.
+     */
+    PERMANENT
+  }
+
+  /**
+   * Decision of the advisor.
+   */
+  public static final class Advice {
+    private final ErrorKind errorKind;
+    private final boolean retry;
+    private final long delayMillis;
+
+    Advice(ErrorKind errorKind, boolean retry, long delayMillis) {
+      this.errorKind = errorKind;
+      this.retry = retry;
+      this.delayMillis = delayMillis;
+    }
+
+    public ErrorKind getErrorKind() {
+      return errorKind;
+    }
+
+    /**
+     * @return True, if request should be retried after {@link #getDelayMillis()}
+     */
+    public boolean shouldRetry() {
+      return retry;
+    }
+
+    /**
+     * @return Number of milliseconds to wait before retrying the request
+     */
+    public long getDelayMillis() {
+      return delayMillis;
+    }
+
+    @Override
+    public String toString() {
+      return "Advice{errorKind=" + errorKind + ", retry=" + retry + ", delayMillis=" + delayMillis + '}';
+    }
+  }
+
+  /**
+   * Classifies error by its code, resolving code by HTTP status if code name is not known.
+   *
+   * @param error Parsed error
+   * @param statusCode HTTP status code of the response
+   * @return Kind of the error
+   */
+  public ErrorKind classify(ErrorV1.Error error, int statusCode) {
+    final RestErrorCode errorCode = RestErrorParser.resolveErrorCode(error, statusCode, registry);
+    if (errorCode == StandardRestErrorCodes.NOT_IMPLEMENTED) {
+      return ErrorKind.PERMANENT;
+    }
+
+    // code of the error takes precedence over the status code of the response
+    final int status = errorCode != null ? errorCode.getHttpStatus() : statusCode;
+    if (status == StandardRestErrorCodes.TOO_MANY_REQUESTS.getHttpStatus() ||
+        status == StandardRestErrorCodes.SERVICE_UNAVAILABLE.getHttpStatus()) {
+      return ErrorKind.OVERLOAD;
+    }
+    return status >= 500 && status != StandardRestErrorCodes.NOT_IMPLEMENTED.getHttpStatus() ?
+        ErrorKind.TRANSIENT : ErrorKind.PERMANENT;
+  }
+
+  /**
+   * @param error Parsed error
+   * @return Number of milliseconds, set by {@link RestErrors#retryAfterParameter(long)}, or -1 if it is not set
+   */
+  public static long findRetryAfterMillis(ErrorV1.Error error) {
+    for (final ErrorV1.ErrorParameter parameter : error.getParametersList()) {
+      if (!RestErrors.RETRY_AFTER_PARAMETER.equals(parameter.getKey())) {
+        continue;
+      }
+
+      final ErrorV1.ErrorValue value = parameter.getValue();
+      if (value.getLongValue() > 0) {
+        return value.getLongValue();
+      }
+      if (value.getIntValue() > 0) {
+        return value.getIntValue();
+      }
+      try {
+        return value.getStrValue().isEmpty() ? 0L : Math.max(0L, Long.parseLong(value.getStrValue()));
+      } catch (NumberFormatException e) {
+        return -1L;
+      }
+    }
+    return -1L;
+  }
+
+  /**
+   * @param headers Response headers
+   * @return Number of milliseconds, set by {@code Retry-After} header in seconds, or -1 if it is not set
+   */
+  public static long findRetryAfterMillis(HttpHeaders headers) {
+    final String value = headers.getFirst(RETRY_AFTER_HEADER);
+    if (value == null) {
+      return -1L;
+    }
+    try {
+      return Math.max(0L, Long.parseLong(value.trim())) * 1000L;
+    } catch (NumberFormatException e) {
+      // HTTP dates are not supported
+      return -1L;
+    }
+  }
+
+  /**
+   * @param e Exception, thrown by {@link RestErrorResponseErrorHandler}
+   * @param attempt Number of attempts, that have been made so far, starting from 1
+   * @return Decision whether and when request should be retried
+   */
+  public Advice advise(RestErrorResponseException e, int attempt) {
+    final ErrorV1.Error error = e.getError();
+    long retryAfterMillis = findRetryAfterMillis(error);
+    if (retryAfterMillis < 0) {
+      retryAfterMillis = findRetryAfterMillis(e.getResponseHeaders());
+    }
+    return advise(error, e.getStatusCode(), attempt, retryAfterMillis);
+  }
+
+  /**
+   * @param error Parsed error
+   * @param statusCode HTTP status code of the response
+   * @param attempt Number of attempts, that have been made so far, starting from 1
+   * @return Decision whether and when request should be retried
+   */
+  public Advice advise(ErrorV1.Error error, int statusCode, int attempt) {
+    return advise(error, statusCode, attempt, findRetryAfterMillis(error));
+  }
+
+  /**
+   * Notifies advisor that request to the given source succeeded, which relaxes backoff of the source.
+   *
+   * @param source Source of the errors, i.e. value of the {@code source} field
+   */
+  public void onSuccess(String source) {
+    final SourceState state = findState(source);
+    if (state != null) {
+      state.onSuccess(baseDelayMillis);
+    }
+  }
+
+  /**
+   * @param source Source of the errors, i.e. value of the {@code source} field
+   * @return Number of milliseconds, during which requests to the given source should not be sent, or 0
+   */
+  public long getBlockedMillis(String source) {
+    final SourceState state = findState(source);
+    return state != null ? state.getBlockedMillis(clock.getAsLong()) : 0L;
+  }
+
+  //
+  // Private
+  //
+
+  private Advice advise(ErrorV1.Error error, int statusCode, int attempt, long retryAfterMillis) {
+    final ErrorKind errorKind = classify(error, statusCode);
+    if (errorKind == ErrorKind.PERMANENT) {
+      return new Advice(errorKind, false, 0L);
+    }
+
+    final SourceState state = getState(error.getSource());
+    final long now = clock.getAsLong();
+    final long delayMillis;
+    if (errorKind == ErrorKind.OVERLOAD) {
+      delayMillis = Math.max(retryAfterMillis, jitter(state.onOverload(baseDelayMillis, maxDelayMillis)));
+      state.block(now + delayMillis);
+    } else {
+      final int shift = Math.min(Math.max(attempt - 1, 0), 30);
+      delayMillis = Math.max(retryAfterMillis, jitter(Math.min(maxDelayMillis, baseDelayMillis << shift)));
+    }
+
+    final boolean retry = attempt < maxAttempts && delayMillis <= maxDelayMillis &&
+        state.tryAcquire(now, tokenBucketCapacity, tokensPerMilli);
+    return new Advice(errorKind, retry, delayMillis);
+  }
+
+  private long jitter(long delayMillis) {
+    if (!jitterEnabled || delayMillis < 2) {
+      return delayMillis;
+    }
+    // equal jitter: keeps at least half of the delay, spreads retries of different clients over the other half
+    final long half = delayMillis / 2;
+    return half + ThreadLocalRandom.current().nextLong(delayMillis - half + 1);
+  }
+
+  @Nullable
+  private SourceState findState(String source) {
+    final SourceState state = states.get(source);
+    return state != null ? state : (states.size() >= MAX_SOURCES ? sharedState : null);
+  }
+
+  private SourceState getState(String source) {
+    SourceState state = states.get(source);
+    if (state == null) {
+      if (states.size() >= MAX_SOURCES) {
+        // sources come from the responses, so that their number should be bounded
+        return sharedState;
+      }
+      final SourceState newState = new SourceState(tokenBucketCapacity, clock.getAsLong());
+      state = states.putIfAbsent(source, newState);
+      if (state == null) {
+        state = newState;
+      }
+    }
+    return state;
+  }
+
+  /**
+   * Retry state of the error source, guarded by its own monitor.
+   */
+  private static final class SourceState {
+    private double tokens;
+    private long refilledAt;
+    private long backoffMillis;
+    private long blockedUntil;
+
+    SourceState(double tokens, long now) {
+      this.tokens = tokens;
+      this.refilledAt = now;
+    }
+
+    synchronized boolean tryAcquire(long now, double capacity, double tokensPerMilli) {
+      if (now > refilledAt) {
+        tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerMilli);
+        refilledAt = now;
+      }
+      if (tokens < 1.0) {
+        return false;
+      }
+      tokens -= 1.0;
+      return true;
+    }
+
+    synchronized long onOverload(long baseDelayMillis, long maxDelayMillis) {
+      backoffMillis = backoffMillis == 0 ? baseDelayMillis : Math.min(maxDelayMillis, backoffMillis * 2);
+      return backoffMillis;
+    }
+
+    synchronized void onSuccess(long baseDelayMillis) {
+      backoffMillis = backoffMillis / 2 < baseDelayMillis ? 0 : backoffMillis / 2;
+    }
+
+    synchronized void block(long until) {
+      blockedUntil = Math.max(blockedUntil, until);
+    }
+
+    synchronized long getBlockedMillis(long now) {
+      return Math.max(0L, blockedUntil - now);
+    }
+  }
+
+  /**
+   * Builder of {@link RetryAdvisor}.
+   */
+  public static final class Builder {
+    private int maxAttempts = 3;
+    private long baseDelayMillis = 100L;
+    private long maxDelayMillis = 30_000L;
+    private double tokenBucketCapacity = 10.0;
+    private double tokensPerSecond = 1.0;
+    private boolean jitterEnabled = true;
+    private RestErrorCodeRegistry registry = RestErrorCodeRegistry.standard();
+    private LongSupplier clock = System::currentTimeMillis;
+
+    private Builder() {
+    }
+
+    /**
+     * @param maxAttempts Maximum number of attempts, including the first one
+     * @return This builder
+     */
+    public Builder setMaxAttempts(int maxAttempts) {
+      if (maxAttempts <= 0) {
+        throw new IllegalArgumentException("maxAttempts should be positive");
+      }
+      this.maxAttempts = maxAttempts;
+      return this;
+    }
+
+    /**
+     * @param baseDelayMillis Delay before the first retry, that is doubled for each next one
+     * @param maxDelayMillis Maximum delay, requests are not retried if server asks to wait longer
+     * @return This builder
+     */
+    public Builder setDelayMillis(long baseDelayMillis, long maxDelayMillis) {
+      if (baseDelayMillis <= 0 || maxDelayMillis < baseDelayMillis) {
+        throw new IllegalArgumentException("baseDelayMillis should be positive and not greater than maxDelayMillis");
+      }
+      this.baseDelayMillis = baseDelayMillis;
+      this.maxDelayMillis = maxDelayMillis;
+      return this;
+    }
+
+    /**
+     * @param capacity Maximum number of retries per source, that can be made in a burst
+     * @param tokensPerSecond Sustained number of retries per second per source
+     * @return This builder
+     */
+    public Builder setTokenBucket(double capacity, double tokensPerSecond) {
+      if (capacity < 1.0 || tokensPerSecond < 0.0) {
+        throw new IllegalArgumentException("capacity should be at least 1 and tokensPerSecond should not be negative");
+      }
+      this.tokenBucketCapacity = capacity;
+      this.tokensPerSecond = tokensPerSecond;
+      return this;
+    }
+
+    /**
+     * @param jitterEnabled Whether or not computed delays should be randomized, hints are never shortened
+     * @return This builder
+     */
+    public Builder setJitterEnabled(boolean jitterEnabled) {
+      this.jitterEnabled = jitterEnabled;
+      return this;
+    }
+
+    /**
+     * @param registry Registry, used to resolve error codes
+     * @return This builder
+     */
+    public Builder setRegistry(RestErrorCodeRegistry registry) {
+      this.registry = Objects.requireNonNull(registry, "registry");
+      return this;
+    }
+
+    /**
+     * @param clock Source of the current time in milliseconds
+     * @return This builder
+     */
+    public Builder setClock(LongSupplier clock) {
+      this.clock = Objects.requireNonNull(clock, "clock");
+      return this;
+    }
+
+    public RetryAdvisor build() {
+      return new RetryAdvisor(this);
+    }
+  }
+}
@@ -0,0 +1,114 @@
+package com.truward.brikar.error.parser.test;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.truward.brikar.error.ErrorBatchWriter;
+import com.truward.brikar.error.RestErrors;
+import com.truward.brikar.error.model.ErrorV1;
+import com.truward.brikar.error.parser.ErrorBatchReader;
+import com.truward.brikar.error.parser.RestErrorParser;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link ErrorBatchReader}.
+ */
+public final class ErrorBatchReaderTest {
+  private static final List<ErrorV1.ErrorBatchItem> ITEMS = Arrays.asList(
+      RestErrors.errorBatchItem(0, "", ErrorV1.Error.newBuilder().setCode("NotFound").build()),
+      RestErrors.errorBatchItem(1, "id1", ErrorV1.Error.newBuilder()
+          .setCode("Custom")
+          .setMessage("Unicode й€😀 and\nnewline")
+          .addParameters(RestErrors.stringParameter("a", "b"))
+          .setInnerError(ErrorV1.Error.newBuilder().setCode("Inner"))
+          .build()),
+      RestErrors.errorBatchItem(1000, "id1000", ErrorV1.Error.getDefaultInstance()));
+
+  private final RestErrorParser parser = new RestErrorParser();
+
+  @Test
+  public void shouldReadDelimitedItems() throws IOException {
+    final ByteArrayOutputStream os = new ByteArrayOutputStream();
+    writeItems(ErrorBatchWriter.delimited(os));
+
+    assertEquals(ITEMS, readItems(ErrorBatchWriter.PROTOBUF_CONTENT_TYPE, new ByteArrayInputStream(os.toByteArray())));
+  }
+
+  @Test
+  public void shouldReadNdjsonItems() throws IOException {
+    final ByteArrayOutputStream os = new ByteArrayOutputStream();
+    writeItems(ErrorBatchWriter.ndjson(os));
+
+    assertEquals(ITEMS, readItems(ErrorBatchWriter.NDJSON_CONTENT_TYPE, new ByteArrayInputStream(os.toByteArray())));
+  }
+
+  @Test
+  public void shouldReadItemsLazily() throws IOException {
+    // Given:
+    final ByteArrayOutputStream os = new ByteArrayOutputStream();
+    ErrorBatchWriter.delimited(os).write(ITEMS.get(0));
+    final InputStream failingStream = new InputStream() {
+      @Override
+      public int read() throws IOException {
+        throw new IOException("Stream is broken");
+      }
+    };
+
+    // When:
+    try (final ErrorBatchReader reader = parser.readErrorBatch(ErrorBatchWriter.PROTOBUF_CONTENT_TYPE,
+        new SequenceInputStream(new ByteArrayInputStream(os.toByteArray()), failingStream))) {
+      // Then:
+      assertEquals(ITEMS.get(0), reader.read());
+      try {
+        reader.read();
+        fail("Second item should not be available");
+      } catch (IOException ignored) {
+        // expected
+      }
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void shouldRejectOversizedItem() throws IOException {
+    final ByteArrayOutputStream os = new ByteArrayOutputStream();
+    writeItems(ErrorBatchWriter.delimited(os));
+
+    final RestErrorParser limitedParser = new RestErrorParser(new JsonFactory(), 16);
+    try (final ErrorBatchReader reader = limitedParser.readErrorBatch(ErrorBatchWriter.PROTOBUF_CONTENT_TYPE,
+        new ByteArrayInputStream(os.toByteArray()))) {
+      while (reader.read() != null) {
+        // read all the items
+      }
+    }
+  }
+
+  //
+  // Private
+  //
+
+  private static void writeItems(ErrorBatchWriter writer) throws IOException {
+    for (final ErrorV1.ErrorBatchItem item : ITEMS) {
+      writer.write(item);
+    }
+    writer.flush();
+  }
+
+  private List<ErrorV1.ErrorBatchItem> readItems(String contentType, InputStream inputStream) throws IOException {
+    final List<ErrorV1.ErrorBatchItem> result = new ArrayList<>();
+    try (final ErrorBatchReader reader = parser.readErrorBatch(contentType, inputStream)) {
+      for (ErrorV1.ErrorBatchItem item = reader.read(); item != null; item = reader.read()) {
+        result.add(item);
+      }
+    }
+    return result;
+  }
+}
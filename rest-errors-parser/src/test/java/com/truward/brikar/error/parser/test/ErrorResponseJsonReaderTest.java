@@ -0,0 +1,176 @@
+package com.truward.brikar.error.parser.test;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.google.protobuf.ByteString;
+import com.truward.brikar.error.ErrorJsonWriter;
+import com.truward.brikar.error.RestErrorCodeRegistry;
+import com.truward.brikar.error.RestErrors;
+import com.truward.brikar.error.StandardRestErrorCodes;
+import com.truward.brikar.error.model.ErrorV1;
+import com.truward.brikar.error.parser.ErrorResponseJsonReader;
+import com.truward.brikar.error.parser.RestErrorParser;
+import com.truward.protobuf.jackson.ProtobufJacksonUtil;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link ErrorResponseJsonReader}.
+ */
+public final class ErrorResponseJsonReaderTest {
+  private final JsonFactory jsonFactory = new JsonFactory();
+  private final ErrorResponseJsonReader reader = new ErrorResponseJsonReader();
+
+  @Test
+  public void shouldReadSameErrorsAsGenericConversion() throws IOException {
+    for (final ErrorV1.ErrorResponse response : getSampleResponses()) {
+      // Given:
+      final byte[] json = ErrorJsonWriter.toByteArray(response);
+
+      // When:
+      final ErrorV1.ErrorResponse actual;
+      try (final JsonParser jp = jsonFactory.createParser(json)) {
+        actual = reader.readErrorResponse(jp);
+      }
+
+      // Then:
+      final ErrorV1.ErrorResponse expected;
+      try (final JsonParser jp = jsonFactory.createParser(json)) {
+        expected = ProtobufJacksonUtil.readJson(ErrorV1.ErrorResponse.class, jp);
+      }
+      assertEquals(expected, actual);
+      assertEquals(response, actual);
+    }
+  }
+
+  @Test
+  public void shouldInternCodeAndSource() throws IOException {
+    // Given:
+    final byte[] json = "{\"error\":{\"code\":\"NotFound\",\"source\":\"UserService\"}}"
+        .getBytes(StandardCharsets.UTF_8);
+
+    // When:
+    final ErrorV1.Error first = read(json);
+    final ErrorV1.Error second = read(json);
+
+    // Then:
+    assertSame(StandardRestErrorCodes.NOT_FOUND.getCodeName(), first.getCode());
+    assertSame(first.getSource(), second.getSource());
+    assertEquals("UserService", second.getSource());
+  }
+
+  @Test
+  public void shouldSkipUnknownFieldsAndNulls() throws IOException {
+    // Given:
+    final byte[] json = ("{\"version\":2,\"error\":{\"code\":\"Custom\",\"extra\":{\"a\":[1,{\"b\":null}]}," +
+        "\"message\":null,\"target\":\"t\",\"parameters\":[{\"key\":\"k\",\"value\":{\"longValue\":\"42\"," +
+        "\"unknown\":true}}]},\"trailer\":[]}").getBytes(StandardCharsets.UTF_8);
+
+    // When:
+    final ErrorV1.Error error = read(json);
+
+    // Then:
+    assertEquals(ErrorV1.Error.newBuilder()
+        .setCode("Custom")
+        .setTarget("t")
+        .addParameters(ErrorV1.ErrorParameter.newBuilder().setKey("k")
+            .setValue(ErrorV1.ErrorValue.newBuilder().setLongValue(42L)))
+        .build(), error);
+  }
+
+  @Test
+  public void shouldLimitNestingDepth() throws IOException {
+    // Given:
+    final ErrorResponseJsonReader limitedReader = new ErrorResponseJsonReader(RestErrorCodeRegistry.standard(), 3);
+    final ErrorV1.Error depth3 = nest(3);
+    final ErrorV1.Error depth4 = nest(4);
+
+    // When:
+    try (final JsonParser jp = jsonFactory.createParser(ErrorJsonWriter.toByteArray(
+        RestErrors.errorResponse(depth3)))) {
+      assertEquals(depth3, limitedReader.readErrorResponse(jp).getError());
+    }
+
+    // Then:
+    try (final JsonParser jp = jsonFactory.createParser(ErrorJsonWriter.toByteArray(
+        RestErrors.errorResponse(depth4)))) {
+      limitedReader.readErrorResponse(jp);
+      fail("Nesting limit should be enforced");
+    } catch (IOException ignored) {
+      // expected
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void shouldRejectMalformedValue() throws IOException {
+    read("{\"error\":{\"code\":[\"NotFound\"]}}".getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void shouldBeSelectableInParser() throws IOException {
+    // Given:
+    final RestErrorParser parser = new RestErrorParser(jsonFactory, RestErrorParser.DEFAULT_MAX_BODY_SIZE, reader);
+    final ErrorV1.ErrorResponse response = getSampleResponses().get(3);
+    final byte[] json = ErrorJsonWriter.toByteArray(response);
+
+    // When:
+    final ErrorV1.Error error = parser.readError(MediaType.APPLICATION_JSON_VALUE, json, 0, json.length);
+
+    // Then:
+    assertEquals(response.getError(), error);
+  }
+
+  //
+  // Private
+  //
+
+  private ErrorV1.Error read(byte[] json) throws IOException {
+    try (final JsonParser jp = jsonFactory.createParser(json)) {
+      return reader.readErrorResponse(jp).getError();
+    }
+  }
+
+  private static ErrorV1.Error nest(int depth) {
+    ErrorV1.Error error = ErrorV1.Error.newBuilder().setCode("Level" + depth).build();
+    for (int i = depth - 1; i > 0; --i) {
+      error = ErrorV1.Error.newBuilder().setCode("Level" + i).setInnerError(error).build();
+    }
+    return error;
+  }
+
+  private static List<ErrorV1.ErrorResponse> getSampleResponses() {
+    return Arrays.asList(
+        ErrorV1.ErrorResponse.getDefaultInstance(),
+        RestErrors.errorResponse(ErrorV1.Error.getDefaultInstance()),
+        RestErrors.errorResponse(ErrorV1.Error.newBuilder()
+            .setCode("NotFound")
+            .setMessage("Resource not found")
+            .setSource("Test")
+            .setTarget("id")
+            .build()),
+        RestErrors.errorResponse(ErrorV1.Error.newBuilder()
+            .setCode("UnregisteredCode")
+            .setMessage("Escapes: \"\\\t\n\u0001 unicode: й€😀")
+            .setInnerError(ErrorV1.Error.newBuilder().setCode("Internal").setSource("Inner")
+                .setInnerError(ErrorV1.Error.newBuilder().setMessage("Deepest")))
+            .addParameters(parameter("bytes", ErrorV1.ErrorValue.newBuilder()
+                .setBytesValue(ByteString.copyFrom(new byte[] {0, 1, 2, -1}))))
+            .addParameters(parameter("str", ErrorV1.ErrorValue.newBuilder().setStrValue("value")))
+            .addParameters(parameter("int", ErrorV1.ErrorValue.newBuilder().setIntValue(Integer.MIN_VALUE)))
+            .addParameters(parameter("long", ErrorV1.ErrorValue.newBuilder().setLongValue(Long.MAX_VALUE)))
+            .addParameters(parameter("bool", ErrorV1.ErrorValue.newBuilder().setBoolValue(true)))
+            .addParameters(parameter("", ErrorV1.ErrorValue.getDefaultInstance()))
+            .build()));
+  }
+
+  private static ErrorV1.ErrorParameter parameter(String key, ErrorV1.ErrorValue.Builder value) {
+    return ErrorV1.ErrorParameter.newBuilder().setKey(key).setValue(value).build();
+  }
+}
@@ -0,0 +1,215 @@
+package com.truward.brikar.error.parser.test;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.truward.brikar.error.ErrorV2Converter;
+import com.truward.brikar.error.RestErrorCodeRegistry;
+import com.truward.brikar.error.RestErrors;
+import com.truward.brikar.error.StandardRestErrorCodes;
+import com.truward.brikar.error.model.ErrorV1;
+import com.truward.brikar.error.parser.RestErrorParser;
+import com.truward.brikar.error.parser.RestErrorPeek;
+import com.truward.brikar.protobuf.http.ProtobufHttpConstants;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link RestErrorParser}.
+ */
+public final class RestErrorParserTest {
+  private static final String PROTOBUF_CONTENT_TYPE = ProtobufHttpConstants.PROTOBUF_MEDIA_TYPE.toString();
+
+  private static final ErrorV1.Error ERROR = ErrorV1.Error.newBuilder()
+      .setSource("Source")
+      .setTarget("Target")
+      .setCode("Code")
+      .setMessage("Message")
+      .addParameters(RestErrors.stringParameter("a", "b"))
+      .setInnerError(ErrorV1.Error.newBuilder().setCode("InnerCode").setMessage("Inner"))
+      .build();
+
+  private final RestErrorParser parser = new RestErrorParser();
+
+  @Test
+  public void shouldReadDelimitedProtobuf() throws IOException {
+    final ByteArrayOutputStream os = new ByteArrayOutputStream();
+    RestErrors.errorResponse(ERROR).writeDelimitedTo(os);
+    final byte[] body = os.toByteArray();
+
+    assertEquals(ERROR, parser.readError(PROTOBUF_CONTENT_TYPE, body, 0, body.length));
+    assertEquals(ERROR, parser.readError(PROTOBUF_CONTENT_TYPE, new ByteArrayInputStream(body)));
+  }
+
+  @Test
+  public void shouldReadCompactProtobuf() throws IOException {
+    final byte[] body = ErrorV2Converter.standard().toV2(RestErrors.errorResponse(ERROR)).toByteArray();
+
+    assertEquals(ERROR, parser.readError(ErrorV2Converter.PROTOBUF_CONTENT_TYPE, body, 0, body.length));
+    final RestErrorPeek peek = parser.peekError(ErrorV2Converter.PROTOBUF_CONTENT_TYPE, body, 0, body.length,
+        RestErrorCodeRegistry.standard(), true);
+    assertEquals(ERROR.getCode(), peek.getCodeName());
+    assertEquals(ERROR.getSource(), peek.getSource());
+    assertEquals(ERROR, peek.readError());
+  }
+
+  @Test
+  public void shouldReadNonDelimitedProtobuf() throws IOException {
+    final byte[] body = RestErrors.errorResponse(ERROR).toByteArray();
+
+    assertEquals(ERROR, parser.readError(PROTOBUF_CONTENT_TYPE, body, 0, body.length));
+    assertEquals(ERROR, parser.readError(PROTOBUF_CONTENT_TYPE, ByteBuffer.wrap(body)));
+  }
+
+  @Test
+  public void shouldReadNonDelimitedProtobufThatLooksDelimited() throws IOException {
+    // Given:
+    final ErrorV1.Error error = ErrorV1.Error.newBuilder().setCode("Unknown").build();
+    final byte[] body = RestErrors.errorResponse(error).toByteArray();
+    // first byte is the tag of the error field, which is also a valid length of the rest of the body
+    assertEquals(11, body.length);
+    assertEquals(body.length - 1, body[0]);
+
+    // When:
+    final RestErrorPeek peek = parser.peekError(PROTOBUF_CONTENT_TYPE, body, 0, body.length,
+        RestErrorCodeRegistry.standard(), true);
+
+    // Then:
+    assertEquals(error, parser.readError(PROTOBUF_CONTENT_TYPE, body, 0, body.length));
+    assertEquals(error, parser.readError(PROTOBUF_CONTENT_TYPE, ByteBuffer.wrap(body)));
+    assertEquals(error, parser.readError(PROTOBUF_CONTENT_TYPE, new ByteArrayInputStream(body)));
+    assertEquals("Unknown", peek.getCodeName());
+    assertEquals(error, peek.readError());
+  }
+
+  @Test
+  public void shouldReadStreamsOfKnownLength() throws IOException {
+    final ByteArrayOutputStream os = new ByteArrayOutputStream();
+    RestErrors.errorResponse(ERROR).writeDelimitedTo(os);
+    final byte[] delimited = os.toByteArray();
+    final byte[] looksDelimited = RestErrors.errorResponse(ErrorV1.Error.newBuilder().setCode("Unknown").build())
+        .toByteArray();
+    final byte[] json = "{\"error\":{\"code\":\"Code\"}}".getBytes(StandardCharsets.UTF_8);
+
+    assertEquals(ERROR, parser.readError(PROTOBUF_CONTENT_TYPE, new ByteArrayInputStream(delimited),
+        delimited.length));
+    assertEquals("Unknown", parser.readError(PROTOBUF_CONTENT_TYPE, new ByteArrayInputStream(looksDelimited),
+        looksDelimited.length).getCode());
+    assertEquals("Code", parser.readError(MediaType.APPLICATION_JSON_VALUE, new ByteArrayInputStream(json),
+        json.length).getCode());
+
+    // streams, that do not support mark, are read into a buffer
+    final InputStream unmarked = new FilterInputStream(new ByteArrayInputStream(delimited)) {
+      @Override
+      public boolean markSupported() {
+        return false;
+      }
+    };
+    assertEquals(ERROR, parser.readError(PROTOBUF_CONTENT_TYPE, unmarked, delimited.length));
+  }
+
+  @Test
+  public void shouldReadSlices() throws IOException {
+    final byte[] message = RestErrors.errorResponse(ERROR).toByteArray();
+    final byte[] body = new byte[message.length + 10];
+    Arrays.fill(body, (byte) 0xFF);
+    System.arraycopy(message, 0, body, 5, message.length);
+
+    assertEquals(ERROR, parser.readError(PROTOBUF_CONTENT_TYPE, body, 5, message.length));
+
+    final ByteBuffer direct = ByteBuffer.allocateDirect(body.length);
+    direct.put(body);
+    direct.position(5);
+    direct.limit(5 + message.length);
+    assertEquals(ERROR, parser.readError(PROTOBUF_CONTENT_TYPE, direct));
+  }
+
+  @Test
+  public void shouldReadJson() throws IOException {
+    final byte[] body = ("{\"error\":{\"code\":\"Code\",\"message\":\"Message\",\"source\":\"Source\"}}")
+        .getBytes(StandardCharsets.UTF_8);
+
+    final ErrorV1.Error error = parser.readError(MediaType.APPLICATION_JSON_VALUE, new ByteArrayInputStream(body));
+
+    assertEquals("Code", error.getCode());
+    assertEquals("Message", error.getMessage());
+    assertEquals("Source", error.getSource());
+  }
+
+  @Test
+  public void shouldPeekProtobuf() throws IOException {
+    final ErrorV1.Error error = ERROR.toBuilder().setCode(StandardRestErrorCodes.NOT_FOUND.getCodeName()).build();
+    final ByteArrayOutputStream os = new ByteArrayOutputStream();
+    RestErrors.errorResponse(error).writeDelimitedTo(os);
+    final byte[] body = os.toByteArray();
+
+    final RestErrorPeek peek = parser.peekError(PROTOBUF_CONTENT_TYPE, body, 0, body.length,
+        RestErrorCodeRegistry.standard(), true);
+
+    assertSame(StandardRestErrorCodes.NOT_FOUND, peek.getErrorCode());
+    assertEquals(StandardRestErrorCodes.NOT_FOUND.getCodeName(), peek.getCodeName());
+    assertEquals("Source", peek.getSource());
+    assertEquals("Target", peek.getTarget());
+    assertEquals(error, peek.readError());
+  }
+
+  @Test
+  public void shouldPeekUnknownProtobufCode() throws IOException {
+    final byte[] body = RestErrors.errorResponse(ERROR).toByteArray();
+
+    final RestErrorPeek peek = parser.peekError(PROTOBUF_CONTENT_TYPE, body, 0, body.length,
+        RestErrorCodeRegistry.standard(), false);
+
+    assertNull(peek.getErrorCode());
+    assertEquals("Code", peek.getCodeName());
+    assertNull(peek.getSource());
+    assertNull(peek.getTarget());
+  }
+
+  @Test
+  public void shouldPeekJson() throws IOException {
+    final byte[] body = ("{\"other\":[1,{\"a\":2}],\"error\":{\"message\":\"M\",\"innerError\":{\"code\":\"X\"}," +
+        "\"code\":\"Forbidden\",\"target\":\"T\",\"source\":\"S\"}}").getBytes(StandardCharsets.UTF_8);
+
+    final RestErrorPeek peek = parser.peekError(MediaType.APPLICATION_JSON_VALUE, body, 0, body.length,
+        RestErrorCodeRegistry.standard(), true);
+
+    assertSame(StandardRestErrorCodes.FORBIDDEN, peek.getErrorCode());
+    assertEquals("S", peek.getSource());
+    assertEquals("T", peek.getTarget());
+  }
+
+  @Test(expected = IOException.class)
+  public void shouldRejectTruncatedProtobufOnPeek() throws IOException {
+    final byte[] body = RestErrors.errorResponse(ERROR).toByteArray();
+
+    parser.peekError(PROTOBUF_CONTENT_TYPE, body, 0, body.length - 3, RestErrorCodeRegistry.standard(), true);
+  }
+
+  @Test(expected = IOException.class)
+  public void shouldRejectOversizedBody() throws IOException {
+    final RestErrorParser smallParser = new RestErrorParser(new JsonFactory(), 8);
+    final byte[] body = RestErrors.errorResponse(ERROR).toByteArray();
+
+    smallParser.readError(PROTOBUF_CONTENT_TYPE, new ByteArrayInputStream(body));
+  }
+
+  @Test(expected = IOException.class)
+  public void shouldRejectMissingContentType() throws IOException {
+    parser.readError(null, new byte[0], 0, 0);
+  }
+
+  @Test(expected = IOException.class)
+  public void shouldRejectUnknownContentType() throws IOException {
+    parser.readError(MediaType.TEXT_HTML_VALUE, new byte[0], 0, 0);
+  }
+}
@@ -0,0 +1,170 @@
+package com.truward.brikar.error.parser.test;
+
+import com.truward.brikar.error.ErrorJsonWriter;
+import com.truward.brikar.error.RestErrors;
+import com.truward.brikar.error.StandardRestErrorCodes;
+import com.truward.brikar.error.model.ErrorV1;
+import com.truward.brikar.error.parser.RestErrorResponseErrorHandler;
+import com.truward.brikar.error.parser.RestErrorResponseException;
+import com.truward.brikar.protobuf.http.ProtobufHttpConstants;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link RestErrorResponseErrorHandler}.
+ */
+public final class RestErrorResponseErrorHandlerTest {
+  private static final ErrorV1.Error ERROR = ErrorV1.Error.newBuilder()
+      .setCode(StandardRestErrorCodes.NOT_FOUND.getCodeName())
+      .setMessage("Item not found")
+      .setSource("TestService")
+      .addParameters(RestErrors.stringParameter("id", "1"))
+      .build();
+
+  private final RestErrorResponseErrorHandler handler = new RestErrorResponseErrorHandler();
+
+  @Test
+  public void shouldDetectErrors() throws IOException {
+    assertFalse(handler.hasError(new TestResponse(200, null, new byte[0])));
+    assertFalse(handler.hasError(new TestResponse(302, null, new byte[0])));
+    assertTrue(handler.hasError(new TestResponse(404, null, new byte[0])));
+    assertTrue(handler.hasError(new TestResponse(599, null, new byte[0])));
+  }
+
+  @Test
+  public void shouldReadJsonError() throws IOException {
+    final RestErrorResponseException e = handle(new TestResponse(404, MediaType.APPLICATION_JSON_VALUE,
+        ErrorJsonWriter.toByteArray(RestErrors.errorResponse(ERROR))));
+
+    assertEquals(404, e.getStatusCode());
+    assertTrue(e.hasError());
+    assertEquals(ERROR, e.getError());
+    assertEquals(StandardRestErrorCodes.NOT_FOUND, e.getErrorCode());
+    assertNull(e.getCause());
+  }
+
+  @Test
+  public void shouldReadProtobufError() throws IOException {
+    // Given:
+    final ByteArrayOutputStream os = new ByteArrayOutputStream();
+    RestErrors.errorResponse(ERROR).writeDelimitedTo(os);
+
+    // When:
+    final RestErrorResponseException e = handle(new TestResponse(404,
+        ProtobufHttpConstants.PROTOBUF_MEDIA_TYPE.toString(), os.toByteArray()));
+
+    // Then:
+    assertEquals(ERROR, e.getError());
+    assertEquals(StandardRestErrorCodes.NOT_FOUND, e.getErrorCode());
+  }
+
+  @Test
+  public void shouldResolveUnknownCodeByStatus() throws IOException {
+    final ErrorV1.Error error = ErrorV1.Error.newBuilder(ERROR).setCode("CustomCode").build();
+
+    final RestErrorResponseException e = handle(new TestResponse(503, MediaType.APPLICATION_JSON_VALUE,
+        ErrorJsonWriter.toByteArray(RestErrors.errorResponse(error))));
+
+    assertEquals(error, e.getError());
+    assertEquals(StandardRestErrorCodes.SERVICE_UNAVAILABLE, e.getErrorCode());
+  }
+
+  @Test
+  public void shouldNotReadBodyOfUnknownContentType() throws IOException {
+    final TestResponse response = new TestResponse(502, MediaType.TEXT_HTML_VALUE, null);
+
+    final RestErrorResponseException e = handle(response);
+
+    assertEquals(502, e.getStatusCode());
+    assertFalse(e.hasError());
+    assertEquals(ErrorV1.Error.getDefaultInstance(), e.getError());
+    assertNull(e.getErrorCode());
+    assertNull(e.getCause());
+  }
+
+  @Test
+  public void shouldStopReadingOversizedBody() throws IOException {
+    // Given:
+    final byte[] body = new byte[RestErrorResponseErrorHandler.DEFAULT_MAX_BODY_SIZE * 4];
+    final TestResponse response = new TestResponse(500, MediaType.APPLICATION_JSON_VALUE, body);
+
+    // When:
+    final RestErrorResponseException e = handle(response);
+
+    // Then:
+    assertFalse(e.hasError());
+    assertEquals(StandardRestErrorCodes.INTERNAL, e.getErrorCode());
+    assertTrue(e.getCause() instanceof IOException);
+    assertTrue(response.body.available() > 0);
+  }
+
+  //
+  // Private
+  //
+
+  private RestErrorResponseException handle(ClientHttpResponse response) throws IOException {
+    try {
+      handler.handleError(response);
+    } catch (RestErrorResponseException e) {
+      return e;
+    }
+    throw new AssertionError("Exception is expected");
+  }
+
+  private static final class TestResponse implements ClientHttpResponse {
+    final int statusCode;
+    final HttpHeaders headers = new HttpHeaders();
+    final ByteArrayInputStream body;
+
+    TestResponse(int statusCode, String contentType, byte[] body) {
+      this.statusCode = statusCode;
+      if (contentType != null) {
+        headers.set(HttpHeaders.CONTENT_TYPE, contentType);
+      }
+      this.body = body != null ? new ByteArrayInputStream(body) : null;
+    }
+
+    @Override
+    public HttpStatus getStatusCode() {
+      return HttpStatus.valueOf(statusCode);
+    }
+
+    @Override
+    public int getRawStatusCode() {
+      return statusCode;
+    }
+
+    @Override
+    public String getStatusText() {
+      return "";
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+      return headers;
+    }
+
+    @Override
+    public InputStream getBody() {
+      if (body == null) {
+        throw new AssertionError("Body is not expected to be read");
+      }
+      return body;
+    }
+
+    @Override
+    public void close() {
+      // nothing to close
+    }
+  }
+}
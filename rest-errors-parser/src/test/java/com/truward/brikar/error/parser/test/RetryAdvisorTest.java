@@ -0,0 +1,292 @@
+package com.truward.brikar.error.parser.test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.truward.brikar.error.RestErrors;
+import com.truward.brikar.error.StandardRestErrorCodes;
+import com.truward.brikar.error.model.ErrorV1;
+import com.truward.brikar.error.parser.RestErrorResponseErrorHandler;
+import com.truward.brikar.error.parser.RestErrorResponseException;
+import com.truward.brikar.error.parser.RetryAdvisor;
+import com.truward.brikar.protobuf.http.ProtobufHttpConstants;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link RetryAdvisor}, that run against a local server, responding with scripted errors.
+ */
+public final class RetryAdvisorTest {
+  private static final String SOURCE = "TestService";
+
+  private final RestErrors restErrors = new RestErrors() {
+    @Override
+    protected String getSource() {
+      return SOURCE;
+    }
+  };
+
+  private final AtomicLong clock = new AtomicLong(1_000_000L);
+  private final Queue<ScriptedResponse> responses = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger requestCount = new AtomicInteger();
+  private final RestTemplate restTemplate = new RestTemplate();
+
+  private HttpServer server;
+  private String uri;
+
+  @Before
+  public void startServer() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/", this::respond);
+    server.start();
+    uri = "http://127.0.0.1:" + server.getAddress().getPort() + "/items";
+    restTemplate.setErrorHandler(new RestErrorResponseErrorHandler());
+  }
+
+  @After
+  public void stopServer() {
+    server.stop(0);
+  }
+
+  @Test
+  public void shouldHonorRetryAfterHint() {
+    // Given:
+    final RetryAdvisor advisor = newBuilder().build();
+    responses.add(error(503, restErrors.serviceUnavailable(700L).getError()));
+    responses.add(ok());
+
+    // When:
+    final List<Long> delays = new ArrayList<>();
+    final String result = call(advisor, delays);
+
+    // Then:
+    assertEquals("OK", result);
+    assertEquals(Collections.singletonList(700L), delays);
+    assertEquals(2, requestCount.get());
+    assertEquals(0L, advisor.getBlockedMillis(SOURCE));
+  }
+
+  @Test
+  public void shouldBackOffOnOverload() {
+    // Given:
+    final RetryAdvisor advisor = newBuilder().build();
+    responses.add(error(429, restErrors.restError(StandardRestErrorCodes.TOO_MANY_REQUESTS, null).getError()));
+    responses.add(error(503, restErrors.restError(StandardRestErrorCodes.SERVICE_UNAVAILABLE, null).getError()));
+    responses.add(ok());
+    responses.add(error(429, restErrors.tooManyRequests(50L).getError()));
+
+    // When:
+    final List<Long> delays = new ArrayList<>();
+    call(advisor, delays);
+    final RetryAdvisor.Advice advice = advisor.advise(getError(), 1);
+
+    // Then:
+    assertEquals(Arrays.asList(100L, 200L), delays);
+    assertEquals(RetryAdvisor.ErrorKind.OVERLOAD, advice.getErrorKind());
+    assertTrue(advice.shouldRetry());
+    assertEquals("Backoff is halved by success and doubled by overload", 200L, advice.getDelayMillis());
+    assertEquals(200L, advisor.getBlockedMillis(SOURCE));
+  }
+
+  @Test
+  public void shouldNotRetryPermanentErrors() {
+    // Given:
+    final RetryAdvisor advisor = newBuilder().build();
+    responses.add(error(400, restErrors.invalidArgument("id").getError()));
+
+    // When:
+    final RetryAdvisor.Advice advice = advisor.advise(getError(), 1);
+
+    // Then:
+    assertEquals(RetryAdvisor.ErrorKind.PERMANENT, advice.getErrorKind());
+    assertFalse(advice.shouldRetry());
+    assertEquals(1, requestCount.get());
+  }
+
+  @Test
+  public void shouldStopRetryingWhenTokensAreExhausted() {
+    // Given:
+    final RetryAdvisor advisor = newBuilder().setMaxAttempts(10).setTokenBucket(2.0, 1.0).build();
+    for (int i = 0; i < 4; ++i) {
+      responses.add(error(500, restErrors.internalServerError("Failure").getError()));
+    }
+
+    // When:
+    final List<Long> delays = new ArrayList<>();
+    try {
+      call(advisor, delays);
+      fail("Exception is expected");
+    } catch (RestErrorResponseException e) {
+      assertEquals(500, e.getStatusCode());
+    }
+    clock.addAndGet(1000L);
+    final RetryAdvisor.Advice advice = advisor.advise(getError(), 1);
+
+    // Then:
+    assertEquals(Arrays.asList(100L, 200L), delays);
+    assertEquals(4, requestCount.get());
+    assertEquals(RetryAdvisor.ErrorKind.TRANSIENT, advice.getErrorKind());
+    assertTrue("Bucket is refilled over time", advice.shouldRetry());
+    assertEquals(0L, advisor.getBlockedMillis(SOURCE));
+  }
+
+  @Test
+  public void shouldNotRetryWhenServerAsksToWaitTooLong() {
+    // Given:
+    final RetryAdvisor advisor = newBuilder().build();
+    responses.add(error(503, restErrors.serviceUnavailable(60_000L).getError()));
+
+    // When:
+    final RetryAdvisor.Advice advice = advisor.advise(getError(), 1);
+
+    // Then:
+    assertFalse(advice.shouldRetry());
+    assertEquals(60_000L, advice.getDelayMillis());
+    assertEquals(60_000L, advisor.getBlockedMillis(SOURCE));
+  }
+
+  @Test
+  public void shouldUseRetryAfterHeader() {
+    // Given:
+    final RetryAdvisor advisor = newBuilder().build();
+    responses.add(new ScriptedResponse(503, "text/html", "2", "<html/>".getBytes(StandardCharsets.UTF_8)));
+
+    // When:
+    final RestErrorResponseException e = getError();
+    final RetryAdvisor.Advice advice = advisor.advise(e, 1);
+
+    // Then:
+    assertFalse(e.hasError());
+    assertEquals(RetryAdvisor.ErrorKind.OVERLOAD, advice.getErrorKind());
+    assertTrue(advice.shouldRetry());
+    assertEquals(2000L, advice.getDelayMillis());
+    assertEquals("Errors without source share the same state", 2000L, advisor.getBlockedMillis(""));
+  }
+
+  @Test
+  public void shouldClassifyErrors() {
+    final RetryAdvisor advisor = newBuilder().build();
+    final ErrorV1.Error custom = ErrorV1.Error.newBuilder().setCode("CustomCode").build();
+
+    assertEquals(RetryAdvisor.ErrorKind.OVERLOAD, advisor.classify(custom, 503));
+    assertEquals(RetryAdvisor.ErrorKind.TRANSIENT, advisor.classify(custom, 502));
+    assertEquals(RetryAdvisor.ErrorKind.PERMANENT, advisor.classify(custom, 501));
+    assertEquals(RetryAdvisor.ErrorKind.PERMANENT, advisor.classify(custom, 409));
+    assertEquals(RetryAdvisor.ErrorKind.PERMANENT,
+        advisor.classify(restErrors.invalidArgument("id").getError(), 503));
+    assertEquals(RetryAdvisor.ErrorKind.OVERLOAD,
+        advisor.classify(restErrors.tooManyRequests(1L).getError(), 500));
+  }
+
+  @Test
+  public void shouldReadRetryAfterParameter() {
+    assertEquals(-1L, RetryAdvisor.findRetryAfterMillis(ErrorV1.Error.getDefaultInstance()));
+    assertEquals(250L, RetryAdvisor.findRetryAfterMillis(restErrors.tooManyRequests(250L).getError()));
+    assertEquals(250L, RetryAdvisor.findRetryAfterMillis(ErrorV1.Error.newBuilder()
+        .addParameters(RestErrors.stringParameter(RestErrors.RETRY_AFTER_PARAMETER, "250"))
+        .build()));
+  }
+
+  //
+  // Private
+  //
+
+  private RetryAdvisor.Builder newBuilder() {
+    return RetryAdvisor.newBuilder()
+        .setDelayMillis(100L, 30_000L)
+        .setMaxAttempts(3)
+        .setJitterEnabled(false)
+        .setClock(clock::get);
+  }
+
+  private String call(RetryAdvisor advisor, List<Long> delays) {
+    for (int attempt = 1;; ++attempt) {
+      try {
+        final String result = restTemplate.getForObject(uri, String.class);
+        advisor.onSuccess(SOURCE);
+        return result;
+      } catch (RestErrorResponseException e) {
+        final RetryAdvisor.Advice advice = advisor.advise(e, attempt);
+        if (!advice.shouldRetry()) {
+          throw e;
+        }
+        delays.add(advice.getDelayMillis());
+        clock.addAndGet(advice.getDelayMillis());
+      }
+    }
+  }
+
+  private RestErrorResponseException getError() {
+    try {
+      restTemplate.getForObject(uri, String.class);
+    } catch (RestErrorResponseException e) {
+      return e;
+    }
+    throw new AssertionError("Exception is expected");
+  }
+
+  private void respond(HttpExchange exchange) throws IOException {
+    requestCount.incrementAndGet();
+    final ScriptedResponse response = responses.poll();
+    if (response == null) {
+      exchange.sendResponseHeaders(500, -1);
+      exchange.close();
+      return;
+    }
+
+    exchange.getResponseHeaders().set("Content-Type", response.contentType);
+    if (response.retryAfter != null) {
+      exchange.getResponseHeaders().set("Retry-After", response.retryAfter);
+    }
+    exchange.sendResponseHeaders(response.statusCode, response.body.length);
+    try (final OutputStream os = exchange.getResponseBody()) {
+      os.write(response.body);
+    }
+  }
+
+  private static ScriptedResponse ok() {
+    return new ScriptedResponse(200, "text/plain", null, "OK".getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static ScriptedResponse error(int statusCode, ErrorV1.Error error) {
+    final ByteArrayOutputStream os = new ByteArrayOutputStream();
+    try {
+      RestErrors.errorResponse(error).writeDelimitedTo(os);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return new ScriptedResponse(statusCode, ProtobufHttpConstants.PROTOBUF_MEDIA_TYPE.toString(), null,
+        os.toByteArray());
+  }
+
+  private static final class ScriptedResponse {
+    final int statusCode;
+    final String contentType;
+    final String retryAfter;
+    final byte[] body;
+
+    ScriptedResponse(int statusCode, String contentType, String retryAfter, byte[] body) {
+      this.statusCode = statusCode;
+      this.contentType = contentType;
+      this.retryAfter = retryAfter;
+      this.body = body;
+    }
+  }
+}
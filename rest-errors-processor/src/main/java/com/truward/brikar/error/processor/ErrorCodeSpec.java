@@ -0,0 +1,21 @@
+package com.truward.brikar.error.processor;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+
+/**
+ * Error code, declared in the annotated type.
+ */
+@ParametersAreNonnullByDefault
+final class ErrorCodeSpec {
+  final String fieldName;
+  final int httpStatus;
+  final String codeName;
+  final String description;
+
+  ErrorCodeSpec(String fieldName, int httpStatus, String codeName, String description) {
+    this.fieldName = fieldName;
+    this.httpStatus = httpStatus;
+    this.codeName = codeName;
+    this.description = description;
+  }
+}
@@ -0,0 +1,254 @@
+package com.truward.brikar.error.processor;
+
+import com.truward.brikar.error.ErrorJsonWriter;
+import com.truward.brikar.error.model.ErrorV1;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generator of the error code table source code.
+ * <p>
+ * Fragments are encoded by the same writers, that are used at runtime, so that generated bytes are identical
+ * to the ones, that would have been produced for an error, that has only {@code code} and {@code message} fields.
+ * </p>
+ */
+@ParametersAreNonnullByDefault
+final class ErrorCodeTableGenerator {
+  private static final String RUNTIME_PACKAGE = "com.truward.brikar.error.";
+  private static final int BYTES_PER_LINE = 24;
+
+  private final String packageName;
+  private final String tableName;
+  private final String typeName;
+  private final List<ErrorCodeSpec> codes;
+  private final StringBuilder out = new StringBuilder(4096);
+
+  ErrorCodeTableGenerator(String packageName, String tableName, String typeName, List<ErrorCodeSpec> codes) {
+    this.packageName = packageName;
+    this.tableName = tableName;
+    this.typeName = typeName;
+    this.codes = codes;
+  }
+
+  String generate() {
+    if (!packageName.isEmpty()) {
+      out.append("package ").append(packageName).append(";\n\n");
+    }
+
+    out.append("/**\n")
+        .append(" * Error code table for {@link ").append(typeName).append("}.\n")
+        .append(" * <p>\n")
+        .append(" * Generated by {@code ").append(RestErrorCodeTableProcessor.class.getName())
+        .append("}, do not edit.\n")
+        .append(" * </p>\n")
+        .append(" */\n")
+        .append("public final class ").append(tableName).append(" {\n")
+        .append("  private ").append(tableName).append("() {}\n\n")
+        .append("  public static final int SIZE = ").append(codes.size()).append(";\n\n");
+
+    writeCodes();
+    writeFragments("PROTOBUF_FRAGMENTS", "protobuf");
+    writeFragments("JSON_FRAGMENTS", "json");
+    writeLookups();
+    writeAccessors();
+
+    writePreEncodedCodes();
+    out.append("  private static final class RegistryHolder {\n")
+        .append("    static final ").append(RUNTIME_PACKAGE).append("RestErrorCodeRegistry REGISTRY = ")
+        .append(RUNTIME_PACKAGE).append("RestErrorCodeRegistry.of(PRE_ENCODED_CODES);\n")
+        .append("  }\n")
+        .append("}\n");
+    return out.toString();
+  }
+
+  //
+  // Private
+  //
+
+  private void writeCodes() {
+    out.append("  private static final ").append(RUNTIME_PACKAGE).append("RestErrorCode[] CODES = {\n");
+    for (final ErrorCodeSpec code : codes) {
+      out.append("      ").append(typeName).append('.').append(code.fieldName).append(",\n");
+    }
+    out.append("  };\n\n")
+        .append("  private static final java.util.List<").append(RUNTIME_PACKAGE).append("RestErrorCode> CODE_LIST =\n")
+        .append("      java.util.Collections.unmodifiableList(java.util.Arrays.asList(CODES));\n\n");
+  }
+
+  private void writeFragments(String fieldName, String format) {
+    out.append("  private static final byte[][] ").append(fieldName).append(" = {\n");
+    for (final ErrorCodeSpec code : codes) {
+      final byte[] fragment = format.equals("json") ? encodeJsonFragment(code) : encodeProtobufFragment(code);
+      out.append("      // ").append(code.fieldName).append('\n')
+          .append("      {");
+      for (int i = 0; i < fragment.length; ++i) {
+        if (i > 0) {
+          out.append(i % BYTES_PER_LINE == 0 ? ",\n          " : ", ");
+        }
+        out.append(fragment[i]);
+      }
+      out.append("},\n");
+    }
+    out.append("  };\n\n");
+  }
+
+  private void writeLookups() {
+    out.append("  /**\n")
+        .append("   * @param codeName Code name\n")
+        .append("   * @return Ordinal of the error code with the given name or -1 if there is no such code\n")
+        .append("   */\n")
+        .append("  public static int getOrdinal(String codeName) {\n")
+        .append("    switch (codeName) {\n");
+    for (int i = 0; i < codes.size(); ++i) {
+      out.append("      case ").append(toJavaString(codes.get(i).codeName)).append(": return ").append(i).append(";\n");
+    }
+    out.append("      default: return -1;\n")
+        .append("    }\n")
+        .append("  }\n\n");
+
+    out.append("  /**\n")
+        .append("   * @param httpStatus HTTP status\n")
+        .append("   * @return Ordinal of the first declared code with the given status or -1 if there is no such\n")
+        .append("   * code\n")
+        .append("   */\n")
+        .append("  public static int getOrdinalByHttpStatus(int httpStatus) {\n")
+        .append("    switch (httpStatus) {\n");
+    final Set<Integer> statuses = new HashSet<>();
+    for (int i = 0; i < codes.size(); ++i) {
+      final int httpStatus = codes.get(i).httpStatus;
+      if (statuses.add(httpStatus)) {
+        out.append("      case ").append(httpStatus).append(": return ").append(i).append(";\n");
+      }
+    }
+    out.append("      default: return -1;\n")
+        .append("    }\n")
+        .append("  }\n\n");
+  }
+
+  private void writeAccessors() {
+    final String codeType = RUNTIME_PACKAGE + "RestErrorCode";
+    out.append("  @javax.annotation.Nullable\n")
+        .append("  public static ").append(codeType).append(" findByCodeName(String codeName) {\n")
+        .append("    final int ordinal = getOrdinal(codeName);\n")
+        .append("    return ordinal >= 0 ? CODES[ordinal] : null;\n")
+        .append("  }\n\n")
+        .append("  @javax.annotation.Nullable\n")
+        .append("  public static ").append(codeType).append(" findByHttpStatus(int httpStatus) {\n")
+        .append("    final int ordinal = getOrdinalByHttpStatus(httpStatus);\n")
+        .append("    return ordinal >= 0 ? CODES[ordinal] : null;\n")
+        .append("  }\n\n")
+        .append("  public static ").append(codeType).append(" get(int ordinal) {\n")
+        .append("    return CODES[ordinal];\n")
+        .append("  }\n\n")
+        .append("  public static java.util.List<").append(codeType).append("> getCodes() {\n")
+        .append("    return CODE_LIST;\n")
+        .append("  }\n\n")
+        .append("  /**\n")
+        .append("   * @return Pre-encoded protobuf {@code code} and {@code message} fields of the error code\n")
+        .append("   * with the given ordinal, that can be written as-is into serialized {@code Error} message\n")
+        .append("   */\n")
+        .append("  public static byte[] getProtobufFragment(int ordinal) {\n")
+        .append("    return PROTOBUF_FRAGMENTS[ordinal].clone();\n")
+        .append("  }\n\n")
+        .append("  public static void writeProtobufFragment(int ordinal, java.io.OutputStream outputStream)\n")
+        .append("      throws java.io.IOException {\n")
+        .append("    outputStream.write(PROTOBUF_FRAGMENTS[ordinal]);\n")
+        .append("  }\n\n")
+        .append("  /**\n")
+        .append("   * @return Pre-encoded UTF-8 JSON {@code \"code\"} and {@code \"message\"} members\n")
+        .append("   * of the error code with the given ordinal without surrounding braces\n")
+        .append("   */\n")
+        .append("  public static byte[] getJsonFragment(int ordinal) {\n")
+        .append("    return JSON_FRAGMENTS[ordinal].clone();\n")
+        .append("  }\n\n")
+        .append("  public static void writeJsonFragment(int ordinal, java.io.OutputStream outputStream)\n")
+        .append("      throws java.io.IOException {\n")
+        .append("    outputStream.write(JSON_FRAGMENTS[ordinal]);\n")
+        .append("  }\n\n")
+        .append("  /**\n")
+        .append("   * @return Declared error codes along with their pre-encoded fragments\n")
+        .append("   */\n")
+        .append("  public static ").append(RUNTIME_PACKAGE).append("PreEncodedRestErrorCodes getPreEncodedCodes() {\n")
+        .append("    return PRE_ENCODED_CODES;\n")
+        .append("  }\n\n")
+        .append("  /**\n")
+        .append("   * @return Registry of the declared error codes, that is built on first access and reuses their\n")
+        .append("   * pre-encoded fragments in error templates\n")
+        .append("   */\n")
+        .append("  public static ").append(RUNTIME_PACKAGE).append("RestErrorCodeRegistry getRegistry() {\n")
+        .append("    return RegistryHolder.REGISTRY;\n")
+        .append("  }\n\n");
+  }
+
+  private void writePreEncodedCodes() {
+    final String type = RUNTIME_PACKAGE + "PreEncodedRestErrorCodes";
+    out.append("  private static final ").append(type).append(" PRE_ENCODED_CODES = new ").append(type)
+        .append("() {\n")
+        .append("    @Override\n")
+        .append("    public java.util.List<").append(RUNTIME_PACKAGE).append("RestErrorCode> getCodes() {\n")
+        .append("      return CODE_LIST;\n")
+        .append("    }\n\n")
+        .append("    @Override\n")
+        .append("    public byte[] getProtobufFragment(int ordinal) {\n")
+        .append("      return PROTOBUF_FRAGMENTS[ordinal].clone();\n")
+        .append("    }\n\n")
+        .append("    @Override\n")
+        .append("    public byte[] getJsonFragment(int ordinal) {\n")
+        .append("      return JSON_FRAGMENTS[ordinal].clone();\n")
+        .append("    }\n")
+        .append("  };\n\n");
+  }
+
+  private static ErrorV1.Error toError(ErrorCodeSpec code) {
+    return ErrorV1.Error.newBuilder().setCode(code.codeName).setMessage(code.description).build();
+  }
+
+  private static byte[] encodeProtobufFragment(ErrorCodeSpec code) {
+    return toError(code).toByteArray();
+  }
+
+  private static byte[] encodeJsonFragment(ErrorCodeSpec code) {
+    final ByteArrayOutputStream os = new ByteArrayOutputStream(64);
+    try {
+      ErrorJsonWriter.writeError(toError(code), os);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    // strip surrounding braces of the error object
+    final byte[] bytes = os.toByteArray();
+    return Arrays.copyOfRange(bytes, 1, bytes.length - 1);
+  }
+
+  private static String toJavaString(String value) {
+    final StringBuilder result = new StringBuilder(value.length() + 2).append('"');
+    for (int i = 0; i < value.length(); ++i) {
+      final char ch = value.charAt(i);
+      switch (ch) {
+        case '"':
+          result.append("\\\"");
+          break;
+        case '\\':
+          result.append("\\\\");
+          break;
+        default:
+          if (ch < 0x20) {
+            // unicode escapes of line terminators are not allowed in literals
+            result.append(String.format("\\%03o", (int) ch));
+          } else if (ch > 0x7e) {
+            result.append(String.format("\\u%04x", (int) ch));
+          } else {
+            result.append(ch);
+          }
+      }
+    }
+    return result.append('"').toString();
+  }
+}
@@ -0,0 +1,222 @@
+package com.truward.brikar.error.processor;
+
+import com.sun.source.tree.BinaryTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.LiteralTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.ParenthesizedTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.Trees;
+import com.truward.brikar.error.RestErrorCode;
+import com.truward.brikar.error.RestErrorCodeRegistry;
+import com.truward.brikar.error.RestErrorCodeTable;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Annotation processor, that generates error code tables for types, annotated with {@link RestErrorCodeTable}.
+ * <p>
+ * Arguments of the constants constructors are read from the source code using compiler tree API, so this
+ * processor works with javac only.
+ * </p>
+ */
+@ParametersAreNonnullByDefault
+@SupportedAnnotationTypes("com.truward.brikar.error.RestErrorCodeTable")
+public final class RestErrorCodeTableProcessor extends AbstractProcessor {
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    for (final Element element : roundEnv.getElementsAnnotatedWith(RestErrorCodeTable.class)) {
+      if (element.getKind() != ElementKind.ENUM && element.getKind() != ElementKind.INTERFACE &&
+          element.getKind() != ElementKind.CLASS) {
+        error(element, "@RestErrorCodeTable should be put on enum, interface or class");
+        continue;
+      }
+
+      final TypeElement type = (TypeElement) element;
+      final List<ErrorCodeSpec> codes = readCodes(type);
+      if (codes == null) {
+        continue;
+      }
+
+      final String tableName = getTableName(type);
+      final String packageName = getPackageName(type);
+      try (final Writer writer = processingEnv.getFiler()
+          .createSourceFile(packageName.isEmpty() ? tableName : packageName + '.' + tableName, type)
+          .openWriter()) {
+        writer.write(new ErrorCodeTableGenerator(packageName, tableName, type.getQualifiedName().toString(),
+            codes).generate());
+      } catch (IOException e) {
+        error(type, "Unable to write error code table: " + e);
+      }
+    }
+
+    return true;
+  }
+
+  //
+  // Private
+  //
+
+  /**
+   * @return Error codes in declaration order or null if type has errors, that have already been reported
+   */
+  @Nullable
+  private List<ErrorCodeSpec> readCodes(TypeElement type) {
+    final Trees trees;
+    try {
+      trees = Trees.instance(processingEnv);
+    } catch (IllegalArgumentException e) {
+      error(type, "@RestErrorCodeTable requires javac");
+      return null;
+    }
+
+    final TypeMirror errorCodeType = processingEnv.getElementUtils()
+        .getTypeElement(RestErrorCode.class.getCanonicalName()).asType();
+    final List<ErrorCodeSpec> codes = new ArrayList<>();
+    final Map<String, ErrorCodeSpec> codesByName = new HashMap<>();
+    boolean valid = true;
+    for (final Element member : type.getEnclosedElements()) {
+      final boolean enumConstant = member.getKind() == ElementKind.ENUM_CONSTANT;
+      final boolean constant = member.getKind() == ElementKind.FIELD &&
+          member.getModifiers().contains(Modifier.STATIC) &&
+          processingEnv.getTypeUtils().isAssignable(member.asType(), errorCodeType);
+      if (!enumConstant && !constant) {
+        continue;
+      }
+
+      final ErrorCodeSpec spec = readCode(trees, (VariableElement) member);
+      if (spec == null) {
+        valid = false;
+        continue;
+      }
+
+      final ErrorCodeSpec duplicate = codesByName.put(spec.codeName, spec);
+      if (duplicate != null) {
+        error(member, "Duplicate error code name=" + spec.codeName + ", already declared by " + duplicate.fieldName);
+        valid = false;
+        continue;
+      }
+      codes.add(spec);
+    }
+
+    if (valid && codes.isEmpty()) {
+      error(type, "No error codes declared in " + type.getQualifiedName());
+      return null;
+    }
+    return valid ? codes : null;
+  }
+
+  @Nullable
+  private ErrorCodeSpec readCode(Trees trees, VariableElement field) {
+    final TreePath path = trees.getPath(field);
+    final Tree tree = path != null ? path.getLeaf() : null;
+    final ExpressionTree initializer = tree instanceof VariableTree ? ((VariableTree) tree).getInitializer() : null;
+    if (!(initializer instanceof NewClassTree) || ((NewClassTree) initializer).getArguments().size() != 3) {
+      error(field, "Error code should be created by constructor with (httpStatus, codeName, description) arguments");
+      return null;
+    }
+
+    final List<? extends ExpressionTree> arguments = ((NewClassTree) initializer).getArguments();
+    final Object httpStatus = evaluate(trees, path, arguments.get(0));
+    final Object codeName = evaluate(trees, path, arguments.get(1));
+    final Object description = evaluate(trees, path, arguments.get(2));
+    if (!(httpStatus instanceof Integer) || !(codeName instanceof String) || !(description instanceof String)) {
+      error(field, "Arguments of the error code constructor should be compile-time constants");
+      return null;
+    }
+
+    final int status = (Integer) httpStatus;
+    if (status < RestErrorCodeRegistry.MIN_HTTP_STATUS || status > RestErrorCodeRegistry.MAX_HTTP_STATUS) {
+      error(field, "Invalid httpStatus=" + status);
+      return null;
+    }
+    if (((String) codeName).isEmpty()) {
+      error(field, "Error code name should not be empty");
+      return null;
+    }
+
+    return new ErrorCodeSpec(field.getSimpleName().toString(), status, (String) codeName, (String) description);
+  }
+
+  /**
+   * Evaluates constant expression, that consists of literals, references to constants and concatenations.
+   *
+   * @return Value of the expression or null, if expression is not a constant one
+   */
+  @Nullable
+  private static Object evaluate(Trees trees, TreePath parent, ExpressionTree expression) {
+    if (expression instanceof LiteralTree) {
+      return ((LiteralTree) expression).getValue();
+    }
+
+    if (expression instanceof ParenthesizedTree) {
+      return evaluate(trees, parent, ((ParenthesizedTree) expression).getExpression());
+    }
+
+    if (expression instanceof BinaryTree && expression.getKind() == Tree.Kind.PLUS) {
+      final Object left = evaluate(trees, parent, ((BinaryTree) expression).getLeftOperand());
+      final Object right = evaluate(trees, parent, ((BinaryTree) expression).getRightOperand());
+      if (left instanceof Integer && right instanceof Integer) {
+        return (Integer) left + (Integer) right;
+      }
+      if (left != null && right != null && (left instanceof String || right instanceof String)) {
+        return String.valueOf(left) + right;
+      }
+      return null;
+    }
+
+    if (expression.getKind() == Tree.Kind.IDENTIFIER || expression.getKind() == Tree.Kind.MEMBER_SELECT) {
+      final Element element = trees.getElement(new TreePath(parent, expression));
+      if (element instanceof VariableElement) {
+        return ((VariableElement) element).getConstantValue();
+      }
+    }
+
+    return null;
+  }
+
+  private static String getTableName(TypeElement type) {
+    final String name = type.getAnnotation(RestErrorCodeTable.class).value();
+    return name.isEmpty() ? type.getSimpleName() + "Table" : name;
+  }
+
+  private static String getPackageName(TypeElement type) {
+    Element element = type;
+    while (!(element instanceof PackageElement)) {
+      element = element.getEnclosingElement();
+    }
+    return ((PackageElement) element).getQualifiedName().toString();
+  }
+
+  private void error(Element element, String message) {
+    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+  }
+}
@@ -0,0 +1,301 @@
+package com.truward.brikar.error.processor.test;
+
+import com.google.protobuf.Message;
+import com.truward.brikar.error.ErrorBudget;
+import com.truward.brikar.error.ErrorJsonWriter;
+import com.truward.brikar.error.ErrorTemplate;
+import com.truward.brikar.error.PreEncodedRestErrorCodes;
+import com.truward.brikar.error.RestErrorCode;
+import com.truward.brikar.error.RestErrorCodeRegistry;
+import com.truward.brikar.error.processor.RestErrorCodeTableProcessor;
+import com.truward.brikar.error.model.ErrorV1;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.annotation.Nullable;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link RestErrorCodeTableProcessor}, that compile sources with the system java compiler.
+ */
+public final class RestErrorCodeTableProcessorTest {
+  private Path directory;
+
+  @Before
+  public void init() throws IOException {
+    directory = Files.createTempDirectory("rest-error-code-table");
+  }
+
+  @After
+  public void cleanup() throws IOException {
+    try (final Stream<Path> paths = Files.walk(directory)) {
+      paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    }
+  }
+
+  @Test
+  public void shouldGenerateEnumTable() throws Exception {
+    // Given:
+    final List<Diagnostic<? extends JavaFileObject>> diagnostics = compile("sample/SampleCodes.java",
+        "package sample;\n" +
+        "\n" +
+        "import com.truward.brikar.error.RestErrorCode;\n" +
+        "import com.truward.brikar.error.RestErrorCodeRegistry;\n" +
+        "import com.truward.brikar.error.RestErrorCodeTable;\n" +
+        "\n" +
+        "@RestErrorCodeTable\n" +
+        "public enum SampleCodes implements RestErrorCode {\n" +
+        "  ITEM_NOT_FOUND(404, SampleCodes.PREFIX + \"ItemNotFound\", \"Item \\\"not\\\" found\\n\"),\n" +
+        "  OWNER_NOT_FOUND(404, SampleCodes.PREFIX + \"OwnerNotFound\", \"Propri\\u00e9taire introuvable\"),\n" +
+        "  QUOTA_EXCEEDED(RestErrorCodeRegistry.MIN_HTTP_STATUS + 329, \"QuotaExceeded\", \"\");\n" +
+        "\n" +
+        "  static final String PREFIX = \"Sample.\";\n" +
+        "\n" +
+        "  private final int httpStatus;\n" +
+        "  private final String codeName;\n" +
+        "  private final String description;\n" +
+        "\n" +
+        "  SampleCodes(int httpStatus, String codeName, String description) {\n" +
+        "    this.httpStatus = httpStatus;\n" +
+        "    this.codeName = codeName;\n" +
+        "    this.description = description;\n" +
+        "  }\n" +
+        "\n" +
+        "  public int getHttpStatus() { return httpStatus; }\n" +
+        "  public String getCodeName() { return codeName; }\n" +
+        "  public String getDescription() { return description; }\n" +
+        "}\n");
+
+    // When:
+    final Class<?> table = loadClass("sample.SampleCodesTable");
+
+    // Then:
+    assertTrue(diagnostics.toString(), diagnostics.isEmpty());
+    assertEquals(3, table.getField("SIZE").get(null));
+    assertEquals(0, invoke(table, "getOrdinal", "Sample.ItemNotFound"));
+    assertEquals(2, invoke(table, "getOrdinal", "QuotaExceeded"));
+    assertEquals(-1, invoke(table, "getOrdinal", "Sample"));
+    assertEquals(0, invoke(table, "getOrdinalByHttpStatus", 404));
+    assertEquals(2, invoke(table, "getOrdinalByHttpStatus", 429));
+    assertEquals(-1, invoke(table, "getOrdinalByHttpStatus", 500));
+    assertNull(invoke(table, "findByCodeName", "Unknown"));
+    assertEquals("Sample.OwnerNotFound", ((RestErrorCode) invoke(table, "get", 1)).getCodeName());
+    final RestErrorCodeRegistry registry = (RestErrorCodeRegistry) invoke(table, "getRegistry");
+    assertEquals(3, registry.size());
+    assertSame(invoke(table, "getPreEncodedCodes"), registry.getPreEncodedCodes());
+
+    final List<?> codes = (List<?>) invoke(table, "getCodes");
+    assertEquals(3, codes.size());
+    for (int i = 0; i < codes.size(); ++i) {
+      final RestErrorCode code = (RestErrorCode) codes.get(i);
+      assertSame(code, invoke(table, "findByCodeName", code.getCodeName()));
+      assertSame(code, registry.get(i));
+      assertFragments(table, i, code);
+      assertTemplates(registry.getPreEncodedCodes(), i, code);
+    }
+  }
+
+  @Test
+  public void shouldGenerateInterfaceTableWithCustomName() throws Exception {
+    // Given:
+    final List<Diagnostic<? extends JavaFileObject>> diagnostics = compile("sample/SampleConstants.java",
+        "package sample;\n" +
+        "\n" +
+        "import com.truward.brikar.error.RestErrorCode;\n" +
+        "import com.truward.brikar.error.RestErrorCodeTable;\n" +
+        "import com.truward.brikar.error.SimpleRestErrorCode;\n" +
+        "\n" +
+        "@RestErrorCodeTable(\"SampleErrors\")\n" +
+        "public interface SampleConstants {\n" +
+        "  int CONFLICT = 409;\n" +
+        "\n" +
+        "  RestErrorCode VERSION_CONFLICT = new SimpleRestErrorCode(CONFLICT, \"VersionConflict\", \"Conflict\");\n" +
+        "\n" +
+        "  RestErrorCode LOCKED = new SimpleRestErrorCode(423, \"Locked\", \"Resource is locked\");\n" +
+        "}\n");
+
+    // When:
+    final Class<?> table = loadClass("sample.SampleErrors");
+
+    // Then:
+    assertTrue(diagnostics.toString(), diagnostics.isEmpty());
+    final Class<?> constants = table.getClassLoader().loadClass("sample.SampleConstants");
+    assertSame(constants.getField("VERSION_CONFLICT").get(null), invoke(table, "findByHttpStatus", 409));
+    assertSame(constants.getField("LOCKED").get(null), invoke(table, "findByCodeName", "Locked"));
+    assertFragments(table, 1, (RestErrorCode) constants.getField("LOCKED").get(null));
+  }
+
+  @Test
+  public void shouldReportDuplicateCodeNames() throws Exception {
+    // Given:
+    final List<Diagnostic<? extends JavaFileObject>> diagnostics = compile("sample/DuplicateConstants.java",
+        "package sample;\n" +
+        "\n" +
+        "import com.truward.brikar.error.RestErrorCode;\n" +
+        "import com.truward.brikar.error.RestErrorCodeTable;\n" +
+        "import com.truward.brikar.error.SimpleRestErrorCode;\n" +
+        "\n" +
+        "@RestErrorCodeTable\n" +
+        "public interface DuplicateConstants {\n" +
+        "  RestErrorCode FIRST = new SimpleRestErrorCode(400, \"Invalid\", \"First\");\n" +
+        "\n" +
+        "  RestErrorCode SECOND = new SimpleRestErrorCode(422, \"Invalid\", \"Second\");\n" +
+        "}\n");
+
+    // Then:
+    assertEquals(diagnostics.toString(), 1, diagnostics.size());
+    assertEquals(Diagnostic.Kind.ERROR, diagnostics.get(0).getKind());
+    assertEquals(11, diagnostics.get(0).getLineNumber());
+    assertTrue(diagnostics.get(0).getMessage(null).contains("Invalid"));
+    assertFalse(Files.exists(directory.resolve("sample/DuplicateConstantsTable.java")));
+  }
+
+  @Test
+  public void shouldReportNonConstantArguments() throws Exception {
+    // Given:
+    final List<Diagnostic<? extends JavaFileObject>> diagnostics = compile("sample/DynamicConstants.java",
+        "package sample;\n" +
+        "\n" +
+        "import com.truward.brikar.error.RestErrorCode;\n" +
+        "import com.truward.brikar.error.RestErrorCodeTable;\n" +
+        "import com.truward.brikar.error.SimpleRestErrorCode;\n" +
+        "\n" +
+        "@RestErrorCodeTable\n" +
+        "public interface DynamicConstants {\n" +
+        "  RestErrorCode DYNAMIC = new SimpleRestErrorCode(400, String.valueOf(1), \"Dynamic\");\n" +
+        "}\n");
+
+    // Then:
+    assertEquals(diagnostics.toString(), 1, diagnostics.size());
+    assertEquals(Diagnostic.Kind.ERROR, diagnostics.get(0).getKind());
+    assertEquals(9, diagnostics.get(0).getLineNumber());
+  }
+
+  //
+  // Private
+  //
+
+  private List<Diagnostic<? extends JavaFileObject>> compile(String fileName, String source) throws Exception {
+    final Path file = directory.resolve(fileName);
+    Files.createDirectories(file.getParent());
+    Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+
+    final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    final DiagnosticCollector<JavaFileObject> collector = new DiagnosticCollector<>();
+    try (final StandardJavaFileManager fileManager = compiler.getStandardFileManager(collector, null,
+        StandardCharsets.UTF_8)) {
+      final JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, collector,
+          Arrays.asList("-classpath", getClassPath(), "-d", directory.toString(),
+              "-s", directory.toString(), "-encoding", "UTF-8"),
+          null, fileManager.getJavaFileObjects(file.toFile()));
+      task.setProcessors(Collections.singletonList(new RestErrorCodeTableProcessor()));
+      task.call();
+    }
+
+    final List<Diagnostic<? extends JavaFileObject>> diagnostics = new ArrayList<>();
+    for (final Diagnostic<? extends JavaFileObject> diagnostic : collector.getDiagnostics()) {
+      if (diagnostic.getKind() != Diagnostic.Kind.NOTE) {
+        diagnostics.add(diagnostic);
+      }
+    }
+    return diagnostics;
+  }
+
+  // surefire might hide actual class path behind manifest-only jar, so it is collected from the used classes
+  private static String getClassPath() throws Exception {
+    final StringBuilder classPath = new StringBuilder();
+    for (final Class<?> type : Arrays.asList(RestErrorCode.class, ErrorV1.class, Message.class, Nullable.class)) {
+      if (classPath.length() > 0) {
+        classPath.append(File.pathSeparatorChar);
+      }
+      classPath.append(new File(type.getProtectionDomain().getCodeSource().getLocation().toURI()));
+    }
+    return classPath.toString();
+  }
+
+  private Class<?> loadClass(String className) throws Exception {
+    final URLClassLoader classLoader = new URLClassLoader(new URL[] {directory.toUri().toURL()},
+        getClass().getClassLoader());
+    return classLoader.loadClass(className);
+  }
+
+  private static Object invoke(Class<?> table, String methodName, Object argument) throws Exception {
+    final Class<?> argumentType = argument instanceof Integer ? int.class : argument.getClass();
+    final Method method = table.getMethod(methodName, argumentType);
+    return method.invoke(null, argument);
+  }
+
+  private static Object invoke(Class<?> table, String methodName) throws Exception {
+    return table.getMethod(methodName).invoke(null);
+  }
+
+  private static void assertTemplates(@Nullable PreEncodedRestErrorCodes preEncodedCodes, int ordinal,
+      RestErrorCode code) throws IOException {
+    assertNotNull(preEncodedCodes);
+    for (final String source : Arrays.asList("", "Source")) {
+      // templates, built from fragments, should produce the same bytes as the ones, encoded at runtime
+      final ErrorTemplate expected = new ErrorTemplate(code, source, ErrorBudget.DEFAULT);
+      final ErrorTemplate actual = new ErrorTemplate(preEncodedCodes, ordinal, source, ErrorBudget.DEFAULT);
+      final List<ErrorV1.ErrorParameter> parameters = Collections.singletonList(ErrorV1.ErrorParameter.newBuilder()
+          .setKey("id")
+          .build());
+
+      final ByteArrayOutputStream expectedBytes = new ByteArrayOutputStream();
+      final ByteArrayOutputStream actualBytes = new ByteArrayOutputStream();
+      expected.writeDelimitedErrorResponseTo("/items/1", parameters, expectedBytes);
+      actual.writeDelimitedErrorResponseTo("/items/1", parameters, actualBytes);
+      expected.writeJsonErrorResponseTo(null, Collections.emptyList(), expectedBytes);
+      actual.writeJsonErrorResponseTo(null, Collections.emptyList(), actualBytes);
+      expected.writeJsonTo("/items/1", parameters, expectedBytes);
+      actual.writeJsonTo("/items/1", parameters, actualBytes);
+      assertArrayEquals(expectedBytes.toByteArray(), actualBytes.toByteArray());
+    }
+  }
+
+  private static void assertFragments(Class<?> table, int ordinal, RestErrorCode code) throws Exception {
+    final ErrorV1.Error error = ErrorV1.Error.newBuilder()
+        .setCode(code.getCodeName())
+        .setMessage(code.getDescription())
+        .build();
+
+    // protobuf fragment is a valid message prefix, that can be followed by other fields
+    final ByteArrayOutputStream protobuf = new ByteArrayOutputStream();
+    table.getMethod("writeProtobufFragment", int.class, OutputStream.class).invoke(null, ordinal, protobuf);
+    assertArrayEquals(error.toByteArray(), protobuf.toByteArray());
+    assertArrayEquals(protobuf.toByteArray(), (byte[]) invoke(table, "getProtobufFragment", ordinal));
+    protobuf.write(ErrorV1.Error.newBuilder().setSource("Test").build().toByteArray());
+    assertEquals(error.toBuilder().setSource("Test").build(), ErrorV1.Error.parseFrom(protobuf.toByteArray()));
+
+    final ByteArrayOutputStream json = new ByteArrayOutputStream();
+    json.write('{');
+    table.getMethod("writeJsonFragment", int.class, OutputStream.class).invoke(null, ordinal, json);
+    json.write('}');
+    final ByteArrayOutputStream expectedJson = new ByteArrayOutputStream();
+    ErrorJsonWriter.writeError(error, expectedJson);
+    assertArrayEquals(expectedJson.toByteArray(), json.toByteArray());
+  }
+}
@@ -0,0 +1,64 @@
+package com.truward.brikar.error;
+
+import com.truward.brikar.error.model.ErrorV1;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Accumulator of item errors of the batch request, errors are truncated to the given budget as they are added.
+ * Instances of this class are not thread safe.
+ *
+ * @see RestErrors#newErrorBatch()
+ */
+@ParametersAreNonnullByDefault
+public final class ErrorBatch {
+  private final ErrorBudget errorBudget;
+  private final List<ErrorV1.ErrorBatchItem> items = new ArrayList<>();
+
+  public ErrorBatch(ErrorBudget errorBudget) {
+    this.errorBudget = Objects.requireNonNull(errorBudget, "errorBudget");
+  }
+
+  public ErrorV1.ErrorBatchItem add(int index, ErrorV1.Error error) {
+    return add(index, "", error);
+  }
+
+  /**
+   * Adds error of the batch item.
+   *
+   * @param index Index of the failed item in the batch request
+   * @param target Item target, e.g. identifier of the failed item
+   * @param error Item error
+   * @return Added batch item
+   */
+  public ErrorV1.ErrorBatchItem add(int index, String target, ErrorV1.Error error) {
+    final ErrorV1.ErrorBatchItem item = RestErrors.errorBatchItem(index, target, errorBudget.apply(error));
+    items.add(item);
+    return item;
+  }
+
+  public boolean isEmpty() {
+    return items.isEmpty();
+  }
+
+  public int size() {
+    return items.size();
+  }
+
+  public List<ErrorV1.ErrorBatchItem> getItems() {
+    return Collections.unmodifiableList(items);
+  }
+
+  public ErrorV1.ErrorBatchResponse toErrorBatchResponse() {
+    return ErrorV1.ErrorBatchResponse.newBuilder().addAllItems(items).build();
+  }
+
+  @Override
+  public String toString() {
+    return "ErrorBatch{size=" + items.size() + '}';
+  }
+}
@@ -0,0 +1,114 @@
+package com.truward.brikar.error;
+
+import com.truward.brikar.error.model.ErrorV1;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Objects;
+
+/**
+ * Streaming writer of batch errors, that writes each item as soon as it is given, either as a length-delimited
+ * protobuf message or as a line of newline-delimited JSON.
+ * <p>
+ * Writer does not buffer items: each item is written to the underlying stream before {@link #write} returns,
+ * though underlying stream itself is flushed only by {@link #flush()}. Instances of this class are not thread safe.
+ * </p>
+ */
+@ParametersAreNonnullByDefault
+public abstract class ErrorBatchWriter implements Flushable {
+  /**
+   * Content type of the stream of length-delimited protobuf-encoded {@link ErrorV1.ErrorBatchItem}s.
+   */
+  public static final String PROTOBUF_CONTENT_TYPE = "application/vnd.brikar.error-batch+x-protobuf";
+
+  /**
+   * Content type of the stream of JSON-encoded {@link ErrorV1.ErrorBatchItem}s, one item per line.
+   */
+  public static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
+
+  final OutputStream outputStream;
+  private int count;
+
+  ErrorBatchWriter(OutputStream outputStream) {
+    this.outputStream = Objects.requireNonNull(outputStream, "outputStream");
+  }
+
+  public static ErrorBatchWriter delimited(OutputStream outputStream) {
+    return new DelimitedWriter(outputStream);
+  }
+
+  public static ErrorBatchWriter ndjson(OutputStream outputStream) {
+    return new NdjsonWriter(outputStream);
+  }
+
+  /**
+   * @return Content type of the written stream
+   */
+  public abstract String getContentType();
+
+  public final void write(ErrorV1.ErrorBatchItem item) throws IOException {
+    writeItem(item);
+    ++count;
+  }
+
+  public final void write(int index, ErrorV1.Error error) throws IOException {
+    write(ErrorV1.ErrorBatchItem.newBuilder().setIndex(index).setError(error).build());
+  }
+
+  /**
+   * @return Number of items written so far
+   */
+  public final int getCount() {
+    return count;
+  }
+
+  @Override
+  public void flush() throws IOException {
+    outputStream.flush();
+  }
+
+  //
+  // Private
+  //
+
+  abstract void writeItem(ErrorV1.ErrorBatchItem item) throws IOException;
+
+  private static final class DelimitedWriter extends ErrorBatchWriter {
+    DelimitedWriter(OutputStream outputStream) {
+      super(outputStream);
+    }
+
+    @Override
+    public String getContentType() {
+      return PROTOBUF_CONTENT_TYPE;
+    }
+
+    @Override
+    void writeItem(ErrorV1.ErrorBatchItem item) throws IOException {
+      item.writeDelimitedTo(outputStream);
+    }
+  }
+
+  private static final class NdjsonWriter extends ErrorBatchWriter {
+    private final Utf8JsonOutput out;
+
+    NdjsonWriter(OutputStream outputStream) {
+      super(outputStream);
+      this.out = new Utf8JsonOutput(outputStream);
+    }
+
+    @Override
+    public String getContentType() {
+      return NDJSON_CONTENT_TYPE;
+    }
+
+    @Override
+    void writeItem(ErrorV1.ErrorBatchItem item) throws IOException {
+      ErrorJsonWriter.writeErrorBatchItem(item, out);
+      out.writeRaw((byte) '\n');
+      out.flush();
+    }
+  }
+}
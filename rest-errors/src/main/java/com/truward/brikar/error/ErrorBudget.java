@@ -0,0 +1,262 @@
+package com.truward.brikar.error;
+
+import com.truward.brikar.error.model.ErrorV1;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Limits of the error chain: maximum depth of inner errors, maximum number of parameters per error and maximum
+ * size of the protobuf-encoded error. Errors, that exceed the limits are truncated deterministically and each
+ * truncated error gets {@link #TRUNCATED_PARAMETER} parameter, that lists the limits that have been hit.
+ * <p>
+ * Truncation is done in the following order: inner errors beyond maximum depth are dropped along with parameters
+ * beyond maximum number of parameters, then, if error is still too big, deepest inner errors are dropped one by one,
+ * then parameters of the top-level error are dropped and, finally, message, target, source and code of the top-level
+ * error are shortened. Marker parameter does not count towards maximum number of parameters.
+ * </p>
+ */
+@ParametersAreNonnullByDefault
+public final class ErrorBudget {
+  public static final String TRUNCATED_PARAMETER = "brikar.truncated";
+
+  public static final String DEPTH_REASON = "depth";
+  public static final String PARAMETERS_REASON = "parameters";
+  public static final String SIZE_REASON = "size";
+
+  /**
+   * Minimum allowed limit of the encoded error size, error with marker parameter only always fits into it.
+   */
+  public static final int MIN_ENCODED_BYTES = 256;
+
+  public static final ErrorBudget DEFAULT = new ErrorBudget(16, 16 * 1024, 32);
+
+  public static final ErrorBudget UNLIMITED = new ErrorBudget(Integer.MAX_VALUE, Integer.MAX_VALUE,
+      Integer.MAX_VALUE);
+
+  private final int maxDepth;
+  private final int maxEncodedBytes;
+  private final int maxParameters;
+
+  /**
+   * @param maxDepth Maximum number of errors in the chain, including top-level one
+   * @param maxEncodedBytes Maximum size of the protobuf-encoded error
+   * @param maxParameters Maximum number of parameters in each error
+   */
+  public ErrorBudget(int maxDepth, int maxEncodedBytes, int maxParameters) {
+    if (maxDepth <= 0) {
+      throw new IllegalArgumentException("maxDepth should be positive");
+    }
+    if (maxEncodedBytes < MIN_ENCODED_BYTES) {
+      throw new IllegalArgumentException("maxEncodedBytes should not be less than " + MIN_ENCODED_BYTES);
+    }
+    if (maxParameters < 0) {
+      throw new IllegalArgumentException("maxParameters should not be negative");
+    }
+
+    this.maxDepth = maxDepth;
+    this.maxEncodedBytes = maxEncodedBytes;
+    this.maxParameters = maxParameters;
+  }
+
+  public int getMaxDepth() {
+    return maxDepth;
+  }
+
+  public int getMaxEncodedBytes() {
+    return maxEncodedBytes;
+  }
+
+  public int getMaxParameters() {
+    return maxParameters;
+  }
+
+  /**
+   * Truncates error to fit into this budget.
+   *
+   * @param error Error to check
+   * @return Given error if it fits into this budget, truncated error otherwise
+   */
+  public ErrorV1.Error apply(ErrorV1.Error error) {
+    if (fitsStructure(error) && error.getSerializedSize() <= maxEncodedBytes) {
+      return error;
+    }
+
+    final List<ErrorV1.Error> chain = getChain(limitStructure(error));
+    ErrorV1.Error result = chain.get(0);
+
+    // drop deepest inner errors
+    for (int depth = chain.size() - 1; depth > 0 && result.getSerializedSize() > maxEncodedBytes; --depth) {
+      result = rebuild(chain, depth - 1, withoutInnerError(chain.get(depth - 1)));
+    }
+
+    if (result.getSerializedSize() > maxEncodedBytes) {
+      result = shorten(ErrorV1.Error.newBuilder(result).clearInnerError(), SIZE_REASON);
+    }
+
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return "ErrorBudget{maxDepth=" + maxDepth + ", maxEncodedBytes=" + maxEncodedBytes +
+        ", maxParameters=" + maxParameters + '}';
+  }
+
+  //
+  // Private
+  //
+
+  private boolean fitsStructure(ErrorV1.Error error) {
+    int depth = 1;
+    for (ErrorV1.Error e = error;; e = e.getInnerError(), ++depth) {
+      if (depth > maxDepth || e.getParametersCount() > maxParameters) {
+        return false;
+      }
+      if (!e.hasInnerError()) {
+        return true;
+      }
+    }
+  }
+
+  private ErrorV1.Error limitStructure(ErrorV1.Error error) {
+    final List<ErrorV1.Error> chain = new ArrayList<>();
+    for (ErrorV1.Error e = error;; e = e.getInnerError()) {
+      chain.add(e);
+      if (!e.hasInnerError() || chain.size() == maxDepth) {
+        break;
+      }
+    }
+
+    // rebuild chain bottom-up, keeping unchanged errors as is
+    ErrorV1.Error inner = null;
+    for (int i = chain.size() - 1; i >= 0; --i) {
+      final ErrorV1.Error current = chain.get(i);
+      final boolean depthExceeded = i == chain.size() - 1 && current.hasInnerError();
+      final boolean parametersExceeded = current.getParametersCount() > maxParameters;
+      if (!depthExceeded && !parametersExceeded && (inner == null || inner == current.getInnerError())) {
+        inner = current;
+        continue;
+      }
+
+      final ErrorV1.Error.Builder builder = ErrorV1.Error.newBuilder(current);
+      if (depthExceeded) {
+        builder.clearInnerError();
+      } else if (inner != null) {
+        builder.setInnerError(inner);
+      }
+
+      if (depthExceeded || parametersExceeded) {
+        inner = truncate(builder, depthExceeded ? DEPTH_REASON : null, parametersExceeded ? PARAMETERS_REASON : null,
+            maxParameters);
+      } else {
+        inner = builder.build();
+      }
+    }
+
+    return inner;
+  }
+
+  private ErrorV1.Error withoutInnerError(ErrorV1.Error error) {
+    return truncate(ErrorV1.Error.newBuilder(error).clearInnerError(), SIZE_REASON, null, maxParameters);
+  }
+
+  private ErrorV1.Error shorten(ErrorV1.Error.Builder builder, String reason) {
+    ErrorV1.Error result = truncate(builder, reason, null, 0);
+
+    // shorten string fields in the order of their importance
+    for (int field = 0; field < 4 && result.getSerializedSize() > maxEncodedBytes; ++field) {
+      final int excess = result.getSerializedSize() - maxEncodedBytes;
+      final ErrorV1.Error.Builder b = ErrorV1.Error.newBuilder(result);
+      switch (field) {
+        case 0:
+          b.setMessage(shorten(result.getMessage(), excess));
+          break;
+        case 1:
+          b.setTarget(shorten(result.getTarget(), excess));
+          break;
+        case 2:
+          b.setSource(shorten(result.getSource(), excess));
+          break;
+        default:
+          b.setCode(shorten(result.getCode(), excess));
+      }
+      result = b.build();
+    }
+
+    return result;
+  }
+
+  private static String shorten(String value, int excess) {
+    // each char takes at least one byte in UTF-8, so removing excess chars is always enough
+    int length = Math.max(0, value.length() - excess);
+    if (length > 0 && Character.isHighSurrogate(value.charAt(length - 1))) {
+      --length;
+    }
+    return value.substring(0, length);
+  }
+
+  private static ErrorV1.Error rebuild(List<ErrorV1.Error> chain, int index, ErrorV1.Error replacement) {
+    ErrorV1.Error result = replacement;
+    for (int i = index - 1; i >= 0; --i) {
+      result = ErrorV1.Error.newBuilder(chain.get(i)).setInnerError(result).build();
+    }
+    return result;
+  }
+
+  private static List<ErrorV1.Error> getChain(ErrorV1.Error error) {
+    final List<ErrorV1.Error> chain = new ArrayList<>();
+    for (ErrorV1.Error e = error;; e = e.getInnerError()) {
+      chain.add(e);
+      if (!e.hasInnerError()) {
+        return chain;
+      }
+    }
+  }
+
+  /**
+   * Keeps at most given number of parameters, besides previous truncation markers, and appends truncation marker.
+   */
+  private static ErrorV1.Error truncate(
+      ErrorV1.Error.Builder builder,
+      @Nullable String reason,
+      @Nullable String otherReason,
+      int maxParameters) {
+    final List<ErrorV1.ErrorParameter> parameters = new ArrayList<>(builder.getParametersList());
+    builder.clearParameters();
+
+    final StringBuilder reasons = new StringBuilder();
+    for (final ErrorV1.ErrorParameter parameter : parameters) {
+      if (TRUNCATED_PARAMETER.equals(parameter.getKey())) {
+        appendReason(reasons, parameter.getValue().getStrValue());
+      } else if (builder.getParametersCount() < maxParameters) {
+        builder.addParameters(parameter);
+      }
+    }
+    appendReason(reasons, reason);
+    appendReason(reasons, otherReason);
+
+    return builder
+        .addParameters(RestErrors.stringParameter(TRUNCATED_PARAMETER, reasons.toString()))
+        .build();
+  }
+
+  private static void appendReason(StringBuilder reasons, @Nullable String reason) {
+    if (reason == null || reason.isEmpty()) {
+      return;
+    }
+
+    // only known reasons are kept and each one at most once, so that marker size is bounded
+    for (final String r : reason.split(",")) {
+      final boolean known = DEPTH_REASON.equals(r) || PARAMETERS_REASON.equals(r) || SIZE_REASON.equals(r);
+      if (known && (',' + reasons.toString() + ',').indexOf(',' + r + ',') < 0) {
+        if (reasons.length() > 0) {
+          reasons.append(',');
+        }
+        reasons.append(r);
+      }
+    }
+  }
+}
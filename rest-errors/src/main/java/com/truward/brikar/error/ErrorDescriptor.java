@@ -0,0 +1,88 @@
+package com.truward.brikar.error;
+
+import com.truward.brikar.error.model.ErrorV1;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Lightweight description of an error, that is converted into {@link ErrorV1.Error} on demand.
+ * Used by {@link HttpRestErrorException} to defer building of the error message until it is needed.
+ */
+@ParametersAreNonnullByDefault
+public final class ErrorDescriptor {
+  private static final ErrorV1.ErrorParameter[] NO_PARAMETERS = new ErrorV1.ErrorParameter[0];
+
+  private final RestErrorCode errorCode;
+  private final String source;
+  private final String message;
+  private final String target;
+  private final ErrorV1.ErrorParameter[] parameters;
+
+  /**
+   * @param errorCode Error code
+   * @param source Error source
+   * @param message Error message or null, if description of the error code should be used
+   * @param target Error target or null
+   * @param parameters Error parameters, array is not copied
+   */
+  public ErrorDescriptor(
+      RestErrorCode errorCode,
+      String source,
+      @Nullable String message,
+      @Nullable String target,
+      ErrorV1.ErrorParameter... parameters) {
+    this.errorCode = Objects.requireNonNull(errorCode, "errorCode");
+    this.source = Objects.requireNonNull(source, "source");
+    this.message = message != null ? message : errorCode.getDescription();
+    this.target = target != null ? target : "";
+    this.parameters = parameters.length > 0 ? parameters : NO_PARAMETERS;
+  }
+
+  public RestErrorCode getErrorCode() {
+    return errorCode;
+  }
+
+  public String getSource() {
+    return source;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  public String getTarget() {
+    return target;
+  }
+
+  public int getParametersCount() {
+    return parameters.length;
+  }
+
+  public ErrorV1.ErrorParameter getParameter(int index) {
+    return parameters[index];
+  }
+
+  /**
+   * @return New error object, that corresponds to this descriptor
+   */
+  public ErrorV1.Error toError() {
+    final ErrorV1.Error.Builder builder = ErrorV1.Error.newBuilder()
+        .setCode(errorCode.getCodeName())
+        .setMessage(message)
+        .setSource(source)
+        .setTarget(target);
+    for (final ErrorV1.ErrorParameter parameter : parameters) {
+      builder.addParameters(parameter);
+    }
+    return builder.build();
+  }
+
+  @Override
+  public String toString() {
+    return "ErrorDescriptor{code=" + errorCode.getCodeName() + ", source=" + source + ", message=" + message +
+        ", target=" + target + ", parameters=" + Arrays.toString(parameters) + '}';
+  }
+}
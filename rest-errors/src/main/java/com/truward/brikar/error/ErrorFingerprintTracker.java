@@ -0,0 +1,459 @@
+package com.truward.brikar.error;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Tracker of the most frequent error fingerprints, i.e. combinations of error code, source and target, over
+ * a sliding time window.
+ * <p>
+ * Fingerprints are counted by count-min sketch, that is split into a ring of time slots, so that memory footprint
+ * is fixed regardless of the number of distinct targets. Only the heaviest fingerprints, kept in a small heap,
+ * retain their code, source and target. Recording an event hashes its fields in place and increments one counter
+ * per sketch row. The heap is locked only when the fingerprint is not in the heap yet and its estimated count is big
+ * enough to get into it, counts of the fingerprints in the heap are re-estimated from the sketch by {@link #snapshot()}
+ * and whenever time slot expires or another fingerprint gets into the heap.
+ * </p>
+ * <p>
+ * Counts are estimates, that are never less than the actual counts, besides the events, recorded concurrently
+ * with expiration of the time slot, that might be lost. Window moves in steps of one slot, i.e. events are counted
+ * for the time between the window length minus the slot length and the window length.
+ * </p>
+ */
+@ParametersAreNonnullByDefault
+public final class ErrorFingerprintTracker {
+  public static final int DEFAULT_WIDTH = 1024;
+  public static final int DEFAULT_DEPTH = 4;
+  public static final int DEFAULT_TOP_SIZE = 16;
+  public static final int DEFAULT_SLOT_COUNT = 6;
+
+  private static final long UNUSED_EPOCH = Long.MIN_VALUE;
+  private static final long NO_HASH = 0L;
+
+  private final int width;
+  private final int depth;
+  private final int slotCount;
+  private final long slotMillis;
+  private final LongSupplier clock;
+
+  // counters of all the slots, laid out as [slot][row][column]
+  private final AtomicLongArray counters;
+  // number of the time slot, that is currently counted in each slot of the ring
+  private final AtomicLongArray slotEpochs;
+  private final TopHeap top;
+
+  /**
+   * Minimum count of the fingerprint in the full heap as of the last heap change, fingerprints with lower counts
+   * do not lock the heap.
+   */
+  private volatile long threshold;
+
+  /**
+   * Open-addressed set of the fingerprints in the heap, that is replaced as a whole whenever the heap changes, so that
+   * events of these fingerprints are counted without locking the heap.
+   */
+  private volatile long[] tracked;
+
+  /**
+   * @param width Number of counters in each row of the sketch, should be a power of two
+   * @param depth Number of rows in the sketch
+   * @param topSize Maximum number of the tracked heavy hitters
+   * @param windowMillis Length of the sliding window in milliseconds
+   * @param slotCount Number of time slots in the window
+   * @param clock Source of the current time in milliseconds
+   */
+  public ErrorFingerprintTracker(
+      int width,
+      int depth,
+      int topSize,
+      long windowMillis,
+      int slotCount,
+      LongSupplier clock) {
+    if (width <= 0 || Integer.bitCount(width) != 1) {
+      throw new IllegalArgumentException("width should be a positive power of two");
+    }
+    if (depth <= 0 || topSize <= 0 || slotCount <= 0) {
+      throw new IllegalArgumentException("depth, topSize and slotCount should be positive");
+    }
+    if (topSize > (1 << 20)) {
+      throw new IllegalArgumentException("topSize is too big");
+    }
+    if (windowMillis < slotCount) {
+      throw new IllegalArgumentException("windowMillis should not be less than slotCount");
+    }
+    if ((long) width * depth * slotCount > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Sketch is too big");
+    }
+
+    this.width = width;
+    this.depth = depth;
+    this.slotCount = slotCount;
+    this.slotMillis = windowMillis / slotCount;
+    this.clock = Objects.requireNonNull(clock, "clock");
+    this.counters = new AtomicLongArray(width * depth * slotCount);
+    this.slotEpochs = new AtomicLongArray(slotCount);
+    this.top = new TopHeap(topSize);
+    // at least twice as many entries as fingerprints, so that probes stay short
+    this.tracked = new long[Integer.highestOneBit(topSize) << 2];
+
+    final long epoch = getEpoch();
+    for (int i = 0; i < slotCount; ++i) {
+      this.slotEpochs.set(i, i == getSlot(epoch) ? epoch : UNUSED_EPOCH);
+    }
+  }
+
+  /**
+   * @param windowMillis Length of the sliding window in milliseconds
+   */
+  public ErrorFingerprintTracker(long windowMillis) {
+    this(DEFAULT_WIDTH, DEFAULT_DEPTH, DEFAULT_TOP_SIZE, windowMillis, DEFAULT_SLOT_COUNT, System::currentTimeMillis);
+  }
+
+  /**
+   * Computes 64-bit fingerprint of the given error fields without allocating memory.
+   *
+   * @param code Error code name
+   * @param source Error source
+   * @param target Error target or null, null and empty targets have the same fingerprint
+   * @return Fingerprint hash
+   */
+  public static long fingerprint(String code, String source, @Nullable String target) {
+    long h = 0xcbf29ce484222325L;
+    h = hash(h, code);
+    h = hash(h, source);
+    h = hash(h, target != null ? target : "");
+
+    // final avalanche, so that both halves of the hash can be used as independent hashes
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  /**
+   * Records error event.
+   *
+   * @param code Error code name
+   * @param source Error source
+   * @param target Error target or null
+   */
+  public void record(String code, String source, @Nullable String target) {
+    final long epoch = getEpoch();
+    final int slot = getSlot(epoch);
+    if (slotEpochs.get(slot) != epoch) {
+      expireSlot(slot, epoch);
+    }
+
+    final long hash = fingerprint(code, source, target);
+    final int slotOffset = slot * depth * width;
+    long estimate = Long.MAX_VALUE;
+    for (int row = 0; row < depth; ++row) {
+      final int index = row * width + getColumn(hash, row);
+      counters.incrementAndGet(slotOffset + index);
+      estimate = Math.min(estimate, sum(index, epoch));
+    }
+
+    if (estimate > threshold && !isTracked(hash)) {
+      synchronized (top) {
+        // counts in the heap are not updated by the events of the tracked fingerprints, so they are re-estimated
+        // before the new fingerprint is compared with them
+        refresh(epoch);
+        top.offer(hash, code, source, target, estimate);
+        publish();
+      }
+    }
+  }
+
+  /**
+   * @param code Error code name
+   * @param source Error source
+   * @param target Error target or null
+   * @return Estimated number of events with the given fields within the current window
+   */
+  public long estimate(String code, String source, @Nullable String target) {
+    return estimate(fingerprint(code, source, target), getEpoch());
+  }
+
+  /**
+   * @return Heaviest fingerprints within the current window, ordered by decreasing count
+   */
+  public List<HeavyHitter> snapshot() {
+    final long epoch = getEpoch();
+    final List<HeavyHitter> result;
+    synchronized (top) {
+      refresh(epoch);
+      result = top.toList();
+    }
+
+    result.sort((left, right) -> Long.compare(right.getCount(), left.getCount()));
+    return Collections.unmodifiableList(result);
+  }
+
+  /**
+   * Fingerprint along with its estimated count.
+   */
+  public static final class HeavyHitter {
+    private final String code;
+    private final String source;
+    private final String target;
+    private final long count;
+
+    HeavyHitter(String code, String source, @Nullable String target, long count) {
+      this.code = code;
+      this.source = source;
+      this.target = target != null ? target : "";
+      this.count = count;
+    }
+
+    public String getCode() {
+      return code;
+    }
+
+    public String getSource() {
+      return source;
+    }
+
+    public String getTarget() {
+      return target;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    @Override
+    public String toString() {
+      return "HeavyHitter{code=" + code + ", source=" + source + ", target=" + target + ", count=" + count + '}';
+    }
+  }
+
+  //
+  // Private
+  //
+
+  private long getEpoch() {
+    return clock.getAsLong() / slotMillis;
+  }
+
+  private int getSlot(long epoch) {
+    return (int) Math.floorMod(epoch, (long) slotCount);
+  }
+
+  private int getColumn(long hash, int row) {
+    // double hashing: rows use combinations of two halves of the fingerprint
+    final int h1 = (int) hash;
+    final int h2 = (int) (hash >>> 32) | 1;
+    return (h1 + row * h2) & (width - 1);
+  }
+
+  private long estimate(long hash, long epoch) {
+    long estimate = Long.MAX_VALUE;
+    for (int row = 0; row < depth; ++row) {
+      estimate = Math.min(estimate, sum(row * width + getColumn(hash, row), epoch));
+    }
+    return estimate;
+  }
+
+  /**
+   * @return Sum of the counter at the given index within slot over all the slots within the window
+   */
+  private long sum(int index, long epoch) {
+    long sum = 0;
+    for (int slot = 0; slot < slotCount; ++slot) {
+      final long slotEpoch = slotEpochs.get(slot);
+      if (slotEpoch <= epoch && slotEpoch > epoch - slotCount) {
+        sum += counters.get(slot * depth * width + index);
+      }
+    }
+    return sum;
+  }
+
+  private void expireSlot(int slot, long epoch) {
+    final long slotEpoch = slotEpochs.get(slot);
+    if (slotEpoch >= epoch || !slotEpochs.compareAndSet(slot, slotEpoch, epoch)) {
+      // clock went backwards or slot has already been expired by another thread
+      return;
+    }
+
+    final int offset = slot * depth * width;
+    for (int i = 0; i < depth * width; ++i) {
+      counters.set(offset + i, 0L);
+    }
+
+    // counts of the heavy hitters drop as the window moves, so that other fingerprints could take their place
+    synchronized (top) {
+      refresh(epoch);
+    }
+  }
+
+  private void refresh(long epoch) {
+    for (int i = 0; i < top.size; ++i) {
+      top.counts[i] = estimate(top.hashes[i], epoch);
+    }
+    top.rebuild();
+    publish();
+  }
+
+  /**
+   * Publishes threshold and set of the tracked fingerprints of the heap, that has been changed. Called under heap lock.
+   */
+  private void publish() {
+    final long[] newTracked = new long[tracked.length];
+    final int mask = newTracked.length - 1;
+    for (int i = 0; i < top.size; ++i) {
+      final long hash = top.hashes[i];
+      if (hash == NO_HASH) {
+        // fingerprint, that collides with the empty entry marker, always goes through the heap
+        continue;
+      }
+      int index = getTrackedIndex(hash, mask);
+      while (newTracked[index] != NO_HASH) {
+        index = (index + 1) & mask;
+      }
+      newTracked[index] = hash;
+    }
+
+    tracked = newTracked;
+    threshold = top.getThreshold();
+  }
+
+  private boolean isTracked(long hash) {
+    final long[] tracked = this.tracked;
+    final int mask = tracked.length - 1;
+    for (int index = getTrackedIndex(hash, mask); tracked[index] != NO_HASH; index = (index + 1) & mask) {
+      if (tracked[index] == hash) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static int getTrackedIndex(long hash, int mask) {
+    return (int) (hash ^ (hash >>> 32)) & mask;
+  }
+
+  private static long hash(long h, String value) {
+    for (int i = 0; i < value.length(); ++i) {
+      h = (h ^ value.charAt(i)) * 0x100000001b3L;
+    }
+    // field separator, so that moving characters between fields changes the fingerprint
+    return (h ^ 0xffff) * 0x100000001b3L;
+  }
+
+  /**
+   * Min-heap of the heaviest fingerprints, ordered by count. Guarded by its own monitor.
+   */
+  private static final class TopHeap {
+    final long[] hashes;
+    final long[] counts;
+    final HeavyHitter[] keys;
+    int size;
+
+    TopHeap(int capacity) {
+      this.hashes = new long[capacity];
+      this.counts = new long[capacity];
+      this.keys = new HeavyHitter[capacity];
+    }
+
+    long getThreshold() {
+      return size < hashes.length ? 0L : counts[0];
+    }
+
+    void offer(long hash, String code, String source, @Nullable String target, long count) {
+      for (int i = 0; i < size; ++i) {
+        if (hashes[i] == hash) {
+          if (count > counts[i]) {
+            counts[i] = count;
+            siftDown(i);
+          }
+          return;
+        }
+      }
+
+      final HeavyHitter key = new HeavyHitter(code, source, target, 0L);
+      if (size < hashes.length) {
+        set(size, hash, count, key);
+        siftUp(size++);
+      } else if (count > counts[0]) {
+        set(0, hash, count, key);
+        siftDown(0);
+      }
+    }
+
+    /**
+     * Removes fingerprints with zero counts and restores heap order after counts have been changed.
+     */
+    void rebuild() {
+      int newSize = 0;
+      for (int i = 0; i < size; ++i) {
+        if (counts[i] > 0) {
+          set(newSize++, hashes[i], counts[i], keys[i]);
+        }
+      }
+      for (int i = newSize; i < size; ++i) {
+        keys[i] = null;
+      }
+      size = newSize;
+
+      for (int i = size / 2 - 1; i >= 0; --i) {
+        siftDown(i);
+      }
+    }
+
+    List<HeavyHitter> toList() {
+      final List<HeavyHitter> result = new ArrayList<>(size);
+      for (int i = 0; i < size; ++i) {
+        result.add(new HeavyHitter(keys[i].getCode(), keys[i].getSource(), keys[i].getTarget(), counts[i]));
+      }
+      return result;
+    }
+
+    private void siftUp(int index) {
+      while (index > 0) {
+        final int parent = (index - 1) / 2;
+        if (counts[parent] <= counts[index]) {
+          return;
+        }
+        swap(index, parent);
+        index = parent;
+      }
+    }
+
+    private void siftDown(int index) {
+      while (true) {
+        final int left = 2 * index + 1;
+        if (left >= size) {
+          return;
+        }
+        final int child = left + 1 < size && counts[left + 1] < counts[left] ? left + 1 : left;
+        if (counts[index] <= counts[child]) {
+          return;
+        }
+        swap(index, child);
+        index = child;
+      }
+    }
+
+    private void set(int index, long hash, long count, HeavyHitter key) {
+      hashes[index] = hash;
+      counts[index] = count;
+      keys[index] = key;
+    }
+
+    private void swap(int i, int j) {
+      final long hash = hashes[i];
+      final long count = counts[i];
+      final HeavyHitter key = keys[i];
+      set(i, hashes[j], counts[j], keys[j]);
+      set(j, hash, count, key);
+    }
+  }
+}
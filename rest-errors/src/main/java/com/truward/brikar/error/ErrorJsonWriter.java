@@ -0,0 +1,252 @@
+package com.truward.brikar.error;
+
+import com.truward.brikar.error.model.ErrorV1;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Specialized JSON writer for the error model.
+ * <p>
+ * Produces the same JSON as generic protobuf-to-JSON conversion: fields are written in the order of their
+ * numbers, fields with default values are omitted and bytes are written in base64 encoding.
+ * Output is written as UTF-8 encoded bytes using pre-encoded field names.
+ * </p>
+ */
+@ParametersAreNonnullByDefault
+public final class ErrorJsonWriter {
+  private ErrorJsonWriter() {}
+
+  private static final byte[] ERROR = Utf8JsonOutput.token("\"error\":");
+
+  private static final byte[] CODE = Utf8JsonOutput.token("\"code\":");
+  private static final byte[] MESSAGE = Utf8JsonOutput.token("\"message\":");
+  private static final byte[] SOURCE = Utf8JsonOutput.token("\"source\":");
+  private static final byte[] TARGET = Utf8JsonOutput.token("\"target\":");
+  private static final byte[] INNER_ERROR = Utf8JsonOutput.token("\"innerError\":");
+  private static final byte[] PARAMETERS = Utf8JsonOutput.token("\"parameters\":");
+
+  private static final byte[] INDEX = Utf8JsonOutput.token("\"index\":");
+  private static final byte[] ITEMS = Utf8JsonOutput.token("\"items\":");
+
+  private static final byte[] KEY = Utf8JsonOutput.token("\"key\":");
+  private static final byte[] VALUE = Utf8JsonOutput.token("\"value\":");
+
+  private static final byte[] BYTES_VALUE = Utf8JsonOutput.token("\"bytesValue\":");
+  private static final byte[] STR_VALUE = Utf8JsonOutput.token("\"strValue\":");
+  private static final byte[] INT_VALUE = Utf8JsonOutput.token("\"intValue\":");
+  private static final byte[] LONG_VALUE = Utf8JsonOutput.token("\"longValue\":");
+  private static final byte[] BOOL_VALUE = Utf8JsonOutput.token("\"boolValue\":");
+
+  public static void writeErrorResponse(ErrorV1.ErrorResponse response, OutputStream outputStream)
+      throws IOException {
+    final Utf8JsonOutput out = new Utf8JsonOutput(outputStream);
+    writeErrorResponse(response, out);
+    out.flush();
+  }
+
+  public static void writeError(ErrorV1.Error error, OutputStream outputStream) throws IOException {
+    final Utf8JsonOutput out = new Utf8JsonOutput(outputStream);
+    writeError(error, out);
+    out.flush();
+  }
+
+  public static void writeErrorBatchItem(ErrorV1.ErrorBatchItem item, OutputStream outputStream) throws IOException {
+    final Utf8JsonOutput out = new Utf8JsonOutput(outputStream);
+    writeErrorBatchItem(item, out);
+    out.flush();
+  }
+
+  public static void writeErrorBatchResponse(ErrorV1.ErrorBatchResponse response, OutputStream outputStream)
+      throws IOException {
+    final Utf8JsonOutput out = new Utf8JsonOutput(outputStream);
+    out.writeRaw((byte) '{');
+    if (response.getItemsCount() > 0) {
+      out.writeRaw(ITEMS);
+      out.writeRaw((byte) '[');
+      for (int i = 0; i < response.getItemsCount(); ++i) {
+        if (i > 0) {
+          out.writeRaw((byte) ',');
+        }
+        writeErrorBatchItem(response.getItems(i), out);
+      }
+      out.writeRaw((byte) ']');
+    }
+    out.writeRaw((byte) '}');
+    out.flush();
+  }
+
+  public static byte[] toByteArray(ErrorV1.ErrorResponse response) {
+    final ByteArrayOutputStream outputStream = new ByteArrayOutputStream(256);
+    try {
+      writeErrorResponse(response, outputStream);
+    } catch (IOException e) {
+      // should not happen for in-memory stream
+      throw new UncheckedIOException(e);
+    }
+    return outputStream.toByteArray();
+  }
+
+  //
+  // Package-private
+  //
+
+  static void writeErrorResponse(ErrorV1.ErrorResponse response, Utf8JsonOutput out) throws IOException {
+    out.writeRaw((byte) '{');
+    if (response.hasError()) {
+      out.writeRaw(ERROR);
+      writeError(response.getError(), out);
+    }
+    out.writeRaw((byte) '}');
+  }
+
+  static void writeErrorBatchItem(ErrorV1.ErrorBatchItem item, Utf8JsonOutput out) throws IOException {
+    out.writeRaw((byte) '{');
+    boolean first = true;
+    if (item.getIndex() != 0) {
+      first = writeFieldName(out, INDEX, true);
+      out.writeNumber(item.getIndex());
+    }
+
+    first = writeStringField(out, TARGET, item.getTarget(), first);
+
+    if (item.hasError()) {
+      writeFieldName(out, ERROR, first);
+      writeError(item.getError(), out);
+    }
+    out.writeRaw((byte) '}');
+  }
+
+  static void writeError(ErrorV1.Error error, Utf8JsonOutput out) throws IOException {
+    out.writeRaw((byte) '{');
+    boolean first = writeStringField(out, CODE, error.getCode(), true);
+    first = writeStringField(out, MESSAGE, error.getMessage(), first);
+    first = writeStringField(out, SOURCE, error.getSource(), first);
+    first = writeStringField(out, TARGET, error.getTarget(), first);
+
+    if (error.hasInnerError()) {
+      first = writeFieldName(out, INNER_ERROR, first);
+      writeError(error.getInnerError(), out);
+    }
+
+    final int parameterCount = error.getParametersCount();
+    if (parameterCount > 0) {
+      writeFieldName(out, PARAMETERS, first);
+      writeParameters(error, 0, parameterCount, out);
+    }
+    out.writeRaw((byte) '}');
+  }
+
+  /**
+   * Writes source of the error, which code and message have already been written.
+   *
+   * @param first Whether no fields of the error have been written yet
+   */
+  static void writeSource(String source, boolean first, Utf8JsonOutput out) throws IOException {
+    writeStringField(out, SOURCE, source, first);
+  }
+
+  /**
+   * Writes target and parameters of the error, which preceding fields have already been written, and closes it.
+   *
+   * @param first Whether no fields of the error have been written yet
+   */
+  static void writeErrorTail(
+      @Nullable String target,
+      List<ErrorV1.ErrorParameter> parameters,
+      boolean first,
+      Utf8JsonOutput out) throws IOException {
+    if (target != null) {
+      first = writeStringField(out, TARGET, target, first);
+    }
+
+    if (!parameters.isEmpty()) {
+      writeFieldName(out, PARAMETERS, first);
+      out.writeRaw((byte) '[');
+      for (int i = 0; i < parameters.size(); ++i) {
+        if (i > 0) {
+          out.writeRaw((byte) ',');
+        }
+        writeParameter(parameters.get(i), out);
+      }
+      out.writeRaw((byte) ']');
+    }
+    out.writeRaw((byte) '}');
+  }
+
+  static void writeParameters(ErrorV1.Error error, int from, int to, Utf8JsonOutput out) throws IOException {
+    out.writeRaw((byte) '[');
+    for (int i = from; i < to; ++i) {
+      if (i > from) {
+        out.writeRaw((byte) ',');
+      }
+      writeParameter(error.getParameters(i), out);
+    }
+    out.writeRaw((byte) ']');
+  }
+
+  static void writeParameter(ErrorV1.ErrorParameter parameter, Utf8JsonOutput out) throws IOException {
+    out.writeRaw((byte) '{');
+    boolean first = writeStringField(out, KEY, parameter.getKey(), true);
+    if (parameter.hasValue()) {
+      writeFieldName(out, VALUE, first);
+      writeValue(parameter.getValue(), out);
+    }
+    out.writeRaw((byte) '}');
+  }
+
+  static void writeValue(ErrorV1.ErrorValue value, Utf8JsonOutput out) throws IOException {
+    out.writeRaw((byte) '{');
+    boolean first = true;
+    if (!value.getBytesValue().isEmpty()) {
+      first = writeFieldName(out, BYTES_VALUE, first);
+      out.writeBase64(value.getBytesValue().toByteArray());
+    }
+
+    first = writeStringField(out, STR_VALUE, value.getStrValue(), first);
+
+    if (value.getIntValue() != 0) {
+      first = writeFieldName(out, INT_VALUE, first);
+      out.writeNumber(value.getIntValue());
+    }
+
+    if (value.getLongValue() != 0L) {
+      first = writeFieldName(out, LONG_VALUE, first);
+      out.writeNumber(value.getLongValue());
+    }
+
+    if (value.getBoolValue()) {
+      writeFieldName(out, BOOL_VALUE, first);
+      out.writeBoolean(true);
+    }
+    out.writeRaw((byte) '}');
+  }
+
+  //
+  // Private
+  //
+
+  private static boolean writeStringField(Utf8JsonOutput out, byte[] fieldName, String value, boolean first)
+      throws IOException {
+    if (value.isEmpty()) {
+      return first;
+    }
+
+    writeFieldName(out, fieldName, first);
+    out.writeString(value);
+    return false;
+  }
+
+  private static boolean writeFieldName(Utf8JsonOutput out, byte[] fieldName, boolean first) throws IOException {
+    if (!first) {
+      out.writeRaw((byte) ',');
+    }
+    out.writeRaw(fieldName);
+    return false;
+  }
+}
@@ -0,0 +1,43 @@
+package com.truward.brikar.error;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+
+/**
+ * SPI for collecting error metrics.
+ * <p>
+ * Recorders are obtained once per error source, so that recording an error event does not involve
+ * any lookups by source. Error codes are identified by their ordinals in {@link RestErrorCodeRegistry}, which
+ * is given when recorder is obtained, so that implementations can reject registries they can't label.
+ * </p>
+ *
+ * @see InMemoryErrorMetrics
+ */
+@ParametersAreNonnullByDefault
+public interface ErrorMetrics {
+
+  /**
+   * Metrics implementation that discards all the events.
+   */
+  ErrorMetrics NOOP = (source, registry) -> (codeOrdinal, httpStatus) -> {};
+
+  /**
+   * @param source Error source, e.g. service name
+   * @param registry Registry, that defines ordinals of the recorded error codes
+   * @return Recorder for the errors, that originate from the given source
+   * @throws IllegalArgumentException If implementation does not support the given registry
+   */
+  Recorder getRecorder(String source, RestErrorCodeRegistry registry);
+
+  /**
+   * Records error events for a particular source.
+   * Implementations should be thread safe and should not block.
+   */
+  interface Recorder {
+
+    /**
+     * @param codeOrdinal Ordinal of the registered error code or -1 if error code is not registered
+     * @param httpStatus HTTP status code
+     */
+    void record(int codeOrdinal, int httpStatus);
+  }
+}
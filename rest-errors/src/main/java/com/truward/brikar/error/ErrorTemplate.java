@@ -0,0 +1,314 @@
+package com.truward.brikar.error;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import com.truward.brikar.error.model.ErrorV1;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Template of errors with the same code, message and source, that differ in target and parameters only.
+ * <p>
+ * Constant fields are encoded once, when template is created, so that serializing a concrete error writes
+ * pre-encoded prefix followed by the dynamic fields only. Output is byte-for-byte identical to the one, produced by
+ * protobuf serialization and {@link ErrorJsonWriter} for the error, returned by {@link #toError(String, List)}.
+ * Errors, that do not fit into the error budget of this template, are truncated and encoded in a regular way.
+ * </p>
+ * <pre>
+ * private static final ErrorTemplate INVALID_ID = new ErrorTemplate(StandardRestErrorCodes.INVALID_ARGUMENT,
+ *     "OrderService");
+ * ...
+ * INVALID_ID.writeJsonErrorResponseTo("id", Collections.emptyList(), outputStream);
+ * </pre>
+ */
+@ParametersAreNonnullByDefault
+public final class ErrorTemplate {
+  private static final byte[] JSON_ERROR_RESPONSE_PREFIX = Utf8JsonOutput.token("{\"error\":");
+
+  private final RestErrorCode errorCode;
+  private final String source;
+  private final ErrorBudget errorBudget;
+  private final ErrorV1.Error prototype;
+  private final byte[] protobufPrefix;
+  // JSON object start followed by non-empty constant fields
+  private final byte[] jsonPrefix;
+
+  public ErrorTemplate(RestErrorCode errorCode, String source, ErrorBudget errorBudget) {
+    this(errorCode, source, errorBudget, null, null);
+  }
+
+  public ErrorTemplate(RestErrorCode errorCode, String source) {
+    this(errorCode, source, ErrorBudget.DEFAULT);
+  }
+
+  /**
+   * Creates template, that starts with the fragments, pre-encoded by the generated error code table.
+   *
+   * @param preEncodedCodes Error codes along with their pre-encoded fragments
+   * @param ordinal Position of the error code in the given codes
+   * @param source Error source
+   * @param errorBudget Limits, that errors are truncated to
+   */
+  public ErrorTemplate(PreEncodedRestErrorCodes preEncodedCodes, int ordinal, String source, ErrorBudget errorBudget) {
+    this(preEncodedCodes.getCodes().get(ordinal), source, errorBudget, preEncodedCodes.getProtobufFragment(ordinal),
+        preEncodedCodes.getJsonFragment(ordinal));
+  }
+
+  private ErrorTemplate(
+      RestErrorCode errorCode,
+      String source,
+      ErrorBudget errorBudget,
+      @Nullable byte[] protobufFragment,
+      @Nullable byte[] jsonFragment) {
+    this.errorCode = Objects.requireNonNull(errorCode, "errorCode");
+    this.source = Objects.requireNonNull(source, "source");
+    this.errorBudget = Objects.requireNonNull(errorBudget, "errorBudget");
+    this.prototype = ErrorV1.Error.newBuilder()
+        .setCode(errorCode.getCodeName())
+        .setMessage(errorCode.getDescription())
+        .setSource(source)
+        .build();
+
+    final ByteArrayOutputStream os = new ByteArrayOutputStream(64);
+    try {
+      if (protobufFragment == null || jsonFragment == null) {
+        this.protobufPrefix = this.prototype.toByteArray();
+        ErrorJsonWriter.writeError(this.prototype, os);
+        final byte[] json = os.toByteArray();
+        this.jsonPrefix = Arrays.copyOf(json, json.length - 1); // without closing brace
+        return;
+      }
+
+      // source follows code and message both in field number and in JSON field order
+      this.protobufPrefix = Arrays.copyOf(protobufFragment, this.prototype.getSerializedSize());
+      if (!source.isEmpty()) {
+        final CodedOutputStream output = CodedOutputStream.newInstance(this.protobufPrefix, protobufFragment.length,
+            this.protobufPrefix.length - protobufFragment.length);
+        output.writeString(ErrorV1.Error.SOURCE_FIELD_NUMBER, source);
+        output.checkNoSpaceLeft();
+      }
+
+      final Utf8JsonOutput out = new Utf8JsonOutput(os);
+      out.writeRaw((byte) '{');
+      out.writeRaw(jsonFragment);
+      ErrorJsonWriter.writeSource(source, jsonFragment.length == 0, out);
+      out.flush();
+      this.jsonPrefix = os.toByteArray();
+    } catch (IOException e) {
+      // should not happen for in-memory streams
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public RestErrorCode getErrorCode() {
+    return errorCode;
+  }
+
+  public String getSource() {
+    return source;
+  }
+
+  public ErrorBudget getErrorBudget() {
+    return errorBudget;
+  }
+
+  /**
+   * @return New builder, that has constant fields of this template set
+   */
+  public ErrorV1.Error.Builder toBuilder() {
+    return prototype.toBuilder();
+  }
+
+  public ErrorV1.Error toError(@Nullable String target) {
+    return toError(target, Collections.<ErrorV1.ErrorParameter>emptyList());
+  }
+
+  public ErrorV1.Error toError(@Nullable String target, ErrorV1.ErrorParameter... parameters) {
+    return toError(target, Arrays.asList(parameters));
+  }
+
+  /**
+   * @param target Error target or null
+   * @param parameters Error parameters
+   * @return Error, that has constant fields of this template and the given target and parameters, error is not
+   * truncated to the budget of this template
+   */
+  public ErrorV1.Error toError(@Nullable String target, List<ErrorV1.ErrorParameter> parameters) {
+    if (isEmpty(target) && parameters.isEmpty()) {
+      return prototype;
+    }
+
+    final ErrorV1.Error.Builder builder = prototype.toBuilder().addAllParameters(parameters);
+    if (!isEmpty(target)) {
+      builder.setTarget(target);
+    }
+    return builder.build();
+  }
+
+  //
+  // Protobuf
+  //
+
+  /**
+   * @param target Error target or null
+   * @param parameters Error parameters
+   * @return Size of the protobuf-encoded error with the given target and parameters before truncation
+   */
+  public int getSerializedSize(@Nullable String target, List<ErrorV1.ErrorParameter> parameters) {
+    int size = protobufPrefix.length;
+    if (!isEmpty(target)) {
+      size += CodedOutputStream.computeStringSize(ErrorV1.Error.TARGET_FIELD_NUMBER, target);
+    }
+    for (int i = 0; i < parameters.size(); ++i) {
+      size += CodedOutputStream.computeMessageSize(ErrorV1.Error.PARAMETERS_FIELD_NUMBER, parameters.get(i));
+    }
+    return size;
+  }
+
+  /**
+   * Writes protobuf-encoded {@link ErrorV1.Error}.
+   */
+  public void writeTo(@Nullable String target, List<ErrorV1.ErrorParameter> parameters, OutputStream outputStream)
+      throws IOException {
+    final int size = getSerializedSize(target, parameters);
+    if (!fits(parameters, size)) {
+      errorBudget.apply(toError(target, parameters)).writeTo(outputStream);
+      return;
+    }
+
+    final CodedOutputStream output = newOutput(outputStream, size);
+    writeFields(target, parameters, output);
+    output.flush();
+  }
+
+  /**
+   * Writes protobuf-encoded {@link ErrorV1.ErrorResponse}.
+   */
+  public void writeErrorResponseTo(
+      @Nullable String target,
+      List<ErrorV1.ErrorParameter> parameters,
+      OutputStream outputStream) throws IOException {
+    writeErrorResponse(target, parameters, outputStream, false);
+  }
+
+  /**
+   * Writes protobuf-encoded {@link ErrorV1.ErrorResponse} prefixed by its size, as
+   * {@link com.google.protobuf.MessageLite#writeDelimitedTo(OutputStream)} does.
+   */
+  public void writeDelimitedErrorResponseTo(
+      @Nullable String target,
+      List<ErrorV1.ErrorParameter> parameters,
+      OutputStream outputStream) throws IOException {
+    writeErrorResponse(target, parameters, outputStream, true);
+  }
+
+  //
+  // JSON
+  //
+
+  /**
+   * Writes UTF-8 encoded JSON of {@link ErrorV1.Error}.
+   */
+  public void writeJsonTo(@Nullable String target, List<ErrorV1.ErrorParameter> parameters, OutputStream outputStream)
+      throws IOException {
+    final Utf8JsonOutput out = new Utf8JsonOutput(outputStream);
+    writeJson(target, parameters, out);
+    out.flush();
+  }
+
+  /**
+   * Writes UTF-8 encoded JSON of {@link ErrorV1.ErrorResponse}.
+   */
+  public void writeJsonErrorResponseTo(
+      @Nullable String target,
+      List<ErrorV1.ErrorParameter> parameters,
+      OutputStream outputStream) throws IOException {
+    final Utf8JsonOutput out = new Utf8JsonOutput(outputStream);
+    out.writeRaw(JSON_ERROR_RESPONSE_PREFIX);
+    writeJson(target, parameters, out);
+    out.writeRaw((byte) '}');
+    out.flush();
+  }
+
+  @Override
+  public String toString() {
+    return "ErrorTemplate{code=" + errorCode.getCodeName() + ", source=" + source + '}';
+  }
+
+  //
+  // Private
+  //
+
+  private void writeErrorResponse(
+      @Nullable String target,
+      List<ErrorV1.ErrorParameter> parameters,
+      OutputStream outputStream,
+      boolean delimited) throws IOException {
+    final int errorSize = getSerializedSize(target, parameters);
+    if (!fits(parameters, errorSize)) {
+      final ErrorV1.ErrorResponse response = RestErrors.errorResponse(errorBudget.apply(toError(target, parameters)));
+      if (delimited) {
+        response.writeDelimitedTo(outputStream);
+      } else {
+        response.writeTo(outputStream);
+      }
+      return;
+    }
+
+    final int size = CodedOutputStream.computeTagSize(ErrorV1.ErrorResponse.ERROR_FIELD_NUMBER) +
+        CodedOutputStream.computeUInt32SizeNoTag(errorSize) + errorSize;
+    final CodedOutputStream output = newOutput(outputStream,
+        size + (delimited ? CodedOutputStream.computeUInt32SizeNoTag(size) : 0));
+    if (delimited) {
+      output.writeUInt32NoTag(size);
+    }
+    output.writeTag(ErrorV1.ErrorResponse.ERROR_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+    output.writeUInt32NoTag(errorSize);
+    writeFields(target, parameters, output);
+    output.flush();
+  }
+
+  private void writeFields(@Nullable String target, List<ErrorV1.ErrorParameter> parameters, CodedOutputStream output)
+      throws IOException {
+    // fields of the prefix precede target and parameters in the field number order
+    output.writeRawBytes(protobufPrefix);
+    if (!isEmpty(target)) {
+      output.writeString(ErrorV1.Error.TARGET_FIELD_NUMBER, target);
+    }
+    for (int i = 0; i < parameters.size(); ++i) {
+      output.writeMessage(ErrorV1.Error.PARAMETERS_FIELD_NUMBER, parameters.get(i));
+    }
+  }
+
+  private void writeJson(@Nullable String target, List<ErrorV1.ErrorParameter> parameters, Utf8JsonOutput out)
+      throws IOException {
+    if (!fits(parameters, getSerializedSize(target, parameters))) {
+      ErrorJsonWriter.writeError(errorBudget.apply(toError(target, parameters)), out);
+      return;
+    }
+
+    out.writeRaw(jsonPrefix);
+    ErrorJsonWriter.writeErrorTail(target, parameters, jsonPrefix.length == 1, out);
+  }
+
+  private boolean fits(List<ErrorV1.ErrorParameter> parameters, int size) {
+    return parameters.size() <= errorBudget.getMaxParameters() && size <= errorBudget.getMaxEncodedBytes();
+  }
+
+  private static CodedOutputStream newOutput(OutputStream outputStream, int size) {
+    return CodedOutputStream.newInstance(outputStream, CodedOutputStream.computePreferredBufferSize(size));
+  }
+
+  private static boolean isEmpty(@Nullable String value) {
+    return value == null || value.isEmpty();
+  }
+}
@@ -0,0 +1,222 @@
+package com.truward.brikar.error;
+
+import com.truward.brikar.error.model.ErrorV1;
+import com.truward.brikar.error.model.ErrorV2;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Converts errors between the first and the second version of the error model, conversion is loss-free
+ * in both directions.
+ * <p>
+ * Second version of the model refers to the error codes by their ordinals in the given registry,
+ * so both peers should use the same registry of error codes.
+ * </p>
+ */
+@ParametersAreNonnullByDefault
+public final class ErrorV2Converter {
+  /**
+   * Content type of the protobuf-encoded second version of the error response, message has no length prefix.
+   */
+  public static final String PROTOBUF_CONTENT_TYPE = "application/vnd.brikar.error.v2+x-protobuf";
+
+  private static final ErrorV2Converter STANDARD = new ErrorV2Converter(RestErrorCodeRegistry.standard());
+
+  private final RestErrorCodeRegistry registry;
+
+  public ErrorV2Converter(RestErrorCodeRegistry registry) {
+    this.registry = Objects.requireNonNull(registry, "registry");
+  }
+
+  /**
+   * @return Converter, that uses registry of {@link StandardRestErrorCodes}
+   */
+  public static ErrorV2Converter standard() {
+    return STANDARD;
+  }
+
+  public ErrorV2.ErrorResponse toV2(ErrorV1.ErrorResponse response) {
+    final ErrorV2.ErrorResponse.Builder builder = ErrorV2.ErrorResponse.newBuilder();
+    if (response.hasError()) {
+      builder.setError(toV2(response.getError()));
+    }
+    return builder.build();
+  }
+
+  public ErrorV2.Error toV2(ErrorV1.Error error) {
+    return toV2(error, null);
+  }
+
+  /**
+   * @param response Second version of the error response
+   * @return First version of the error response
+   * @throws IllegalArgumentException If response refers to the code id, unknown to the registry
+   */
+  public ErrorV1.ErrorResponse toV1(ErrorV2.ErrorResponse response) {
+    final ErrorV1.ErrorResponse.Builder builder = ErrorV1.ErrorResponse.newBuilder();
+    if (response.hasError()) {
+      builder.setError(toV1(response.getError()));
+    }
+    return builder.build();
+  }
+
+  /**
+   * @param error Second version of the error
+   * @return First version of the error
+   * @throws IllegalArgumentException If error refers to the code id, unknown to the registry
+   */
+  public ErrorV1.Error toV1(ErrorV2.Error error) {
+    return toV1(error, "");
+  }
+
+  //
+  // Private
+  //
+
+  private ErrorV2.Error toV2(ErrorV1.Error error, @Nullable String parentSource) {
+    final ErrorV2.Error.Builder builder = ErrorV2.Error.newBuilder()
+        .setMessage(error.getMessage())
+        .setTarget(error.getTarget());
+
+    final int ordinal = registry.getOrdinal(error.getCode());
+    if (ordinal >= 0) {
+      builder.setCodeId(ordinal + 1);
+    } else {
+      builder.setCode(error.getCode());
+    }
+
+    final String source = error.getSource();
+    if (parentSource != null && !source.isEmpty() && source.equals(parentSource)) {
+      builder.setSourceInherited(true);
+    } else {
+      builder.setSource(source);
+    }
+
+    if (error.hasInnerError()) {
+      builder.setInnerError(toV2(error.getInnerError(), source));
+    }
+
+    final List<ErrorV1.ErrorParameter> parameters = error.getParametersList();
+    if (isMappable(parameters)) {
+      for (final ErrorV1.ErrorParameter parameter : parameters) {
+        builder.putParameters(parameter.getKey(), toV2(parameter.getValue()));
+      }
+    } else {
+      builder.addAllListParameters(parameters);
+    }
+
+    return builder.build();
+  }
+
+  private ErrorV1.Error toV1(ErrorV2.Error error, String parentSource) {
+    final ErrorV1.Error.Builder builder = ErrorV1.Error.newBuilder()
+        .setCode(getCodeName(error))
+        .setMessage(error.getMessage())
+        .setSource(error.getSourceInherited() ? parentSource : error.getSource())
+        .setTarget(error.getTarget());
+
+    if (error.hasInnerError()) {
+      builder.setInnerError(toV1(error.getInnerError(), builder.getSource()));
+    }
+
+    for (final Map.Entry<String, ErrorV2.ErrorValue> entry : error.getParametersMap().entrySet()) {
+      builder.addParameters(ErrorV1.ErrorParameter.newBuilder()
+          .setKey(entry.getKey())
+          .setValue(toV1(entry.getValue())));
+    }
+    builder.addAllParameters(error.getListParametersList());
+
+    return builder.build();
+  }
+
+  private String getCodeName(ErrorV2.Error error) {
+    final int codeId = error.getCodeId();
+    if (codeId == 0) {
+      return error.getCode();
+    }
+
+    final int ordinal = codeId - 1;
+    if (ordinal < 0 || ordinal >= registry.size()) {
+      throw new IllegalArgumentException("Unknown codeId=" + Integer.toUnsignedString(codeId));
+    }
+    return registry.get(ordinal).getCodeName();
+  }
+
+  private static ErrorV2.ErrorValue toV2(ErrorV1.ErrorValue value) {
+    final ErrorV2.ErrorValue.Builder builder = ErrorV2.ErrorValue.newBuilder();
+    if (!value.getBytesValue().isEmpty()) {
+      builder.setBytesValue(value.getBytesValue());
+    } else if (!value.getStrValue().isEmpty()) {
+      builder.setStrValue(value.getStrValue());
+    } else if (value.getIntValue() != 0) {
+      builder.setIntValue(value.getIntValue());
+    } else if (value.getLongValue() != 0L) {
+      builder.setLongValue(value.getLongValue());
+    } else if (value.getBoolValue()) {
+      builder.setBoolValue(true);
+    }
+    return builder.build();
+  }
+
+  private static ErrorV1.ErrorValue toV1(ErrorV2.ErrorValue value) {
+    final ErrorV1.ErrorValue.Builder builder = ErrorV1.ErrorValue.newBuilder();
+    switch (value.getValueCase()) {
+      case BYTESVALUE:
+        builder.setBytesValue(value.getBytesValue());
+        break;
+      case STRVALUE:
+        builder.setStrValue(value.getStrValue());
+        break;
+      case INTVALUE:
+        builder.setIntValue(value.getIntValue());
+        break;
+      case LONGVALUE:
+        builder.setLongValue(value.getLongValue());
+        break;
+      case BOOLVALUE:
+        builder.setBoolValue(value.getBoolValue());
+        break;
+      default:
+        // no value
+    }
+    return builder.build();
+  }
+
+  /**
+   * Checks whether parameters can be converted to map without losing information. Iteration order of protobuf
+   * maps is undefined, so only a single parameter, whose value has at most one field set, is mapped; the rest
+   * is kept as a list to preserve parameter order.
+   */
+  private static boolean isMappable(List<ErrorV1.ErrorParameter> parameters) {
+    if (parameters.size() != 1) {
+      return false;
+    }
+
+    final ErrorV1.ErrorParameter parameter = parameters.get(0);
+    return parameter.hasValue() && getValueCount(parameter.getValue()) <= 1;
+  }
+
+  private static int getValueCount(ErrorV1.ErrorValue value) {
+    int count = 0;
+    if (!value.getBytesValue().isEmpty()) {
+      ++count;
+    }
+    if (!value.getStrValue().isEmpty()) {
+      ++count;
+    }
+    if (value.getIntValue() != 0) {
+      ++count;
+    }
+    if (value.getLongValue() != 0L) {
+      ++count;
+    }
+    if (value.getBoolValue()) {
+      ++count;
+    }
+    return count;
+  }
+}
@@ -2,27 +2,119 @@ package com.truward.brikar.error;
 
 import com.truward.brikar.error.model.ErrorV1;
 
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.util.Objects;
 
 /**
  * Represents standard REST exception that translates directly into error model.
+ * <p>
+ * Exceptions that represent expected errors can be created without stack trace, see
+ * {@link #HttpRestErrorException(int, ErrorV1.Error, boolean)}.
+ * </p>
+ * <p>
+ * Exception can also be created from {@link ErrorDescriptor}, in which case error object is built and truncated
+ * to the given budget only when {@link #getError()} is called for the first time, so that exceptions, that are
+ * handled internally and never serialized, do not pay for building protobuf messages.
+ * </p>
  *
  * @author Alexander Shabanov
  */
 public final class HttpRestErrorException extends RuntimeException {
   private final int statusCode;
-  private final ErrorV1.Error error;
+
+  // source of the error until it is built, not serialized as error is built before serialization
+  private final transient ErrorDescriptor descriptor;
+  private final transient ErrorBudget errorBudget;
+
+  private volatile ErrorV1.Error error;
 
   public HttpRestErrorException(int statusCode, ErrorV1.Error error) {
     this.statusCode = statusCode;
     this.error = Objects.requireNonNull(error, "error");
+    this.descriptor = null;
+    this.errorBudget = null;
+  }
+
+  /**
+   * Creates exception with or without stack trace.
+   * Exception without stack trace has suppression disabled and can not be altered once created,
+   * so it is cheap to create and it is safe to share such exception instances.
+   *
+   * @param statusCode HTTP status code
+   * @param error Error object
+   * @param writableStackTrace Whether or not the stack trace should be captured and be writable
+   */
+  public HttpRestErrorException(int statusCode, ErrorV1.Error error, boolean writableStackTrace) {
+    super(null, null, writableStackTrace, writableStackTrace);
+    this.statusCode = statusCode;
+    this.error = Objects.requireNonNull(error, "error");
+    this.descriptor = null;
+    this.errorBudget = null;
+  }
+
+  /**
+   * Creates exception, that builds error object from the given descriptor on demand.
+   *
+   * @param statusCode HTTP status code
+   * @param descriptor Error descriptor
+   * @param errorBudget Limits, that built error is truncated to
+   * @param writableStackTrace Whether or not the stack trace should be captured and be writable
+   */
+  public HttpRestErrorException(
+      int statusCode,
+      ErrorDescriptor descriptor,
+      ErrorBudget errorBudget,
+      boolean writableStackTrace) {
+    super(null, null, writableStackTrace, writableStackTrace);
+    this.statusCode = statusCode;
+    this.descriptor = Objects.requireNonNull(descriptor, "descriptor");
+    this.errorBudget = Objects.requireNonNull(errorBudget, "errorBudget");
   }
 
   public int getStatusCode() {
     return statusCode;
   }
 
+  /**
+   * @return Error object, the same instance is returned on each call
+   */
   public ErrorV1.Error getError() {
-    return error;
+    ErrorV1.Error result = this.error;
+    if (result == null) {
+      synchronized (this) {
+        result = this.error;
+        if (result == null) {
+          result = errorBudget.apply(descriptor.toError());
+          this.error = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return Descriptor, this exception has been created with, or null if it has been created with error object
+   */
+  @Nullable
+  public ErrorDescriptor getDescriptor() {
+    return descriptor;
+  }
+
+  /**
+   * @return Code name of the error, that does not require building error object
+   */
+  public String getErrorCodeName() {
+    return descriptor != null ? descriptor.getErrorCode().getCodeName() : getError().getCode();
+  }
+
+  //
+  // Private
+  //
+
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    getError();
+    out.defaultWriteObject();
   }
 }
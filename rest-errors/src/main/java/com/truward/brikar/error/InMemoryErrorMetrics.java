@@ -0,0 +1,191 @@
+package com.truward.brikar.error;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory {@link ErrorMetrics} implementation.
+ * <p>
+ * Each source gets its own arrays of striped counters, indexed by error code ordinal and by HTTP status,
+ * so recording an event is a plain array access followed by uncontended increment.
+ * </p>
+ */
+@ParametersAreNonnullByDefault
+public final class InMemoryErrorMetrics implements ErrorMetrics {
+  /**
+   * Code name, under which errors with unregistered codes are reported in snapshots.
+   */
+  public static final String UNREGISTERED_CODE = "Unregistered";
+
+  private static final int STATUS_COUNT = RestErrorCodeRegistry.MAX_HTTP_STATUS -
+      RestErrorCodeRegistry.MIN_HTTP_STATUS + 1;
+
+  private final RestErrorCodeRegistry registry;
+  private final ConcurrentMap<String, SourceRecorder> recorders = new ConcurrentHashMap<>();
+
+  public InMemoryErrorMetrics(RestErrorCodeRegistry registry) {
+    this.registry = Objects.requireNonNull(registry, "registry");
+  }
+
+  /**
+   * @param source Error source, e.g. service name
+   * @param registry Registry, that defines ordinals of the recorded error codes, should be the one of these metrics
+   * @return Recorder for the errors, that originate from the given source
+   * @throws IllegalArgumentException If registry differs from the one of these metrics, as snapshots would
+   *                                  report codes under wrong names
+   */
+  @Override
+  public Recorder getRecorder(String source, RestErrorCodeRegistry registry) {
+    if (registry != this.registry) {
+      throw new IllegalArgumentException("Registry of the recorded codes differs from the one of these metrics");
+    }
+    return recorders.computeIfAbsent(source, s -> new SourceRecorder(registry.size()));
+  }
+
+  /**
+   * @return Registry, that is used to label error code ordinals in snapshots
+   */
+  public RestErrorCodeRegistry getRegistry() {
+    return registry;
+  }
+
+  /**
+   * @return Current values of all the counters
+   */
+  public Snapshot snapshot() {
+    return takeSnapshot(false);
+  }
+
+  /**
+   * Returns current values of all the counters and resets them.
+   * Events, recorded concurrently with this call, are either included into the returned snapshot or
+   * kept for the next one.
+   *
+   * @return Counter values accumulated since the previous reset
+   */
+  public Snapshot snapshotAndReset() {
+    return takeSnapshot(true);
+  }
+
+  /**
+   * Immutable snapshot of error counters, only non-zero counters are included.
+   */
+  public static final class Snapshot {
+    private final Map<String, Map<String, Long>> countsByCode;
+    private final Map<String, Map<Integer, Long>> countsByStatus;
+
+    private Snapshot(Map<String, Map<String, Long>> countsByCode, Map<String, Map<Integer, Long>> countsByStatus) {
+      this.countsByCode = Collections.unmodifiableMap(countsByCode);
+      this.countsByStatus = Collections.unmodifiableMap(countsByStatus);
+    }
+
+    /**
+     * @return Map of source to the map of code name to error count
+     */
+    public Map<String, Map<String, Long>> getCountsByCode() {
+      return countsByCode;
+    }
+
+    /**
+     * @return Map of source to the map of HTTP status to error count
+     */
+    public Map<String, Map<Integer, Long>> getCountsByStatus() {
+      return countsByStatus;
+    }
+
+    public long getCount(String source, String codeName) {
+      final Map<String, Long> counts = countsByCode.get(source);
+      final Long count = counts != null ? counts.get(codeName) : null;
+      return count != null ? count : 0L;
+    }
+
+    public long getCount(String source, int httpStatus) {
+      final Map<Integer, Long> counts = countsByStatus.get(source);
+      final Long count = counts != null ? counts.get(httpStatus) : null;
+      return count != null ? count : 0L;
+    }
+
+    @Override
+    public String toString() {
+      return "Snapshot{countsByCode=" + countsByCode + ", countsByStatus=" + countsByStatus + '}';
+    }
+  }
+
+  //
+  // Private
+  //
+
+  private Snapshot takeSnapshot(boolean reset) {
+    final Map<String, Map<String, Long>> countsByCode = new TreeMap<>();
+    final Map<String, Map<Integer, Long>> countsByStatus = new TreeMap<>();
+
+    for (final Map.Entry<String, SourceRecorder> entry : recorders.entrySet()) {
+      final SourceRecorder recorder = entry.getValue();
+
+      final Map<String, Long> codeCounts = new LinkedHashMap<>();
+      for (int i = 0; i < recorder.byCode.length; ++i) {
+        final long count = sum(recorder.byCode[i], reset);
+        if (count != 0) {
+          codeCounts.put(i < registry.size() ? registry.get(i).getCodeName() : UNREGISTERED_CODE, count);
+        }
+      }
+
+      final Map<Integer, Long> statusCounts = new LinkedHashMap<>();
+      for (int i = 0; i < recorder.byStatus.length; ++i) {
+        final long count = sum(recorder.byStatus[i], reset);
+        if (count != 0) {
+          statusCounts.put(i + RestErrorCodeRegistry.MIN_HTTP_STATUS, count);
+        }
+      }
+
+      if (!codeCounts.isEmpty()) {
+        countsByCode.put(entry.getKey(), Collections.unmodifiableMap(codeCounts));
+      }
+      if (!statusCounts.isEmpty()) {
+        countsByStatus.put(entry.getKey(), Collections.unmodifiableMap(statusCounts));
+      }
+    }
+
+    return new Snapshot(countsByCode, countsByStatus);
+  }
+
+  private static long sum(LongAdder adder, boolean reset) {
+    return reset ? adder.sumThenReset() : adder.sum();
+  }
+
+  private static final class SourceRecorder implements Recorder {
+    // last element counts errors with unregistered codes
+    final LongAdder[] byCode;
+    final LongAdder[] byStatus;
+
+    SourceRecorder(int codeCount) {
+      this.byCode = newCounters(codeCount + 1);
+      this.byStatus = newCounters(STATUS_COUNT);
+    }
+
+    @Override
+    public void record(int codeOrdinal, int httpStatus) {
+      byCode[codeOrdinal >= 0 && codeOrdinal < byCode.length - 1 ? codeOrdinal : byCode.length - 1].increment();
+
+      final int statusIndex = httpStatus - RestErrorCodeRegistry.MIN_HTTP_STATUS;
+      if (statusIndex >= 0 && statusIndex < byStatus.length) {
+        byStatus[statusIndex].increment();
+      }
+    }
+
+    private static LongAdder[] newCounters(int count) {
+      final LongAdder[] result = new LongAdder[count];
+      for (int i = 0; i < count; ++i) {
+        result[i] = new LongAdder();
+      }
+      return result;
+    }
+  }
+}
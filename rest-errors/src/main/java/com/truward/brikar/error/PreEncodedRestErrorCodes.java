@@ -0,0 +1,33 @@
+package com.truward.brikar.error;
+
+import com.truward.brikar.error.model.ErrorV1;
+
+import java.util.List;
+
+/**
+ * Error codes along with pre-encoded protobuf and JSON fragments of their {@code code} and {@code message} fields.
+ * <p>
+ * Implemented by the tables, that {@code rest-errors-processor} generates for {@link RestErrorCodeTable} types,
+ * so that fragments, encoded at compile time, can be used by {@link RestErrorCodeRegistry#of(PreEncodedRestErrorCodes)}
+ * and {@link ErrorTemplate} instead of being encoded at runtime.
+ * </p>
+ */
+public interface PreEncodedRestErrorCodes {
+
+  /**
+   * @return Error codes, fragments are indexed by position of the code in this list
+   */
+  List<RestErrorCode> getCodes();
+
+  /**
+   * @param ordinal Position of the error code
+   * @return Protobuf-encoded {@code code} and {@code message} fields of {@link ErrorV1.Error}
+   */
+  byte[] getProtobufFragment(int ordinal);
+
+  /**
+   * @param ordinal Position of the error code
+   * @return UTF-8 encoded JSON {@code "code"} and {@code "message"} members without surrounding braces
+   */
+  byte[] getJsonFragment(int ordinal);
+}
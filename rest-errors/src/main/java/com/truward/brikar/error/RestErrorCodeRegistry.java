@@ -0,0 +1,354 @@
+package com.truward.brikar.error;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Immutable registry of {@link RestErrorCode}s, indexed by HTTP status and by code name.
+ * <p>
+ * Each registered code is assigned an ordinal, which is its position in the registration order.
+ * When several codes share the same HTTP status, the first registered one is used for status lookups.
+ * </p>
+ * <p>
+ * Registry, created from {@link PreEncodedRestErrorCodes} of the generated error code table, keeps the table, so that
+ * {@link ErrorTemplate}s of its codes reuse fragments, that have been encoded at compile time.
+ * </p>
+ */
+@ParametersAreNonnullByDefault
+public final class RestErrorCodeRegistry {
+  public static final int MIN_HTTP_STATUS = 100;
+  public static final int MAX_HTTP_STATUS = 599;
+
+  private static final RestErrorCodeRegistry STANDARD = newBuilder()
+      .addAll(Arrays.asList(StandardRestErrorCodes.values()))
+      .build();
+
+  private final List<RestErrorCode> codes;
+  private final int[] ordinalsByStatus;
+  private final Map<String, Integer> ordinalsByName;
+  private final PreEncodedRestErrorCodes preEncodedCodes;
+
+  // open addressing tables of (ordinal + 1), keyed by hashes of UTF-8 encoded and char representation of code names
+  private final byte[][] utf8Names;
+  private final int[] utf8Table;
+  private final int[] charTable;
+
+  private RestErrorCodeRegistry(List<RestErrorCode> codes, @Nullable PreEncodedRestErrorCodes preEncodedCodes) {
+    this.codes = Collections.unmodifiableList(codes);
+    this.preEncodedCodes = preEncodedCodes;
+    this.ordinalsByStatus = new int[MAX_HTTP_STATUS - MIN_HTTP_STATUS + 1];
+    Arrays.fill(this.ordinalsByStatus, -1);
+    this.ordinalsByName = new HashMap<>(codes.size() * 2);
+
+    for (int i = 0; i < codes.size(); ++i) {
+      final RestErrorCode code = codes.get(i);
+      final int statusIndex = code.getHttpStatus() - MIN_HTTP_STATUS;
+      if (this.ordinalsByStatus[statusIndex] < 0) {
+        this.ordinalsByStatus[statusIndex] = i;
+      }
+      this.ordinalsByName.put(code.getCodeName(), i);
+    }
+
+    int tableSize = 2;
+    while (tableSize < codes.size() * 2) {
+      tableSize <<= 1;
+    }
+    this.utf8Names = new byte[codes.size()][];
+    this.utf8Table = new int[tableSize];
+    this.charTable = new int[tableSize];
+    for (int i = 0; i < codes.size(); ++i) {
+      final String codeName = codes.get(i).getCodeName();
+      final byte[] utf8Name = codeName.getBytes(StandardCharsets.UTF_8);
+      this.utf8Names[i] = utf8Name;
+      insert(this.utf8Table, hash(utf8Name, 0, utf8Name.length), i);
+      insert(this.charTable, mix(codeName.hashCode()), i);
+    }
+  }
+
+  /**
+   * @return Registry, that contains {@link StandardRestErrorCodes} only
+   */
+  public static RestErrorCodeRegistry standard() {
+    return STANDARD;
+  }
+
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  /**
+   * Creates registry of the codes of the generated error code table, ordinals of the registered codes match
+   * ordinals of the table.
+   *
+   * @param preEncodedCodes Error codes along with their pre-encoded fragments
+   * @return Registry, that holds the given codes and their fragments
+   * @throws IllegalArgumentException if codes have duplicate names or HTTP statuses out of range
+   */
+  public static RestErrorCodeRegistry of(PreEncodedRestErrorCodes preEncodedCodes) {
+    final List<RestErrorCode> codes = newBuilder().addAll(preEncodedCodes.getCodes()).codes;
+    if (codes.size() != preEncodedCodes.getCodes().size()) {
+      throw new IllegalArgumentException("Pre-encoded codes should not contain the same code twice");
+    }
+    return new RestErrorCodeRegistry(new ArrayList<>(codes), preEncodedCodes);
+  }
+
+  /**
+   * @param httpStatus HTTP status code
+   * @return First registered error code for the given HTTP status or null
+   */
+  @Nullable
+  public RestErrorCode findByHttpStatus(int httpStatus) {
+    final int ordinal = getOrdinalByHttpStatus(httpStatus);
+    return ordinal >= 0 ? codes.get(ordinal) : null;
+  }
+
+  /**
+   * @param httpStatus HTTP status code
+   * @return Ordinal of the first registered error code for the given HTTP status or -1 if there is no such code
+   */
+  public int getOrdinalByHttpStatus(int httpStatus) {
+    if (httpStatus < MIN_HTTP_STATUS || httpStatus > MAX_HTTP_STATUS) {
+      return -1;
+    }
+    return ordinalsByStatus[httpStatus - MIN_HTTP_STATUS];
+  }
+
+  /**
+   * @param codeName Error code name, e.g. {@code NotFound}
+   * @return Registered error code with the given name or null
+   */
+  @Nullable
+  public RestErrorCode findByCodeName(String codeName) {
+    final int ordinal = getOrdinal(codeName);
+    return ordinal >= 0 ? codes.get(ordinal) : null;
+  }
+
+  /**
+   * Finds error code by its UTF-8 encoded name without allocating a string.
+   *
+   * @param utf8 Buffer, that holds UTF-8 encoded code name
+   * @param offset Offset of the code name in the buffer
+   * @param length Length of the code name in bytes
+   * @return Registered error code with the given name or null
+   */
+  @Nullable
+  public RestErrorCode findByCodeName(byte[] utf8, int offset, int length) {
+    final int mask = utf8Table.length - 1;
+    for (int i = hash(utf8, offset, length) & mask;; i = (i + 1) & mask) {
+      final int entry = utf8Table[i];
+      if (entry == 0) {
+        return null;
+      }
+
+      final byte[] name = utf8Names[entry - 1];
+      if (name.length == length && regionMatches(name, utf8, offset)) {
+        return codes.get(entry - 1);
+      }
+    }
+  }
+
+  /**
+   * Finds error code by its name without allocating a string.
+   *
+   * @param chars Buffer, that holds code name characters
+   * @param offset Offset of the code name in the buffer
+   * @param length Length of the code name
+   * @return Registered error code with the given name or null
+   */
+  @Nullable
+  public RestErrorCode findByCodeName(char[] chars, int offset, int length) {
+    int h = 0;
+    for (int i = 0; i < length; ++i) {
+      h = 31 * h + chars[offset + i];
+    }
+
+    final int mask = charTable.length - 1;
+    for (int i = mix(h) & mask;; i = (i + 1) & mask) {
+      final int entry = charTable[i];
+      if (entry == 0) {
+        return null;
+      }
+
+      final RestErrorCode code = codes.get(entry - 1);
+      final String name = code.getCodeName();
+      if (name.length() == length && regionMatches(name, chars, offset)) {
+        return code;
+      }
+    }
+  }
+
+  /**
+   * @param codeName Error code name
+   * @return Ordinal of the registered error code or -1 if there is no such code
+   */
+  public int getOrdinal(String codeName) {
+    final Integer ordinal = ordinalsByName.get(codeName);
+    return ordinal != null ? ordinal : -1;
+  }
+
+  /**
+   * Resolves ordinal of the error code, that callers already hold, without boxing: code name hash is cached by
+   * the name itself and registered instances are matched by identity before their names are compared.
+   *
+   * @param errorCode Error code
+   * @return Ordinal of the registered error code with the same name or -1 if there is no such code
+   */
+  public int getOrdinal(RestErrorCode errorCode) {
+    final String codeName = errorCode.getCodeName();
+    final int mask = charTable.length - 1;
+    for (int i = mix(codeName.hashCode()) & mask;; i = (i + 1) & mask) {
+      final int entry = charTable[i];
+      if (entry == 0) {
+        return -1;
+      }
+
+      final RestErrorCode code = codes.get(entry - 1);
+      if (code == errorCode || code.getCodeName().equals(codeName)) {
+        return entry - 1;
+      }
+    }
+  }
+
+  /**
+   * @param ordinal Error code ordinal
+   * @return Registered error code
+   * @throws IndexOutOfBoundsException if ordinal is out of range
+   */
+  public RestErrorCode get(int ordinal) {
+    return codes.get(ordinal);
+  }
+
+  /**
+   * @return All registered codes in their registration order
+   */
+  public List<RestErrorCode> getCodes() {
+    return codes;
+  }
+
+  public int size() {
+    return codes.size();
+  }
+
+  /**
+   * @return Pre-encoded fragments of the registered codes, indexed by ordinal, or null if registry has been built
+   *         by {@link Builder}
+   */
+  @Nullable
+  public PreEncodedRestErrorCodes getPreEncodedCodes() {
+    return preEncodedCodes;
+  }
+
+  @Override
+  public String toString() {
+    return "RestErrorCodeRegistry{codes=" + codes + '}';
+  }
+
+  //
+  // Private
+  //
+
+  private static void insert(int[] table, int hash, int ordinal) {
+    final int mask = table.length - 1;
+    int i = hash & mask;
+    while (table[i] != 0) {
+      i = (i + 1) & mask;
+    }
+    table[i] = ordinal + 1;
+  }
+
+  private static int hash(byte[] bytes, int offset, int length) {
+    int h = 0;
+    for (int i = 0; i < length; ++i) {
+      h = 31 * h + bytes[offset + i];
+    }
+    return mix(h);
+  }
+
+  private static int mix(int h) {
+    return h ^ (h >>> 16);
+  }
+
+  private static boolean regionMatches(byte[] name, byte[] bytes, int offset) {
+    for (int i = 0; i < name.length; ++i) {
+      if (name[i] != bytes[offset + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean regionMatches(String name, char[] chars, int offset) {
+    for (int i = 0; i < name.length(); ++i) {
+      if (name.charAt(i) != chars[offset + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Builder for {@link RestErrorCodeRegistry}.
+   */
+  public static final class Builder {
+    private final List<RestErrorCode> codes = new ArrayList<>();
+    private final Map<String, RestErrorCode> codesByName = new HashMap<>();
+
+    private Builder() {}
+
+    /**
+     * Adds error code to the registry being built.
+     * Adding the same code twice has no effect.
+     *
+     * @param code Error code
+     * @return This builder
+     * @throws IllegalArgumentException if HTTP status is out of range or another code with the same name
+     *                                  has been already added
+     */
+    public Builder add(RestErrorCode code) {
+      Objects.requireNonNull(code, "code");
+      final String codeName = Objects.requireNonNull(code.getCodeName(), "codeName");
+      final int httpStatus = code.getHttpStatus();
+      if (httpStatus < MIN_HTTP_STATUS || httpStatus > MAX_HTTP_STATUS) {
+        throw new IllegalArgumentException("HTTP status is out of range in " + code);
+      }
+
+      final RestErrorCode existing = codesByName.get(codeName);
+      if (existing != null) {
+        if (existing == code) {
+          return this;
+        }
+
+        if (existing.getHttpStatus() != httpStatus) {
+          throw new IllegalArgumentException("Conflicting error code=" + code + ", previously registered as " +
+              existing);
+        }
+
+        throw new IllegalArgumentException("Duplicate error code=" + code + ", previously registered as " +
+            existing);
+      }
+
+      codesByName.put(codeName, code);
+      codes.add(code);
+      return this;
+    }
+
+    public Builder addAll(Iterable<? extends RestErrorCode> codes) {
+      for (final RestErrorCode code : codes) {
+        add(code);
+      }
+      return this;
+    }
+
+    public RestErrorCodeRegistry build() {
+      return new RestErrorCodeRegistry(new ArrayList<>(codes), null);
+    }
+  }
+}
@@ -0,0 +1,29 @@
+package com.truward.brikar.error;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks enum or interface, that declares {@link RestErrorCode} constants, for which error code table should be
+ * generated at compile time by {@code rest-errors-processor}.
+ * <p>
+ * Generated table is a final class in the same package, that provides switch-based lookups by code name and
+ * HTTP status along with pre-encoded protobuf and JSON fragments of {@code code} and {@code message} fields of
+ * each error code. Constants should be created by constructor with {@code (httpStatus, codeName, description)}
+ * arguments, e.g. {@link SimpleRestErrorCode}, and all the arguments should be compile-time constants.
+ * Duplicate code names are reported as compilation errors.
+ * </p>
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface RestErrorCodeTable {
+
+  /**
+   * @return Simple name of the generated class, name of the annotated type followed by {@code Table} by default
+   */
+  String value() default "";
+}
@@ -0,0 +1,19 @@
+package com.truward.brikar.error;
+
+import com.truward.brikar.error.model.ErrorV1;
+
+/**
+ * Encoder of error responses into the byte representation of the particular content type.
+ * Implementations should be thread safe and should not block.
+ *
+ * @see RestErrorEncoders
+ */
+public interface RestErrorEncoder {
+
+  /**
+   * @return Content type of the encoded error responses, used for content negotiation and as a response header
+   */
+  String getContentType();
+
+  byte[] encode(ErrorV1.ErrorResponse response);
+}
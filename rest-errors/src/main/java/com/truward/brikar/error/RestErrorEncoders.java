@@ -0,0 +1,109 @@
+package com.truward.brikar.error;
+
+import com.truward.brikar.error.model.ErrorV1;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Objects;
+
+/**
+ * Standard error response encoders, that produce the same representations as message converters of
+ * the Jetty error handler. Used by the web framework integrations, that write pre-encoded error bodies.
+ */
+@ParametersAreNonnullByDefault
+public final class RestErrorEncoders {
+  private RestErrorEncoders() {}
+
+  public static final String JSON_CONTENT_TYPE = "application/json;charset=UTF-8";
+
+  /**
+   * Content type of the first version of protobuf error responses.
+   */
+  public static final String PROTOBUF_CONTENT_TYPE = "application/x-protobuf";
+
+  private static final RestErrorEncoder JSON = new JsonEncoder();
+  private static final RestErrorEncoder PROTOBUF = new ProtobufEncoder();
+  private static final RestErrorEncoder PROTOBUF_V2 = new ProtobufV2Encoder(ErrorV2Converter.standard());
+
+  /**
+   * @return Encoder of JSON error responses
+   */
+  public static RestErrorEncoder json() {
+    return JSON;
+  }
+
+  /**
+   * @return Encoder of length-delimited protobuf error responses
+   */
+  public static RestErrorEncoder protobuf() {
+    return PROTOBUF;
+  }
+
+  /**
+   * @return Encoder of the second version of protobuf error responses, that uses standard error codes registry
+   */
+  public static RestErrorEncoder protobufV2() {
+    return PROTOBUF_V2;
+  }
+
+  public static RestErrorEncoder protobufV2(ErrorV2Converter converter) {
+    return new ProtobufV2Encoder(converter);
+  }
+
+  //
+  // Private
+  //
+
+  private static final class JsonEncoder implements RestErrorEncoder {
+
+    @Override
+    public String getContentType() {
+      return JSON_CONTENT_TYPE;
+    }
+
+    @Override
+    public byte[] encode(ErrorV1.ErrorResponse response) {
+      return ErrorJsonWriter.toByteArray(response);
+    }
+  }
+
+  private static final class ProtobufEncoder implements RestErrorEncoder {
+
+    @Override
+    public String getContentType() {
+      return PROTOBUF_CONTENT_TYPE;
+    }
+
+    @Override
+    public byte[] encode(ErrorV1.ErrorResponse response) {
+      final ByteArrayOutputStream os = new ByteArrayOutputStream(response.getSerializedSize() + 5);
+      try {
+        response.writeDelimitedTo(os);
+      } catch (IOException e) {
+        // should not happen for in-memory stream
+        throw new UncheckedIOException(e);
+      }
+      return os.toByteArray();
+    }
+  }
+
+  private static final class ProtobufV2Encoder implements RestErrorEncoder {
+    private final ErrorV2Converter converter;
+
+    ProtobufV2Encoder(ErrorV2Converter converter) {
+      this.converter = Objects.requireNonNull(converter, "converter");
+    }
+
+    @Override
+    public String getContentType() {
+      return ErrorV2Converter.PROTOBUF_CONTENT_TYPE;
+    }
+
+    @Override
+    public byte[] encode(ErrorV1.ErrorResponse response) {
+      return converter.toV2(response).toByteArray();
+    }
+  }
+}
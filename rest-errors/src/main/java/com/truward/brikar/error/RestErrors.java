@@ -2,6 +2,7 @@ package com.truward.brikar.error;
 
 import com.truward.brikar.error.model.ErrorV1;
 
+import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
 
 /**
@@ -11,6 +12,16 @@ import javax.annotation.ParametersAreNonnullByDefault;
  */
 @ParametersAreNonnullByDefault
 public abstract class RestErrors {
+  /**
+   * Name of the parameter, that holds number of milliseconds, after which the failed request can be retried.
+   */
+  public static final String RETRY_AFTER_PARAMETER = "brikar.retryAfterMillis";
+
+  // shared stackless exceptions for parameterless errors, initialized lazily
+  private volatile HttpRestErrorException sharedUnsupported;
+  private volatile HttpRestErrorException sharedForbidden;
+
+  private volatile ErrorMetrics.Recorder errorMetricsRecorder;
 
   //
   // Static helper methods
@@ -27,78 +38,216 @@ public abstract class RestErrors {
         .build();
   }
 
+  /**
+   * @param retryAfterMillis Number of milliseconds, after which the failed request can be retried
+   * @return Parameter, that tells clients when the failed request can be retried
+   */
+  public static ErrorV1.ErrorParameter retryAfterParameter(long retryAfterMillis) {
+    if (retryAfterMillis < 0) {
+      throw new IllegalArgumentException("retryAfterMillis should not be negative");
+    }
+
+    return ErrorV1.ErrorParameter.newBuilder()
+        .setKey(RETRY_AFTER_PARAMETER)
+        .setValue(ErrorV1.ErrorValue.newBuilder().setLongValue(retryAfterMillis))
+        .build();
+  }
+
+  public static ErrorV1.ErrorBatchItem errorBatchItem(int index, String target, ErrorV1.Error error) {
+    return ErrorV1.ErrorBatchItem.newBuilder()
+        .setIndex(index)
+        .setTarget(target)
+        .setError(error)
+        .build();
+  }
+
   //
   // Common HTTP errors
   //
 
   public HttpRestErrorException badRequest(ErrorV1.Error error) {
-    return new HttpRestErrorException(
+    return newException(
         StandardRestErrorCodes.BAD_REQUEST.getHttpStatus(),
         error);
   }
 
   public HttpRestErrorException unauthorized(ErrorV1.Error error) {
-    return new HttpRestErrorException(
+    return newException(
         StandardRestErrorCodes.UNAUTHORIZED.getHttpStatus(),
         error);
   }
 
   public HttpRestErrorException forbidden(ErrorV1.Error error) {
-    return new HttpRestErrorException(
+    return newException(
         StandardRestErrorCodes.FORBIDDEN.getHttpStatus(),
         error);
   }
 
   public HttpRestErrorException notFound(ErrorV1.Error error) {
-    return new HttpRestErrorException(
+    return newException(
         StandardRestErrorCodes.NOT_FOUND.getHttpStatus(),
         error);
   }
 
   public HttpRestErrorException tooManyRequests(ErrorV1.Error error) {
-    return new HttpRestErrorException(
+    return newException(
         StandardRestErrorCodes.TOO_MANY_REQUESTS.getHttpStatus(),
         error);
   }
 
   public HttpRestErrorException internalServerError(ErrorV1.Error error) {
-    return new HttpRestErrorException(
+    return newException(
         StandardRestErrorCodes.INTERNAL.getHttpStatus(),
         error);
   }
 
   public HttpRestErrorException notImplemented(ErrorV1.Error error) {
-    return new HttpRestErrorException(
+    return newException(
         StandardRestErrorCodes.NOT_IMPLEMENTED.getHttpStatus(),
         error);
   }
 
   public HttpRestErrorException serviceUnavailable(ErrorV1.Error error) {
-    return new HttpRestErrorException(
+    return newException(
         StandardRestErrorCodes.SERVICE_UNAVAILABLE.getHttpStatus(),
         error);
   }
 
+  /**
+   * Creates exception for the given error, HTTP status is taken from the registered error code.
+   *
+   * @param error Error object
+   * @return Exception, that has status of the matching registered code or internal server error status
+   */
+  public HttpRestErrorException restError(ErrorV1.Error error) {
+    final RestErrorCode errorCode = findErrorCode(error);
+    return newException(
+        (errorCode != null ? errorCode : StandardRestErrorCodes.INTERNAL).getHttpStatus(),
+        error);
+  }
+
+  /**
+   * Creates exception with or without stack trace regardless of {@link #isStackTraceEnabled()} setting.
+   *
+   * @param statusCode HTTP status code
+   * @param error Error object
+   * @param writableStackTrace Whether or not the stack trace should be captured
+   * @return New exception
+   */
+  public HttpRestErrorException restError(int statusCode, ErrorV1.Error error, boolean writableStackTrace) {
+    recordError(statusCode, error);
+    return new HttpRestErrorException(statusCode, getErrorBudget().apply(error), writableStackTrace);
+  }
+
   //
   // Frequently used error helpers
   //
 
+  /**
+   * @param argumentName Name of the invalid argument, used as error target
+   * @return Exception with {@link StandardRestErrorCodes#INVALID_ARGUMENT} error, created by
+   *         {@link #restError(ErrorDescriptor)} rather than {@link #badRequest(ErrorV1.Error)}
+   */
   public HttpRestErrorException invalidArgument(String argumentName) {
-    return badRequest(errorBuilder(StandardRestErrorCodes.INVALID_ARGUMENT).setTarget(argumentName).build());
+    return restError(StandardRestErrorCodes.INVALID_ARGUMENT, argumentName);
   }
 
+  /**
+   * @return Exception with {@link StandardRestErrorCodes#NOT_IMPLEMENTED} error, created by
+   *         {@link #restError(ErrorDescriptor)} rather than {@link #notImplemented(ErrorV1.Error)}; exception is
+   *         shared when stack traces are disabled
+   */
   public HttpRestErrorException unsupported() {
-    return notImplemented(errorBuilder(StandardRestErrorCodes.NOT_IMPLEMENTED).build());
+    if (!isStackTraceEnabled()) {
+      HttpRestErrorException e = this.sharedUnsupported;
+      if (e == null) {
+        e = restError(StandardRestErrorCodes.NOT_IMPLEMENTED, null);
+        this.sharedUnsupported = e;
+      } else {
+        recordError(e.getStatusCode(), StandardRestErrorCodes.NOT_IMPLEMENTED, null);
+      }
+      return e;
+    }
+
+    return restError(StandardRestErrorCodes.NOT_IMPLEMENTED, null);
   }
 
+  /**
+   * @return Exception with {@link StandardRestErrorCodes#FORBIDDEN} error, created by
+   *         {@link #restError(ErrorDescriptor)} rather than {@link #forbidden(ErrorV1.Error)}; exception is
+   *         shared when stack traces are disabled
+   */
   public HttpRestErrorException forbidden() {
-    return forbidden(errorBuilder(StandardRestErrorCodes.FORBIDDEN).build());
+    if (!isStackTraceEnabled()) {
+      HttpRestErrorException e = this.sharedForbidden;
+      if (e == null) {
+        e = restError(StandardRestErrorCodes.FORBIDDEN, null);
+        this.sharedForbidden = e;
+      } else {
+        recordError(e.getStatusCode(), StandardRestErrorCodes.FORBIDDEN, null);
+      }
+      return e;
+    }
+
+    return restError(StandardRestErrorCodes.FORBIDDEN, null);
+  }
+
+  /**
+   * @param retryAfterMillis Number of milliseconds, after which the failed request can be retried
+   * @return Exception for rate-limited request, that tells clients when to retry it
+   */
+  public HttpRestErrorException tooManyRequests(long retryAfterMillis) {
+    return restError(StandardRestErrorCodes.TOO_MANY_REQUESTS, null, retryAfterParameter(retryAfterMillis));
+  }
+
+  /**
+   * @param retryAfterMillis Number of milliseconds, after which the failed request can be retried
+   * @return Exception for request rejected due to overload, that tells clients when to retry it
+   */
+  public HttpRestErrorException serviceUnavailable(long retryAfterMillis) {
+    return restError(StandardRestErrorCodes.SERVICE_UNAVAILABLE, null, retryAfterParameter(retryAfterMillis));
   }
 
+  /**
+   * @param message Error message
+   * @return Exception with {@link StandardRestErrorCodes#INTERNAL} error, created by
+   *         {@link #restError(ErrorDescriptor)} rather than {@link #internalServerError(ErrorV1.Error)}
+   */
   public HttpRestErrorException internalServerError(String message) {
-    return internalServerError(errorBuilder(StandardRestErrorCodes.INTERNAL)
-            .setMessage(message)
-            .build());
+    return restError(new ErrorDescriptor(StandardRestErrorCodes.INTERNAL, getSource(), message, null));
+  }
+
+  /**
+   * Creates exception, that builds error object only when it is requested for the first time.
+   * HTTP status is taken from the given error code.
+   *
+   * @param errorCode Error code
+   * @param target Error target or null
+   * @param parameters Error parameters
+   * @return New exception
+   */
+  public HttpRestErrorException restError(
+      RestErrorCode errorCode,
+      @Nullable String target,
+      ErrorV1.ErrorParameter... parameters) {
+    return restError(new ErrorDescriptor(errorCode, getSource(), null, target, parameters));
+  }
+
+  /**
+   * Creates exception, that builds error object from the given descriptor only when it is requested for the first
+   * time. HTTP status is taken from the error code of the descriptor.
+   * <p>
+   * All the helpers, that create exceptions from error codes, go through this method, so subclasses, that need to
+   * customize such exceptions, should override it.
+   * </p>
+   *
+   * @param descriptor Error descriptor
+   * @return New exception
+   */
+  public HttpRestErrorException restError(ErrorDescriptor descriptor) {
+    final int statusCode = descriptor.getErrorCode().getHttpStatus();
+    recordError(statusCode, descriptor.getErrorCode(), descriptor.getTarget());
+    return new HttpRestErrorException(statusCode, descriptor, getErrorBudget(), isStackTraceEnabled());
   }
 
   //
@@ -112,9 +261,123 @@ public abstract class RestErrors {
         .setMessage(errorCode.getDescription());
   }
 
+  /**
+   * @param errorCode Error code
+   * @return New template of errors with the given code and source of this class, that truncates errors to
+   *         {@link #getErrorBudget()} and starts with pre-encoded fragments, when registry has been created from
+   *         the generated error code table; template is meant to be created once and reused
+   */
+  public ErrorTemplate errorTemplate(RestErrorCode errorCode) {
+    final RestErrorCodeRegistry registry = getRestErrorCodeRegistry();
+    final PreEncodedRestErrorCodes preEncodedCodes = registry.getPreEncodedCodes();
+    if (preEncodedCodes != null) {
+      final int ordinal = registry.getOrdinal(errorCode);
+      // fragments are valid only for the very same code, since other code might have different description
+      if (ordinal >= 0 && registry.get(ordinal) == errorCode) {
+        return new ErrorTemplate(preEncodedCodes, ordinal, getSource(), getErrorBudget());
+      }
+    }
+    return new ErrorTemplate(errorCode, getSource(), getErrorBudget());
+  }
+
+  /**
+   * @return New accumulator of batch item errors, that truncates errors to {@link #getErrorBudget()}
+   */
+  public ErrorBatch newErrorBatch() {
+    return new ErrorBatch(getErrorBudget());
+  }
+
+  /**
+   * @param error Error object
+   * @return Registered error code, matching code name in the given error or null
+   */
+  @Nullable
+  public RestErrorCode findErrorCode(ErrorV1.Error error) {
+    return getRestErrorCodeRegistry().findByCodeName(error.getCode());
+  }
+
   //
   // Protected
   //
 
   protected abstract String getSource();
+
+  /**
+   * Defines whether exceptions, created by this class, should capture stack traces.
+   * When disabled, exceptions for parameterless errors, such as {@link #forbidden()}, are shared, so
+   * {@link #getSource()} should return the same value on each call.
+   *
+   * @return True, if created exceptions should have stack traces, true by default
+   */
+  protected boolean isStackTraceEnabled() {
+    return true;
+  }
+
+  /**
+   * @return Metrics, that receive an event for each exception created by this class, no-op by default
+   */
+  protected ErrorMetrics getErrorMetrics() {
+    return ErrorMetrics.NOOP;
+  }
+
+  /**
+   * @return Tracker of the most frequent errors, that receives an event for each exception created by this class,
+   *         or null if errors should not be tracked, null by default
+   */
+  @Nullable
+  protected ErrorFingerprintTracker getErrorFingerprintTracker() {
+    return null;
+  }
+
+  /**
+   * @return Limits, that errors passed to exceptions created by this class are truncated to,
+   *         {@link ErrorBudget#DEFAULT} by default
+   */
+  protected ErrorBudget getErrorBudget() {
+    return ErrorBudget.DEFAULT;
+  }
+
+  /**
+   * @return Registry of known error codes, standard error codes by default
+   */
+  protected RestErrorCodeRegistry getRestErrorCodeRegistry() {
+    return RestErrorCodeRegistry.standard();
+  }
+
+  //
+  // Private
+  //
+
+  private HttpRestErrorException newException(int statusCode, ErrorV1.Error error) {
+    recordError(statusCode, error);
+    final ErrorV1.Error budgetedError = getErrorBudget().apply(error);
+    if (isStackTraceEnabled()) {
+      return new HttpRestErrorException(statusCode, budgetedError);
+    }
+    return new HttpRestErrorException(statusCode, budgetedError, false);
+  }
+
+  private void recordError(int statusCode, ErrorV1.Error error) {
+    recordError(statusCode, getRestErrorCodeRegistry().getOrdinal(error.getCode()), error.getCode(),
+        error.getTarget());
+  }
+
+  private void recordError(int statusCode, RestErrorCode errorCode, @Nullable String target) {
+    recordError(statusCode, getRestErrorCodeRegistry().getOrdinal(errorCode), errorCode.getCodeName(), target);
+  }
+
+  private void recordError(int statusCode, int codeOrdinal, String codeName, @Nullable String target) {
+    ErrorMetrics.Recorder recorder = this.errorMetricsRecorder;
+    if (recorder == null) {
+      recorder = getErrorMetrics().getRecorder(getSource(), getRestErrorCodeRegistry());
+      this.errorMetricsRecorder = recorder;
+    }
+
+    recorder.record(codeOrdinal, statusCode);
+
+    final ErrorFingerprintTracker fingerprintTracker = getErrorFingerprintTracker();
+    if (fingerprintTracker != null) {
+      fingerprintTracker.record(codeName, getSource(), target);
+    }
+  }
 }
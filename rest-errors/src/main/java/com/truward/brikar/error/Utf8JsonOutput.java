@@ -0,0 +1,159 @@
+package com.truward.brikar.error;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Buffered writer of UTF-8 encoded JSON tokens.
+ * Escaping rules match the ones used by Jackson generator with default settings.
+ */
+@ParametersAreNonnullByDefault
+final class Utf8JsonOutput {
+  private static final int BUFFER_SIZE = 2048;
+
+  private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+  // escape table for ASCII characters: 0 - no escaping, -1 - unicode escape, otherwise escaped character
+  private static final int[] ESCAPES = new int[128];
+
+  static {
+    for (int i = 0; i < 0x20; ++i) {
+      ESCAPES[i] = -1;
+    }
+    ESCAPES['"'] = '"';
+    ESCAPES['\\'] = '\\';
+    ESCAPES['\b'] = 'b';
+    ESCAPES['\t'] = 't';
+    ESCAPES['\n'] = 'n';
+    ESCAPES['\f'] = 'f';
+    ESCAPES['\r'] = 'r';
+  }
+
+  private final OutputStream outputStream;
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+  private int pos;
+
+  Utf8JsonOutput(OutputStream outputStream) {
+    this.outputStream = outputStream;
+  }
+
+  /**
+   * @param token Field name token or other constant JSON fragment
+   * @return UTF-8 encoded token
+   */
+  static byte[] token(String token) {
+    return token.getBytes(StandardCharsets.UTF_8);
+  }
+
+  void writeRaw(byte[] bytes) throws IOException {
+    if (bytes.length > buffer.length - pos) {
+      flushBuffer();
+      if (bytes.length > buffer.length) {
+        outputStream.write(bytes);
+        return;
+      }
+    }
+
+    System.arraycopy(bytes, 0, buffer, pos, bytes.length);
+    pos += bytes.length;
+  }
+
+  void writeRaw(byte b) throws IOException {
+    if (pos == buffer.length) {
+      flushBuffer();
+    }
+    buffer[pos++] = b;
+  }
+
+  void writeString(String value) throws IOException {
+    writeRaw((byte) '"');
+
+    final int length = value.length();
+    for (int i = 0; i < length; ++i) {
+      // ensure space for the longest sequence: unicode escape of a single character takes 6 bytes
+      if (buffer.length - pos < 6) {
+        flushBuffer();
+      }
+
+      final char c = value.charAt(i);
+      if (c < 0x80) {
+        final int escape = ESCAPES[c];
+        if (escape == 0) {
+          buffer[pos++] = (byte) c;
+        } else if (escape > 0) {
+          buffer[pos++] = '\\';
+          buffer[pos++] = (byte) escape;
+        } else {
+          buffer[pos++] = '\\';
+          buffer[pos++] = 'u';
+          buffer[pos++] = '0';
+          buffer[pos++] = '0';
+          buffer[pos++] = HEX[c >> 4];
+          buffer[pos++] = HEX[c & 0xF];
+        }
+      } else if (c < 0x800) {
+        buffer[pos++] = (byte) (0xC0 | (c >> 6));
+        buffer[pos++] = (byte) (0x80 | (c & 0x3F));
+      } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+        final int codePoint = Character.toCodePoint(c, value.charAt(++i));
+        buffer[pos++] = (byte) (0xF0 | (codePoint >> 18));
+        buffer[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+        buffer[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+        buffer[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+      } else if (Character.isSurrogate(c)) {
+        // unpaired surrogate can not be encoded in UTF-8
+        buffer[pos++] = '?';
+      } else {
+        buffer[pos++] = (byte) (0xE0 | (c >> 12));
+        buffer[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+        buffer[pos++] = (byte) (0x80 | (c & 0x3F));
+      }
+    }
+
+    writeRaw((byte) '"');
+  }
+
+  void writeNumber(long value) throws IOException {
+    writeAscii(Long.toString(value));
+  }
+
+  void writeBoolean(boolean value) throws IOException {
+    writeAscii(value ? "true" : "false");
+  }
+
+  void writeBase64(byte[] value) throws IOException {
+    writeRaw((byte) '"');
+    writeRaw(Base64.getEncoder().encode(value));
+    writeRaw((byte) '"');
+  }
+
+  /**
+   * Writes buffered bytes to the underlying stream, underlying stream itself is not flushed.
+   */
+  void flush() throws IOException {
+    flushBuffer();
+  }
+
+  //
+  // Private
+  //
+
+  private void writeAscii(String value) throws IOException {
+    if (value.length() > buffer.length - pos) {
+      flushBuffer();
+    }
+    for (int i = 0; i < value.length(); ++i) {
+      buffer[pos++] = (byte) value.charAt(i);
+    }
+  }
+
+  private void flushBuffer() throws IOException {
+    if (pos > 0) {
+      outputStream.write(buffer, 0, pos);
+      pos = 0;
+    }
+  }
+}
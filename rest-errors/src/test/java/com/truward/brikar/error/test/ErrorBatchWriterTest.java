@@ -0,0 +1,86 @@
+package com.truward.brikar.error.test;
+
+import com.truward.brikar.error.ErrorBatch;
+import com.truward.brikar.error.ErrorBatchWriter;
+import com.truward.brikar.error.ErrorBudget;
+import com.truward.brikar.error.RestErrors;
+import com.truward.brikar.error.StandardRestErrorCodes;
+import com.truward.brikar.error.model.ErrorV1;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link ErrorBatchWriter} and {@link ErrorBatch}.
+ */
+public final class ErrorBatchWriterTest {
+  private final RestErrors restErrors = new RestErrorsTest.TestRestErrors();
+
+  @Test
+  public void shouldWriteDelimitedItemsIncrementally() throws IOException {
+    // Given:
+    final ByteArrayOutputStream os = new ByteArrayOutputStream();
+    final ErrorBatchWriter writer = ErrorBatchWriter.delimited(os);
+    final ErrorV1.Error error = restErrors.errorBuilder(StandardRestErrorCodes.NOT_FOUND).build();
+
+    // When:
+    writer.write(0, error);
+    final int firstSize = os.size();
+    writer.write(RestErrors.errorBatchItem(5, "item5", error));
+
+    // Then:
+    assertTrue(firstSize > 0);
+    assertEquals(2, writer.getCount());
+    final ByteArrayInputStream is = new ByteArrayInputStream(os.toByteArray());
+    assertEquals(RestErrors.errorBatchItem(0, "", error), ErrorV1.ErrorBatchItem.parseDelimitedFrom(is));
+    assertEquals(RestErrors.errorBatchItem(5, "item5", error), ErrorV1.ErrorBatchItem.parseDelimitedFrom(is));
+    assertNull(ErrorV1.ErrorBatchItem.parseDelimitedFrom(is));
+  }
+
+  @Test
+  public void shouldWriteNdjsonItemsIncrementally() throws IOException {
+    // Given:
+    final ByteArrayOutputStream os = new ByteArrayOutputStream();
+    final ErrorBatchWriter writer = ErrorBatchWriter.ndjson(os);
+    final ErrorV1.Error error = ErrorV1.Error.newBuilder().setCode("Custom").setMessage("Line\nbreak").build();
+
+    // When:
+    writer.write(0, error);
+    final String first = new String(os.toByteArray(), StandardCharsets.UTF_8);
+    writer.write(RestErrors.errorBatchItem(7, "item7", error));
+
+    // Then:
+    assertEquals(ErrorBatchWriter.NDJSON_CONTENT_TYPE, writer.getContentType());
+    assertEquals("{\"error\":{\"code\":\"Custom\",\"message\":\"Line\\nbreak\"}}\n", first);
+    assertEquals(first + "{\"index\":7,\"target\":\"item7\",\"error\":{\"code\":\"Custom\"," +
+        "\"message\":\"Line\\nbreak\"}}\n", new String(os.toByteArray(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void shouldAccumulateBudgetedItems() {
+    // Given:
+    final ErrorBatch batch = new ErrorBatch(new ErrorBudget(1, ErrorBudget.MIN_ENCODED_BYTES, 1));
+    final ErrorV1.Error error = ErrorV1.Error.newBuilder()
+        .setCode("Outer")
+        .setInnerError(ErrorV1.Error.newBuilder().setCode("Inner"))
+        .build();
+
+    // When:
+    batch.add(3, "item3", error);
+    batch.add(4, restErrors.errorBuilder(StandardRestErrorCodes.INVALID_ARGUMENT).build());
+
+    // Then:
+    assertEquals(2, batch.size());
+    final ErrorV1.ErrorBatchResponse response = batch.toErrorBatchResponse();
+    assertEquals(3, response.getItems(0).getIndex());
+    assertEquals("item3", response.getItems(0).getTarget());
+    assertFalse(response.getItems(0).getError().hasInnerError());
+    assertEquals(StandardRestErrorCodes.INVALID_ARGUMENT.getCodeName(), response.getItems(1).getError().getCode());
+    assertTrue(restErrors.newErrorBatch().isEmpty());
+  }
+}
@@ -0,0 +1,158 @@
+package com.truward.brikar.error.test;
+
+import com.truward.brikar.error.ErrorBudget;
+import com.truward.brikar.error.HttpRestErrorException;
+import com.truward.brikar.error.RestErrors;
+import com.truward.brikar.error.model.ErrorV1;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link ErrorBudget}.
+ */
+public final class ErrorBudgetTest {
+  private final ErrorBudget budget = new ErrorBudget(3, 1024, 2);
+
+  @Test
+  public void shouldKeepErrorWithinBudget() {
+    // Given:
+    final ErrorV1.Error error = chain(3, 2, "message");
+
+    // When:
+    final ErrorV1.Error result = budget.apply(error);
+
+    // Then:
+    assertSame(error, result);
+  }
+
+  @Test
+  public void shouldTruncateDepth() {
+    // Given:
+    final ErrorV1.Error error = chain(5, 0, "message");
+
+    // When:
+    final ErrorV1.Error result = budget.apply(error);
+
+    // Then:
+    final ErrorV1.Error last = result.getInnerError().getInnerError();
+    assertFalse(last.hasInnerError());
+    assertEquals("Level3", last.getCode());
+    assertEquals(ErrorBudget.DEPTH_REASON, getTruncationReason(last));
+    assertNull(getTruncationReason(result));
+  }
+
+  @Test
+  public void shouldTruncateParameters() {
+    // Given:
+    final ErrorV1.Error error = chain(2, 5, "message");
+
+    // When:
+    final ErrorV1.Error result = budget.apply(error);
+
+    // Then:
+    assertEquals(3, result.getParametersCount());
+    assertEquals("p0", result.getParameters(0).getKey());
+    assertEquals("p1", result.getParameters(1).getKey());
+    assertEquals(ErrorBudget.PARAMETERS_REASON, getTruncationReason(result));
+    assertEquals(ErrorBudget.PARAMETERS_REASON, getTruncationReason(result.getInnerError()));
+  }
+
+  @Test
+  public void shouldTruncateSize() {
+    // Given:
+    final StringBuilder message = new StringBuilder();
+    for (int i = 0; i < 200; ++i) {
+      message.append("Long message 😀 ");
+    }
+
+    for (int depth = 1; depth <= 5; ++depth) {
+      final ErrorV1.Error error = chain(depth, 3, message.toString());
+
+      // When:
+      final ErrorV1.Error result = budget.apply(error);
+
+      // Then:
+      assertTrue(result.getSerializedSize() <= budget.getMaxEncodedBytes());
+      assertEquals("Level1", result.getCode());
+      assertNotNull(getTruncationReason(result));
+      assertEquals(result, budget.apply(error));
+    }
+  }
+
+  @Test
+  public void shouldKeepMarkerBounded() {
+    // Given:
+    final ErrorV1.Error error = ErrorV1.Error.newBuilder()
+        .addParameters(RestErrors.stringParameter(ErrorBudget.TRUNCATED_PARAMETER, "size,unknown,size"))
+        .addParameters(RestErrors.stringParameter("a", "1"))
+        .addParameters(RestErrors.stringParameter("b", "2"))
+        .addParameters(RestErrors.stringParameter("c", "3"))
+        .build();
+
+    // When:
+    final ErrorV1.Error result = budget.apply(budget.apply(error));
+
+    // Then:
+    assertEquals(3, result.getParametersCount());
+    assertEquals(ErrorBudget.SIZE_REASON + ',' + ErrorBudget.PARAMETERS_REASON, getTruncationReason(result));
+  }
+
+  @Test
+  public void shouldApplyBudgetInRestErrors() {
+    // Given:
+    final RestErrors restErrors = new RestErrors() {
+      @Override
+      protected String getSource() {
+        return "BudgetTest";
+      }
+
+      @Override
+      protected ErrorBudget getErrorBudget() {
+        return budget;
+      }
+    };
+
+    // When:
+    final HttpRestErrorException e = restErrors.internalServerError(chain(10, 0, "message"));
+
+    // Then:
+    assertEquals(ErrorBudget.DEPTH_REASON, getTruncationReason(e.getError().getInnerError().getInnerError()));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectTooSmallSizeLimit() {
+    new ErrorBudget(1, ErrorBudget.MIN_ENCODED_BYTES - 1, 1);
+  }
+
+  //
+  // Private
+  //
+
+  private static ErrorV1.Error chain(int depth, int parameterCount, String message) {
+    ErrorV1.Error error = null;
+    for (int i = depth; i > 0; --i) {
+      final ErrorV1.Error.Builder builder = ErrorV1.Error.newBuilder()
+          .setCode("Level" + i)
+          .setSource("Source")
+          .setMessage(message);
+      for (int j = 0; j < parameterCount; ++j) {
+        builder.addParameters(RestErrors.stringParameter("p" + j, "value" + j));
+      }
+      if (error != null) {
+        builder.setInnerError(error);
+      }
+      error = builder.build();
+    }
+    return error;
+  }
+
+  private static String getTruncationReason(ErrorV1.Error error) {
+    for (final ErrorV1.ErrorParameter parameter : error.getParametersList()) {
+      if (ErrorBudget.TRUNCATED_PARAMETER.equals(parameter.getKey())) {
+        return parameter.getValue().getStrValue();
+      }
+    }
+    return null;
+  }
+}
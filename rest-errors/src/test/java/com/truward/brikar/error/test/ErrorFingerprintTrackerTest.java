@@ -0,0 +1,221 @@
+package com.truward.brikar.error.test;
+
+import com.truward.brikar.error.ErrorFingerprintTracker;
+import com.truward.brikar.error.RestErrors;
+import com.truward.brikar.error.StandardRestErrorCodes;
+import org.junit.Test;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link ErrorFingerprintTracker}.
+ */
+public final class ErrorFingerprintTrackerTest {
+  private static final String CODE = StandardRestErrorCodes.INVALID_ARGUMENT.getCodeName();
+  private static final String SOURCE = "Source";
+
+  private final AtomicLong clock = new AtomicLong(1_000_000L);
+  private final ErrorFingerprintTracker tracker = new ErrorFingerprintTracker(256, 4, 4, 60_000L, 6, clock::get);
+
+  @Test
+  public void shouldFindHeavyHittersAmongUniqueTargets() {
+    // Given:
+    for (int i = 0; i < 20_000; ++i) {
+      tracker.record(CODE, SOURCE, "/items/" + i);
+      if (i % 100 == 0) {
+        tracker.record(CODE, SOURCE, "id");
+      }
+      if (i % 50 == 0) {
+        tracker.record(StandardRestErrorCodes.NOT_FOUND.getCodeName(), SOURCE, "/orders");
+      }
+    }
+
+    // When:
+    final List<ErrorFingerprintTracker.HeavyHitter> hitters = tracker.snapshot();
+
+    // Then:
+    assertEquals(4, hitters.size());
+    assertHitter(hitters.get(0), StandardRestErrorCodes.NOT_FOUND.getCodeName(), "/orders", 400);
+    assertHitter(hitters.get(1), CODE, "id", 200);
+    assertTrue(tracker.estimate(CODE, SOURCE, "/items/1") >= 1);
+  }
+
+  @Test
+  public void shouldExpireEventsOutsideWindow() {
+    // Given:
+    for (int i = 0; i < 10; ++i) {
+      tracker.record(CODE, SOURCE, "old");
+    }
+    clock.addAndGet(30_000L);
+    for (int i = 0; i < 5; ++i) {
+      tracker.record(CODE, SOURCE, "new");
+    }
+
+    // When:
+    final List<ErrorFingerprintTracker.HeavyHitter> beforeExpiration = tracker.snapshot();
+    clock.addAndGet(40_000L);
+    final List<ErrorFingerprintTracker.HeavyHitter> afterExpiration = tracker.snapshot();
+    clock.addAndGet(60_000L);
+    final List<ErrorFingerprintTracker.HeavyHitter> afterWindow = tracker.snapshot();
+
+    // Then:
+    assertEquals(2, beforeExpiration.size());
+    assertHitter(beforeExpiration.get(0), CODE, "old", 10);
+    assertHitter(beforeExpiration.get(1), CODE, "new", 5);
+    assertEquals(1, afterExpiration.size());
+    assertHitter(afterExpiration.get(0), CODE, "new", 5);
+    assertEquals(0, tracker.estimate(CODE, SOURCE, "old"));
+    assertTrue(afterWindow.isEmpty());
+  }
+
+  @Test
+  public void shouldReplaceExpiredHeavyHitters() {
+    // Given:
+    for (int i = 0; i < 4; ++i) {
+      for (int j = 0; j < 100; ++j) {
+        tracker.record(CODE, SOURCE, "old" + i);
+      }
+    }
+    clock.addAndGet(70_000L);
+
+    // When:
+    tracker.record(CODE, SOURCE, "new");
+
+    // Then:
+    final List<ErrorFingerprintTracker.HeavyHitter> hitters = tracker.snapshot();
+    assertEquals(1, hitters.size());
+    assertHitter(hitters.get(0), CODE, "new", 1);
+  }
+
+  @Test
+  public void shouldCountConcurrentEvents() throws Exception {
+    // Given:
+    final int threadCount = 4;
+    final int eventCount = 10_000;
+    final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+
+    // When:
+    try {
+      final List<Future<?>> results = new ArrayList<>();
+      for (int i = 0; i < threadCount; ++i) {
+        results.add(executor.submit(() -> {
+          for (int j = 0; j < eventCount; ++j) {
+            tracker.record(CODE, SOURCE, "target");
+          }
+        }));
+      }
+      for (final Future<?> result : results) {
+        result.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    // Then:
+    assertEquals(threadCount * eventCount, tracker.estimate(CODE, SOURCE, "target"));
+    assertHitter(tracker.snapshot().get(0), CODE, "target", threadCount * eventCount);
+  }
+
+  @Test
+  public void shouldCountHotFingerprintInFullHeapFromSeveralThreads() throws Exception {
+    // Given:
+    final int threadCount = 4;
+    final int eventCount = 20_000;
+    for (int i = 0; i < 4; ++i) {
+      tracker.record(CODE, SOURCE, "cold" + i);
+    }
+    tracker.record(CODE, SOURCE, "hot");
+    final ExecutorService executor = Executors.newFixedThreadPool(threadCount + 1);
+
+    // When:
+    final List<Long> hotCounts = new ArrayList<>();
+    try {
+      final List<Future<?>> results = new ArrayList<>();
+      for (int i = 0; i < threadCount; ++i) {
+        results.add(executor.submit(() -> {
+          for (int j = 0; j < eventCount; ++j) {
+            tracker.record(CODE, SOURCE, "hot");
+          }
+        }));
+      }
+      final Future<?> snapshots = executor.submit(() -> {
+        for (int i = 0; i < 100; ++i) {
+          hotCounts.add(tracker.snapshot().get(0).getCount());
+        }
+      });
+      for (final Future<?> result : results) {
+        result.get(30, TimeUnit.SECONDS);
+      }
+      snapshots.get(30, TimeUnit.SECONDS);
+    } finally {
+      executor.shutdownNow();
+    }
+
+    // Then:
+    final List<ErrorFingerprintTracker.HeavyHitter> hitters = tracker.snapshot();
+    assertEquals(4, hitters.size());
+    assertHitter(hitters.get(0), CODE, "hot", threadCount * eventCount + 1);
+    for (int i = 1; i < hotCounts.size(); ++i) {
+      assertTrue("counts of the hot fingerprint should not decrease", hotCounts.get(i) >= hotCounts.get(i - 1));
+    }
+  }
+
+  @Test
+  public void shouldTreatNullAndEmptyTargetsAsSame() {
+    assertEquals(ErrorFingerprintTracker.fingerprint(CODE, SOURCE, null),
+        ErrorFingerprintTracker.fingerprint(CODE, SOURCE, ""));
+    assertNotEquals(ErrorFingerprintTracker.fingerprint("ab", "c", null),
+        ErrorFingerprintTracker.fingerprint("a", "bc", null));
+  }
+
+  @Test
+  public void shouldTrackErrorsCreatedByRestErrors() {
+    // Given:
+    final RestErrors restErrors = new RestErrors() {
+      @Override
+      protected String getSource() {
+        return SOURCE;
+      }
+
+      @Nullable
+      @Override
+      protected ErrorFingerprintTracker getErrorFingerprintTracker() {
+        return tracker;
+      }
+    };
+
+    // When:
+    for (int i = 0; i < 3; ++i) {
+      restErrors.invalidArgument("id");
+    }
+    restErrors.forbidden();
+
+    // Then:
+    final List<ErrorFingerprintTracker.HeavyHitter> hitters = tracker.snapshot();
+    assertEquals(2, hitters.size());
+    assertHitter(hitters.get(0), CODE, "id", 3);
+    assertHitter(hitters.get(1), StandardRestErrorCodes.FORBIDDEN.getCodeName(), "", 1);
+  }
+
+  //
+  // Private
+  //
+
+  private static void assertHitter(ErrorFingerprintTracker.HeavyHitter hitter, String code, String target,
+                                   long minCount) {
+    assertEquals(code, hitter.getCode());
+    assertEquals(SOURCE, hitter.getSource());
+    assertEquals(target, hitter.getTarget());
+    // count-min sketch overestimates counts of colliding fingerprints
+    assertTrue(hitter.toString(), hitter.getCount() >= minCount && hitter.getCount() < minCount + 200);
+  }
+}
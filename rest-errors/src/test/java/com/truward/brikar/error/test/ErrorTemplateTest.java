@@ -0,0 +1,155 @@
+package com.truward.brikar.error.test;
+
+import com.google.protobuf.ByteString;
+import com.truward.brikar.error.ErrorBudget;
+import com.truward.brikar.error.ErrorJsonWriter;
+import com.truward.brikar.error.ErrorTemplate;
+import com.truward.brikar.error.RestErrors;
+import com.truward.brikar.error.SimpleRestErrorCode;
+import com.truward.brikar.error.StandardRestErrorCodes;
+import com.truward.brikar.error.model.ErrorV1;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link ErrorTemplate}.
+ */
+public final class ErrorTemplateTest {
+  private static final List<ErrorV1.ErrorParameter> PARAMETERS = Arrays.asList(
+      RestErrors.stringParameter("min", "1"),
+      ErrorV1.ErrorParameter.newBuilder()
+          .setKey("bytes")
+          .setValue(ErrorV1.ErrorValue.newBuilder().setBytesValue(ByteString.copyFromUtf8("\u0001\"")).setIntValue(-1))
+          .build(),
+      RestErrors.stringParameter("note", "Line \"one\"\nЛиния 😀"));
+
+  @Test
+  public void shouldEncodeSameBytesAsRegularEncoders() throws IOException {
+    final ErrorTemplate[] templates = {
+        new ErrorTemplate(StandardRestErrorCodes.INVALID_ARGUMENT, "OrderService"),
+        new ErrorTemplate(new SimpleRestErrorCode(409, "Конфликт", "Version \"2\" conflict"), ""),
+        new ErrorTemplate(new SimpleRestErrorCode(500, "", ""), "")
+    };
+
+    for (final ErrorTemplate template : templates) {
+      for (final String target : new String[] {null, "", "items[0].id"}) {
+        for (int count = 0; count <= PARAMETERS.size(); ++count) {
+          // Given:
+          final List<ErrorV1.ErrorParameter> parameters = PARAMETERS.subList(0, count);
+          final ErrorV1.Error error = template.toError(target, parameters);
+          final String description = template + " target=" + target + " parameters=" + count;
+
+          // When:
+          final ByteArrayOutputStream protobuf = new ByteArrayOutputStream();
+          template.writeTo(target, parameters, protobuf);
+          final ByteArrayOutputStream response = new ByteArrayOutputStream();
+          template.writeErrorResponseTo(target, parameters, response);
+          final ByteArrayOutputStream delimited = new ByteArrayOutputStream();
+          template.writeDelimitedErrorResponseTo(target, parameters, delimited);
+          final ByteArrayOutputStream json = new ByteArrayOutputStream();
+          template.writeJsonTo(target, parameters, json);
+          final ByteArrayOutputStream jsonResponse = new ByteArrayOutputStream();
+          template.writeJsonErrorResponseTo(target, parameters, jsonResponse);
+
+          // Then:
+          assertEquals(description, template.getErrorCode().getCodeName(), error.getCode());
+          assertEquals(description, target != null ? target : "", error.getTarget());
+          assertEquals(description, parameters, error.getParametersList());
+          assertEquals(description, error.getSerializedSize(), template.getSerializedSize(target, parameters));
+          assertArrayEquals(description, error.toByteArray(), protobuf.toByteArray());
+          assertArrayEquals(description, RestErrors.errorResponse(error).toByteArray(), response.toByteArray());
+          assertArrayEquals(description, toDelimited(RestErrors.errorResponse(error)), delimited.toByteArray());
+          assertArrayEquals(description, toJson(error), json.toByteArray());
+          assertArrayEquals(description, ErrorJsonWriter.toByteArray(RestErrors.errorResponse(error)),
+              jsonResponse.toByteArray());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void shouldReturnPrototypeForErrorWithoutDynamicFields() {
+    // Given:
+    final ErrorTemplate template = new ErrorTemplate(StandardRestErrorCodes.NOT_FOUND, "Source");
+
+    // When:
+    final ErrorV1.Error error = template.toError(null);
+
+    // Then:
+    assertSame(error, template.toError(""));
+    assertEquals(ErrorV1.Error.newBuilder()
+        .setCode(StandardRestErrorCodes.NOT_FOUND.getCodeName())
+        .setMessage(StandardRestErrorCodes.NOT_FOUND.getDescription())
+        .setSource("Source")
+        .build(), error);
+  }
+
+  @Test
+  public void shouldTruncateErrorsExceedingBudget() throws IOException {
+    // Given:
+    final ErrorBudget budget = new ErrorBudget(4, ErrorBudget.MIN_ENCODED_BYTES, 2);
+    final ErrorTemplate template = new ErrorTemplate(StandardRestErrorCodes.INVALID_ARGUMENT, "Source", budget);
+    final List<ErrorV1.ErrorParameter> parameters = new ArrayList<>();
+    for (int i = 0; i < 10; ++i) {
+      parameters.add(RestErrors.stringParameter("p" + i, "value" + i));
+    }
+    final ErrorV1.Error expected = budget.apply(template.toError("target", parameters));
+
+    // When:
+    final ByteArrayOutputStream protobuf = new ByteArrayOutputStream();
+    template.writeTo("target", parameters, protobuf);
+    final ByteArrayOutputStream delimited = new ByteArrayOutputStream();
+    template.writeDelimitedErrorResponseTo("target", parameters, delimited);
+    final ByteArrayOutputStream json = new ByteArrayOutputStream();
+    template.writeJsonTo("target", parameters, json);
+
+    // Then:
+    assertEquals(3, expected.getParametersCount());
+    assertArrayEquals(expected.toByteArray(), protobuf.toByteArray());
+    assertArrayEquals(toDelimited(RestErrors.errorResponse(expected)), delimited.toByteArray());
+    assertArrayEquals(toJson(expected), json.toByteArray());
+  }
+
+  @Test
+  public void shouldUseSourceOfRestErrors() {
+    // Given:
+    final RestErrors restErrors = new RestErrors() {
+      @Override
+      protected String getSource() {
+        return "TestSource";
+      }
+    };
+
+    // When:
+    final ErrorTemplate template = restErrors.errorTemplate(StandardRestErrorCodes.FORBIDDEN);
+
+    // Then:
+    assertEquals("TestSource", template.getSource());
+    assertEquals(restErrors.errorBuilder(StandardRestErrorCodes.FORBIDDEN).setTarget("t").build(),
+        template.toError("t", Collections.<ErrorV1.ErrorParameter>emptyList()));
+  }
+
+  //
+  // Private
+  //
+
+  private static byte[] toDelimited(ErrorV1.ErrorResponse response) throws IOException {
+    final ByteArrayOutputStream os = new ByteArrayOutputStream();
+    response.writeDelimitedTo(os);
+    return os.toByteArray();
+  }
+
+  private static byte[] toJson(ErrorV1.Error error) throws IOException {
+    final ByteArrayOutputStream os = new ByteArrayOutputStream();
+    ErrorJsonWriter.writeError(error, os);
+    return os.toByteArray();
+  }
+}
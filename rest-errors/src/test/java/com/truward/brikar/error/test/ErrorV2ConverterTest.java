@@ -0,0 +1,143 @@
+package com.truward.brikar.error.test;
+
+import com.google.protobuf.ByteString;
+import com.truward.brikar.error.ErrorV2Converter;
+import com.truward.brikar.error.RestErrorCodeRegistry;
+import com.truward.brikar.error.RestErrors;
+import com.truward.brikar.error.StandardRestErrorCodes;
+import com.truward.brikar.error.model.ErrorV1;
+import com.truward.brikar.error.model.ErrorV2;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link ErrorV2Converter}.
+ */
+public final class ErrorV2ConverterTest {
+  private final ErrorV2Converter converter = ErrorV2Converter.standard();
+
+  @Test
+  public void shouldConvertWithoutLoss() {
+    for (final ErrorV1.Error error : getSampleErrors()) {
+      // Given:
+      final ErrorV1.ErrorResponse response = RestErrors.errorResponse(error);
+
+      // When:
+      final ErrorV2.ErrorResponse v2 = converter.toV2(response);
+
+      // Then:
+      assertEquals(response, converter.toV1(v2));
+    }
+  }
+
+  @Test
+  public void shouldUseCompactRepresentation() {
+    // Given:
+    final ErrorV1.Error error = ErrorV1.Error.newBuilder()
+        .setCode(StandardRestErrorCodes.NOT_FOUND.getCodeName())
+        .setSource("Service")
+        .setInnerError(ErrorV1.Error.newBuilder().setCode("Custom").setSource("Service"))
+        .addParameters(RestErrors.stringParameter("id", "1"))
+        .build();
+
+    // When:
+    final ErrorV2.Error v2 = converter.toV2(error);
+
+    // Then:
+    assertEquals("", v2.getCode());
+    assertEquals(RestErrorCodeRegistry.standard().getOrdinal(error.getCode()) + 1, v2.getCodeId());
+    assertEquals("Custom", v2.getInnerError().getCode());
+    assertEquals(0, v2.getInnerError().getCodeId());
+    assertTrue(v2.getInnerError().getSourceInherited());
+    assertEquals("", v2.getInnerError().getSource());
+    assertEquals("1", v2.getParametersMap().get("id").getStrValue());
+    assertEquals(0, v2.getListParametersCount());
+    assertTrue(v2.getSerializedSize() < error.getSerializedSize());
+  }
+
+  @Test
+  public void shouldKeepParametersListIfNotMappable() {
+    // Given:
+    final ErrorV1.Error error = ErrorV1.Error.newBuilder()
+        .addParameters(RestErrors.stringParameter("a", "1"))
+        .addParameters(RestErrors.stringParameter("a", "2"))
+        .build();
+
+    // When:
+    final ErrorV2.Error v2 = converter.toV2(error);
+
+    // Then:
+    assertEquals(0, v2.getParametersCount());
+    assertEquals(error.getParametersList(), v2.getListParametersList());
+  }
+
+  @Test
+  public void shouldKeepOrderOfSeveralParameters() {
+    // Given:
+    final ErrorV1.Error error = ErrorV1.Error.newBuilder()
+        .addParameters(RestErrors.stringParameter("z", "1"))
+        .addParameters(RestErrors.stringParameter("a", "2"))
+        .addParameters(RestErrors.stringParameter("m", "3"))
+        .build();
+
+    // When:
+    final ErrorV2.Error v2 = converter.toV2(error);
+
+    // Then:
+    assertEquals(0, v2.getParametersCount());
+    assertEquals(error, converter.toV1(v2));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectUnknownCodeId() {
+    converter.toV1(ErrorV2.Error.newBuilder().setCodeId(RestErrorCodeRegistry.standard().size() + 1).build());
+  }
+
+  //
+  // Private
+  //
+
+  private static List<ErrorV1.Error> getSampleErrors() {
+    return Arrays.asList(
+        ErrorV1.Error.getDefaultInstance(),
+        ErrorV1.Error.newBuilder().setCode("Custom").setMessage("Message").setTarget("target").build(),
+        ErrorV1.Error.newBuilder()
+            .setCode(StandardRestErrorCodes.INTERNAL.getCodeName())
+            .setSource("A")
+            .setInnerError(ErrorV1.Error.newBuilder().setSource("A")
+                .setInnerError(ErrorV1.Error.newBuilder().setSource("B")
+                    .setInnerError(ErrorV1.Error.newBuilder().setSource("A")
+                        .setInnerError(ErrorV1.Error.getDefaultInstance()))))
+            .build(),
+        ErrorV1.Error.newBuilder()
+            .addParameters(parameter("bytes", ErrorV1.ErrorValue.newBuilder()
+                .setBytesValue(ByteString.copyFrom(new byte[] {1, 2}))))
+            .addParameters(parameter("str", ErrorV1.ErrorValue.newBuilder().setStrValue("value")))
+            .addParameters(parameter("int", ErrorV1.ErrorValue.newBuilder().setIntValue(-1)))
+            .addParameters(parameter("long", ErrorV1.ErrorValue.newBuilder().setLongValue(Long.MIN_VALUE)))
+            .addParameters(parameter("bool", ErrorV1.ErrorValue.newBuilder().setBoolValue(true)))
+            .addParameters(parameter("empty", ErrorV1.ErrorValue.newBuilder()))
+            .build(),
+        ErrorV1.Error.newBuilder()
+            .addParameters(parameter("bytes", ErrorV1.ErrorValue.newBuilder()
+                .setBytesValue(ByteString.copyFrom(new byte[] {1, 2}))))
+            .build(),
+        ErrorV1.Error.newBuilder()
+            .addParameters(parameter("long", ErrorV1.ErrorValue.newBuilder().setLongValue(Long.MIN_VALUE)))
+            .build(),
+        ErrorV1.Error.newBuilder()
+            .addParameters(parameter("multi", ErrorV1.ErrorValue.newBuilder().setIntValue(1).setStrValue("1")))
+            .build(),
+        ErrorV1.Error.newBuilder()
+            .addParameters(ErrorV1.ErrorParameter.newBuilder().setKey("noValue"))
+            .build());
+  }
+
+  private static ErrorV1.ErrorParameter parameter(String key, ErrorV1.ErrorValue.Builder value) {
+    return ErrorV1.ErrorParameter.newBuilder().setKey(key).setValue(value).build();
+  }
+}
@@ -0,0 +1,119 @@
+package com.truward.brikar.error.test;
+
+import com.truward.brikar.error.ErrorBudget;
+import com.truward.brikar.error.ErrorDescriptor;
+import com.truward.brikar.error.HttpRestErrorException;
+import com.truward.brikar.error.RestErrors;
+import com.truward.brikar.error.StandardRestErrorCodes;
+import com.truward.brikar.error.model.ErrorV1;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link HttpRestErrorException}.
+ */
+public final class HttpRestErrorExceptionTest {
+  private static final ErrorDescriptor DESCRIPTOR = new ErrorDescriptor(StandardRestErrorCodes.INVALID_ARGUMENT,
+      "Source", null, "id", RestErrors.stringParameter("min", "1"));
+
+  @Test
+  public void shouldBuildErrorFromDescriptor() {
+    // Given:
+    final HttpRestErrorException e = new HttpRestErrorException(400, DESCRIPTOR, ErrorBudget.DEFAULT, false);
+
+    // When:
+    final ErrorV1.Error error = e.getError();
+
+    // Then:
+    assertSame(DESCRIPTOR, e.getDescriptor());
+    assertSame(error, e.getError());
+    assertEquals(StandardRestErrorCodes.INVALID_ARGUMENT.getCodeName(), e.getErrorCodeName());
+    assertEquals(ErrorV1.Error.newBuilder()
+        .setCode(StandardRestErrorCodes.INVALID_ARGUMENT.getCodeName())
+        .setMessage(StandardRestErrorCodes.INVALID_ARGUMENT.getDescription())
+        .setSource("Source")
+        .setTarget("id")
+        .addParameters(RestErrors.stringParameter("min", "1"))
+        .build(), error);
+  }
+
+  @Test
+  public void shouldTruncateBuiltError() {
+    // Given:
+    final ErrorBudget budget = new ErrorBudget(1, ErrorBudget.MIN_ENCODED_BYTES, 0);
+    final HttpRestErrorException e = new HttpRestErrorException(400, DESCRIPTOR, budget, true);
+
+    // When:
+    final ErrorV1.Error error = e.getError();
+
+    // Then:
+    assertEquals(budget.apply(DESCRIPTOR.toError()), error);
+    assertEquals(ErrorBudget.TRUNCATED_PARAMETER, error.getParameters(0).getKey());
+  }
+
+  @Test
+  public void shouldBuildErrorOnceWhenAccessedConcurrently() throws Exception {
+    final int threadCount = 8;
+    final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    try {
+      for (int attempt = 0; attempt < 100; ++attempt) {
+        // Given:
+        final HttpRestErrorException e = new HttpRestErrorException(400, DESCRIPTOR, ErrorBudget.DEFAULT, false);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<ErrorV1.Error>> results = new ArrayList<>();
+
+        // When:
+        for (int i = 0; i < threadCount; ++i) {
+          results.add(executor.submit(() -> {
+            start.await();
+            return e.getError();
+          }));
+        }
+        start.countDown();
+
+        // Then:
+        final ErrorV1.Error error = results.get(0).get(10, TimeUnit.SECONDS);
+        for (final Future<ErrorV1.Error> result : results) {
+          assertSame(error, result.get(10, TimeUnit.SECONDS));
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void shouldSerializeBuiltError() throws Exception {
+    // Given:
+    final HttpRestErrorException e = new HttpRestErrorException(400, DESCRIPTOR, ErrorBudget.DEFAULT, false);
+
+    // When:
+    final ByteArrayOutputStream os = new ByteArrayOutputStream();
+    try (final ObjectOutputStream out = new ObjectOutputStream(os)) {
+      out.writeObject(e);
+    }
+    final HttpRestErrorException result;
+    try (final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(os.toByteArray()))) {
+      result = (HttpRestErrorException) in.readObject();
+    }
+
+    // Then:
+    assertEquals(400, result.getStatusCode());
+    assertNull(result.getDescriptor());
+    assertEquals(e.getError(), result.getError());
+    assertEquals(StandardRestErrorCodes.INVALID_ARGUMENT.getCodeName(), result.getErrorCodeName());
+  }
+}
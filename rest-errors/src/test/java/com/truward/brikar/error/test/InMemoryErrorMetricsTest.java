@@ -0,0 +1,162 @@
+package com.truward.brikar.error.test;
+
+import com.truward.brikar.error.ErrorMetrics;
+import com.truward.brikar.error.InMemoryErrorMetrics;
+import com.truward.brikar.error.RestErrorCode;
+import com.truward.brikar.error.RestErrorCodeRegistry;
+import com.truward.brikar.error.RestErrors;
+import com.truward.brikar.error.SimpleRestErrorCode;
+import com.truward.brikar.error.StandardRestErrorCodes;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link InMemoryErrorMetrics}.
+ */
+public final class InMemoryErrorMetricsTest {
+  private static final String SOURCE = "MetricsTest";
+
+  private final RestErrorCodeRegistry registry = RestErrorCodeRegistry.standard();
+  private final InMemoryErrorMetrics metrics = new InMemoryErrorMetrics(registry);
+
+  @Test
+  public void shouldCountErrors() {
+    // Given:
+    final ErrorMetrics.Recorder recorder = metrics.getRecorder(SOURCE, registry);
+
+    // When:
+    recorder.record(registry.getOrdinal(StandardRestErrorCodes.NOT_FOUND.getCodeName()), 404);
+    recorder.record(registry.getOrdinal(StandardRestErrorCodes.NOT_FOUND.getCodeName()), 404);
+    recorder.record(-1, 409);
+    recorder.record(-1, 1000);
+
+    // Then:
+    final InMemoryErrorMetrics.Snapshot snapshot = metrics.snapshot();
+    assertEquals(2L, snapshot.getCount(SOURCE, StandardRestErrorCodes.NOT_FOUND.getCodeName()));
+    assertEquals(2L, snapshot.getCount(SOURCE, InMemoryErrorMetrics.UNREGISTERED_CODE));
+    assertEquals(2L, snapshot.getCount(SOURCE, 404));
+    assertEquals(1L, snapshot.getCount(SOURCE, 409));
+    assertEquals(0L, snapshot.getCount(SOURCE, 500));
+    assertEquals(0L, snapshot.getCount("OtherSource", 404));
+  }
+
+  @Test
+  public void shouldResetCounters() {
+    // Given:
+    metrics.getRecorder(SOURCE, registry).record(registry.getOrdinalByHttpStatus(503), 503);
+
+    // When:
+    final InMemoryErrorMetrics.Snapshot first = metrics.snapshotAndReset();
+    final InMemoryErrorMetrics.Snapshot second = metrics.snapshot();
+
+    // Then:
+    assertEquals(1L, first.getCount(SOURCE, StandardRestErrorCodes.SERVICE_UNAVAILABLE.getCodeName()));
+    assertTrue(second.getCountsByCode().isEmpty());
+    assertTrue(second.getCountsByStatus().isEmpty());
+  }
+
+  @Test
+  public void shouldCountConcurrentErrors() throws InterruptedException {
+    // Given:
+    final int threadCount = 4;
+    final int eventsPerThread = 10000;
+    final List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < threadCount; ++i) {
+      threads.add(new Thread(() -> {
+        final ErrorMetrics.Recorder recorder = metrics.getRecorder(SOURCE, registry);
+        for (int j = 0; j < eventsPerThread; ++j) {
+          recorder.record(0, 400);
+        }
+      }));
+    }
+
+    // When:
+    for (final Thread thread : threads) {
+      thread.start();
+    }
+    for (final Thread thread : threads) {
+      thread.join();
+    }
+
+    // Then:
+    assertEquals(threadCount * eventsPerThread, metrics.snapshot().getCount(SOURCE, 400));
+  }
+
+  @Test
+  public void shouldReceiveEventsFromRestErrors() {
+    // Given:
+    final RestErrors restErrors = new RestErrors() {
+      @Override
+      protected String getSource() {
+        return SOURCE;
+      }
+
+      @Override
+      protected ErrorMetrics getErrorMetrics() {
+        return metrics;
+      }
+    };
+
+    // When:
+    restErrors.invalidArgument("a");
+    restErrors.forbidden();
+    restErrors.internalServerError("message");
+
+    // Then:
+    final InMemoryErrorMetrics.Snapshot snapshot = metrics.snapshot();
+    assertEquals(1L, snapshot.getCount(SOURCE, StandardRestErrorCodes.INVALID_ARGUMENT.getCodeName()));
+    assertEquals(1L, snapshot.getCount(SOURCE, StandardRestErrorCodes.FORBIDDEN.getCodeName()));
+    assertEquals(1L, snapshot.getCount(SOURCE, StandardRestErrorCodes.INTERNAL.getCodeName()));
+    assertEquals(1L, snapshot.getCount(SOURCE, 400));
+  }
+
+  @Test
+  public void shouldLabelCodesOfCustomRegistry() {
+    // Given:
+    final RestErrorCode conflict = new SimpleRestErrorCode(409, "Conflict", "Conflict");
+    final RestErrorCodeRegistry customRegistry = RestErrorCodeRegistry.newBuilder()
+        .add(conflict)
+        .addAll(Arrays.asList(StandardRestErrorCodes.values()))
+        .build();
+    final InMemoryErrorMetrics customMetrics = new InMemoryErrorMetrics(customRegistry);
+    final RestErrors restErrors = new RestErrors() {
+      @Override
+      protected String getSource() {
+        return SOURCE;
+      }
+
+      @Override
+      protected ErrorMetrics getErrorMetrics() {
+        return customMetrics;
+      }
+
+      @Override
+      protected RestErrorCodeRegistry getRestErrorCodeRegistry() {
+        return customRegistry;
+      }
+    };
+
+    // When:
+    restErrors.restError(conflict, null);
+    restErrors.invalidArgument("a");
+
+    // Then:
+    final InMemoryErrorMetrics.Snapshot snapshot = customMetrics.snapshot();
+    assertSame(customRegistry, customMetrics.getRegistry());
+    assertEquals(1L, snapshot.getCount(SOURCE, "Conflict"));
+    assertEquals(1L, snapshot.getCount(SOURCE, StandardRestErrorCodes.INVALID_ARGUMENT.getCodeName()));
+    assertEquals(0L, snapshot.getCount(SOURCE, InMemoryErrorMetrics.UNREGISTERED_CODE));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectRecorderForOtherRegistry() {
+    metrics.getRecorder(SOURCE, RestErrorCodeRegistry.newBuilder()
+        .add(new SimpleRestErrorCode(409, "Conflict", "Conflict"))
+        .build());
+  }
+}
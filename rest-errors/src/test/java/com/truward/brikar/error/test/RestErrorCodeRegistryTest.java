@@ -0,0 +1,134 @@
+package com.truward.brikar.error.test;
+
+import com.truward.brikar.error.PreEncodedRestErrorCodes;
+import com.truward.brikar.error.RestErrorCode;
+import com.truward.brikar.error.RestErrorCodeRegistry;
+import com.truward.brikar.error.SimpleRestErrorCode;
+import com.truward.brikar.error.StandardRestErrorCodes;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link RestErrorCodeRegistry}.
+ */
+public final class RestErrorCodeRegistryTest {
+
+  @Test
+  public void shouldFindStandardCodes() {
+    final RestErrorCodeRegistry registry = RestErrorCodeRegistry.standard();
+
+    for (final StandardRestErrorCodes code : StandardRestErrorCodes.values()) {
+      assertSame(code, registry.findByCodeName(code.getCodeName()));
+      assertSame(code, registry.get(registry.getOrdinal(code.getCodeName())));
+      assertEquals(registry.getOrdinal(code.getCodeName()), registry.getOrdinal(code));
+    }
+
+    assertEquals(StandardRestErrorCodes.values().length, registry.size());
+    assertSame(StandardRestErrorCodes.NOT_FOUND, registry.findByHttpStatus(404));
+    assertNull(registry.findByCodeName("UnknownCode"));
+    assertEquals(-1, registry.getOrdinal("UnknownCode"));
+  }
+
+  @Test
+  public void shouldFindCodesBySlices() {
+    final RestErrorCodeRegistry registry = RestErrorCodeRegistry.standard();
+
+    for (final StandardRestErrorCodes code : StandardRestErrorCodes.values()) {
+      final byte[] utf8 = ("__" + code.getCodeName() + "__").getBytes(StandardCharsets.UTF_8);
+      final char[] chars = ("__" + code.getCodeName() + "__").toCharArray();
+      assertSame(code, registry.findByCodeName(utf8, 2, utf8.length - 4));
+      assertSame(code, registry.findByCodeName(chars, 2, chars.length - 4));
+    }
+
+    final byte[] unknown = "Unknown".getBytes(StandardCharsets.UTF_8);
+    assertNull(registry.findByCodeName(unknown, 0, unknown.length));
+    assertNull(registry.findByCodeName("Unknown".toCharArray(), 0, unknown.length));
+    assertNull(registry.findByCodeName(new byte[0], 0, 0));
+  }
+
+  @Test
+  public void shouldPreferFirstRegisteredCodeForStatus() {
+    final RestErrorCodeRegistry registry = RestErrorCodeRegistry.standard();
+
+    assertSame(StandardRestErrorCodes.BAD_REQUEST, registry.findByHttpStatus(400));
+  }
+
+  @Test
+  public void shouldReturnNullForUnknownStatus() {
+    final RestErrorCodeRegistry registry = RestErrorCodeRegistry.standard();
+
+    assertNull(registry.findByHttpStatus(405));
+    assertNull(registry.findByHttpStatus(-1));
+    assertNull(registry.findByHttpStatus(99));
+    assertNull(registry.findByHttpStatus(600));
+  }
+
+  @Test
+  public void shouldIgnoreSameCodeAddedTwice() {
+    final RestErrorCodeRegistry registry = RestErrorCodeRegistry.newBuilder()
+        .add(StandardRestErrorCodes.FORBIDDEN)
+        .add(StandardRestErrorCodes.FORBIDDEN)
+        .build();
+
+    assertEquals(1, registry.size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectDuplicateCodeNames() {
+    RestErrorCodeRegistry.newBuilder()
+        .add(StandardRestErrorCodes.FORBIDDEN)
+        .add(new SimpleRestErrorCode(403, StandardRestErrorCodes.FORBIDDEN.getCodeName(), "Other description"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectConflictingCodes() {
+    RestErrorCodeRegistry.newBuilder()
+        .add(StandardRestErrorCodes.FORBIDDEN)
+        .add(new SimpleRestErrorCode(401, StandardRestErrorCodes.FORBIDDEN.getCodeName(), "Description"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectPreEncodedCodesWithSameCodeTwice() {
+    RestErrorCodeRegistry.of(new PreEncodedRestErrorCodes() {
+      @Override
+      public List<RestErrorCode> getCodes() {
+        return Arrays.asList(StandardRestErrorCodes.FORBIDDEN, StandardRestErrorCodes.FORBIDDEN);
+      }
+
+      @Override
+      public byte[] getProtobufFragment(int ordinal) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public byte[] getJsonFragment(int ordinal) {
+        throw new UnsupportedOperationException();
+      }
+    });
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectOutOfRangeStatus() {
+    RestErrorCodeRegistry.newBuilder().add(new SimpleRestErrorCode(600, "Unknown", "Description"));
+  }
+
+  @Test
+  public void shouldKeepRegistrationOrder() {
+    final RestErrorCode custom = new SimpleRestErrorCode(409, "Conflict", "Conflict");
+    final RestErrorCodeRegistry registry = RestErrorCodeRegistry.newBuilder()
+        .add(custom)
+        .addAll(Arrays.asList(StandardRestErrorCodes.values()))
+        .build();
+
+    assertEquals(0, registry.getOrdinal("Conflict"));
+    assertEquals(0, registry.getOrdinal(new SimpleRestErrorCode(409, "Conflict", "Same name")));
+    assertEquals(-1, RestErrorCodeRegistry.standard().getOrdinal(custom));
+    assertSame(custom, registry.findByHttpStatus(409));
+    assertEquals(StandardRestErrorCodes.values().length + 1, registry.getCodes().size());
+  }
+}
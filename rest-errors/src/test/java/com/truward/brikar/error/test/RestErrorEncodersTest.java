@@ -0,0 +1,51 @@
+package com.truward.brikar.error.test;
+
+import com.truward.brikar.error.ErrorJsonWriter;
+import com.truward.brikar.error.ErrorV2Converter;
+import com.truward.brikar.error.RestErrorEncoders;
+import com.truward.brikar.error.RestErrors;
+import com.truward.brikar.error.StandardRestErrorCodes;
+import com.truward.brikar.error.model.ErrorV1;
+import com.truward.brikar.error.model.ErrorV2;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link RestErrorEncoders}.
+ */
+public final class RestErrorEncodersTest {
+  private static final ErrorV1.ErrorResponse RESPONSE = RestErrors.errorResponse(ErrorV1.Error.newBuilder()
+      .setSource("Source")
+      .setCode(StandardRestErrorCodes.NOT_FOUND.getCodeName())
+      .setMessage("Message")
+      .build());
+
+  @Test
+  public void shouldEncodeDelimitedProtobuf() throws IOException {
+    final byte[] body = RestErrorEncoders.protobuf().encode(RESPONSE);
+
+    assertEquals(RestErrorEncoders.PROTOBUF_CONTENT_TYPE, RestErrorEncoders.protobuf().getContentType());
+    assertEquals(RESPONSE, ErrorV1.ErrorResponse.parseDelimitedFrom(new ByteArrayInputStream(body)));
+  }
+
+  @Test
+  public void shouldEncodeCompactProtobuf() throws IOException {
+    final byte[] body = RestErrorEncoders.protobufV2().encode(RESPONSE);
+
+    assertEquals(ErrorV2Converter.PROTOBUF_CONTENT_TYPE, RestErrorEncoders.protobufV2().getContentType());
+    assertEquals(RESPONSE, ErrorV2Converter.standard().toV1(ErrorV2.ErrorResponse.parseFrom(body)));
+  }
+
+  @Test
+  public void shouldEncodeJson() {
+    final byte[] body = RestErrorEncoders.json().encode(RESPONSE);
+
+    assertEquals(RestErrorEncoders.JSON_CONTENT_TYPE, RestErrorEncoders.json().getContentType());
+    assertTrue(Arrays.equals(ErrorJsonWriter.toByteArray(RESPONSE), body));
+  }
+}
@@ -153,6 +153,72 @@ public final class RestErrorsTest {
     assertEquals(TestRestErrors.SOURCE, err.getSource());
   }
 
+  @Test
+  public void shouldCaptureStackTraceByDefault() {
+    assertTrue(restErrors.invalidArgument("arg").getStackTrace().length > 0);
+    assertNotSame(restErrors.forbidden(), restErrors.forbidden());
+  }
+
+  @Test
+  public void shouldCreateStacklessExceptions() {
+    // Given:
+    final TestRestErrors stacklessErrors = new StacklessTestRestErrors();
+
+    // When:
+    final HttpRestErrorException e = stacklessErrors.invalidArgument("arg");
+    e.setStackTrace(new Throwable().getStackTrace());
+    e.addSuppressed(new RuntimeException());
+
+    // Then:
+    assertEquals(0, e.getStackTrace().length);
+    assertEquals(0, e.getSuppressed().length);
+    assertEquals(StandardRestErrorCodes.INVALID_ARGUMENT.getCodeName(), e.getError().getCode());
+  }
+
+  @Test
+  public void shouldShareStacklessParameterlessExceptions() {
+    // Given:
+    final TestRestErrors stacklessErrors = new StacklessTestRestErrors();
+
+    // When:
+    final HttpRestErrorException forbidden = stacklessErrors.forbidden();
+    final HttpRestErrorException unsupported = stacklessErrors.unsupported();
+
+    // Then:
+    assertSame(forbidden, stacklessErrors.forbidden());
+    assertSame(unsupported, stacklessErrors.unsupported());
+    verifyException(forbidden,
+        StandardRestErrorCodes.FORBIDDEN.getDescription(), StandardRestErrorCodes.FORBIDDEN);
+    verifyException(unsupported,
+        StandardRestErrorCodes.NOT_IMPLEMENTED.getDescription(), StandardRestErrorCodes.NOT_IMPLEMENTED);
+  }
+
+  @Test
+  public void shouldCreateStacklessExceptionPerCall() {
+    final HttpRestErrorException e = restErrors.restError(400, SAMPLE_ERROR, false);
+
+    assertEquals(0, e.getStackTrace().length);
+    assertEquals(SAMPLE_ERROR, e.getError());
+  }
+
+  @Test
+  public void shouldDeferBuildingErrors() {
+    // When:
+    final HttpRestErrorException e = restErrors.restError(INVALID_FORM_PARAMETERS, "form",
+        RestErrors.stringParameter("username", "test"));
+
+    // Then:
+    assertNotNull(e.getDescriptor());
+    assertEquals(400, e.getStatusCode());
+    assertEquals(INVALID_FORM_PARAMETERS.getCodeName(), e.getErrorCodeName());
+    assertNotNull(restErrors.invalidArgument("arg").getDescriptor());
+    assertNotNull(restErrors.internalServerError("message").getDescriptor());
+    final ErrorV1.Error err = verifyException(e, INVALID_FORM_PARAMETERS.getDescription(), INVALID_FORM_PARAMETERS,
+        Collections.singletonMap("username", "test"));
+    assertEquals("form", err.getTarget());
+    assertEquals(TestRestErrors.SOURCE, err.getSource());
+  }
+
   //
   // Private
   //
@@ -204,7 +270,7 @@ public final class RestErrorsTest {
       "One or more form parameters are invalid"
   );
 
-  static final class TestRestErrors extends RestErrors {
+  static class TestRestErrors extends RestErrors {
     static final String SOURCE = "test-rest-errors";
 
     @Override
@@ -231,4 +297,11 @@ public final class RestErrorsTest {
           .build());
     }
   }
+
+  static final class StacklessTestRestErrors extends TestRestErrors {
+    @Override
+    protected boolean isStackTraceEnabled() {
+      return false;
+    }
+  }
 }
@@ -0,0 +1,198 @@
+package com.truward.brikar.error.mvc;
+
+import com.truward.brikar.error.ErrorBudget;
+import com.truward.brikar.error.HttpRestErrorException;
+import com.truward.brikar.error.RestErrorEncoder;
+import com.truward.brikar.error.model.ErrorV1;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.handler.AbstractHandlerExceptionResolver;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Abstract class for REST-friendly exception resolver for Spring MVC applications.
+ * <p>
+ * {@link HttpRestErrorException}s are encoded in memory and written straight to the response, bypassing
+ * message converters and view resolution. When negotiation fails, status of the exception is sent as
+ * a container error, so that container renders its own error page. Other exceptions are not handled.
+ * </p>
+ * <p>
+ * Client errors are logged without stack traces at debug level, server errors are logged with stack traces.
+ * </p>
+ */
+@ParametersAreNonnullByDefault
+public abstract class BaseRestErrorExceptionResolver extends AbstractHandlerExceptionResolver {
+  /**
+   * Default order of this resolver, puts it ahead of the resolvers, registered by MVC configuration.
+   */
+  public static final int DEFAULT_ORDER = -1;
+
+  private static final int MAX_NEGOTIATION_CACHE_ENTRIES = 256;
+  private static final int MAX_CACHED_ACCEPT_LENGTH = 512;
+
+  // marks negotiation result, that tells that error should be sent as a container error
+  private static final NegotiationResult FALLBACK = new NegotiationResult(null);
+
+  private final ConcurrentMap<String, NegotiationResult> negotiationCache = new ConcurrentHashMap<>();
+
+  public BaseRestErrorExceptionResolver() {
+    setOrder(DEFAULT_ORDER);
+  }
+
+  //
+  // Protected
+  //
+
+  @Override
+  @Nullable
+  protected ModelAndView doResolveException(
+      HttpServletRequest request,
+      HttpServletResponse response,
+      @Nullable Object handler,
+      Exception ex) {
+    if (!(ex instanceof HttpRestErrorException) || response.isCommitted()) {
+      return null;
+    }
+
+    final HttpRestErrorException e = (HttpRestErrorException) ex;
+    final NegotiationResult negotiationResult = negotiate(request);
+    try {
+      if (negotiationResult == FALLBACK) {
+        response.sendError(e.getStatusCode());
+        return new ModelAndView();
+      }
+
+      final byte[] body = negotiationResult.encoder.encode(ErrorV1.ErrorResponse.newBuilder()
+          .setError(getErrorBudget().apply(e.getError()))
+          .build());
+
+      response.setStatus(e.getStatusCode());
+      response.setContentType(negotiationResult.encoder.getContentType());
+      response.setContentLength(body.length);
+      final ServletOutputStream outputStream = response.getOutputStream();
+      outputStream.write(body);
+      outputStream.flush();
+    } catch (IOException | RuntimeException writeException) {
+      logger.warn("Unable to write error response for exception=" + ex, writeException);
+      return null;
+    }
+
+    // empty model and view tells dispatcher servlet, that response has been written
+    return new ModelAndView();
+  }
+
+  @Override
+  protected void logException(Exception ex, HttpServletRequest request) {
+    if (ex instanceof HttpRestErrorException && ((HttpRestErrorException) ex).getStatusCode() < 500) {
+      // client errors are expected, so their stack traces carry no useful information
+      if (logger.isDebugEnabled()) {
+        logger.debug(buildLogMessage(ex, request));
+      }
+      return;
+    }
+
+    logger.warn(buildLogMessage(ex, request), ex);
+  }
+
+  /**
+   * Checks whether REST error can be written for a request, that accepts the given media types.
+   * The decision is cached along with negotiation result.
+   *
+   * @param acceptMediaTypes Media types, listed in Accept header of the request
+   * @return False, if rest error should not be written
+   */
+  protected abstract boolean canTryWriteRestError(List<MediaType> acceptMediaTypes);
+
+  /**
+   * @return List of rest error encoders, human-friendly should come first
+   */
+  protected abstract List<RestErrorEncoder> getRestErrorEncoders();
+
+  /**
+   * @return Limits, that errors are truncated to before being written, {@link ErrorBudget#DEFAULT} by default
+   */
+  protected ErrorBudget getErrorBudget() {
+    return ErrorBudget.DEFAULT;
+  }
+
+  //
+  // Private
+  //
+
+  private NegotiationResult negotiate(HttpServletRequest request) {
+    final String accept = getAccept(request);
+
+    NegotiationResult result = negotiationCache.get(accept);
+    if (result != null) {
+      return result;
+    }
+
+    try {
+      result = negotiate(MediaType.parseMediaTypes(accept));
+    } catch (InvalidMediaTypeException ignored) {
+      // broken headers - resort to container error
+      result = FALLBACK;
+    }
+
+    // size check is not atomic, so cache might slightly exceed its bound under contention
+    if (accept.length() <= MAX_CACHED_ACCEPT_LENGTH && negotiationCache.size() < MAX_NEGOTIATION_CACHE_ENTRIES) {
+      negotiationCache.putIfAbsent(accept, result);
+    }
+
+    return result;
+  }
+
+  private NegotiationResult negotiate(List<MediaType> acceptMediaTypes) {
+    if (canTryWriteRestError(acceptMediaTypes)) {
+      // encoders take priority over accepted media types
+      for (final RestErrorEncoder encoder : getRestErrorEncoders()) {
+        final MediaType mediaType = MediaType.parseMediaType(encoder.getContentType());
+        for (final MediaType acceptMediaType : acceptMediaTypes) {
+          if (mediaType.isCompatibleWith(acceptMediaType)) {
+            return new NegotiationResult(encoder);
+          }
+        }
+      }
+    }
+
+    return FALLBACK;
+  }
+
+  private static String getAccept(HttpServletRequest request) {
+    final Enumeration<String> values = request.getHeaders(HttpHeaders.ACCEPT);
+    if (values == null || !values.hasMoreElements()) {
+      return "";
+    }
+
+    final String first = values.nextElement();
+    if (!values.hasMoreElements()) {
+      return first;
+    }
+
+    final StringBuilder builder = new StringBuilder(first);
+    while (values.hasMoreElements()) {
+      builder.append(',').append(values.nextElement());
+    }
+    return builder.toString();
+  }
+
+  private static final class NegotiationResult {
+    final RestErrorEncoder encoder;
+
+    NegotiationResult(@Nullable RestErrorEncoder encoder) {
+      this.encoder = encoder;
+    }
+  }
+}
@@ -0,0 +1,49 @@
+package com.truward.brikar.error.mvc;
+
+import com.truward.brikar.error.RestErrorEncoder;
+import com.truward.brikar.error.RestErrorEncoders;
+import org.springframework.http.MediaType;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Standard exception resolver, that follows the same negotiation rules as Jetty error handler.
+ */
+@ParametersAreNonnullByDefault
+public class StandardRestErrorExceptionResolver extends BaseRestErrorExceptionResolver {
+  private final List<RestErrorEncoder> restErrorEncoders;
+
+  public StandardRestErrorExceptionResolver(List<RestErrorEncoder> restErrorEncoders) {
+    this.restErrorEncoders = new ArrayList<>(Objects.requireNonNull(restErrorEncoders, "restErrorEncoders"));
+  }
+
+  public StandardRestErrorExceptionResolver() {
+    this(Arrays.asList(
+        // Json should be the first one as it takes priority over binary error representation
+        RestErrorEncoders.json(),
+        // compact binary representation is used only when explicitly accepted by the client
+        RestErrorEncoders.protobufV2(),
+        RestErrorEncoders.protobuf()));
+  }
+
+  @Override
+  protected boolean canTryWriteRestError(List<MediaType> acceptMediaTypes) {
+    for (final MediaType acceptMediaType : acceptMediaTypes) {
+      if (MediaType.TEXT_HTML.isCompatibleWith(acceptMediaType)) {
+        // prefer text/html error description whenever possible
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  @Override
+  protected List<RestErrorEncoder> getRestErrorEncoders() {
+    return this.restErrorEncoders;
+  }
+}
@@ -0,0 +1,174 @@
+package com.truward.brikar.error.mvc.test;
+
+import com.truward.brikar.error.ErrorV2Converter;
+import com.truward.brikar.error.RestErrors;
+import com.truward.brikar.error.model.ErrorV1;
+import com.truward.brikar.error.mvc.StandardRestErrorExceptionResolver;
+import com.truward.brikar.error.parser.RestErrorParser;
+import com.truward.brikar.protobuf.http.ProtobufHttpConstants;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Controller;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * Integration test for Spring MVC exception resolver, that runs dispatcher servlet in embedded Jetty.
+ */
+public final class MvcRestErrorsIntegrationTest {
+  private static final String HEALTH_PATH = "/health";
+  private static final String REST_ERROR_PATH = "/rest-error";
+  private static final String INTERNAL_ERROR_PATH = "/internal-error";
+
+  private static final RestErrors REST_ERRORS = new RestErrors() {
+    @Override
+    protected String getSource() {
+      return "TestService";
+    }
+  };
+
+  private static Server server;
+
+  @BeforeClass
+  public static void startServer() throws Exception {
+    final AnnotationConfigWebApplicationContext context = new AnnotationConfigWebApplicationContext();
+    context.register(TestConfig.class);
+
+    final ServletContextHandler contextHandler = new ServletContextHandler(0);
+    contextHandler.setContextPath("/");
+    contextHandler.addServlet(new ServletHolder(new DispatcherServlet(context)), "/*");
+
+    server = new Server(0);
+    server.setSendServerVersion(false);
+    server.setHandler(contextHandler);
+    server.start();
+  }
+
+  @AfterClass
+  public static void stopServer() throws Exception {
+    if (server != null) {
+      server.stop();
+    }
+  }
+
+  @Test
+  public void shouldRespondNormally() throws IOException {
+    final HttpURLConnection connection = open(HEALTH_PATH, MediaType.APPLICATION_JSON_VALUE);
+    try {
+      assertEquals(200, connection.getResponseCode());
+      assertEquals("OK", StreamUtils.copyToString(connection.getInputStream(), StandardCharsets.UTF_8));
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+  @Test
+  public void shouldWriteRestErrorsInAllFormats() throws IOException {
+    final ErrorV1.Error expected = REST_ERRORS.invalidArgument("id").getError();
+
+    for (final String accept : new String[] {
+        MediaType.APPLICATION_JSON_VALUE,
+        ProtobufHttpConstants.PROTOBUF_MEDIA_TYPE.toString(),
+        ErrorV2Converter.PROTOBUF_CONTENT_TYPE}) {
+      // repeat request to go through cached negotiation result
+      for (int i = 0; i < 2; ++i) {
+        assertEquals(expected, readError(REST_ERROR_PATH, accept, 400));
+      }
+    }
+  }
+
+  @Test
+  public void shouldWriteServerErrors() throws IOException {
+    final ErrorV1.Error expected = REST_ERRORS.internalServerError("Test").getError();
+
+    assertEquals(expected, readError(INTERNAL_ERROR_PATH, MediaType.APPLICATION_JSON_VALUE, 500));
+  }
+
+  @Test
+  public void shouldSendContainerErrorIfHtmlIsAccepted() throws IOException {
+    final HttpURLConnection connection = open(REST_ERROR_PATH, MediaType.TEXT_HTML_VALUE);
+    try {
+      assertEquals(400, connection.getResponseCode());
+      final String contentType = connection.getContentType();
+      assertTrue(contentType == null || !MediaType.APPLICATION_JSON.isCompatibleWith(
+          MediaType.parseMediaType(contentType)));
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+  //
+  // Private
+  //
+
+  private static HttpURLConnection open(String path, String accept) throws IOException {
+    final URL url = new URL("http://127.0.0.1:" + server.getConnectors()[0].getLocalPort() + path);
+    final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    connection.setRequestProperty(HttpHeaders.ACCEPT, accept);
+    return connection;
+  }
+
+  private static ErrorV1.Error readError(String path, String accept, int expectedStatus) throws IOException {
+    final HttpURLConnection connection = open(path, accept);
+    try {
+      assertEquals(expectedStatus, connection.getResponseCode());
+      return RestErrorParser.getDefault().readError(connection.getContentType(), connection.getErrorStream());
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+  @Configuration
+  @EnableWebMvc
+  static class TestConfig {
+
+    @Bean
+    public TestController testController() {
+      return new TestController();
+    }
+
+    @Bean
+    public StandardRestErrorExceptionResolver restErrorExceptionResolver() {
+      return new StandardRestErrorExceptionResolver();
+    }
+  }
+
+  @Controller
+  static class TestController {
+
+    @RequestMapping(HEALTH_PATH)
+    @ResponseBody
+    public String health() {
+      return "OK";
+    }
+
+    @RequestMapping(REST_ERROR_PATH)
+    public void restError() {
+      throw REST_ERRORS.invalidArgument("id");
+    }
+
+    @RequestMapping(INTERNAL_ERROR_PATH)
+    public void internalError() {
+      throw REST_ERRORS.internalServerError("Test");
+    }
+  }
+}